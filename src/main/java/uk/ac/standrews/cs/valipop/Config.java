@@ -18,9 +18,13 @@ package uk.ac.standrews.cs.valipop;
 
 import uk.ac.standrews.cs.utilities.FileManipulation;
 import uk.ac.standrews.cs.valipop.export.ExportFormat;
+import uk.ac.standrews.cs.valipop.implementations.PartnerMatchingType;
 import uk.ac.standrews.cs.valipop.implementations.SerializableConfig;
+import uk.ac.standrews.cs.valipop.simulationEntities.PersonStoreType;
 import uk.ac.standrews.cs.valipop.statistics.analysis.simulationSummaryLogging.SummaryRow;
 import uk.ac.standrews.cs.valipop.utils.InputFileReader;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.ValidationBackend;
+import uk.ac.standrews.cs.valipop.utils.addressLookup.GeographyIndexType;
 import uk.ac.standrews.cs.valipop.utils.sourceEventRecords.RecordFormat;
 
 import java.io.File;
@@ -37,9 +41,11 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Period;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.*;
 
 /**
@@ -62,7 +68,7 @@ public class Config implements Serializable {
     private static final double DEFAULT_PROPORTIONAL_RECOVERY_FACTOR = 1.0;
     private static final double DEFAULT_OVERSIZED_GEOGRAPHY_FACTOR = 1.0;
 
-    private static final Period DEFAULT_SIMULATION_TIME_STEP = Period.ofYears(1);
+    public static final Period DEFAULT_SIMULATION_TIME_STEP = Period.ofYears(1);
     private static final Period DEFAULT_INPUT_WIDTH = Period.ofYears(1);
     private static final Period DEFAULT_MIN_BIRTH_SPACING = Period.ofDays(147);
     private static final Period DEFAULT_MIN_GESTATION_PERIOD = Period.ofDays(147);
@@ -73,6 +79,13 @@ public class Config implements Serializable {
 
     private static final RecordFormat DEFAULT_OUTPUT_RECORD_FORMAT = RecordFormat.NONE;
     private static final ExportFormat DEFAULT_OUTPUT_GRAPH_FORMAT = ExportFormat.NONE;
+    private static final PersonStoreType DEFAULT_PERSON_STORE = PersonStoreType.OBJECT;
+    private static final GeographyIndexType DEFAULT_GEOGRAPHY_INDEX = GeographyIndexType.TREE_MAP;
+    private static final int DEFAULT_SIMULATION_THREADS = 1;
+    private static final boolean DEFAULT_SPLIT_RANDOM_STREAMS = false;
+    private static final boolean DEFAULT_STREAM_RECORDS = false;
+    private static final ValidationBackend DEFAULT_VALIDATION_BACKEND = ValidationBackend.RSCRIPT;
+    private static final PartnerMatchingType DEFAULT_PARTNER_MATCHING = PartnerMatchingType.SCAN;
     private static final String DEFAULT_RUN_PURPOSE = "default";
 
     // Input directory structure
@@ -112,6 +125,9 @@ public class Config implements Serializable {
     private static final Logger log = Logger.getLogger(Config.class.getName());
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH-mm-ss-SSS");
     private static Level logLevel = DEFAULT_LOG_LEVEL;
+
+    // The log file handler of the configuration made last on each thread, by thread id
+    private static final Map<Integer, Handler> logHandlers = new ConcurrentHashMap<>();
     public static final Path DEFAULT_RESULTS_SAVE_PATH = Paths.get("results");
     private final Path DEFAULT_GEOGRAPHY_FILE_PATH = Paths.get("geography.ser");
     private final Path DEFAULT_PROJECT_PATH = Paths.get(".");
@@ -205,8 +221,18 @@ public class Config implements Serializable {
     private String runPurpose = DEFAULT_RUN_PURPOSE;
     private RecordFormat outputRecordFormat = DEFAULT_OUTPUT_RECORD_FORMAT;
     private ExportFormat outputGraphFormat = DEFAULT_OUTPUT_GRAPH_FORMAT;
+    private PersonStoreType personStore = DEFAULT_PERSON_STORE;
+    private GeographyIndexType geographyIndex = DEFAULT_GEOGRAPHY_INDEX;
+    private int simulationThreads = DEFAULT_SIMULATION_THREADS;
+    private boolean splitRandomStreams = DEFAULT_SPLIT_RANDOM_STREAMS;
+    private boolean streamRecords = DEFAULT_STREAM_RECORDS;
+    private ValidationBackend validationBackend = DEFAULT_VALIDATION_BACKEND;
+    private PartnerMatchingType partnerMatching = DEFAULT_PARTNER_MATCHING;
+
+    private LocalDateTime startTime = nextStartTime();
 
-    private LocalDateTime startTime = LocalDateTime.now();
+    private transient Handler logHandler = null;
+    private transient int logThread;
 
     // Simulation period and start size
     private LocalDate tS;
@@ -216,6 +242,17 @@ public class Config implements Serializable {
 
     private Map<String, Processor> processors;
 
+    private static LocalDateTime lastStartTime = LocalDateTime.MIN;
+
+    // The run directory is named by the start time to the millisecond, so configs made in the same millisecond, by
+    // simulations started together in one process, are given successive milliseconds.
+    private static synchronized LocalDateTime nextStartTime() {
+
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        lastStartTime = now.isAfter(lastStartTime) ? now : lastStartTime.plus(1, ChronoUnit.MILLIS);
+        return lastStartTime;
+    }
+
     public static String formatTimeStamp(LocalDateTime startTime) {
         return startTime.format(FORMATTER);
     }
@@ -468,6 +505,69 @@ public class Config implements Serializable {
         return outputGraphFormat;
     }
 
+    public PersonStoreType getPersonStore() {
+        return personStore;
+    }
+
+    public Config setPersonStore(PersonStoreType personStore) {
+        this.personStore = personStore;
+        return this;
+    }
+
+    public GeographyIndexType getGeographyIndex() {
+        return geographyIndex;
+    }
+
+    public Config setGeographyIndex(GeographyIndexType geographyIndex) {
+        this.geographyIndex = geographyIndex;
+        return this;
+    }
+
+    public int getSimulationThreads() {
+        return simulationThreads;
+    }
+
+    public Config setSimulationThreads(int simulationThreads) {
+        this.simulationThreads = simulationThreads;
+        return this;
+    }
+
+    public boolean getSplitRandomStreams() {
+        return splitRandomStreams;
+    }
+
+    public Config setSplitRandomStreams(boolean splitRandomStreams) {
+        this.splitRandomStreams = splitRandomStreams;
+        return this;
+    }
+
+    public boolean getStreamRecords() {
+        return streamRecords;
+    }
+
+    public Config setStreamRecords(boolean streamRecords) {
+        this.streamRecords = streamRecords;
+        return this;
+    }
+
+    public ValidationBackend getValidationBackend() {
+        return validationBackend;
+    }
+
+    public Config setValidationBackend(ValidationBackend validationBackend) {
+        this.validationBackend = validationBackend;
+        return this;
+    }
+
+    public PartnerMatchingType getPartnerMatching() {
+        return partnerMatching;
+    }
+
+    public Config setPartnerMatching(PartnerMatchingType partnerMatching) {
+        this.partnerMatching = partnerMatching;
+        return this;
+    }
+
     public boolean getOutputTables() {
         return outputTables;
     }
@@ -675,6 +775,13 @@ public class Config implements Serializable {
 
         processors.put("output_record_format", value -> outputRecordFormat = RecordFormat.valueOf(value));
         processors.put("output_graph_format", value -> outputGraphFormat = ExportFormat.valueOf(value));
+        processors.put("person_store", value -> personStore = PersonStoreType.valueOf(value));
+        processors.put("geography_index", value -> geographyIndex = GeographyIndexType.valueOf(value));
+        processors.put("simulation_threads", value -> simulationThreads = Integer.parseInt(value));
+        processors.put("split_random_streams", value -> splitRandomStreams = value.toLowerCase().equals("true"));
+        processors.put("stream_records", value -> streamRecords = value.toLowerCase().equals("true"));
+        processors.put("validation_backend", value -> validationBackend = ValidationBackend.valueOf(value));
+        processors.put("partner_matching", value -> partnerMatching = PartnerMatchingType.valueOf(value));
         processors.put("log_level", value -> logLevel = Level.parse(value));
         processors.put("run_purpose", value -> runPurpose = value);
     }
@@ -747,20 +854,37 @@ public class Config implements Serializable {
         mkBlankFile(tracePath);
     }
 
+    // Simulations which run at the same time in one process each run on their own thread, so the log file of each
+    // configuration records what is logged on the thread which made it, and what is logged on threads which are not
+    // running a simulation.
     private void configureLogging() {
 
         try {
 
             Logger globalLogger = Logger.getLogger("");
+            int thread = (int) Thread.currentThread().getId();
+
+            // When running sims back to back we need to first stop writing to the old log file, but not to the log
+            // files of sims running on other threads
+            Handler previous = logHandlers.remove(thread);
+            if (previous != null) {
+                globalLogger.removeHandler(previous);
+                previous.close();
+            }
 
-            // When running sims back to back we need to first stop writing to the old log file
             for(Handler h : globalLogger.getHandlers()) {
-                globalLogger.removeHandler(h);
+                if (!logHandlers.containsValue(h)) {
+                    globalLogger.removeHandler(h);
+                }
             }
 
             Handler handler = new FileHandler(pathToLogDir(runPurpose, startTime, resultsSavePath).toString());
             handler.setFormatter(new SimpleFormatter());
+            handler.setFilter(record -> record.getThreadID() == thread || !logHandlers.containsKey(record.getThreadID()));
 
+            logHandler = handler;
+            logThread = thread;
+            logHandlers.put(thread, handler);
 
             globalLogger.addHandler(handler);
             globalLogger.setLevel(logLevel);
@@ -770,6 +894,20 @@ public class Config implements Serializable {
         }
     }
 
+    /**
+     * Stops writing to the log file of this configuration, leaving the log files of any others open.
+     */
+    public void closeLog() {
+
+        if (logHandler != null) {
+
+            logHandlers.remove(logThread, logHandler);
+            Logger.getLogger("").removeHandler(logHandler);
+            logHandler.close();
+            logHandler = null;
+        }
+    }
+
     public Path getGeographyFilePath() {
         return geographyFilePath;
     }
@@ -872,6 +1010,13 @@ public class Config implements Serializable {
             runPurpose,
             outputRecordFormat,
             outputGraphFormat,
+            personStore,
+            geographyIndex,
+            simulationThreads,
+            splitRandomStreams,
+            streamRecords,
+            validationBackend,
+            partnerMatching,
             startTime,
             tS,
             t0,
@@ -935,6 +1080,13 @@ public class Config implements Serializable {
         this.runPurpose                       =config.runPurpose;
         this.outputRecordFormat               =config.outputRecordFormat;
         this.outputGraphFormat                =config.outputGraphFormat;
+        this.personStore                      =config.personStore;
+        this.geographyIndex                   =config.geographyIndex;
+        this.simulationThreads                =config.simulationThreads;
+        this.splitRandomStreams               =config.splitRandomStreams;
+        this.streamRecords                    =config.streamRecords;
+        this.validationBackend                =config.validationBackend;
+        this.partnerMatching                  =config.partnerMatching;
         this.startTime                        =config.startTime;
         this.tS                               =config.tS;
         this.t0                               =config.t0;
@@ -3,8 +3,8 @@ package uk.ac.standrews.cs.valipop.implementations;
 import org.apache.commons.math3.random.RandomGenerator;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
-import uk.ac.standrews.cs.valipop.simulationEntities.Partnership;
 import uk.ac.standrews.cs.valipop.simulationEntities.PopulationNavigation;
+import uk.ac.standrews.cs.valipop.simulationEntities.dataStructure.PeopleCollection;
 import uk.ac.standrews.cs.valipop.simulationEntities.dataStructure.Population;
 import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.PopulationStatistics;
@@ -12,6 +12,7 @@ import uk.ac.standrews.cs.valipop.utils.addressLookup.Address;
 import uk.ac.standrews.cs.valipop.utils.addressLookup.ForeignGeography;
 import uk.ac.standrews.cs.valipop.utils.addressLookup.Geography;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.Year;
 import java.time.temporal.ChronoUnit;
@@ -20,7 +21,7 @@ import java.util.*;
 /**
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class BalancedMigrationModel {
+public class BalancedMigrationModel implements Serializable {
 
     private final Population population;
     private final RandomGenerator randomNumberGenerator;
@@ -48,17 +49,17 @@ public class BalancedMigrationModel {
                 .getRate(0)));
 
         Collection<List<IPerson>> peopleToMigrate = new ArrayList<>();
-        List<IPerson> livingPeople = new ArrayList<>(population.getLivingPeople().getPeople());
+        PeopleCollection livingPeople = population.getLivingPeople();
 
-        HashSet<IPerson> theMigrated = new HashSet<>();
+        // emigrants leave the living people, so only someone picked who did not leave their abode is picked again
+        Set<IPerson> theMigrated = newIdentitySet();
         // select people to move out of country
         while(theMigrated.size() < numberToMigrate) {
 
 
             IPerson selected;
             do {
-                int random = randomNumberGenerator.nextInt(livingPeople.size());
-                selected = livingPeople.get(random);
+                selected = livingPeople.getRandomPerson(randomNumberGenerator);
             } while(theMigrated.contains(selected));
 
             theMigrated.add(selected);
@@ -72,6 +73,10 @@ public class BalancedMigrationModel {
             if(withHousehold) {
                 Address emigrateTo = null;
 
+                // everyone leaving in this group, whether they have left the abode yet or not
+                Set<IPerson> leaving = newIdentitySet();
+                leaving.addAll(currentAbode.getInhabitants());
+
                 while(!currentAbode.getInhabitants().isEmpty()) {
                     IPerson person = currentAbode.getInhabitants().get(0);
 
@@ -79,7 +84,7 @@ public class BalancedMigrationModel {
 
                     LocalDate personalMoveDate = moveDate;
 
-                    if(lastChild != null && !household.contains(lastChild) && !currentAbode.getInhabitants().contains(lastChild) && lastChild.getDeathDate() == null) {
+                    if(lastChild != null && !leaving.contains(lastChild) && lastChild.getDeathDate() == null) {
                         // if emigrating persons last child exists and is not emigrating in this group and is not dead
                         // we need to make sure that this last child was not conceived after the father left
                         personalMoveDate = checkConceptionBeforeMove(currentTime, moveDate, lastChild, personalMoveDate);
@@ -172,9 +177,12 @@ public class BalancedMigrationModel {
 
                 }
 
+                Set<IPerson> newInhabitants = newIdentitySet();
+                newInhabitants.addAll(newHouse.getInhabitants());
+
                 for(IPerson p : mimicPersonLookup.values()) {
 
-                    if(!newHouse.getInhabitants().contains(p))
+                    if(!newInhabitants.contains(p))
                         p.setPhantom(true);
 
                 }
@@ -280,7 +288,7 @@ public class BalancedMigrationModel {
             IPerson mimicedFather = mimicPersonLookup.keySet().contains(fatherToMimic) ? mimicPersonLookup.get(fatherToMimic) : personFactory.makePerson(randomDateInYear(fatherToMimic.getBirthDate()), null, fatherToMimic.isAdulterousBirth(), true, SexOption.MALE);
             IPerson mimicedMother = mimicPersonLookup.keySet().contains(motherToMimic) ? mimicPersonLookup.get(motherToMimic) : personFactory.makePerson(randomDateInYear(motherToMimic.getBirthDate()), null, motherToMimic.isAdulterousBirth(), true, SexOption.FEMALE);
 
-            parents = new Partnership(mimicedFather, mimicedMother);
+            parents = personFactory.makePartnership(mimicedFather, mimicedMother);
             parents.setPartnershipDate(parentsToMimic.getPartnershipDate());
             parents.setMarriageDate(parentsToMimic.getMarriageDate());
 
@@ -298,6 +306,10 @@ public class BalancedMigrationModel {
         return LocalDate.of(year, 1, 1).plus(day, ChronoUnit.DAYS);
     }
 
+    private static Set<IPerson> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
     private boolean migrateWithHousehold(LocalDate currentDate, IPerson person, Address address) {
 
         boolean withHousehold = false;
@@ -1,9 +1,11 @@
 package uk.ac.standrews.cs.valipop.implementations;
 
 import uk.ac.standrews.cs.valipop.Config;
+import uk.ac.standrews.cs.valipop.implementations.minimaSearch.Control;
+import uk.ac.standrews.cs.valipop.implementations.minimaSearch.MinimaSearch;
+import uk.ac.standrews.cs.valipop.implementations.minimaSearch.Minimise;
 import uk.ac.standrews.cs.valipop.utils.ProcessArgs;
 import uk.ac.standrews.cs.valipop.utils.ProgramTimer;
-import uk.ac.standrews.cs.valipop.utils.RCaller;
 
 import java.io.IOException;
 import java.nio.file.Paths;
@@ -54,7 +56,7 @@ public class CL_OBDModel {
 
         int value = model.getDesiredPopulationStatistics().getOrderedBirthRates(Year.of(0)).getLargestLabel().getValue();
 
-        double v = RCaller.getGeeglmV(config.getRunPath(), value);
+        double v = MinimaSearch.getV(Minimise.GEEGLM, value, Control.RF, config, model.getContingencyTables());
 
         model.getSummaryRow().setStatsRunTime(statsTimer.getRunTimeSeconds());
         model.getSummaryRow().setV(v);
@@ -24,6 +24,8 @@ import java.time.LocalDate;
 import java.time.Period;
 import java.time.Year;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.spark.SparkConf;
@@ -31,13 +33,16 @@ import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 
 import uk.ac.standrews.cs.valipop.Config;
+import uk.ac.standrews.cs.valipop.implementations.minimaSearch.Control;
+import uk.ac.standrews.cs.valipop.implementations.minimaSearch.MinimaSearch;
+import uk.ac.standrews.cs.valipop.implementations.minimaSearch.Minimise;
+import uk.ac.standrews.cs.valipop.statistics.analysis.simulationSummaryLogging.ResourcePredictor;
 import uk.ac.standrews.cs.valipop.statistics.analysis.simulationSummaryLogging.SummaryRow;
 import uk.ac.standrews.cs.valipop.utils.ProcessArgs;
 import uk.ac.standrews.cs.valipop.utils.ProgramTimer;
-import uk.ac.standrews.cs.valipop.utils.RCaller;
 
 public class DistributedFactorSearch {
-    public static void main(String[] args) throws InterruptedException {
+    public static void main(String[] args) throws InterruptedException, IOException {
         String[] pArgs = ProcessArgs.process(args, "FACTOR_SEARCH_PRECISION");
         if (!ProcessArgs.check(pArgs, "FACTOR_SEARCH_PRECISION")) {
             System.err.println("Incorrect arguments given");
@@ -69,6 +74,8 @@ public class DistributedFactorSearch {
 
         List<ModelInput> inputs = generateInputs(seedSize, rfs, prfs, precisions, dataFiles, numberOfRunsPerSim, runPurpose, resultsDir, summaryResultsDir, projectPath);
 
+        predictResourceUse(inputs, summaryResultsDir, conf);
+
         if (!inputs.isEmpty()) {
             ModelInput i = inputs.get(0);
 
@@ -78,13 +85,15 @@ public class DistributedFactorSearch {
 
         System.out.println("Generated " + inputs.size() + " configs");
 
+        int partitions = Math.max(1, Math.min(inputs.size(), sc.defaultParallelism()));
+
         JavaRDD<ModelInput> df = sc.parallelize(
-            inputs,
-            inputs.size()
+            dealToPartitions(inputs, partitions),
+            partitions
         );
 
         df
-            .map(DistributedFactorSearch::runModel)
+            .mapPartitions(DistributedFactorSearch::runModels)
             .map(DistributedFactorSearch::validateModel)
             .collect()
             .forEach(DistributedFactorSearch::outputSummary);
@@ -110,6 +119,8 @@ public class DistributedFactorSearch {
         public double prf;
         public Period input_width;
         public Period minBirthSpacing;
+
+        public ResourcePredictor.Prediction prediction;
         
         public ModelInput(
             LocalDate tS,
@@ -160,6 +171,19 @@ public class DistributedFactorSearch {
     }
 
     // --- Distrubited Operations ---
+
+    // Runs the models of a partition one after another, so that each executor reads in the input distributions and
+    // geography once (see InputCache) rather than once for every model
+    private static Iterator<ModelOutput> runModels(Iterator<ModelInput> inputs) {
+        List<ModelOutput> outputs = new ArrayList<>();
+
+        while (inputs.hasNext()) {
+            outputs.add(runModel(inputs.next()));
+        }
+
+        return outputs.iterator();
+    }
+
     private static ModelOutput runModel(ModelInput i) {
         Config config = new Config(i.tS, i.t0, i.tE, i.size, Paths.get(i.dataFiles), Paths.get(i.resultLocation), i.runPurpose, Paths.get(i.summaryResultsLocation));
 
@@ -176,6 +200,10 @@ public class DistributedFactorSearch {
 
         OBDModel model = new OBDModel(config);
 
+        if (i.prediction != null) {
+            model.getSummaryRow().setPrediction(i.prediction);
+        }
+
         try {
             System.out.println("Simulating the model");
             model.runSimulation();
@@ -201,7 +229,7 @@ public class DistributedFactorSearch {
         SummaryRow summaryRow = new SummaryRow(result.summaryRow);
 
         ProgramTimer statsTimer = new ProgramTimer();
-        double v = RCaller.getGeeglmV(config.getRunPath(), maxBirthingAge);
+        double v = MinimaSearch.getV(Minimise.GEEGLM, maxBirthingAge, Control.RF, config);
 
         summaryRow.setV(v);
         summaryRow.setStatsRunTime(statsTimer.getRunTimeSeconds());
@@ -209,6 +237,39 @@ public class DistributedFactorSearch {
         return summaryRow.toSerialized();
     }
 
+    // Predicts the resource use of each model from earlier runs, and warns of those which are unlikely to fit in an
+    // executor. The longest running models are started first, so that the last to finish is not a long one started late.
+    private static void predictResourceUse(List<ModelInput> inputs, Path summaryResultsDir, SparkConf conf) throws IOException {
+
+        ResourcePredictor predictor = ResourcePredictor.read(summaryResultsDir.resolve("global-results-summary.csv"));
+        long executorMemory = conf.getSizeAsBytes("spark.executor.memory", "1g");
+
+        for (ModelInput input : inputs) {
+
+            input.prediction = predictor.predict(Paths.get(input.dataFiles), Config.DEFAULT_SIMULATION_TIME_STEP, input.size, input.tS, input.t0, input.tE);
+
+            if (input.prediction != null && input.prediction.getMemoryUpperBound() > executorMemory) {
+                System.out.println("Predicted memory use of " + (long) (input.prediction.getMemoryUpperBound() / 1e6) + " MB for rf: " + input.rf + ", rpf: " + input.prf + " may exceed the executor memory of " + (executorMemory / 1000000) + " MB");
+            }
+        }
+
+        inputs.sort(Comparator.comparingDouble((ModelInput input) -> input.prediction == null ? 0 : input.prediction.getRunTime()).reversed());
+    }
+
+    // Orders the inputs so that the contiguous slices taken by parallelize each hold every n-th input, which spreads
+    // the longest running models, sorted to the front, across the partitions rather than putting them all in the first
+    private static List<ModelInput> dealToPartitions(List<ModelInput> inputs, int partitions) {
+        List<ModelInput> dealt = new ArrayList<>(inputs.size());
+
+        for (int partition = 0; partition < partitions; partition++) {
+            for (int i = partition; i < inputs.size(); i += partitions) {
+                dealt.add(inputs.get(i));
+            }
+        }
+
+        return dealt;
+    }
+
     private static void outputSummary(SerializableSummaryRow sr) {
         SummaryRow summaryRow = new SummaryRow(sr);
         summaryRow.outputSummaryRowToFile();
@@ -24,6 +24,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.Period;
+import java.util.concurrent.Semaphore;
 
 /**
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
@@ -31,7 +32,7 @@ import java.time.Period;
 public class FactorSearch {
 
     private static final int THREAD_LIMIT = 2;
-    public static int threadCount = 0;
+    private static final Semaphore analysisSlots = new Semaphore(THREAD_LIMIT);
 
     public static void main(String[] args) throws InterruptedException {
 
@@ -117,11 +118,8 @@ public class FactorSearch {
                                         throw e;
                                     }
 
-                                    while (threadCount >= THREAD_LIMIT) {
-                                        Thread.sleep(10000);
-                                    }
-
-                                    new AnalysisThread(model, config, threadCount).start();
+                                    analysisSlots.acquire();
+                                    new AnalysisThread(model, config, analysisSlots).start();
                                 }
                             }
                         }
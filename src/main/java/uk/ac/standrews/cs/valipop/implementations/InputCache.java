@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import uk.ac.standrews.cs.valipop.Config;
+import uk.ac.standrews.cs.valipop.statistics.populationStatistics.PopulationStatistics;
+import uk.ac.standrews.cs.valipop.utils.addressLookup.Area;
+import uk.ac.standrews.cs.valipop.utils.addressLookup.BinaryGeography;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Holds the input distributions and geography read in for earlier simulations in this JVM, so that simulations of
+ * the same inputs, such as the runs of a factor search, need not read and parse the input files again. Each
+ * simulation is given its own copy of what was read in, sharing the tables but not the state which changes as the
+ * simulation runs, so it behaves exactly as if the files had been read in for it alone.
+ *
+ * What is read in is held by soft references, so is discarded rather than cause the heap to be exhausted. The
+ * sizes and modification times of the input files are part of what identifies it, so inputs changed on disk are
+ * read in again.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class InputCache {
+
+    private static final Logger log = Logger.getLogger(InputCache.class.getName());
+
+    private static final Map<List<Object>, SoftReference<PopulationStatistics>> statistics = new HashMap<>();
+    private static final Map<List<Object>, SoftReference<List<Area>>> geographies = new HashMap<>();
+
+    /**
+     * Returns statistics for the given config, reading in the input distributions only if they have not already been
+     * read in for the same inputs, input width and dates.
+     *
+     * @param config the config of the simulation the statistics are for
+     * @return statistics for the simulation alone
+     * @throws IOException if the input directory cannot be read
+     */
+    public static PopulationStatistics getStatistics(final Config config) throws IOException {
+
+        final List<Object> key = Arrays.asList(describeFiles(config.getVarPath()), config.getInputWidth(),
+                config.getTS(), config.getT0(), config.getTE(), config.getBinomialSampling());
+
+        PopulationStatistics loaded;
+
+        synchronized (statistics) {
+
+            final SoftReference<PopulationStatistics> reference = statistics.get(key);
+            loaded = reference == null ? null : reference.get();
+
+            if (loaded == null) {
+                log.info("Reading input distributions from " + config.getVarPath());
+                loaded = PopulationStatistics.readIn(config);
+                statistics.put(key, new SoftReference<>(loaded));
+            }
+        }
+
+        return new PopulationStatistics(loaded, config);
+    }
+
+    /**
+     * Returns the residential areas of the geography file of the given config, reading the file only if it has not
+     * already been read.
+     *
+     * @param config the config of the simulation the areas are for
+     * @return areas for the simulation alone
+     * @throws IOException if the geography file cannot be read
+     */
+    public static List<Area> getAreas(final Config config) throws IOException {
+
+        final Path path = config.getGeographyFilePath();
+        final List<Object> key = Arrays.asList(describeFiles(path));
+
+        List<Area> loaded;
+
+        synchronized (geographies) {
+
+            final SoftReference<List<Area>> reference = geographies.get(key);
+            loaded = reference == null ? null : reference.get();
+
+            if (loaded == null) {
+                loaded = readAreaList(path);
+                geographies.put(key, new SoftReference<>(loaded));
+            }
+        }
+
+        return loaded.stream().map(Area::copy).collect(Collectors.toList());
+    }
+
+    /**
+     * Discards everything read in so far.
+     */
+    public static void clear() {
+
+        synchronized (statistics) {
+            statistics.clear();
+        }
+        synchronized (geographies) {
+            geographies.clear();
+        }
+    }
+
+    private static List<Area> readAreaList(final Path path) throws IOException {
+
+        if (BinaryGeography.isBinaryGeography(path)) {
+            return BinaryGeography.read(path);
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        return Arrays.asList(objectMapper.readValue(new File(path.toString()), Area[].class));
+    }
+
+    // Lists the path, size and modification time of each file at or below the given path
+    private static List<String> describeFiles(final Path path) throws IOException {
+
+        try (Stream<Path> files = Files.walk(path.toAbsolutePath().normalize())) {
+
+            final List<String> descriptions = new ArrayList<>();
+
+            for (final Path file : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+                descriptions.add(file + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis());
+            }
+
+            return descriptions;
+        }
+    }
+}
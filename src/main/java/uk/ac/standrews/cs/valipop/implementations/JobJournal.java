@@ -0,0 +1,437 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations;
+
+import uk.ac.standrews.cs.valipop.utils.DataRow;
+import uk.ac.standrews.cs.valipop.utils.InvalidInputFileException;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormat;
+import java.util.*;
+
+/**
+ * The jobs in a job file, and how many of each remain to be run, shared by job queue runners on any number of nodes.
+ *
+ * The job file itself is only read, so jobs can be added to it at any time. What happens to the jobs is recorded in
+ * a journal file alongside it, named by adding {@code .journal} to the job file name, to which each runner only
+ * appends lines:
+ *
+ * <pre>
+ *     CLAIM,job,claim              a runner takes one run of the job
+ *     WITHDRAW,job,claim           the claim was made after the last run of the job had been claimed by another runner
+ *     RETURN,job,claim,memory,priority   the run could not be completed, and is to be run again with the given
+ *                                  required memory and priority
+ *     DONE,job,claim               the run was completed
+ * </pre>
+ *
+ * where job identifies a job by the values of its row other than the priority, number of runs and required memory,
+ * and claim identifies one claim. Each line is written in one write while holding a lock on the journal, so lines are
+ * never interleaved, but nothing is held while the jobs are read or chosen. Runners make claims without waiting for
+ * each other, and where several claim the last run of a job the claim written first succeeds and the others are
+ * withdrawn.
+ *
+ * Runs of a job claimed by a runner which stops without completing them are not run again.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class JobJournal {
+
+    public static final int DO_NOT_RUN = 99;
+
+    // once some runs of a job have been taken the rest are run in preference to starting new jobs
+    private static final int STARTED_PRIORITY = 3;
+
+    private static final String CLAIM = "CLAIM";
+    private static final String WITHDRAW = "WITHDRAW";
+    private static final String RETURN = "RETURN";
+    private static final String DONE = "DONE";
+
+    private static final String MULTIPLE_JOBS = "-*[0-4]\\.[0-9]+->[0-4]\\.[0-9]+@[0-4]\\.[0-9]+";
+    private static final Set<String> RUN_LABELS = new HashSet<>(Arrays.asList("priority", "n", "required memory"));
+
+    private final Path jobFile;
+    private final Path journalFile;
+
+    private final Map<String, Progress> progress = new HashMap<>();
+    private final Map<String, Boolean> claimOutcomes = new HashMap<>();
+    private final Map<String, Integer> pendingClaims = new HashMap<>();
+    private long journalPosition = 0;
+
+    public JobJournal(Path jobFile) {
+
+        this.jobFile = jobFile;
+        journalFile = Paths.get(jobFile.toString() + ".journal");
+    }
+
+    /**
+     * A job in the job file with the runs of it which remain.
+     */
+    public static class Job {
+
+        private final String id;
+        private final DataRow row;
+        private final int runs;
+        private final int remaining;
+        private final int requiredMemory;
+        private final int returnedMemory;
+        private final int priority;
+
+        Job(String id, DataRow row, int runs, int remaining, int requiredMemory, int returnedMemory, int priority) {
+
+            this.id = id;
+            this.row = row;
+            this.runs = runs;
+            this.remaining = remaining;
+            this.requiredMemory = requiredMemory;
+            this.returnedMemory = returnedMemory;
+            this.priority = priority;
+        }
+
+        public DataRow getRow() {
+            return row;
+        }
+
+        public int getRemaining() {
+            return remaining;
+        }
+
+        /**
+         * Returns the memory required by the job in GB, which is the greater of that given in the job file and that
+         * it was last returned with.
+         */
+        public int getRequiredMemory() {
+            return requiredMemory;
+        }
+
+        /**
+         * Returns the memory in GB which the job was last returned with after running out of memory, or zero if it
+         * has not been.
+         */
+        public int getReturnedMemory() {
+            return returnedMemory;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public String toString() {
+            return row.toString(new ArrayList<>(new TreeSet<>(row.getLabels()))).trim();
+        }
+    }
+
+    // What the journal records about one job.
+    private static class Progress {
+
+        private int taken = 0;
+        private int returnedMemory = 0;
+        private Integer returnedPriority = null;
+    }
+
+    /**
+     * Returns the jobs with runs remaining, other than those not to be run, as recorded by all runners up to now.
+     */
+    public synchronized List<Job> getJobs() throws IOException, InvalidInputFileException {
+
+        readJournal();
+
+        List<Job> jobs = new ArrayList<>();
+
+        for (Map.Entry<String, DataRow> entry : readJobFile().entrySet()) {
+
+            DataRow row = entry.getValue();
+            Progress recorded = progress.getOrDefault(entry.getKey(), new Progress());
+
+            int runs = row.getInt("n");
+            int remaining = runs - recorded.taken;
+            int requiredMemory = Math.max(row.getInt("required memory"), recorded.returnedMemory);
+            int priority = getPriority(row, recorded);
+
+            if (remaining > 0 && priority != DO_NOT_RUN) {
+                jobs.add(new Job(entry.getKey(), row, runs, remaining, requiredMemory, recorded.returnedMemory, priority));
+            }
+        }
+
+        return jobs;
+    }
+
+    /**
+     * Takes one run of the given job.
+     *
+     * @return the claim, or null if another runner took the last run first
+     */
+    public synchronized String claim(Job job) throws IOException {
+
+        String claim = UUID.randomUUID().toString();
+
+        pendingClaims.put(claim, job.runs);
+        append(CLAIM, job.id, claim);
+        readJournal();
+
+        if (Boolean.TRUE.equals(claimOutcomes.remove(claim))) {
+            return claim;
+        }
+
+        append(WITHDRAW, job.id, claim);
+        return null;
+    }
+
+    /**
+     * Puts a claimed run of the given job back, to be run again with the given required memory and priority.
+     */
+    public synchronized void returnJob(Job job, String claim, int requiredMemory, int priority) throws IOException {
+        append(RETURN, job.id, claim, String.valueOf(requiredMemory), String.valueOf(priority));
+    }
+
+    /**
+     * Records that a claimed run of the given job was completed.
+     */
+    public synchronized void done(Job job, String claim) throws IOException {
+        append(DONE, job.id, claim);
+    }
+
+    private int getPriority(DataRow row, Progress recorded) {
+
+        if (recorded.returnedPriority != null) {
+            return recorded.returnedPriority;
+        }
+
+        try {
+            int priority = row.getInt("priority");
+            return recorded.taken > 0 ? Math.min(priority, STARTED_PRIORITY) : priority;
+
+        } catch (InvalidInputFileException e) {
+            return DO_NOT_RUN;
+        }
+    }
+
+    // Reads the jobs in the job file keyed by their identifiers, with the rows giving several factor values expanded
+    // into a job for each.
+    private Map<String, DataRow> readJobFile() throws IOException, InvalidInputFileException {
+
+        List<String> lines = Files.readAllLines(jobFile);
+
+        if (lines.size() < 2) {
+            throw new InvalidInputFileException("There's no jobs in the file");
+        }
+
+        String labels = lines.get(0);
+        Map<String, DataRow> jobs = new LinkedHashMap<>();
+
+        for (String line : lines.subList(1, lines.size())) {
+
+            if (line.trim().isEmpty()) continue;
+
+            for (DataRow row : explode(new DataRow(labels, line))) {
+
+                String id = identify(row);
+                DataRow same = jobs.get(id);
+
+                if (same == null) {
+                    jobs.put(id, row);
+                } else {
+                    // identical rows are the same job, with the runs of both
+                    same.setValue("n", String.valueOf(same.getInt("n") + row.getInt("n")));
+                }
+            }
+        }
+
+        return jobs;
+    }
+
+    private static List<DataRow> explode(DataRow job) {
+
+        if (!job.getValue("prf").matches(MULTIPLE_JOBS) && !job.getValue("rf").matches(MULTIPLE_JOBS)) {
+            return Collections.singletonList(job);
+        }
+
+        List<DataRow> jobs = new ArrayList<>();
+
+        try {
+            for (double prf : toValueSet(job.getValue("prf"))) {
+                for (double rf : toValueSet(job.getValue("rf"))) {
+
+                    DataRow copy = job.clone();
+                    copy.setValue("rf", String.valueOf(rf));
+                    copy.setValue("prf", String.valueOf(prf));
+                    jobs.add(copy);
+                }
+            }
+
+        } catch (InvalidInputFileException | NumberFormatException e) {
+            job.setValue("priority", String.valueOf(DO_NOT_RUN));
+            return Collections.singletonList(job);
+        }
+
+        return jobs;
+    }
+
+    private static String identify(DataRow job) {
+
+        StringBuilder values = new StringBuilder();
+
+        for (String label : new TreeSet<>(job.getLabels())) {
+            if (!RUN_LABELS.contains(label)) {
+                values.append(label).append('=').append(job.getValue(label)).append('\n');
+            }
+        }
+
+        return UUID.nameUUIDFromBytes(values.toString().getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static Set<Double> toValueSet(String rfExpression) throws InvalidInputFileException {
+
+        if (rfExpression.matches(MULTIPLE_JOBS)) {
+            Set<Double> set = new TreeSet<>();
+
+            String[] splitA = rfExpression.split("->");
+            if (splitA.length != 2) throw new InvalidInputFileException("Multi job expresion incorrect");
+
+            String[] splitB = splitA[1].split("@");
+            if (splitB.length != 2) throw new InvalidInputFileException("Multi job expresion incorrect");
+
+            double a = Double.valueOf(splitA[0]);
+            double b = Double.valueOf(splitB[0]);
+            double inc = Double.valueOf(splitB[1]);
+
+            if (a > b) {
+                double temp = a;
+                a = b;
+                b = temp;
+            }
+
+            for (double d = a; clean(d, a, inc) <= b; d += inc) {
+                set.add(clean(d, a, inc));
+            }
+
+            return set;
+
+        } else {
+            return Collections.singleton(Double.valueOf(rfExpression));
+        }
+    }
+
+    private static double clean(double d, double a, double inc) {
+
+        int roundTo = Math.max(postPointDigits(a), postPointDigits(inc));
+        DecimalFormat df = new DecimalFormat(generatePattern(roundTo));
+        df.setRoundingMode(RoundingMode.HALF_UP);
+        return Double.valueOf(df.format(d));
+    }
+
+    private static String generatePattern(int roundTo) {
+
+        StringBuilder sb = new StringBuilder("#.");
+
+        for (int i = 0; i < roundTo; i++) {
+            sb.append("#");
+        }
+
+        return sb.toString();
+    }
+
+    private static int postPointDigits(double d) {
+
+        String[] split = String.valueOf(d).split("\\.");
+        return split.length == 1 ? 1 : split[1].length();
+    }
+
+    private void append(String... fields) throws IOException {
+
+        byte[] line = (String.join(",", fields) + "\n").getBytes(StandardCharsets.UTF_8);
+
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+             FileLock ignored = channel.lock()) {
+
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    // Reads the complete lines added to the journal since it was last read.
+    private void readJournal() throws IOException {
+
+        if (!Files.exists(journalFile)) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+
+            long size = channel.size();
+            if (size <= journalPosition) {
+                return;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) (size - journalPosition));
+            while (buffer.hasRemaining() && channel.read(buffer, journalPosition + buffer.position()) >= 0) ;
+
+            String added = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+            int end = added.lastIndexOf('\n') + 1;
+
+            for (String line : added.substring(0, end).split("\n")) {
+                if (!line.isEmpty()) {
+                    replay(line.split(","));
+                }
+            }
+
+            journalPosition += added.substring(0, end).getBytes(StandardCharsets.UTF_8).length;
+        }
+    }
+
+    private void replay(String[] fields) {
+
+        Progress job = progress.computeIfAbsent(fields[1], id -> new Progress());
+
+        switch (fields[0]) {
+
+            case CLAIM:
+                Integer runs = pendingClaims.remove(fields[2]);
+                if (runs != null) {
+                    // one of this runner's claims, which succeeds if a run remained after the claims written before it
+                    claimOutcomes.put(fields[2], job.taken < runs);
+                }
+                job.taken++;
+                break;
+
+            case WITHDRAW:
+                job.taken--;
+                break;
+
+            case RETURN:
+                job.taken--;
+                job.returnedMemory = Math.max(job.returnedMemory, Integer.parseInt(fields[3]));
+                job.returnedPriority = Integer.parseInt(fields[4]);
+                break;
+
+            case DONE:
+            default:
+                break;
+        }
+    }
+}
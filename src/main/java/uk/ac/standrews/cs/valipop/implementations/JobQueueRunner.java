@@ -1,35 +1,79 @@
 package uk.ac.standrews.cs.valipop.implementations;
 
-import com.google.common.collect.Sets;
 import uk.ac.standrews.cs.valipop.Config;
+import uk.ac.standrews.cs.valipop.statistics.analysis.simulationSummaryLogging.ResourcePredictor;
 import uk.ac.standrews.cs.valipop.utils.*;
 import uk.ac.standrews.cs.valipop.utils.sourceEventRecords.RecordFormat;
 
 import java.io.IOException;
-import java.math.RoundingMode;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
-import java.text.DecimalFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.logging.Logger;
 
 /**
+ * Runs the jobs in a job file shared with runners on other nodes, running as many simulations at once as fit in the
+ * memory assigned to the runner.
+ *
+ * Jobs are started in order of priority, lowest first. A job is only started if the memory it needs fits both in
+ * the memory assigned less that needed by the jobs already running, and in the heap left free by the running jobs as
+ * of the last garbage collection. If the most urgent job which this runner could ever run does not fit, no less
+ * urgent job is started in its place, so that large jobs are not held off indefinitely by small ones. Among jobs of
+ * the same priority the largest that fits is started, and of those the longest running.
+ *
+ * The memory a job needs is predicted by a {@link ResourcePredictor} from the runs recorded in the global results
+ * summary in the job's summary results directory, and the prediction is recorded in the job's summary row. Where
+ * there are no runs to predict from, the required memory given in the job file (in GB) is used. A job which runs out
+ * of memory is put back needing more, and is picked up by a runner with enough memory. A job which cannot be
+ * configured from its row is put back not to be run.
+ *
+ * The analysis of each completed simulation runs in the thread which ran the simulation, with at most the given number
+ * of analyses running at once.
+ *
+ * What has happened to the jobs is recorded in a {@link JobJournal}, so the job file is not changed. The status file
+ * holds {@code run}, {@code pause} or {@code terminate}; when paused no new jobs are started, and when terminated the
+ * runner finishes the jobs it is running and stops.
+ *
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
 public class JobQueueRunner {
 
-    private static int THREAD_LIMIT = 1;
-    public static int threadCount = 1;
+    private static final int CHECK_INTERVAL_SECONDS = 10;
+    private static final double BYTES_PER_GB = 1024 * 1024 * 1024;
 
-    private static double appropriateUsageThreshold = 0.65;
     private static double memoryIncreaseOnMemoryException = 1.2;
 
-    private static final ArrayList<String> order = new ArrayList<>(Arrays.asList(new String[]{"priority","code version","reason","n","seed size","rf","prf","iw","input dir","results dir","summary results dir","required memory","output record format","deterministic","seed","setup br","setup dr","tS","t0","tE","timestep","binomial sampling","min birth spacing","min ges period","ct tree stepback","oversized geography factor"}));
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JobJournal journal;
+    private final int assignedMemory;
+    private final double loadThreshold;
+    private final Semaphore analysisSlots;
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final CompletionService<Double> completions = new ExecutorCompletionService<>(pool);
+
+    private final Map<Path, ResourcePredictor> predictors = new HashMap<>();
+    private final Map<Path, Long> predictorsModified = new HashMap<>();
+
+    private double reservedMemory = 0;
+    private int running = 0;
+
+    public JobQueueRunner(Path jobFile, int assignedMemory, int analysisThreadLimit, double loadThreshold) {
+
+        journal = new JobJournal(jobFile);
+        this.assignedMemory = assignedMemory;
+        this.loadThreshold = loadThreshold;
+        analysisSlots = new Semaphore(analysisThreadLimit);
+    }
 
     public static void main(String[] args) throws InterruptedException, IOException {
 
@@ -43,351 +87,289 @@ public class JobQueueRunner {
         // get assigned memory
         int assignedMemory = Integer.valueOf(args[2]);
 
-        THREAD_LIMIT = Integer.valueOf(args[3]);
+        int analysisThreadLimit = Integer.valueOf(args[3]);
 
         double threshold = Double.parseDouble(args[4]);
 
-        while(getStatus(statusPath)) {
+        new JobQueueRunner(jobQPath, assignedMemory, analysisThreadLimit, threshold).run(statusPath);
+    }
 
-            if(nodeIdle(threshold) && !checkPause(statusPath)) {
+    public void run(Path statusPath) throws IOException, InterruptedException {
 
-                try {
-                    DataRow chosenJob = getJob(jobQPath, assignedMemory);
+        try {
+            while (getStatus(statusPath)) {
 
-                    if (chosenJob != null) {
-                        System.out.println("JOB TAKEN @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + " - " + chosenJob.toString(order));
+                if (!checkPause(statusPath) && nodeIdle()) {
+                    startJobs();
+                }
 
-                        try {
+                // wait for a job to finish, or until it is time to check for new jobs
+                awaitCompletion(completions.poll(CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS));
+            }
 
-                            // runs GC to ensure no object left in memory from previous sims that may skew memory usage logging
-                            System.gc();
+            System.out.println("Closing due to status - waiting for " + running + " running jobs @ " + now());
 
-                            Config config = convertJobToConfig(chosenJob);
+            while (running > 0) {
+                awaitCompletion(completions.take());
+            }
 
-                            
-                            OBDModel model = new OBDModel(config);
-                            try {
-                                doubleLog(OBDModel.log, "Sim commencing @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + " with seed: " + config.getSeed());
-                                model.runSimulation();
-                                doubleLog(OBDModel.log, "Sim concluded, beginning CT tables generation @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                                model.analyseAndOutputPopulation(false, 5);
-                                doubleLog(OBDModel.log, "CT tables generation concluded @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        } finally {
+            pool.shutdown();
+        }
+    }
 
-                                if(THREAD_LIMIT == 1) {
-                                    doubleLog(OBDModel.log, "Beginning R Analysis in main thread @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                                    new AnalysisThread(model, config, threadCount).run(); // this runs it in the main thread
-                                } else {
-                                    while (threadCount >= THREAD_LIMIT) {
-                                        System.out.println("Waiting on availiable thread @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                                        Thread.sleep(10000);
-                                    }
+    private void startJobs() throws IOException {
 
-                                    doubleLog(OBDModel.log, "Beginning R Analysis in new thread @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                                    new AnalysisThread(model, config, threadCount).start(); // this runs it in a new thread
-                                }
+        try {
+            JobJournal.Job job;
 
-                                doubleLog(OBDModel.log, "R Analysis concluded @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+            while ((job = chooseJob(journal.getJobs(), Math.min(assignedMemory - reservedMemory, getFreeHeap()))) != null) {
 
-                            } catch (PreEmptiveOutOfMemoryWarning e) {
-                                model.recordOutOfMemorySummary();
-                                model.getSummaryRow().outputSummaryRowToFile();
+                String claim = journal.claim(job);
 
-                                System.out.println("JOB RETURNED - Insufficient memory @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + " - " + chosenJob.toString(order));
-                                // put job back in queue with higher memory requirement
-                                returnJobToQueue(jobQPath, chosenJob, (int) Math.ceil(assignedMemory * memoryIncreaseOnMemoryException), chosenJob.getInt("priority"), true);
-                            }
+                if (claim != null) {
+                    System.out.println("JOB TAKEN @ " + now() + " - " + job);
 
-                        } catch (InvalidInputFileException e) {
-                            System.out.println("JOB RETURNED - Invalid input @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + " - " + chosenJob.toString(order));
-                            returnJobToQueue(jobQPath, chosenJob, chosenJob.getInt("required memory"), 99, true);
-                        }
+                    JobJournal.Job taken = job;
+                    ResourcePredictor.Prediction prediction = predict(job);
+                    double needed = getNeededMemory(job, prediction);
 
-                    } else {
-                        System.out.println("NO SUITABLE JOB FOUND @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                        Thread.sleep(10000);
-                    }
-                } catch (InvalidInputFileException e) {
-                    System.out.println("Either the job file doesn't have any jobs or it's malformed - I'm going to keep looping and wait for you to fix that... @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                    Thread.sleep(60000);
+                    reservedMemory += needed;
+                    running++;
+                    completions.submit(() -> runJob(taken, claim, prediction, needed), needed);
                 }
             }
-        }
 
-        System.out.println("Closing due to status");
+            if (running == 0) {
+                System.out.println("NO SUITABLE JOB FOUND @ " + now());
+            }
 
+        } catch (InvalidInputFileException e) {
+            System.out.println("Either the job file doesn't have any jobs or it's malformed - I'm going to keep looping and wait for you to fix that... @ " + now());
+        }
     }
 
-    private static void doubleLog(Logger l, String s) {
-        System.out.println(s);
-        l.info(s);
-    }
+    /**
+     * Chooses the job to start next with the given memory free, or null if none is to be started.
+     */
+    JobJournal.Job chooseJob(List<JobJournal.Job> jobs, double freeMemory) {
 
-    // checks recent load average - if over threshold then does not run next sim until load average has dropped
-    private static boolean nodeIdle(double threshold) throws IOException, InterruptedException {
-        String result = execCmd("uptime");
-        String[] split = result.split(" ");
-        double load = Double.parseDouble(split[split.length - 3].split(",")[0]);
-
-        System.out.println("Node check (" + load + ") @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-        
-        if(load > threshold) {
-            System.out.println("Node busy (" + load + ") @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-            Thread.sleep(60000);
-        }
-        
-        return load < threshold;
-    }
+        Map<JobJournal.Job, ResourcePredictor.Prediction> predictions = new HashMap<>();
+        int urgent = Integer.MAX_VALUE;
 
-    public static String execCmd(String cmd) throws java.io.IOException {
-        try (java.util.Scanner s = new java.util.Scanner(Runtime.getRuntime().exec(cmd).getInputStream()).useDelimiter("\\A")) {
-            return s.hasNext() ? s.next() : "";
+        for (JobJournal.Job job : jobs) {
+
+            ResourcePredictor.Prediction prediction = predict(job);
+            if (prediction != null) predictions.put(job, prediction);
+
+            if (getNeededMemory(job, prediction) <= assignedMemory) {
+                urgent = Math.min(urgent, job.getPriority());
+            }
         }
-    }
 
-    private static boolean getStatus(Path statusPath) throws IOException {
-        // read in file
-        ArrayList<String> lines = new ArrayList<>(InputFileReader.getAllLines(statusPath));
+        JobJournal.Job chosen = null;
+        double chosenMemory = 0;
+        double chosenRunTime = 0;
 
-        if(!lines.isEmpty()) {
-            switch (lines.get(0)) {
-                case "run": return true;
-                case "terminate" : return false;
+        for (JobJournal.Job job : jobs) {
+
+            ResourcePredictor.Prediction prediction = predictions.get(job);
+            double memory = getNeededMemory(job, prediction);
+            double runTime = prediction != null ? prediction.getRunTime() : 0;
+
+            if (job.getPriority() == urgent && memory <= freeMemory
+                    && (chosen == null || memory > chosenMemory || memory == chosenMemory && runTime > chosenRunTime)) {
+                chosen = job;
+                chosenMemory = memory;
+                chosenRunTime = runTime;
             }
         }
 
-        return true;
+        return chosen;
     }
 
-    private static boolean checkPause(Path statusPath) throws IOException, InterruptedException {
-        // read in file
-        ArrayList<String> lines = new ArrayList<>(InputFileReader.getAllLines(statusPath));
-        
-        boolean pause = false;
-        
-        if(!lines.isEmpty())
-            pause = lines.get(0).equals("pause");
+    // The memory in GB which the job is expected to need: the upper bound of the prediction, if there is one, or else
+    // the required memory given for the job, and no less than it was last returned with after running out of memory.
+    private static double getNeededMemory(JobJournal.Job job, ResourcePredictor.Prediction prediction) {
 
-        if(pause) {
-            System.out.println("Status 'pause' @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-            Thread.sleep(10000);
+        if (prediction == null) {
+            return job.getRequiredMemory();
         }
 
-        return pause;
+        return Math.max(prediction.getMemoryUpperBound() / BYTES_PER_GB, job.getReturnedMemory());
     }
 
-    public static DataRow getJob(Path jobFile, int availiableMemory) throws IOException, InterruptedException, InvalidInputFileException {
+    private ResourcePredictor.Prediction predict(JobJournal.Job job) {
 
-        
-        FileChannel fileChannel = getFileChannel(jobFile);
-        DataRow chosenJob = null;
+        DataRow row = job.getRow();
 
         try {
-            // lock job file
-            System.out.println("Locking job file @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-            fileChannel.lock(0, Long.MAX_VALUE, false);
-            System.out.println("Locked job file @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-            DataRowSet jobs = readInJobFile(fileChannel);
-
-            jobs = explodeRegexJobs(jobs);
-            writeToJobFile(fileChannel, jobs);
-
-            int maxRequiredMemory = 0;
-            int maxPriorityLevel = 99;
-
-            int maxUncheckedMemory = 0;
-            int maxUncheckedPriorityLevel = 99;
-
-            // throw away jobs requiring too much memory
-            Map<String, DataRowSet> jobsByMemory = jobs.splitOn("required memory");
-
-            for(String memoryRequired : jobsByMemory.keySet()) {
-
-                int reqMemory = Integer.valueOf(memoryRequired);
-
-                if(availiableMemory >= reqMemory) {
-
-                    for(DataRow dr : jobsByMemory.get(memoryRequired)) {
-                        // get priority
-                        try {
-                            int priority = dr.getInt("priority");
-
-                            // if priority greater than maxPriority
-                            if(priority < maxPriorityLevel) {
-                                // if priority equal to 1 OR required memory meets usage threshold then
-                                if(priority == 1 || reqMemory > availiableMemory * appropriateUsageThreshold) {
-                                    // update maxPriority and maxRequiredMemory
-                                    maxPriorityLevel = priority;
-                                    maxRequiredMemory = reqMemory;
-                                }
-                            }
-
-                            // if priority equal to maxPriority and memory greater than maxRequiredMemory
-                            if(priority == maxPriorityLevel && reqMemory > maxRequiredMemory)
-                                maxRequiredMemory = reqMemory;
-
-                            if(priority <= maxUncheckedPriorityLevel && reqMemory > maxUncheckedMemory) {
-                                maxUncheckedMemory = reqMemory;
-                                maxUncheckedPriorityLevel = priority;
-                            }
-
-                        } catch (InvalidInputFileException e) {
-                            // Priority is malformed
-                            returnJobToQueue(jobFile, dr, dr.getInt("required memory"), 99, false);
-                        }
-                    }
-                }
-            }
+            ResourcePredictor predictor = getPredictor(row.getPath("summary results dir").resolve("global-results-summary.csv"));
 
-            // if a job has been found
-            if(maxPriorityLevel != 99 && maxRequiredMemory != 0) {
-                chosenJob = chooseJob(jobsByMemory, maxRequiredMemory, maxPriorityLevel, jobs, fileChannel);
-            } else if(maxUncheckedPriorityLevel != 99 & maxUncheckedMemory != 0) {
-                chosenJob = chooseJob(jobsByMemory, maxUncheckedMemory, maxUncheckedPriorityLevel, jobs, fileChannel);
-            }
+            return predictor.predict(row.getPath("input dir"), row.getPeriod("timestep"), row.getInt("seed size"),
+                    row.getLocalDate("tS"), row.getLocalDate("t0"), row.getLocalDate("tE"));
 
-        } finally {
-            // release job file
-            fileChannel.close(); // also releases the lock
-            System.out.println("Releasing job file @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        } catch (InvalidInputFileException | IOException | RuntimeException e) {
+            // the job is run with the memory given for it
+            return null;
         }
-
-        return chosenJob;
-        
     }
 
-    static String multipleJobs = "-*[0-4]\\.[0-9]+->[0-4]\\.[0-9]+@[0-4]\\.[0-9]+";
-
-    private static DataRowSet explodeRegexJobs(DataRowSet jobs) throws InvalidInputFileException {
+    // Reads the runs in the given summary file, again if it has changed since it was last read.
+    private ResourcePredictor getPredictor(Path summaryFile) throws IOException {
 
-        DataRowSet explodedJobs = null;
-        DataRowSet toRemoveJobs = null;
+        long modified = Files.exists(summaryFile) ? Files.getLastModifiedTime(summaryFile).toMillis() : 0;
 
-        for(DataRow job : jobs) {
+        if (!predictors.containsKey(summaryFile) || predictorsModified.get(summaryFile) != modified) {
+            predictors.put(summaryFile, ResourcePredictor.read(summaryFile));
+            predictorsModified.put(summaryFile, modified);
+        }
 
-            if(job.getInt("priority") != 99 && (job.getValue("prf").matches(multipleJobs) || job.getValue("rf").matches(multipleJobs))) {
+        return predictors.get(summaryFile);
+    }
 
-                try {
-                    for(double prf : toValueSet(job.getValue("prf"))) {
-                        for(double rf : toValueSet(job.getValue("rf"))) {
-                            DataRow copy = job.clone();
-                            copy.setValue("rf", String.valueOf(rf));
-                            copy.setValue("prf", String.valueOf(prf));
+    private void awaitCompletion(Future<Double> finished) throws InterruptedException {
 
-                            if (explodedJobs == null) {
-                                explodedJobs = new DataRowSet(copy);
-                            } else {
-                                explodedJobs.add(copy);
-                            }
+        if (finished == null) {
+            return;
+        }
 
-                        }
-                    }
+        running--;
 
-                    if(toRemoveJobs == null) {
-                        toRemoveJobs = new DataRowSet(job);
-                    } else {
-                        toRemoveJobs.add(job);
-                    }
+        try {
+            reservedMemory -= finished.get();
 
-                } catch (InvalidInputFileException e) {
-                    job.setValue("priority", "99");
-                }
-            }
+        } catch (ExecutionException e) {
+            // runJob handles its own failures, so this is not expected
+            throw new RuntimeException(e.getCause());
         }
+    }
 
-        if(toRemoveJobs != null)
-            for(DataRow toRemove : toRemoveJobs)
-                jobs.remove(toRemove);
+    private void runJob(JobJournal.Job job, String claim, ResourcePredictor.Prediction prediction, double neededMemory) {
 
-        if(explodedJobs != null)
-            for(DataRow toAdd : explodedJobs)
-                jobs.add(toAdd);
+        try {
+            Config config = convertJobToConfig(job.getRow());
+            OBDModel model = new OBDModel(config);
 
-        return jobs;
+            if (prediction != null) {
+                model.getSummaryRow().setPrediction(prediction);
+            }
 
-    }
+            try {
+                doubleLog(OBDModel.log, "Sim commencing @ " + now() + " with seed: " + config.getSeed());
+                model.runSimulation();
+                doubleLog(OBDModel.log, "Sim concluded, beginning CT tables generation @ " + now());
+                model.analyseAndOutputPopulation(false, 5);
+                doubleLog(OBDModel.log, "CT tables generation concluded @ " + now());
 
-    private static Set<Double> toValueSet(String rfExpression) throws InvalidInputFileException {
+                analysisSlots.acquire();
+                doubleLog(OBDModel.log, "Beginning R Analysis @ " + now());
+                new AnalysisThread(model, config, analysisSlots).run(); // this runs it in the job's thread
+                doubleLog(OBDModel.log, "R Analysis concluded @ " + now());
 
-        if(rfExpression.matches(multipleJobs)) {
-            Set<Double> set = new HashSet<>();
+                journal.done(job, claim);
 
-            String[] splitA = rfExpression.split("->");
-            if(splitA.length != 2) throw new InvalidInputFileException("Multi job expresion incorrect");
+            } catch (PreEmptiveOutOfMemoryWarning | OutOfMemoryError e) {
+                model.recordOutOfMemorySummary();
+                model.getSummaryRow().outputSummaryRowToFile();
 
-            String[] splitB = splitA[1].split("@");
-            if(splitB.length != 2) throw new InvalidInputFileException("Multi job expresion incorrect");
+                System.out.println("JOB RETURNED - Insufficient memory @ " + now() + " - " + job);
+                // put job back in queue with higher memory requirement
+                journal.returnJob(job, claim, (int) Math.ceil(neededMemory * memoryIncreaseOnMemoryException), job.getPriority());
+            }
 
-            double a = Double.valueOf(splitA[0]);
-            double b = Double.valueOf(splitB[0]);
-            double inc = Double.valueOf(splitB[1]);
+        } catch (InvalidInputFileException e) {
+            System.out.println("JOB RETURNED - Invalid input @ " + now() + " - " + job);
+            returnJob(job, claim);
 
-            if(a > b) {
-                double temp = a;
-                a = b;
-                b = temp;
-            }
+        } catch (Exception e) {
+            System.out.println("JOB RETURNED - Failed @ " + now() + " - " + job);
+            e.printStackTrace();
+            returnJob(job, claim);
+        }
+    }
 
-            for(double d = a; clean(d, a, inc) <= b; d+=inc) {
-                set.add(clean(d, a, inc));
-            }
+    private void returnJob(JobJournal.Job job, String claim) {
 
-            return set;
+        try {
+            journal.returnJob(job, claim, job.getRequiredMemory(), JobJournal.DO_NOT_RUN);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // The heap in GB not used by live objects, as of the last garbage collection.
+    private static double getFreeHeap() {
+
+        long used = 0;
 
-        } else {
-            return Collections.singleton(Double.valueOf(rfExpression));
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                MemoryUsage usage = pool.getCollectionUsage() != null ? pool.getCollectionUsage() : pool.getUsage();
+                used += usage.getUsed();
+            }
         }
 
+        return (Runtime.getRuntime().maxMemory() - used) / BYTES_PER_GB;
     }
 
-    private static double clean(double d, double a, double inc) {
-        int roundTo = Math.max(postPointDigits(a), postPointDigits(inc));
-        DecimalFormat df = new DecimalFormat(generatePattern(roundTo));
-        df.setRoundingMode(RoundingMode.HALF_UP);
-        return Double.valueOf(df.format(d));
+    private static String now() {
+        return LocalDateTime.now().format(TIME_FORMAT);
     }
 
-    private static String generatePattern(int roundTo) {
-        StringBuilder sb = new StringBuilder("#.");
+    private static void doubleLog(Logger l, String s) {
+        System.out.println(s);
+        l.info(s);
+    }
 
-        for(int i = 0; i < roundTo; i ++) {
-            sb.append("#");
+    // checks recent load average - if over threshold then does not start more sims until load average has dropped
+    private boolean nodeIdle() {
+
+        double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+
+        System.out.println("Node check (" + load + ") @ " + now());
+
+        if (load > loadThreshold) {
+            System.out.println("Node busy (" + load + ") @ " + now());
         }
 
-        return sb.toString();
+        return load < loadThreshold;
     }
 
-    private static int postPointDigits(double d) {
-        String[] split = String.valueOf(d).split("\\.");
-        return split.length == 1 ? 1 : split[1].length();
+    public static String execCmd(String cmd) throws java.io.IOException {
+        try (java.util.Scanner s = new java.util.Scanner(Runtime.getRuntime().exec(cmd).getInputStream()).useDelimiter("\\A")) {
+            return s.hasNext() ? s.next() : "";
+        }
     }
 
-    private static DataRow chooseJob(Map<String, DataRowSet> jobsByMemory, int maxRequiredMemory, int maxPriorityLevel, DataRowSet jobs, FileChannel fileChannel) throws IOException, InvalidInputFileException {
+    private static boolean getStatus(Path statusPath) throws IOException {
+        // read in file
+        ArrayList<String> lines = new ArrayList<>(InputFileReader.getAllLines(statusPath));
 
-        // set of jobs that can be done iwth this host's resources
-        DataRowSet chosenJobSet = jobsByMemory.get(String.valueOf(maxRequiredMemory)).splitOn("priority").get(String.valueOf(maxPriorityLevel));
+        if(!lines.isEmpty()) {
+            switch (lines.get(0)) {
+                case "run": return true;
+                case "terminate" : return false;
+            }
+        }
 
-        // take job at head of remaning jobQueue
-        DataRow chosenJob  = chosenJobSet.iterator().next();
+        return true;
+    }
 
-        // decrement n value in chosen job
-        int n = Integer.valueOf(chosenJob.getValue("n"));
-        n--;
+    private static boolean checkPause(Path statusPath) throws IOException {
+        // read in file
+        ArrayList<String> lines = new ArrayList<>(InputFileReader.getAllLines(statusPath));
 
-        // if n now equals 0
-        if (n == 0) {
-            // remove job from data structure
-            jobs.remove(chosenJob);
-        } else {
-            chosenJob.setValue("n", String.valueOf(n));
-        }
+        boolean pause = false;
 
-        if(chosenJob.getInt("priority") > 3)
-            chosenJob.setValue("priority", "3");
+        if(!lines.isEmpty())
+            pause = lines.get(0).equals("pause");
 
-        // write datastructure back to job file
-        writeToJobFile(fileChannel, jobs);
+        if(pause) {
+            System.out.println("Status 'pause' @ " + now());
+        }
 
-        return chosenJob;
+        return pause;
     }
 
     private static Config convertJobToConfig(DataRow chosenJob) throws InvalidInputFileException {
@@ -430,132 +412,4 @@ public class JobQueueRunner {
         // return config
         return config;
     }
-
-    private static FileChannel getFileChannel(Path jobFile) throws IOException {
-        HashSet<StandardOpenOption> options = new HashSet<>(Sets.newHashSet(StandardOpenOption.READ, StandardOpenOption.WRITE));
-        return FileChannel.open(jobFile, options);
-    }
-
-    public static void returnJobToQueue(Path jobFile, DataRow chosenJob, int requiredMemory, int priority, boolean releaseLockOnExit) throws IOException, InvalidInputFileException, InterruptedException {
-
-        // get file and lock
-        FileChannel fileChannel = getFileChannel(jobFile);
-
-        try {
-            System.out.println("Locking job file (R) @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-            fileChannel.lock(0, Long.MAX_VALUE, false);
-            System.out.println("Locked job file (R) @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-
-            // read in file to data structure
-            DataRowSet jobs = readInJobFile(fileChannel);
-
-            boolean jobFound = false;
-
-            for(DataRow job : jobs) {
-                // find job that matches on all fields apart from count and memory requirment
-                if(sameJob(job, chosenJob)) {
-                    // inc. count by 1
-                    job.setValue("n", String.valueOf(job.getInt("n") + 1));
-
-                    // update memory requirement (if an increase)
-                    if(job.getInt("required memory") < requiredMemory) {
-                        job.setValue("required memory", String.valueOf(requiredMemory));
-                    }
-
-                    job.setValue("priority", String.valueOf(priority));
-                    jobFound = true;
-                    break;
-                }
-            }
-
-            if(!jobFound) {
-                // assume remaining job count has been undertaken by other process and thus count has reached zero - thus reinsert job with count 1
-                chosenJob.setValue("n", String.valueOf(1));
-                chosenJob.setValue("required memory", String.valueOf(requiredMemory));
-                chosenJob.setValue("priority", String.valueOf(priority));
-                jobs.add(chosenJob);
-            }
-
-            // write ds back to file
-            writeToJobFile(fileChannel, jobs);
-
-        } finally {
-            // release job file
-            if(releaseLockOnExit) {
-                fileChannel.close(); // also releases the lock
-                System.out.println("Released job file (R) @ " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-            }
-        }
-    }
-
-    private static boolean sameJob(DataRow a, DataRow b) {
-        // assert if all fields apart from count and memory requirment
-        for(String label : a.getLabels())
-            if(!label.equals("required memory") && !label.equals("n") )
-                if(!a.getValue(label).equals(b.getValue(label)))
-                    return false;
-
-        return true;
-    }
-
-    public static void writeToJobFile(FileChannel jobFile, DataRowSet jobs) throws IOException {
-        jobFile.truncate(0);
-
-        String toFileString = jobs.toString(order);
-
-        ByteBuffer buf = ByteBuffer.allocate(toFileString.getBytes().length + 1000);
-        buf.clear();
-        buf.put(toFileString.getBytes());
-
-        buf.flip();
-
-        while(buf.hasRemaining()) {
-            jobFile.write(buf);
-        }
-    }
-
-    public static DataRowSet readInJobFile(FileChannel jobFile) throws IOException, InvalidInputFileException, InterruptedException {
-
-        ByteBuffer buffer = ByteBuffer.allocate((int) jobFile.size());
-        int noOfBytesRead = jobFile.read(buffer);
-
-        String labels = null;
-        Set<String> data = new HashSet<>();
-
-        while (noOfBytesRead != -1) {
-
-            buffer.flip();
-
-            String line = "";
-
-            while (buffer.hasRemaining()) {
-
-                char c = (char) buffer.get();
-                if(c == '\n') {
-                    if(labels == null)
-                        labels = line;
-                    else
-                        data.add(line);
-
-                    line = "";
-                } else {
-                    line += c;
-                }
-
-            }
-
-            if(!line.equals("")) data.add(line);
-
-            buffer.clear();
-            Thread.sleep(1000);
-            noOfBytesRead = jobFile.read(buffer);
-        }
-
-        try {
-            return new DataRowSet(labels, data);
-        } catch (NoSuchElementException e) {
-            throw new InvalidInputFileException("There's no jobs in the file");
-        }
-    }
-
 }
@@ -18,47 +18,105 @@ package uk.ac.standrews.cs.valipop.implementations;
 
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
 
 /**
+ * Records the peak heap use while a simulation runs, each simulation having its own instance, along with the peak over
+ * all the simulations run in the process.
+ *
+ * The heap is shared by everything in the process, so when simulations run at the same time the peak recorded for each
+ * includes the memory used by the others, and is an upper bound on its own use rather than a measure of it. So that
+ * such peaks can be told apart, each instance also records the most simulations running at once while its simulation
+ * ran, between {@link #start()} and {@link #stop()}.
+ *
+ * Each instance also records an estimate of its own simulation's peak, valid whether or not the heap was shared: at
+ * each reading the heap in use is divided between the simulations running, in proportion to the number of people each
+ * holds. A simulation running alone is given the whole heap, so the estimate is then its recorded peak.
+ *
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
 public class MemoryUsageAnalysis {
 
     private static boolean checkMemory = true;
 
-    private static long maxSimUsage = 0L;
-    private static long maxRunUsage = 0L;
+    private static final AtomicLong maxRunUsage = new AtomicLong(0L);
 
     private static double threshold = 0.975;
 
+    private static final Set<MemoryUsageAnalysis> running = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong maxSimUsage = new AtomicLong(0L);
+    private final AtomicInteger maxConcurrentSimulations = new AtomicInteger(1);
+    private final AtomicLong maxOwnUsage = new AtomicLong(0L);
+
+    // read only on the simulation's own thread, the count being published to the others through peopleHeld
+    private IntSupplier peopleCounter = () -> 0;
+    private final AtomicInteger peopleHeld = new AtomicInteger(0);
+
     public static void main(String[] args) throws IOException, StatsException {
 
         checkMemory = true;
 
         CL_RunNModels.runNModels(args);
 
-        // We do this to force the latest maxSimUsage to be checked against the maxRunUsage and force the value update if necessary
-        reset();
-
         System.out.println("---------------------------------\n");
-        System.out.println("Max Memory Usage : " + (maxRunUsage / 1e6) + " MB");
+        System.out.println("Max Memory Usage : " + (maxRunUsage.get() / 1e6) + " MB");
         System.out.println("We recommend to increase by 10% to give adequate headroom\n");
     }
 
-    public static void reset() {
-        if (maxSimUsage > maxRunUsage) {
-            maxRunUsage = maxSimUsage;
+    public void reset() {
+        maxSimUsage.set(0L);
+        maxOwnUsage.set(0L);
+    }
+
+    /**
+     * Sets how the number of people held by the simulation is counted, for dividing the heap between the simulations
+     * running at once.
+     */
+    public void setPeopleCounter(IntSupplier peopleCounter) {
+        this.peopleCounter = peopleCounter;
+    }
+
+    /**
+     * Records that the simulation has started, and so is running at the same time as any others which have started
+     * and not stopped.
+     */
+    public void start() {
+
+        running.add(this);
+        int concurrent = running.size();
+
+        for (MemoryUsageAnalysis simulation : running) {
+            simulation.maxConcurrentSimulations.accumulateAndGet(concurrent, Math::max);
         }
-        maxSimUsage = 0L;
     }
 
-    public static void log() throws PreEmptiveOutOfMemoryWarning {
+    /**
+     * Records that the simulation has stopped, if it had started.
+     */
+    public void stop() {
+        running.remove(this);
+    }
+
+    /**
+     * Returns the most simulations running at once in the process while the simulation ran, including itself.
+     */
+    public int getMaxConcurrentSimulations() {
+        return maxConcurrentSimulations.get();
+    }
+
+    public void log() throws PreEmptiveOutOfMemoryWarning {
 
         if (checkMemory) {
             long currentUsage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
-            if (currentUsage > maxSimUsage) {
-                maxSimUsage = currentUsage;
-            }
+
+            maxSimUsage.accumulateAndGet(currentUsage, Math::max);
+            maxRunUsage.accumulateAndGet(currentUsage, Math::max);
+            maxOwnUsage.accumulateAndGet(shareOf(currentUsage), Math::max);
 
             long mM = Runtime.getRuntime().maxMemory();
 
@@ -72,7 +130,29 @@ public class MemoryUsageAnalysis {
         checkMemory = b;
     }
 
-    public static long getMaxSimUsage() {
-        return maxSimUsage;
+    public long getMaxSimUsage() {
+        return maxSimUsage.get();
+    }
+
+    /**
+     * Returns the estimated peak heap use of the simulation itself, excluding that of any others running at the same
+     * time.
+     */
+    public long getMaxOwnUsage() {
+        return maxOwnUsage.get();
+    }
+
+    // The part of the heap in use taken to be this simulation's, in proportion to the people it holds.
+    long shareOf(long usage) {
+
+        int own = peopleCounter.getAsInt();
+        peopleHeld.set(own);
+
+        long all = own;
+        for (MemoryUsageAnalysis simulation : running) {
+            if (simulation != this) all += simulation.peopleHeld.get();
+        }
+
+        return all == 0 ? usage : Math.round((double) usage * own / all);
     }
 }
@@ -16,8 +16,6 @@
  */
 package uk.ac.standrews.cs.valipop.implementations;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.util.stream.Collectors;
 
 import org.apache.commons.math3.random.RandomGenerator;
 import uk.ac.standrews.cs.valipop.Config;
@@ -28,21 +26,22 @@ import uk.ac.standrews.cs.valipop.export.gedcom.GEDCOMPopulationWriter;
 import uk.ac.standrews.cs.valipop.export.graphviz.GraphvizPopulationWriter;
 import uk.ac.standrews.cs.valipop.simulationEntities.*;
 import uk.ac.standrews.cs.valipop.simulationEntities.dataStructure.*;
+import uk.ac.standrews.cs.valipop.statistics.analysis.PersonYearTable;
 import uk.ac.standrews.cs.valipop.statistics.analysis.populationAnalytics.AnalyticsRunner;
 import uk.ac.standrews.cs.valipop.statistics.analysis.simulationSummaryLogging.SummaryRow;
 import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.ContingencyTableFactory;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.ContingencyTables;
 import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
-import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsKeys.MarriageStatsKey;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.PopulationStatistics;
-import uk.ac.standrews.cs.valipop.statistics.populationStatistics.determinedCounts.DeterminedCount;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.determinedCounts.MultipleDeterminedCountByIR;
-import uk.ac.standrews.cs.valipop.statistics.populationStatistics.determinedCounts.SingleDeterminedCount;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsKeys.*;
 import uk.ac.standrews.cs.valipop.utils.CollectionUtils;
 import uk.ac.standrews.cs.valipop.utils.ProgramTimer;
+import uk.ac.standrews.cs.valipop.utils.RandomStreams;
 import uk.ac.standrews.cs.valipop.utils.addressLookup.*;
 import uk.ac.standrews.cs.valipop.utils.sourceEventRecords.RecordFormat;
 import uk.ac.standrews.cs.valipop.utils.sourceEventRecords.RecordGenerationFactory;
+import uk.ac.standrews.cs.valipop.utils.sourceEventRecords.StreamingRecordWriter;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.dates.DateSelector;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.dates.DateUtils;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.dates.DeathDateSelector;
@@ -56,6 +55,10 @@ import java.time.Period;
 import java.time.Year;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.*;
 
 import static uk.ac.standrews.cs.valipop.simulationEntities.PopulationNavigation.*;
@@ -70,6 +73,10 @@ public class OBDModel {
     private static final int MINIMUM_POPULATION_SIZE = 100;
     private static final int EARLIEST_AGE_OF_MARRIAGE = 16;
     private static final int MAX_ATTEMPTS = 1;
+
+    // Bounds on the men checked for each mother when matching with partner pools
+    private static final int PARTNER_WALK_LIMIT = 100;
+    private static final int PARTNER_PROBE_LIMIT = 100;
     public static final Period MAX_AGE = Period.ofYears(110);
 
     public static Logger log;
@@ -84,9 +91,11 @@ public class OBDModel {
     private static final int BIRTH_ADJUSTMENT_BOUND = 1000000;
 
     private final Config config;
+    private final MemoryUsageAnalysis memoryUsage = new MemoryUsageAnalysis();
     private SummaryRow summary;
     private final PopulationStatistics desired;
     private final Population population;
+    private final RandomStreams randomStreams;
     private final RandomGenerator randomNumberGenerator;
     private final LocalDate endOfInitPeriod;
     private final Collection<IPerson> partnersToSeparate;
@@ -108,6 +117,24 @@ public class OBDModel {
     private final PersonFactory personFactory;
     private final BalancedMigrationModel migrationModel;
     private final OccupationChangeModel occupationChangeModel;
+    private final KinshipIndex kinshipIndex;
+
+    // Marks by id the men proposed as partners while the remaining mothers are matched, and is empty otherwise
+    private final BitSet proposedMen = new BitSet();
+
+    // Only created when more than one simulation thread is configured, and shut down whenever the simulation stops
+    private ForkJoinPool deathPool = null;
+
+    // Only open while the main phase is simulated with record streaming configured
+    private StreamingRecordWriter recordWriter;
+
+    private ContingencyTables contingencyTables;
+
+    // Whether the population has been checked to be large enough at the end of the initialisation period
+    private boolean initialised = false;
+
+    // Set while simulating up to the date of a snapshot
+    private LocalDate pauseDate = null;
 
     public OBDModel(final Config config) {
 
@@ -118,22 +145,26 @@ public class OBDModel {
 
             partnersToSeparate = new HashSet<>();
             population = new Population(config);
-            desired = new PopulationStatistics(config);
+            desired = InputCache.getStatistics(config);
 
-            geography = new Geography(readAreaList(config), desired.getRandomGenerator(), config.getOverSizedGeographyFactor());
+            randomStreams = desired.getRandomStreams();
+
+            geography = new Geography(InputCache.getAreas(config), randomStreams.forSubsystem(RandomStreams.GEOGRAPHY), config.getOverSizedGeographyFactor(), config.getGeographyIndex());
 
             birthOrders = new PrintWriter(config.getBirthOrdersPath().toFile());
-            randomNumberGenerator = desired.getRandomGenerator();
+            randomNumberGenerator = randomStreams.forSubsystem(RandomStreams.SIMULATION);
             currentHypotheticalPopulationSize = calculateStartingPopulationSize();
 
-            deathDateSelector = new DeathDateSelector(randomNumberGenerator);
-            marriageDateSelector = new MarriageDateSelector(randomNumberGenerator);
+            deathDateSelector = new DeathDateSelector(randomStreams.forSubsystem(RandomStreams.DEATH_DATES));
+            marriageDateSelector = new MarriageDateSelector(randomStreams.forSubsystem(RandomStreams.MARRIAGE_DATES));
 
-            moveDistanceSelector = new DistanceSelector(randomNumberGenerator);
+            moveDistanceSelector = new DistanceSelector(randomStreams.forSubsystem(RandomStreams.MOVE_DISTANCES));
 
-            personFactory = new PersonFactory(population, desired, config.getSimulationTimeStep(), randomNumberGenerator);
-            migrationModel = new BalancedMigrationModel(population, randomNumberGenerator, geography, personFactory, desired);
+            personFactory = new PersonFactory(population, desired, config.getSimulationTimeStep(), randomStreams.forSubsystem(RandomStreams.PEOPLE));
+            migrationModel = new BalancedMigrationModel(population, randomStreams.forSubsystem(RandomStreams.MIGRATION), geography, personFactory, desired);
             occupationChangeModel = new OccupationChangeModel(population, desired, config);
+            kinshipIndex = new KinshipIndex();
+            memoryUsage.setPeopleCounter(() -> population.getPeople().getNumberOfPeople());
 
             log.info("Random seed: " + config.getSeed());
             log.info("Population seed size: " + config.getT0PopulationSize());
@@ -145,33 +176,163 @@ public class OBDModel {
 
             log.info("End of Initialisation Period set: " + endOfInitPeriod);
 
-            try {
-                summary = new SummaryRow(config, JobQueueRunner.execCmd("git rev-parse HEAD").trim(), JobQueueRunner.execCmd("hostname").trim());
-            } catch (IOException e) {
-                summary = new SummaryRow(config, "no git install to get version number from", JobQueueRunner.execCmd("hostname").trim());
-            }
+            summary = createSummaryRow(config);
+
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Creates a model which carries on from a snapshot of another simulation, taken by {@link #simulateUntil}. The
+     * given config may differ from that of the simulation the snapshot was taken from in anything which is not used
+     * before the date of the snapshot, such as the recovery factors or where results are written, but must have the
+     * same tS, tE, time step, t0 population size, set up birth and death rates, seed and input directory. The
+     * population and the numbering of its people and partnerships, the correction state of the input distributions,
+     * the occupancy of the geography and the random generators are all as they were when the snapshot was taken, so a
+     * model restored with the same config produces the same population as the original would have, whichever thread
+     * it is restored or run on.
+     *
+     * @param config the config for the rest of the simulation
+     * @param snapshot the snapshot to carry on from
+     * @throws IllegalArgumentException if the config differs from that of the snapshot in anything used before it
+     */
+    public OBDModel(final Config config, final SimulationSnapshot snapshot) {
+
+        try {
+            snapshot.checkCanRestore(config);
+
+            this.config = config;
+
+            final SimulationSnapshot.State state = snapshot.restore();
+
+            currentTime = state.currentTime;
+            endOfInitPeriod = state.endOfInitPeriod;
+            currentHypotheticalPopulationSize = state.currentHypotheticalPopulationSize;
+            birthsCount = state.birthsCount;
+            deathCount = state.deathCount;
+            initialised = state.initialised;
+
+            partnersToSeparate = state.partnersToSeparate;
+            population = state.population;
+            desired = state.desired;
+            geography = state.geography;
+
+            randomStreams = state.randomStreams;
+            randomNumberGenerator = state.randomNumberGenerator;
+
+            deathDateSelector = state.deathDateSelector;
+            marriageDateSelector = state.marriageDateSelector;
+            moveDistanceSelector = state.moveDistanceSelector;
+
+            personFactory = state.personFactory;
+            migrationModel = state.migrationModel;
+            occupationChangeModel = new OccupationChangeModel(population, desired, config);
+            kinshipIndex = state.kinshipIndex;
+            memoryUsage.setPeopleCounter(() -> population.getPeople().getNumberOfPeople());
+
+            birthOrders = new PrintWriter(config.getBirthOrdersPath().toFile());
+
+            log.info("Restored simulation at " + currentTime + " from snapshot of " + snapshot.getSize() / 1000 + " KB");
+
+            summary = createSummaryRow(config);
 
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private List<Area> readAreaList(Config config) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        return Arrays.stream(objectMapper.readValue(new File(config.getGeographyFilePath().toString()), Area[].class))
-                .collect(Collectors.toList());
+    private static SummaryRow createSummaryRow(final Config config) throws IOException {
+
+        try {
+            return new SummaryRow(config, JobQueueRunner.execCmd("git rev-parse HEAD").trim(), JobQueueRunner.execCmd("hostname").trim());
+        } catch (IOException e) {
+            return new SummaryRow(config, "no git install to get version number from", JobQueueRunner.execCmd("hostname").trim());
+        }
+    }
+
+    /**
+     * Simulates the population up to the given date, which must not be after t0, and takes a snapshot of the
+     * simulation there. The snapshot can be written to a file, and any number of models can be restored from it
+     * with {@link #OBDModel(Config, SimulationSnapshot)} to simulate the rest of the period with different factors,
+     * without repeating the simulation before the date. This model may also carry on with {@link #runSimulation()}.
+     *
+     * @param date the date to simulate up to
+     * @return the snapshot of the simulation at the date
+     * @throws IOException if the snapshot cannot be made
+     */
+    public SimulationSnapshot simulateUntil(final LocalDate date) throws IOException {
+
+        if (date.isAfter(config.getT0())) {
+            throw new IllegalArgumentException("snapshots can only be taken up to t0: " + date);
+        }
+
+        if (date.isBefore(currentTime)) {
+            throw new IllegalArgumentException("simulation has already passed date of snapshot: " + date);
+        }
+
+        if (simTimer == null) {
+            simTimer = new ProgramTimer();
+        }
+
+        memoryUsage.start();
+        pauseDate = date;
+
+        try {
+            initialisePopulation();
+            simulatePopulationUntilStart();
+        } finally {
+            pauseDate = null;
+            shutDownDeathPool();
+            memoryUsage.stop();
+        }
+
+        final SimulationSnapshot.State state = new SimulationSnapshot.State();
+
+        state.currentTime = currentTime;
+        state.endOfInitPeriod = endOfInitPeriod;
+        state.currentHypotheticalPopulationSize = currentHypotheticalPopulationSize;
+        state.birthsCount = birthsCount;
+        state.deathCount = deathCount;
+        state.initialised = initialised;
+
+        state.partnersToSeparate = partnersToSeparate;
+        state.population = population;
+        state.desired = desired;
+        state.geography = geography;
+
+        state.randomStreams = randomStreams;
+        state.randomNumberGenerator = randomNumberGenerator;
+
+        state.deathDateSelector = deathDateSelector;
+        state.marriageDateSelector = marriageDateSelector;
+        state.moveDistanceSelector = moveDistanceSelector;
+
+        state.personFactory = personFactory;
+        state.migrationModel = migrationModel;
+        state.kinshipIndex = kinshipIndex;
+
+        return new SimulationSnapshot(state, config);
     }
 
     public void runSimulation() {
-        for (int countAttempts = 0; countAttempts < MAX_ATTEMPTS; countAttempts++) {
-            try {
-                simTimer = new ProgramTimer();
-                runSimulationAttempt();
-                break;
-            } catch (InsufficientNumberOfPeopleException e) {
 
-                resetSimulation(simTimer);
+        memoryUsage.start();
+
+        try {
+            for (int countAttempts = 0; countAttempts < MAX_ATTEMPTS; countAttempts++) {
+                try {
+                    simTimer = new ProgramTimer();
+                    runSimulationAttempt();
+                    break;
+                } catch (InsufficientNumberOfPeopleException e) {
+
+                    resetSimulation(simTimer);
+                }
             }
+        } finally {
+            shutDownDeathPool();
+            memoryUsage.stop();
         }
 
         recordFinalSummary();
@@ -189,16 +350,33 @@ public class OBDModel {
         return summary;
     }
 
+    public MemoryUsageAnalysis getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    /**
+     * Returns the contingency tables generated for the population by {@link #analyseAndOutputPopulation}, or null if
+     * they have not been generated.
+     */
+    public ContingencyTables getContingencyTables() {
+        return contingencyTables;
+    }
+
     public void analyseAndOutputPopulation(final boolean outputSummaryRow, final int stepBack) {
 
+        memoryUsage.start();
+
+        // the contingency tables and the analytics both read from this one table of the population
+        final PersonYearTable people = new PersonYearTable(population.getPeople());
+
         if (config.getOutputTables()) {
             // the 5 year step back is to combat the kick in the early stages of the CTtables for STAT - run in RStudio with no cleaning to see - potential bug in CTtree?
-            ContingencyTableFactory.generateContingencyTables(population.getPeople(), desired, config, summary);
+            contingencyTables = ContingencyTableFactory.generateContingencyTables(people, desired, config, summary, memoryUsage);
         }
 
         final ProgramTimer recordTimer = new ProgramTimer();
 
-        if (config.getOutputRecordFormat() != RecordFormat.NONE) {
+        if (config.getOutputRecordFormat() != RecordFormat.NONE && !config.getStreamRecords()) {
             RecordGenerationFactory.outputRecords(config.getOutputRecordFormat(), config.getRecordsDirPath(), population.getPeople(), population.getPeople().getPartnerships(), config.getT0());
         }
 
@@ -210,15 +388,17 @@ public class OBDModel {
 
         try (PrintStream resultsOutput = new PrintStream(config.getDetailedResultsPath().toFile(), "UTF-8")) {
 
-            AnalyticsRunner.runAnalytics(population.getPeople(config.getT0(), config.getTE(), MAX_AGE), resultsOutput);
+            final PeopleCollection analysed = population.getPeople(config.getT0(), config.getTE(), MAX_AGE);
+            AnalyticsRunner.runAnalytics(analysed, people.restrictTo(analysed), resultsOutput);
 
         } catch (FileNotFoundException | UnsupportedEncodingException e) {
             throw new RuntimeException(e);
         }
 
-        MemoryUsageAnalysis.log();
-        summary.setMaxMemoryUsage(MemoryUsageAnalysis.getMaxSimUsage());
-        MemoryUsageAnalysis.reset();
+        memoryUsage.log();
+        memoryUsage.stop();
+        summary.setMaxMemoryUsage(memoryUsage.getMaxSimUsage(), memoryUsage.getMaxOwnUsage(), memoryUsage.getMaxConcurrentSimulations());
+        memoryUsage.reset();
 
         if (outputSummaryRow) {
             summary.outputSummaryRowToFile();
@@ -267,16 +447,13 @@ public class OBDModel {
     }
 
     private void closeLogFile() {
-        for(Handler h : log.getHandlers()) {
-            h.close();
-        }
-        LogManager.getLogManager().reset();
-
-        log = Logger.getLogger(OBDModel.class.getName());
-        log.setLevel(Level.INFO);
+        config.closeLog();
     }
 
     private void finalisePartnerships() {
+
+        randomStreams.startCohort(RandomStreams.SEPARATIONS, currentTime);
+
         for(IPerson person : population.getPeople()) {
             for(IPartnership partnership : person.getPartnerships()) {
                 if(!partnership.isFinalised()) {
@@ -292,8 +469,8 @@ public class OBDModel {
     }
 
     private void logTimeStep(int numberBorn, int shortFallInBirths, int numberDying) {
-        MemoryUsageAnalysis.log();
-        final StringBuilder logEntry = new StringBuilder(currentTime + "\t" + MemoryUsageAnalysis.getMaxSimUsage() / 1e6 + "\tMB");
+        memoryUsage.log();
+        final StringBuilder logEntry = new StringBuilder(currentTime + "\t" + memoryUsage.getMaxSimUsage() / 1e6 + "\tMB");
 
         logEntry.append(numberBorn).append("\t");
         logEntry.append(shortFallInBirths).append("\t");
@@ -307,12 +484,15 @@ public class OBDModel {
 
     // Progress the simulation until initialisation is finished
     private void initialisePopulation() throws InsufficientNumberOfPeopleException {
-        while (!initialisationFinished()) {
+        while (!initialisationFinished() && !paused()) {
             final int numberBorn = createBirths();
             final int shortFallInBirths = adjustPopulationNumbers(numberBorn);
             final int numberDying = createDeaths(SexOption.MALE) + createDeaths(SexOption.FEMALE);
 
+            randomStreams.startCohort(RandomStreams.MIGRATION, currentTime);
             migrationModel.performMigration(currentTime, this);
+
+            randomStreams.startCohort(RandomStreams.OCCUPATIONS, currentTime);
             occupationChangeModel.performOccupationChange(currentTime);
 
             logTimeStep(numberBorn, shortFallInBirths, numberDying);
@@ -321,18 +501,25 @@ public class OBDModel {
             advanceSimulationTime();
         }
 
+        if (initialised || !initialisationFinished()) return;
+
         if (populationTooSmall()) {
             cleanUpAfterUnsuccessfulAttempt();
             throw new InsufficientNumberOfPeopleException("Seed size likely too small");
         }
+
+        initialised = true;
     }
 
     private void simulatePopulationUntilStart() {
-        while (currentTime.isBefore(config.getT0())) {
+        while (currentTime.isBefore(config.getT0()) && !paused()) {
             final int numberBorn = createBirths();
             final int numberDying = createDeaths(SexOption.MALE) + createDeaths(SexOption.FEMALE);
 
+            randomStreams.startCohort(RandomStreams.MIGRATION, currentTime);
             migrationModel.performMigration(currentTime, this);
+
+            randomStreams.startCohort(RandomStreams.OCCUPATIONS, currentTime);
             occupationChangeModel.performOccupationChange(currentTime);
 
             logTimeStep(numberBorn, 0, numberDying);
@@ -341,15 +528,29 @@ public class OBDModel {
             advanceSimulationTime();
         }
 
+        if (currentTime.isBefore(config.getT0())) return;
+
         summary.setStartPop(population.getLivingPeople().getNumberOfPeople());
     }
 
+    // When simulating up to a snapshot, whether the date of the snapshot has been reached
+    private boolean paused() {
+
+        return pauseDate != null && !currentTime.isBefore(pauseDate);
+    }
+
     private void simulatePopulationUntilEnd() {
+
+        openRecordWriter();
+
         while (!simulationFinished()) {
             final int numberBorn = createBirths();
             final int numberDying = createDeaths(SexOption.MALE) + createDeaths(SexOption.FEMALE);
 
+            randomStreams.startCohort(RandomStreams.MIGRATION, currentTime);
             migrationModel.performMigration(currentTime, this);
+
+            randomStreams.startCohort(RandomStreams.OCCUPATIONS, currentTime);
             occupationChangeModel.performOccupationChange(currentTime);
 
             logTimeStep(numberBorn, 0, numberDying);
@@ -358,9 +559,41 @@ public class OBDModel {
             advanceSimulationTime();
 
             population.getPopulationCounts().updateMaxPopulation(population.getLivingPeople().getNumberOfPeople());
+
+            if (recordWriter != null) {
+                recordWriter.writeSettledRecords();
+            }
         }
 
         finalisePartnerships();
+        closeRecordWriter();
+    }
+
+    private void openRecordWriter() {
+
+        if (config.getStreamRecords() && config.getOutputRecordFormat() != RecordFormat.NONE) {
+            try {
+                recordWriter = RecordGenerationFactory.streamRecords(config.getOutputRecordFormat(), config.getRecordsDirPath(), config.getT0());
+            } catch (IOException e) {
+                log.info("Record generation failed");
+                e.printStackTrace();
+                log.info(e.getMessage());
+            }
+        }
+    }
+
+    private void closeRecordWriter() {
+
+        if (recordWriter != null) {
+            try {
+                recordWriter.close();
+            } catch (IOException e) {
+                log.info("Record generation failed");
+                e.printStackTrace();
+                log.info(e.getMessage());
+            }
+            recordWriter = null;
+        }
     }
 
     private void cleanUpAfterUnsuccessfulAttempt() {
@@ -374,6 +607,7 @@ public class OBDModel {
 
         closeLogFile();
         birthOrders.close();
+        shutDownDeathPool();
     }
 
     private int calculateStartingPopulationSize() {
@@ -404,6 +638,8 @@ public class OBDModel {
 
     private int adjustPopulationNumbers(int birthsInTimeStp) {
 
+        randomStreams.startCohort(RandomStreams.SET_UP, currentTime);
+
         // calculate hypothetical number of expected births
         final Period initTimeStep = config.getSimulationTimeStep();
 
@@ -477,7 +713,7 @@ public class OBDModel {
         final Period consideredTimePeriod = config.getSimulationTimeStep();
 
         final int age = Period.between(divisionDate.plus(consideredTimePeriod), currentTime).getYears();
-        final int cohortSize = femalesLiving.getPeopleBornInTimePeriod(divisionDate, consideredTimePeriod).size();
+        final int cohortSize = femalesLiving.getNumberOfPeople(divisionDate, consideredTimePeriod);
 
         final Set<IntegerRange> birthOrders = desired.getOrderedBirthRates(Year.of(currentTime.getYear())).getColumnLabels();
 
@@ -494,12 +730,13 @@ public class OBDModel {
 
         final Period consideredTimePeriod = config.getSimulationTimeStep();
 
-        final List<IPerson> people = new ArrayList<>(femalesLiving.getByDatePeriodAndBirthOrder(divisionDate, consideredTimePeriod, birthOrder));
+        // Births, partnering and the separations and moves they lead to all draw from the streams of this cohort
+        randomStreams.startCohort(RandomStreams.BIRTHS, currentTime, divisionDate.toEpochDay(), birthOrder.getMin());
 
-        final BirthStatsKey key = new BirthStatsKey(age, birthOrder.getValue(), cohortSize, consideredTimePeriod, currentTime);
-        final SingleDeterminedCount determinedCount = (SingleDeterminedCount) desired.getDeterminedCount(key, config);
+        final Collection<IPerson> people = femalesLiving.getByDatePeriodAndBirthOrder(divisionDate, consideredTimePeriod, birthOrder);
 
-        final int numberOfChildren = determinedCount.getDeterminedCount();
+        final int year = currentTime.getYear();
+        final int numberOfChildren = desired.determineBirthCount(year, age, birthOrder.getValue(), cohortSize, consideredTimePeriod, config);
 
         // Make women into mothers
 
@@ -510,17 +747,19 @@ public class OBDModel {
         final int cancelledChildren = createPartnerships(mothersNeedingPartners.mothers);
         final int fulfilled = mothersNeedingPartners.newlyProducedChildren - cancelledChildren;
 
-        determinedCount.setFulfilledCount(fulfilled);
-
         // TODO Does this output get used? TD: If I remember correctly it allows us to explain why it takes longer to generate small populations - may be useful to talk about in thesis...
         birthOrders.println(currentTime.getYear() + "," + age + "," + birthOrder + "," + fulfilled + "," + numberOfChildren);
 
-        desired.returnAchievedCount(determinedCount);
+        desired.returnAchievedBirthCount(year, age, birthOrder.getValue(), cohortSize, consideredTimePeriod, numberOfChildren, fulfilled);
         return fulfilled;
     }
 
     private int createDeaths(final SexOption sex) {
 
+        if (config.getSimulationThreads() > 1 || randomStreams.isSplit()) {
+            return createDeathsByDivision(sex);
+        }
+
         int killedAtTS = 0;
 
         final PersonCollection ofSexLiving = getLivingPeopleOfSex(sex);
@@ -536,28 +775,94 @@ public class OBDModel {
         return killedAtTS;
     }
 
-    private int getKilledAtTS(final SexOption sex, final PersonCollection ofSexLiving, final LocalDate divisionDate) {
+    private void shutDownDeathPool() {
+
+        if (deathPool != null) {
+            deathPool.shutdown();
+            deathPool = null;
+        }
+    }
+
+    private int createDeathsByDivision(final SexOption sex) {
+
+        final PersonCollection ofSexLiving = getLivingPeopleOfSex(sex);
+        final Set<LocalDate> divisionDates = ofSexLiving.getDivisionDates(config.getSimulationTimeStep());
+
+        // The counts and the people to kill are determined in division order, as they draw on the shared random
+        // generator and the shared population data structures
+        final List<DeathsInDivision> divisions = new ArrayList<>();
+
+        for (final LocalDate divisionDate : divisionDates) {
+
+            if (divisionDate.isAfter(currentTime)) break;
+            divisions.add(selectPeopleToKill(sex, ofSexLiving, divisionDate));
+        }
+
+        // Each division selects death dates and causes from its own random stream, so the result does not depend on
+        // how the divisions are scheduled
+        if (config.getSimulationThreads() > 1) {
+
+            if (deathPool == null) {
+                deathPool = new ForkJoinPool(config.getSimulationThreads());
+            }
+
+            try {
+                for (final Future<Void> future : deathPool.invokeAll(divisions)) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        } else {
+            for (final DeathsInDivision division : divisions) {
+                division.call();
+            }
+        }
+
+        int killedAtTS = 0;
+
+        for (final DeathsInDivision division : divisions) {
+            killedAtTS += division.recordDeaths();
+        }
+
+        return killedAtTS;
+    }
+
+    private DeathsInDivision selectPeopleToKill(final SexOption sex, final PersonCollection ofSexLiving, final LocalDate divisionDate) {
 
         final Period consideredTimePeriod = config.getSimulationTimeStep();
 
         final int age = Period.between(divisionDate, currentTime).getYears();
         final int peopleOfAge = ofSexLiving.getNumberOfPeople(divisionDate, consideredTimePeriod);
 
-        // gets death rate for people of age at the current date
-        final StatsKey<Integer,Integer> key = new DeathStatsKey(age, peopleOfAge, consideredTimePeriod, currentTime, sex);
-        @SuppressWarnings("unchecked")
-        final DeterminedCount<Integer, Double, Integer, Integer> determinedCount = (DeterminedCount<Integer, Double, Integer, Integer>) desired.getDeterminedCount(key, config);
+        final long cohort = divisionDate.toEpochDay() * 2 + sex.ordinal();
+        randomStreams.startCohort(RandomStreams.DEATHS, currentTime, cohort);
+
+        final int numberToKill = desired.determineDeathCount(currentTime.getYear(), sex, age, peopleOfAge, consideredTimePeriod, config);
+        final Collection<IPerson> peopleToKill = ofSexLiving.removeNPersons(numberToKill, divisionDate, consideredTimePeriod, true);
+
+        return new DeathsInDivision(sex, age, peopleOfAge, new ArrayList<>(peopleToKill), cohort, randomStreams.forCohort(RandomStreams.DEATHS, currentTime, cohort));
+    }
+
+    private int getKilledAtTS(final SexOption sex, final PersonCollection ofSexLiving, final LocalDate divisionDate) {
 
-        // Calculate the appropriate number to kill
-        final Integer numberToKill = ((SingleDeterminedCount) determinedCount).getDeterminedCount();
+        final Period consideredTimePeriod = config.getSimulationTimeStep();
+
+        final int age = Period.between(divisionDate, currentTime).getYears();
+        final int peopleOfAge = ofSexLiving.getNumberOfPeople(divisionDate, consideredTimePeriod);
+
+        // Calculate the appropriate number to kill from the death rate for people of age at the current date
+        final int numberToKill = desired.determineDeathCount(currentTime.getYear(), sex, age, peopleOfAge, consideredTimePeriod, config);
 
         final Collection<IPerson> peopleToKill = ofSexLiving.removeNPersons(numberToKill, divisionDate, consideredTimePeriod, true);
 
         final int killed = killPeople(peopleToKill);
 
         // Returns the number killed to the distribution manager
-        determinedCount.setFulfilledCount(killed);
-        desired.returnAchievedCount(determinedCount);
+        desired.returnAchievedDeathCount(currentTime.getYear(), sex, age, peopleOfAge, consideredTimePeriod, killed);
 
         return killed;
     }
@@ -566,6 +871,9 @@ public class OBDModel {
 
         if (mothersNeedingPartners.size() == 0) return 0;
 
+        // The family graph only changes once the proposed partnerships are set up, so kinship is cached for matching.
+        kinshipIndex.clear();
+
         final LinkedList<NewMother> women = new LinkedList<>(mothersNeedingPartners);
 
         final int age = ageOnDate(women.getFirst().newMother, currentTime);
@@ -583,9 +891,19 @@ public class OBDModel {
 
         // TODO - upto - question: does infids affect NPA?
 
-        final List<ProposedPartnership> proposedPartnerships = getProposedPartnerships(women, menMap, redistributedPartnerCounts, achievedPartnerCounts);
+        final List<ProposedPartnership> proposedPartnerships;
 
-        findPartners(women, menMap, redistributedPartnerCounts, proposedPartnerships);
+        if (config.getPartnerMatching() == PartnerMatchingType.INDEXED) {
+
+            final Map<IntegerRange, PartnerPool> pools = getPartnerPools(menMap);
+
+            proposedPartnerships = getProposedPartnershipsFromPools(women, pools, redistributedPartnerCounts, achievedPartnerCounts);
+            findPartnersInPools(women, pools, redistributedPartnerCounts, proposedPartnerships);
+
+        } else {
+            proposedPartnerships = getProposedPartnerships(women, menMap, redistributedPartnerCounts, achievedPartnerCounts);
+            findPartners(women, menMap, redistributedPartnerCounts, proposedPartnerships);
+        }
 
         final int cancelledChildren = removeLastPartners(population, women);
 
@@ -618,16 +936,17 @@ public class OBDModel {
         final int numChildrenInPartnership = partnership.numberOfChildren;
 
         // Decide on marriage
-        final MarriageStatsKey marriageKey = new MarriageStatsKey(ageOnDate(mother, currentTime), numChildrenInPartnership, config.getSimulationTimeStep(), currentTime);
-        final SingleDeterminedCount marriageCounts = (SingleDeterminedCount) desired.getDeterminedCount(marriageKey, config);
+        final int year = currentTime.getYear();
+        final int mothersAge = ageOnDate(mother, currentTime);
+        final int marriageCount = desired.determineMarriageCount(year, mothersAge, numChildrenInPartnership, config.getSimulationTimeStep(), config);
 
         final boolean isIllegitimate = !needsNewPartner(father, currentTime);
-        final boolean marriedAtBirth = !isIllegitimate && (int) Math.round(marriageCounts.getDeterminedCount() / (double) numChildrenInPartnership) == 1;
+        final boolean marriedAtBirth = !isIllegitimate && (int) Math.round(marriageCount / (double) numChildrenInPartnership) == 1;
 
         final IPartnership marriage = createNewPartnership(numChildrenInPartnership, father, mother, isIllegitimate, marriedAtBirth);
 
-        marriageCounts.setFulfilledCount(marriage.getMarriageDate() != null ? numChildrenInPartnership : 0);
-        desired.returnAchievedCount(marriageCounts);
+        final int fulfilled = marriage.getMarriageDate() != null ? numChildrenInPartnership : 0;
+        desired.returnAchievedMarriageCount(year, mothersAge, numChildrenInPartnership, config.getSimulationTimeStep(), fulfilled);
 
         final IntegerRange maleAgeRange = resolveAgeToIntegerRange(father, partnerCounts.getLabels(), currentTime);
         partnerCounts.update(maleAgeRange, partnerCounts.getValue(maleAgeRange) + 1);
@@ -688,6 +1007,10 @@ public class OBDModel {
     private void findPartners(final List<NewMother> women, final Map<IntegerRange, LinkedList<IPerson>> menMap,
                               final LabelledValueSet<IntegerRange, Integer> partnerCounts, final List<ProposedPartnership> proposedPartnerships) {
 
+        for (final ProposedPartnership partnership : proposedPartnerships) {
+            proposedMen.set(partnership.male.getId());
+        }
+
         Iterator<NewMother> iterator = women.iterator();
 
         while (iterator.hasNext()) {
@@ -698,9 +1021,10 @@ public class OBDModel {
             for (final IntegerRange range : partnerCounts.getLabels()) {
                 for (final IPerson man : menMap.get(range)) {
 
-                    if (eligible(man, newMother) && !inPartnerships(man, proposedPartnerships)) {
+                    if (eligible(man, newMother) && !proposedMen.get(man.getId())) {
 
                         proposedPartnerships.add(new ProposedPartnership(man, newMother.newMother, newMother.numberOfChildrenInMaternity));
+                        proposedMen.set(man.getId());
                         iterator.remove();
 
                         break partnerSearchLoop;
@@ -708,6 +1032,93 @@ public class OBDModel {
                 }
             }
         }
+
+        for (final ProposedPartnership partnership : proposedPartnerships) {
+            proposedMen.clear(partnership.male.getId());
+        }
+    }
+
+    private void findPartnersInPools(final List<NewMother> women, final Map<IntegerRange, PartnerPool> pools,
+                                     final LabelledValueSet<IntegerRange, Integer> partnerCounts, final List<ProposedPartnership> proposedPartnerships) {
+
+        Iterator<NewMother> iterator = women.iterator();
+
+        while (iterator.hasNext()) {
+
+            final NewMother newMother = iterator.next();
+
+            for (final IntegerRange range : partnerCounts.getLabels()) {
+
+                // Men already proposed have been taken from the pools, so need not be looked for in the proposals
+                final IPerson man = pools.get(range).take(candidate -> eligible(candidate, newMother), PARTNER_WALK_LIMIT, PARTNER_PROBE_LIMIT);
+
+                if (man != null) {
+
+                    proposedPartnerships.add(new ProposedPartnership(man, newMother.newMother, newMother.numberOfChildrenInMaternity));
+                    iterator.remove();
+
+                    break;
+                }
+            }
+        }
+    }
+
+    private List<ProposedPartnership> getProposedPartnershipsFromPools(final LinkedList<NewMother> women, final Map<IntegerRange, PartnerPool> pools,
+                                                                       final LabelledValueSet<IntegerRange, Integer> partnerCounts, final LabelledValueSet<IntegerRange, Integer> achievedPartnerCounts) {
+
+        final List<ProposedPartnership> proposedPartnerships = new ArrayList<>();
+
+        for (IntegerRange range : partnerCounts.getLabels()) {
+
+            final Collection<NewMother> unmatchedFemales = new ArrayList<>();
+
+            final int determinedCount = addPartnershipsFromPool(women, pools.get(range), proposedPartnerships, unmatchedFemales, partnerCounts.get(range));
+
+            women.addAll(unmatchedFemales);
+
+            achievedPartnerCounts.add(range, partnerCounts.get(range) - determinedCount);
+        }
+
+        return proposedPartnerships;
+    }
+
+    private int addPartnershipsFromPool(final LinkedList<NewMother> women, final PartnerPool men, final List<ProposedPartnership> proposedPartnerships, final Collection<NewMother> unmatchedFemales, final int initialCount) {
+
+        int determinedCount = initialCount;
+
+        while (determinedCount > 0 && !women.isEmpty()) {
+
+            final NewMother woman = women.pollFirst();
+            final IPerson man = men.take(candidate -> eligible(candidate, woman), PARTNER_WALK_LIMIT, PARTNER_PROBE_LIMIT);
+
+            if (man != null) {
+                proposedPartnerships.add(new ProposedPartnership(man, woman.newMother, woman.numberOfChildrenInMaternity));
+                determinedCount--;
+
+            } else {
+                unmatchedFemales.add(woman);
+            }
+        }
+        return determinedCount;
+    }
+
+    private Map<IntegerRange, PartnerPool> getPartnerPools(final Map<IntegerRange, LinkedList<IPerson>> menMap) {
+
+        final Map<IntegerRange, PartnerPool> pools = new TreeMap<>();
+
+        for (final Map.Entry<IntegerRange, LinkedList<IPerson>> entry : menMap.entrySet()) {
+
+            // Men who arrived too late to father a child this time step cannot partner any of the mothers
+            final List<IPerson> men = new ArrayList<>();
+            for (final IPerson man : entry.getValue()) {
+                if (arrivedInTimeToPartner(man)) {
+                    men.add(man);
+                }
+            }
+
+            pools.put(entry.getKey(), new PartnerPool(men, randomNumberGenerator));
+        }
+        return pools;
     }
 
     private List<ProposedPartnership> getProposedPartnerships(final LinkedList<NewMother> women, final Map<IntegerRange, LinkedList<IPerson>> menMap,
@@ -776,20 +1187,29 @@ public class OBDModel {
 
     private OperableLabelledValueSet<IntegerRange, Integer> redistributePartnerCounts(final OperableLabelledValueSet<IntegerRange, Integer> initialPartnerCounts, final LabelledValueSet<IntegerRange, Integer> availableMen) {
 
-        OperableLabelledValueSet<IntegerRange, Integer> partnerCounts = initialPartnerCounts;
-        OperableLabelledValueSet<IntegerRange, Double> shortfallCounts;
+        // The sets share one label index and are updated in place, rather than new sets being made on every pass
+        final IntegerRangeIndex labels = new IntegerRangeIndex(initialPartnerCounts.getLabels());
+
+        final IntegerRangeToIntArraySet partnerCounts = new IntegerRangeToIntArraySet(labels, initialPartnerCounts, randomNumberGenerator);
+        final IntegerRangeToIntArraySet men = new IntegerRangeToIntArraySet(labels, availableMen, randomNumberGenerator);
+
+        final IntegerRangeToDoubleArraySet shortfallCounts = new IntegerRangeToDoubleArraySet(labels, randomNumberGenerator);
+        final IntegerRangeToDoubleArraySet zeroedNegShortfalls = new IntegerRangeToDoubleArraySet(labels, randomNumberGenerator);
+        final IntegerRangeToDoubleArraySet sharedCounts = new IntegerRangeToDoubleArraySet(labels, randomNumberGenerator);
 
         // this section redistributes the determined partner counts based on the number of available men in each age range
         do {
-            shortfallCounts = new IntegerRangeToDoubleSet(partnerCounts.valuesSubtractValues(availableMen), randomNumberGenerator);
+            shortfallCounts.setValues(partnerCounts).subtractValuesInPlace(men);
 
-            final LabelledValueSet<IntegerRange, Double> zeroedNegShortfalls = shortfallCounts.zeroNegativeValues();
+            zeroedNegShortfalls.setValues(shortfallCounts).zeroNegativeValuesInPlace();
             final int numberOfRangesWithSpareMen = shortfallCounts.countNegativeValues();
-            final double totalShortfall = zeroedNegShortfalls.getSumOfValues();
+            final double totalShortfall = zeroedNegShortfalls.sum();
             final double shortfallToShare = totalShortfall / (double) numberOfRangesWithSpareMen;
 
-            partnerCounts = new IntegerRangeToDoubleSet(partnerCounts.valuesAddNWhereCorrespondingLabelNegativeInLVS(shortfallToShare, shortfallCounts)
-                    .valuesSubtractValues(zeroedNegShortfalls), randomNumberGenerator).controlledRoundingMaintainingSum();
+            sharedCounts.setValues(partnerCounts)
+                    .addNWhereCorrespondingLabelNegativeInPlace(shortfallToShare, shortfallCounts)
+                    .subtractValuesInPlace(zeroedNegShortfalls)
+                    .controlledRoundingMaintainingSum(partnerCounts);
 
         } while (shortfallCounts.countPositiveValues() != 0);
 
@@ -806,7 +1226,7 @@ public class OBDModel {
 
             final LinkedList<IPerson> men = new LinkedList<>(population.getLivingPeople().getMales().getPeopleBornInTimePeriod(yobOfOlderEndOfIR, rangeLength));
 
-            CollectionUtils.shuffle(men, desired.getRandomGenerator());
+            CollectionUtils.shuffle(men, randomNumberGenerator);
 
             allMen.put(range, men);
             availableMen.update(range, men.size());
@@ -818,10 +1238,7 @@ public class OBDModel {
 
     private IPartnership createNewPartnership(final int numberOfChildren, final IPerson father, final IPerson mother, final boolean adulterousBirth, final boolean marriedAtBirth) throws PersonNotFoundException {
 
-        population.getLivingPeople().remove(mother);
-        population.getLivingPeople().remove(father);  // TODO why necessary to remove/add father, if only indexed by year of birth? TD: it probably isn't...
-
-        final IPartnership partnership = new Partnership(father, mother);
+        final IPartnership partnership = personFactory.makePartnership(father, mother);
         makeChildren(partnership, numberOfChildren, adulterousBirth, marriedAtBirth);
 
         if(adulterousBirth)
@@ -829,12 +1246,19 @@ public class OBDModel {
 
         population.getLivingPeople().add(partnership);
 
+        if (partnership.getMarriageDate() != null) {
+            recordMarriage(partnership);
+        }
+
         IPartnership motherLastParntership = PopulationNavigation.getLastPartnership(mother);
         IPartnership fatherLastParntership = PopulationNavigation.getLastPartnership(father);
 
         mother.recordPartnership(partnership);
         father.recordPartnership(partnership);
 
+        // update the mother's position in the birth order index
+        population.getLivingPeople().getFemales().addChildren(mother, partnership.getChildren().size());
+
         // these need to happen post recording of new partnership
         handleSeperationMoves(motherLastParntership, mother);
 
@@ -856,10 +1280,6 @@ public class OBDModel {
             partnership.setMarriagePlace(mother.getAddress(partnership.getMarriageDate()).toShortForm());
         }
 
-        // re-insert parents into population, this allows their position in the data structure to be updated
-        population.getLivingPeople().add(mother);
-        population.getLivingPeople().add(father);
-
         return partnership;
     }
 
@@ -923,17 +1343,14 @@ public class OBDModel {
 
     private void addChildrenToCurrentPartnership(final IPerson mother, final int numberOfChildren) {
 
-        population.getLivingPeople().remove(mother);
-
         final IPerson mostRecentPreviousChild = PopulationNavigation.getLastChild(mother);
         final IPartnership mostRecentPartnership = mostRecentPreviousChild.getParents();
 
         final LocalDate newChildBirthDate = addChildrenToPartnership(numberOfChildren, mostRecentPartnership, mostRecentPreviousChild.isAdulterousBirth());
+        population.getLivingPeople().getFemales().addChildren(mother, numberOfChildren);
 
         updateAdulterousCounts(numberOfChildren, mostRecentPartnership, newChildBirthDate, mostRecentPreviousChild.isAdulterousBirth());
         updateMarriageCounts(mother, numberOfChildren, mostRecentPreviousChild, mostRecentPartnership, newChildBirthDate);
-
-        population.getLivingPeople().add(mother);
     }
 
     private LocalDate addChildrenToPartnership(final int numberOfChildren, final IPartnership partnership, boolean isIllegitimate) {
@@ -1083,11 +1500,11 @@ public class OBDModel {
     }
 
     // TODO adjust this to also permit age variations
-    private MothersNeedingPartners selectMothers(final List<IPerson> females, final int numberOfChildren) {
+    private MothersNeedingPartners selectMothers(final Collection<IPerson> females, final int numberOfChildren) {
 
-        if (females.size() == 0) return new MothersNeedingPartners();
+        if (females.isEmpty()) return new MothersNeedingPartners();
 
-        final int ageOfMothers = ageOnDate(females.get(0), currentTime);
+        final int ageOfMothers = ageOnDate(females.iterator().next(), currentTime);
 
         final MultipleDeterminedCountByIR requiredBirths = calcNumberOfPregnanciesOfMultipleBirth(ageOfMothers, numberOfChildren);
         final LabelledValueSet<IntegerRange, Integer> motherCountsByMaternities = new IntegerRangeToIntegerSet(requiredBirths.getDeterminedCount().getLabels(), 0, randomNumberGenerator);
@@ -1101,10 +1518,12 @@ public class OBDModel {
         }
     }
 
-    private MothersNeedingPartners getMothersNeedingPartners(final List<IPerson> females, final int numberOfChildren, final MultipleDeterminedCountByIR requiredBirths,
+    private MothersNeedingPartners getMothersNeedingPartners(final Collection<IPerson> cohort, final int numberOfChildren, final MultipleDeterminedCountByIR requiredBirths,
                                                              final LabelledValueSet<IntegerRange, Integer> motherCountsByMaternities, final OperableLabelledValueSet<IntegerRange, Integer> remainingMothersToFind) {
 
-        CollectionUtils.shuffle(females, desired.getRandomGenerator());
+        // the cohort is a live view of the index, which changes as mothers are selected, so shuffle a snapshot of it
+        final List<IPerson> females = Arrays.asList(cohort.toArray(new IPerson[0]));
+        CollectionUtils.shuffle(females, randomNumberGenerator);
 
         IntegerRange highestBirthOption = remainingMothersToFind.getLargestLabelOfNonZeroValue();
 
@@ -1203,7 +1622,7 @@ public class OBDModel {
 
         population.getPopulationCounts().incEligibilityCheck();
 
-        final boolean eligible = maleAvailable(man, newMother.numberOfChildrenInMaternity) && legallyEligibleToMarry(man, newMother.newMother);
+        final boolean eligible = maleAvailable(man, newMother.numberOfChildrenInMaternity) && kinshipIndex.canPartner(man, newMother.newMother);
 
         if (!eligible) {
             population.getPopulationCounts().incFailedEligibilityCheck();
@@ -1216,42 +1635,51 @@ public class OBDModel {
 
         final IPerson man = partnership.getMalePartner();
 
-        final AdulterousBirthStatsKey adulterousKey = new AdulterousBirthStatsKey(ageOnDate(man, birthDate), numberOfChildren, config.getSimulationTimeStep(), birthDate);
-        final SingleDeterminedCount adulterousCounts = (SingleDeterminedCount) desired.getDeterminedCount(adulterousKey, config);
-
-        if(isAdulterous)
-            adulterousCounts.setFulfilledCount(numberOfChildren);
-        else
-            adulterousCounts.setFulfilledCount(0);
+        final int year = birthDate.getYear();
+        final int age = ageOnDate(man, birthDate);
 
-        desired.returnAchievedCount(adulterousCounts);
+        // The count itself is not used, but is still determined so that the draws on the random generator are unchanged
+        desired.determineAdulterousBirthCount(year, age, numberOfChildren, config.getSimulationTimeStep(), config);
+        desired.returnAchievedAdulterousBirthCount(year, age, numberOfChildren, config.getSimulationTimeStep(), isAdulterous ? numberOfChildren : 0);
     }
 
     private void updateMarriageCounts(final IPerson mother, final int numberOfChildren, final IPerson mostRecentPreviousChild,
                                       final IPartnership mostRecentPartnership, final LocalDate newChildBirthDate) {
 
-        final MarriageStatsKey marriageKey = new MarriageStatsKey(ageOnDate(mother, newChildBirthDate), numberOfChildren, config.getSimulationTimeStep(), newChildBirthDate);
-        final SingleDeterminedCount marriageCounts = (SingleDeterminedCount) desired.getDeterminedCount(marriageKey, config);
+        final int year = newChildBirthDate.getYear();
+        final int mothersAge = ageOnDate(mother, newChildBirthDate);
+        final int marriageCount = desired.determineMarriageCount(year, mothersAge, numberOfChildren, config.getSimulationTimeStep(), config);
+        final int fulfilled;
 
         if (mostRecentPartnership.getMarriageDate() != null) {
             // is already married - so return as married
-            marriageCounts.setFulfilledCount(numberOfChildren);
+            fulfilled = numberOfChildren;
 
         } else {
-            final boolean marriedAtBirth = (int) Math.round(marriageCounts.getDeterminedCount() / (double) numberOfChildren) == 1;
+            final boolean marriedAtBirth = (int) Math.round(marriageCount / (double) numberOfChildren) == 1;
 
             if (marriedAtBirth) {
-                marriageCounts.setFulfilledCount(numberOfChildren);
+                fulfilled = numberOfChildren;
                 LocalDate mostRecentPreviousChildBirthDate = mostRecentPreviousChild.getBirthDate();
                 LocalDate marriageDate = marriageDateSelector.selectRandomDate(mostRecentPreviousChildBirthDate, newChildBirthDate);
                 mostRecentPartnership.setMarriageDate(marriageDate);
 
+                recordMarriage(mostRecentPartnership);
+
             } else {
-                marriageCounts.setFulfilledCount(0);
+                fulfilled = 0;
             }
         }
 
-        desired.returnAchievedCount(marriageCounts);
+        desired.returnAchievedMarriageCount(year, mothersAge, numberOfChildren, config.getSimulationTimeStep(), fulfilled);
+    }
+
+    private void recordMarriage(final IPartnership partnership) {
+
+        // the parents mimicked for immigrants are not part of the population, so their marriages are not recorded
+        if (recordWriter != null && population.getLivingPeople().findPartnership(partnership.getId()) == partnership) {
+            recordWriter.marriageOccurred(partnership);
+        }
     }
 
     private void addMotherToMap(final ProposedPartnership partnership, final Map<Integer, List<IPerson>> partneredFemalesByChildren) {
@@ -1298,22 +1726,10 @@ public class OBDModel {
         throw new InvalidRangeException("Male does not fit in expected ranges...");
     }
 
-    private boolean inPartnerships(final IPerson person, final List<ProposedPartnership> partnerships) {
-
-        for (final ProposedPartnership partnership : partnerships) {
-            if (partnership.male == person || partnership.female == person) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private boolean maleAvailable(final IPerson man, final int childrenInPregnancy) {
 
-        if(man.getImmigrationDate() != null) {
-            // if the man has immigrated this year, was he present early enough in the year to be involved with a conception event?
-            if(man.getImmigrationDate().plus(desired.getMinGestationPeriod()).isAfter(currentTime.plus(1, ChronoUnit.YEARS).minus(1, ChronoUnit.DAYS)))
-                return false;
+        if (!arrivedInTimeToPartner(man)) {
+            return false;
         }
 
         // in the init period any partnering is allowed
@@ -1323,21 +1739,20 @@ public class OBDModel {
         }
 
         // Get access to adulterousBirth rates
-        final AdulterousBirthStatsKey adulterousBirthKey = new AdulterousBirthStatsKey(ageOnDate(man, currentTime), childrenInPregnancy, config.getSimulationTimeStep(), currentTime);
-        final SingleDeterminedCount adulterousBirthCounts = (SingleDeterminedCount) desired.getDeterminedCount(adulterousBirthKey, config);
-        final int permitted = (int) Math.round(adulterousBirthCounts.getDeterminedCount() / (double) childrenInPregnancy);
+        final int year = currentTime.getYear();
+        final int age = ageOnDate(man, currentTime);
+        final int adulterousBirthCount = desired.determineAdulterousBirthCount(year, age, childrenInPregnancy, config.getSimulationTimeStep(), config);
+        final int permitted = (int) Math.round(adulterousBirthCount / (double) childrenInPregnancy);
 
         if (needsNewPartner(man, currentTime)) {
             // record the legitimate birth
-            adulterousBirthCounts.setFulfilledCount(0);
-            desired.returnAchievedCount(adulterousBirthCounts);
+            desired.returnAchievedAdulterousBirthCount(year, age, childrenInPregnancy, config.getSimulationTimeStep(), 0);
             return true;
         }
 
         if (permitted == 1) {
             // record the adulterousBirth birth
-            adulterousBirthCounts.setFulfilledCount(childrenInPregnancy);
-            desired.returnAchievedCount(adulterousBirthCounts);
+            desired.returnAchievedAdulterousBirthCount(year, age, childrenInPregnancy, config.getSimulationTimeStep(), childrenInPregnancy);
             return true;
         }
 
@@ -1345,30 +1760,11 @@ public class OBDModel {
         return false;
     }
 
-    private boolean legallyEligibleToMarry(final IPerson man, final IPerson woman) {
+    private boolean arrivedInTimeToPartner(final IPerson man) {
 
-        try {
-            exclude(femaleAncestorsOf(man), woman);
-            exclude(femaleDescendantsOf(man), woman);
-            exclude(sistersOf(man), woman);
-            exclude(femaleAncestorsOf(descendantsOf(man)), woman);
-            exclude(femaleDescendantsOf(ancestorsOf(man)), woman);
-            exclude(partnersOf(maleAncestorsOf(man)), woman);
-            exclude(partnersOf(maleDescendantsOf(man)), woman);
-            exclude(partnersOf(brothersOf(man)), woman);
-            exclude(femaleDescendantsOf(siblingsOf(man)), woman);
-            exclude(femaleAncestorsOf(partnersOf(man)), woman);
-            exclude(femaleDescendantsOf(partnersOf(man)), woman);
-
-        } catch (RuntimeException e) {
-            return false;
-        }
-
-        return true;
-    }
-
-    private void exclude(final Collection<IPerson> collection, final IPerson person) {
-        if (collection.contains(person)) throw new RuntimeException();
+        // if the man has immigrated this year, was he present early enough in the year to be involved with a conception event?
+        return man.getImmigrationDate() == null ||
+                !man.getImmigrationDate().plus(desired.getMinGestationPeriod()).isAfter(currentTime.plus(1, ChronoUnit.YEARS).minus(1, ChronoUnit.DAYS));
     }
 
     private Period getRangeLength(final IntegerRange range) {
@@ -1397,8 +1793,8 @@ public class OBDModel {
             }
 
             // Get determined count for separations for this group of mothers
-            final SeparationStatsKey key = new SeparationStatsKey(numberOfChildren, ageOfMothers, mothers.size(), config.getSimulationTimeStep(), currentTime);
-            final SingleDeterminedCount dC = (SingleDeterminedCount) desired.getDeterminedCount(key, config);
+            final int year = currentTime.getYear();
+            final int separations = desired.determineSeparationCount(year, numberOfChildren, ageOfMothers, mothers.size(), config.getSimulationTimeStep(), config);
 
             int count = 0;
 
@@ -1406,7 +1802,7 @@ public class OBDModel {
             for (final IPerson mother : mothers) {
 
                 // If enough mothers have been separated then break
-                if (count >= dC.getDeterminedCount()) {
+                if (count >= separations) {
                     break;
                 }
 
@@ -1417,8 +1813,7 @@ public class OBDModel {
             }
 
             // Return achieved statistics to the statistics handler
-            dC.setFulfilledCount(count);
-            desired.returnAchievedCount(dC);
+            desired.returnAchievedSeparationCount(year, numberOfChildren, ageOfMothers, mothers.size(), config.getSimulationTimeStep(), separations, count);
         }
     }
 
@@ -1434,25 +1829,33 @@ public class OBDModel {
             int ageAtDeath = Period.between(person.getBirthDate(), deathDate).getYears();
             final String deathCause = desired.getDeathCauseRates(Year.of(deathDate.getYear()), person.getSex(), ageAtDeath).getSample();
 
-            person.setDeathDate(deathDate);
-            person.setDeathCause(deathCause);
+            killPerson(person, deathDate, deathCause);
+            killed++;
+        }
+
+        return killed;
+    }
 
-            for(IPartnership partnership : person.getPartnerships()) {
-                handleSeperationMoves(partnership, partnership.getPartnerOf(person));
-            }
+    private void killPerson(final IPerson person, final LocalDate deathDate, final String deathCause) {
 
-            Address lastAddress = person.getAddress(deathDate);
-            if(lastAddress != null) {
-                lastAddress.removeInhabitant(person);
-            }
+        person.setDeathDate(deathDate);
+        person.setDeathCause(deathCause);
 
-            killed++;
+        for(IPartnership partnership : person.getPartnerships()) {
+            handleSeperationMoves(partnership, partnership.getPartnerOf(person));
+        }
 
-            // move person to correct place in data structure
-            population.getDeadPeople().add(person);
+        Address lastAddress = person.getAddress(deathDate);
+        if(lastAddress != null) {
+            lastAddress.removeInhabitant(person);
         }
 
-        return killed;
+        // move person to correct place in data structure
+        population.getDeadPeople().add(person);
+
+        if (recordWriter != null) {
+            recordWriter.personDied(person);
+        }
     }
 
     private PersonCollection getLivingPeopleOfSex(final SexOption sex) {
@@ -1481,8 +1884,9 @@ public class OBDModel {
         summary.setFailedEligibilityChecks(population.getPopulationCounts().getFailedEligibilityChecks());
         summary.setTotalPop(population.getPeople(config.getT0(), config.getTE(), MAX_AGE).getNumberOfPeople());
         summary.setSimRunTime(simTimer.getRunTimeSeconds());
-        summary.setMaxMemoryUsage(MemoryUsageAnalysis.getMaxSimUsage());
-        MemoryUsageAnalysis.reset();
+        memoryUsage.stop();
+        summary.setMaxMemoryUsage(memoryUsage.getMaxSimUsage(), memoryUsage.getMaxOwnUsage(), memoryUsage.getMaxConcurrentSimulations());
+        memoryUsage.reset();
 
     }
 
@@ -1497,7 +1901,7 @@ public class OBDModel {
 
     private void recordFinalSummary() {
 
-        MemoryUsageAnalysis.log();
+        memoryUsage.log();
 
         summary.setTotalPop(population.getPeople(config.getT0(), config.getTE(), MAX_AGE).getNumberOfPeople());
         summary.setSimRunTime(simTimer.getRunTimeSeconds());
@@ -1554,6 +1958,66 @@ public class OBDModel {
         }
     }
 
+    private class DeathsInDivision implements Callable<Void> {
+
+        private final SexOption sex;
+        private final int age;
+        private final int peopleOfAge;
+        private final List<IPerson> people;
+        private final long cohort;
+        private final RandomGenerator random;
+
+        private final LocalDate[] deathDates;
+        private final String[] deathCauses;
+
+        DeathsInDivision(final SexOption sex, final int age, final int peopleOfAge, final List<IPerson> people, final long cohort, final RandomGenerator random) {
+
+            this.sex = sex;
+            this.age = age;
+            this.peopleOfAge = peopleOfAge;
+            this.people = people;
+            this.cohort = cohort;
+            this.random = random;
+
+            deathDates = new LocalDate[people.size()];
+            deathCauses = new String[people.size()];
+        }
+
+        // Only reads the population, so that divisions can be processed concurrently
+        @Override
+        public Void call() {
+
+            final DeathDateSelector selector = new DeathDateSelector(random);
+
+            for (int i = 0; i < people.size(); i++) {
+
+                final IPerson person = people.get(i);
+
+                deathDates[i] = selector.selectDate(person, desired, currentTime, config.getSimulationTimeStep());
+
+                final int ageAtDeath = Period.between(person.getBirthDate(), deathDates[i]).getYears();
+                deathCauses[i] = desired.getDeathCauseRates(Year.of(deathDates[i].getYear()), person.getSex(), ageAtDeath).getSample(random);
+            }
+
+            return null;
+        }
+
+        int recordDeaths() {
+
+            // The separations of the partners of the dead, and the moves they lead to
+            randomStreams.startCohort(RandomStreams.SEPARATIONS, currentTime, cohort);
+
+            for (int i = 0; i < people.size(); i++) {
+                killPerson(people.get(i), deathDates[i], deathCauses[i]);
+            }
+
+            // Returns the number killed to the distribution manager
+            desired.returnAchievedDeathCount(currentTime.getYear(), sex, age, peopleOfAge, config.getSimulationTimeStep(), people.size());
+
+            return people.size();
+        }
+    }
+
     private class MothersNeedingPartners {
 
         private final List<NewMother> mothers;
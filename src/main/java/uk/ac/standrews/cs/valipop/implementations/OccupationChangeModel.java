@@ -1,5 +1,6 @@
 package uk.ac.standrews.cs.valipop.implementations;
 
+import org.apache.commons.math3.random.RandomGenerator;
 import uk.ac.standrews.cs.valipop.Config;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
 import uk.ac.standrews.cs.valipop.simulationEntities.PopulationNavigation;
@@ -9,10 +10,18 @@ import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTabl
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.PopulationStatistics;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.determinedCounts.MultipleDeterminedCountByString;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsKeys.OccupationChangeStatsKey;
+import uk.ac.standrews.cs.valipop.utils.CollectionUtils;
+import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.LabelledValueSet;
 
 import java.time.LocalDate;
 import java.time.Period;
 import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
@@ -53,37 +62,55 @@ public class OccupationChangeModel {
         else
             people = population.getLivingPeople().getFemales();
 
-        // This one at a time approach is inefficent (but linear) - searching each time so as to group by occupation makes in squared
-        // if we need optomisation then a faster linear way would be to store everone in the same job in a supporting data structure
+        // group the people whose age is divisible by 10 by their last occupation, in the order they are found
+        Map<String, List<IPerson>> byOccupation = new LinkedHashMap<>();
 
-        // for all people of sex
-        for(IPerson person : people) {
-            // if persons age is divisible by 10
-            if(PopulationNavigation.ageOnDate(person, onDate) % 10 == 0) {
-                // then get last occupation
-                String occupation = person.getLastOccupation();
-
-                // use to get new occuption
-                OccupationChangeStatsKey key = new OccupationChangeStatsKey(occupation, 1, Period.ofYears(10), onDate, sex);
-                MultipleDeterminedCountByString mDC = (MultipleDeterminedCountByString) desired.getDeterminedCount(key, config);
-
-                // this for loop is looking for the non zero value in the set of which there is either 1 or 0 - we could optomise this by using an OrderByValueLabelledValueSet (which somebody would first need to implement...)
-                for(String label : mDC.getDeterminedCount().getLabels()) {
-                    if(mDC.getDeterminedCount().get(label) != 0) {
-                        // if not same as last then update occupation history
-                        if(!label.equals(occupation)) {
-                            person.setOccupation(onDate, label);
-                        }
-                        // else do nothing - it's the same job, it doesn't need multiple entries in the occupation history
-                        break;
-                    }
-                    // if we get to here without ever breaking then it inidcates the previous occupation isn't in the occupation change data
-                    // current sim behaviour is that the person sticks with this occuption - this may change next time round if the next data input for occupation change features the previous occupation
-                }
+        for(IPerson person : peopleOfDecadeAge(people, onDate)) {
+            byOccupation.computeIfAbsent(person.getLastOccupation(), occupation -> new ArrayList<>()).add(person);
+        }
+
+        for(Map.Entry<String, List<IPerson>> group : byOccupation.entrySet()) {
+
+            String occupation = group.getKey();
+            List<IPerson> holders = group.getValue();
 
-                mDC.setFulfilledCount(mDC.getDeterminedCount());
-                desired.returnAchievedCount(mDC);
+            // use to get new occupations for everyone in the group
+            OccupationChangeStatsKey key = new OccupationChangeStatsKey(occupation, holders.size(), Period.ofYears(10), onDate, sex);
+            MultipleDeterminedCountByString mDC = (MultipleDeterminedCountByString) desired.getDeterminedCount(key, config);
+
+            LabelledValueSet<String, Integer> fulfilled = mDC.getZeroedCountsTemplate(desired.getRandomGenerator());
+            assignOccupations(holders, occupation, mDC.getDeterminedCount(), fulfilled, onDate, desired.getRandomGenerator());
+
+            // anyone left over indicates the previous occupation isn't in the occupation change data
+            // current sim behaviour is that they stick with this occuption - this may change next time round if the next data input for occupation change features the previous occupation
+
+            mDC.setFulfilledCount(fulfilled);
+            desired.returnAchievedCount(mDC);
+        }
+    }
+
+    // Gives the holders of an occupation the occupations of the given counts until the counts run out, recording how
+    // many are given each. The holders are shuffled first, as they are found in order of birth month, and otherwise
+    // the same end of the age range would always be the first to be given each occupation.
+    static void assignOccupations(List<IPerson> holders, String occupation, LabelledValueSet<String, Integer> counts, LabelledValueSet<String, Integer> fulfilled, LocalDate onDate, RandomGenerator random) {
+
+        CollectionUtils.shuffle(holders, random);
+        int next = 0;
+
+        for(String label : counts.getLabels()) {
+
+            int count = Math.min(counts.get(label), holders.size() - next);
+
+            for(int i = 0; i < count; i++) {
+                // if not same as last then update occupation history
+                if(!label.equals(occupation)) {
+                    holders.get(next).setOccupation(onDate, label);
+                }
+                // else do nothing - it's the same job, it doesn't need multiple entries in the occupation history
+                next++;
             }
+
+            fulfilled.update(label, count);
         }
     }
 
@@ -96,26 +123,59 @@ public class OccupationChangeModel {
         else
             people = population.getLivingPeople().getFemales();
 
-        // This one at a time approach is inefficent (but linear) - searching each time so as to group by occupation makes in squared
-        // if we need optomisation then a faster linear way would be to store everone in the same job in a supporting data structure
+        // for all people of sex whose age is divisible by 10
+        for(IPerson person : peopleOfDecadeAge(people, onDate)) {
 
-        // for all people of sex
-        for(IPerson person : people) {
-            // if persons age is divisible by 10
             int age = PopulationNavigation.ageOnDate(person, onDate);
-            if(age % 10 == 0) {
-                // then get last occupation
-                String occupation = person.getLastOccupation();
 
-                // use to get new occuption
-                String newOccupation = desired.getOccupation(Year.of(onDate.getYear()), sex).getDistributionForAge(age).getSample();
+            // then get last occupation
+            String occupation = person.getLastOccupation();
 
+            // use to get new occuption
+            String newOccupation = desired.getOccupation(Year.of(onDate.getYear()), sex).getDistributionForAge(age).getSample();
 
-                if(!newOccupation.equals(occupation)) {
-                    person.setOccupation(onDate, newOccupation);
-                } // else do nothing - it's the same job, it doesn't need multiple entries in the occupation history
 
+            if(!newOccupation.equals(occupation)) {
+                person.setOccupation(onDate, newOccupation);
+            } // else do nothing - it's the same job, it doesn't need multiple entries in the occupation history
+        }
+    }
+
+    // The people whose age on the given date is divisible by 10, in the order the collection iterates over them. Only
+    // the divisions of the collection that people of such an age could be filed under are searched.
+    static List<IPerson> peopleOfDecadeAge(PersonCollection people, LocalDate onDate) {
+
+        // a collection with no divisions has no earliest birth month to search back to
+        if(people.getNumberOfPeople() == 0 || people.getDivisionDates().isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<YearMonth> birthMonths = new ArrayList<>();
+        YearMonth earliest = people.getEarliestBirthMonth();
+
+        for(int decades = 0; ; decades++) {
+
+            LocalDate latestBirth = onDate.minusYears(10 * decades);
+
+            // children born since the date are also aged 0
+            YearMonth last = YearMonth.from(decades == 0 ? latestBirth.plusYears(1) : latestBirth).plusMonths(1);
+
+            if(last.isBefore(earliest)) break;
+
+            // a month either side allows for the ends of months and for those born on 1 January being aged a year younger
+            for(YearMonth month = YearMonth.from(latestBirth.minusYears(1)).minusMonths(1); !month.isAfter(last); month = month.plusMonths(1)) {
+                birthMonths.add(month);
+            }
+        }
+
+        List<IPerson> ofDecadeAge = new ArrayList<>();
+
+        for(IPerson person : people.getPeopleFiledWithBirthMonths(birthMonths)) {
+            if(PopulationNavigation.ageOnDate(person, onDate) % 10 == 0) {
+                ofDecadeAge.add(person);
             }
         }
+
+        return ofDecadeAge;
     }
 }
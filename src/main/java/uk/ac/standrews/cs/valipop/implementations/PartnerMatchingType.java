@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations;
+
+/**
+ * How {@link OBDModel} finds fathers for the new mothers of each time step.
+ *
+ * SCAN rotates a shuffled list of the men of each age range past each mother in turn, checking every man until one can
+ * partner her. INDEXED holds the men of each age range in a {@link PartnerPool}, from which men are removed once they
+ * are taken, and gives up on a mother once a bounded number of checks have failed.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public enum PartnerMatchingType {
+
+    SCAN,
+    INDEXED
+}
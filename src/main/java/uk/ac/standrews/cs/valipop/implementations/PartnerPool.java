@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * The men of one age range who may be taken as partners in a time step, held in an array in a random order.
+ *
+ * Each search starts where the last one stopped and walks through the men in turn, as rotating a shuffled list would,
+ * and a man who is taken is removed by moving the last man into his place. Once a search has checked a given number of
+ * men without finding one who can partner, it stops walking and instead checks a bounded number of men drawn at
+ * random, so a mother who can partner only some of the men is usually matched after a bounded number of checks rather
+ * than one per man. If the drawn men cannot partner either, the walk carries on through the men not yet checked, so a
+ * mother is only left unmatched if none of the men can partner her, as when the men are scanned in full.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class PartnerPool {
+
+    private final IPerson[] men;
+    private final RandomGenerator random;
+
+    private int size;
+    private int cursor = 0;
+
+    /**
+     * @param men the men who may be taken, in the order to search them
+     * @param random the generator used to draw men once a walk through the pool has failed
+     */
+    public PartnerPool(final Collection<IPerson> men, final RandomGenerator random) {
+
+        this.men = men.toArray(new IPerson[0]);
+        this.random = random;
+
+        size = this.men.length;
+    }
+
+    /**
+     * Finds a man who can partner, and removes him from the pool.
+     *
+     * @param canPartner the test of whether a man can partner
+     * @param walkLimit the number of men to check in turn before drawing men at random
+     * @param probeLimit the number of men to draw at random before checking the rest of the men in turn
+     * @return the man found, or null if none of the men can partner
+     */
+    public IPerson take(final Predicate<IPerson> canPartner, final int walkLimit, final int probeLimit) {
+
+        final int toWalk = Math.min(size, walkLimit);
+
+        for (int checked = 0; checked < toWalk; checked++) {
+
+            final IPerson man = men[cursor];
+
+            if (canPartner.test(man)) {
+                remove(cursor);
+                return man;
+            }
+
+            cursor = (cursor + 1) % size;
+        }
+
+        // If every man has been checked then drawing more would only repeat those checks
+        if (toWalk == size) {
+            return null;
+        }
+
+        for (int probe = 0; probe < probeLimit; probe++) {
+
+            final int position = random.nextInt(size);
+            final IPerson man = men[position];
+
+            if (canPartner.test(man)) {
+                remove(position);
+                return man;
+            }
+        }
+
+        // The walk stopped at the first man it had not checked
+        for (int checked = toWalk; checked < size; checked++) {
+
+            final IPerson man = men[cursor];
+
+            if (canPartner.test(man)) {
+                remove(cursor);
+                return man;
+            }
+
+            cursor = (cursor + 1) % size;
+        }
+
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void remove(final int position) {
+
+        size--;
+        men[position] = men[size];
+        men[size] = null;
+
+        if (cursor >= size) {
+            cursor = 0;
+        }
+    }
+}
@@ -3,13 +3,16 @@ package uk.ac.standrews.cs.valipop.implementations;
 import org.apache.commons.math3.random.RandomGenerator;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+import uk.ac.standrews.cs.valipop.simulationEntities.Partnership;
 import uk.ac.standrews.cs.valipop.simulationEntities.Person;
+import uk.ac.standrews.cs.valipop.simulationEntities.PersonStore;
 import uk.ac.standrews.cs.valipop.simulationEntities.PopulationCounts;
 import uk.ac.standrews.cs.valipop.simulationEntities.dataStructure.Population;
 import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.PopulationStatistics;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.dates.DateSelector;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.Period;
 import java.time.Year;
@@ -20,7 +23,7 @@ import java.time.temporal.ChronoUnit;
  * 
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class PersonFactory {
+public class PersonFactory implements Serializable {
 
     private final Population population;
     private final PopulationStatistics desired;
@@ -41,7 +44,7 @@ public class PersonFactory {
     public IPerson makePerson(final LocalDate birthDate, final IPartnership parents, final boolean adulterous, final boolean immigrant) {
 
         SexOption sex = getSex(population.getPopulationCounts(), desired, birthDate);
-        return new Person(sex, birthDate, parents, desired, adulterous, immigrant);
+        return newPerson(sex, birthDate, parents, adulterous, immigrant);
     }
 
     public IPerson makePerson(final LocalDate birthDate, final IPartnership parents, final boolean adulterous, final boolean immigrant, SexOption sex) {
@@ -51,7 +54,17 @@ public class PersonFactory {
         else
             population.getPopulationCounts().newFemale();
 
-        return new Person(sex, birthDate, parents, desired, adulterous, immigrant);
+        return newPerson(sex, birthDate, parents, adulterous, immigrant);
+    }
+
+    public IPartnership makePartnership(final IPerson male, final IPerson female) {
+
+        final PersonStore store = population.getPersonStore();
+
+        if (store != null) {
+            return store.addPartnership(male, female);
+        }
+        return new Partnership(population.newPartnershipId(), male, female);
     }
 
     public IPerson makePersonWithRandomBirthDate(final LocalDate currentDate, final IPartnership parents, final boolean adulterous) {
@@ -70,6 +83,16 @@ public class PersonFactory {
         return makePerson(birthDateSelector.selectRandomDate(currentDate, simulationTimeStep), parents, adulterous);
     }
 
+    private IPerson newPerson(final SexOption sex, final LocalDate birthDate, final IPartnership parents, final boolean adulterous, final boolean immigrant) {
+
+        final PersonStore store = population.getPersonStore();
+
+        if (store != null) {
+            return store.addPerson(sex, birthDate, parents, desired, adulterous, immigrant);
+        }
+        return new Person(population.newPersonId(), sex, birthDate, parents, desired, adulterous, immigrant);
+    }
+
     private SexOption getSex(final PopulationCounts counts, final PopulationStatistics statistics, final LocalDate currentDate) {
 
         final double sexBalance = counts.getAllTimeSexRatio();
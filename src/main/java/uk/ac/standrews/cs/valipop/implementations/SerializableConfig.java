@@ -6,6 +6,9 @@ import java.time.LocalDateTime;
 import java.time.Period;
 
 import uk.ac.standrews.cs.valipop.export.ExportFormat;
+import uk.ac.standrews.cs.valipop.simulationEntities.PersonStoreType;
+import uk.ac.standrews.cs.valipop.utils.addressLookup.GeographyIndexType;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.ValidationBackend;
 import uk.ac.standrews.cs.valipop.utils.sourceEventRecords.RecordFormat;
 
 public class SerializableConfig implements Serializable {
@@ -63,6 +66,13 @@ public class SerializableConfig implements Serializable {
     public String runPurpose;
     public RecordFormat outputRecordFormat;
     public ExportFormat outputGraphFormat;
+    public PersonStoreType personStore;
+    public GeographyIndexType geographyIndex;
+    public int simulationThreads;
+    public boolean splitRandomStreams;
+    public boolean streamRecords;
+    public ValidationBackend validationBackend;
+    public PartnerMatchingType partnerMatching;
     public LocalDateTime startTime;
     public LocalDate tS;
     public LocalDate t0;
@@ -124,6 +134,13 @@ public class SerializableConfig implements Serializable {
         String runPurpose,
         RecordFormat outputRecordFormat,
         ExportFormat outputGraphFormat,
+        PersonStoreType personStore,
+        GeographyIndexType geographyIndex,
+        int simulationThreads,
+        boolean splitRandomStreams,
+        boolean streamRecords,
+        ValidationBackend validationBackend,
+        PartnerMatchingType partnerMatching,
         LocalDateTime startTime,
         LocalDate tS,
         LocalDate t0,
@@ -184,6 +201,13 @@ public class SerializableConfig implements Serializable {
         this.runPurpose                       =runPurpose;
         this.outputRecordFormat               =outputRecordFormat;
         this.outputGraphFormat                =outputGraphFormat;
+        this.personStore                      =personStore;
+        this.geographyIndex                   =geographyIndex;
+        this.simulationThreads                =simulationThreads;
+        this.splitRandomStreams               =splitRandomStreams;
+        this.streamRecords                    =streamRecords;
+        this.validationBackend                =validationBackend;
+        this.partnerMatching                  =partnerMatching;
         this.startTime                        =startTime;
         this.tS                               =tS;
         this.t0                               =t0;
@@ -42,6 +42,10 @@ public class SerializableSummaryRow implements Serializable {
     public long maxMemoryUsage;
     public Double v;
     public String hostname;
+    public double predictedMemoryUsage;
+    public double predictedRunTime;
+    public int concurrentSimulations;
+    public long maxOwnUsage;
     public SerializableConfig config;
 
     public SerializableSummaryRow(
@@ -79,6 +83,10 @@ public class SerializableSummaryRow implements Serializable {
         long maxMemoryUsage,
         Double v,
         String hostname,
+        double predictedMemoryUsage,
+        double predictedRunTime,
+        int concurrentSimulations,
+        long maxOwnUsage,
         SerializableConfig config
     ) {
         this.startTime                     = startTime;
@@ -115,6 +123,10 @@ public class SerializableSummaryRow implements Serializable {
         this.maxMemoryUsage                = maxMemoryUsage;
         this.v                             = v;
         this.hostname                      = hostname;
+        this.predictedMemoryUsage          = predictedMemoryUsage;
+        this.predictedRunTime              = predictedRunTime;
+        this.concurrentSimulations         = concurrentSimulations;
+        this.maxOwnUsage                   = maxOwnUsage;
         this.config                        = config;
     }
 }
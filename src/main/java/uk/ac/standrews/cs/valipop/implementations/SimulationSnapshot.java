@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import uk.ac.standrews.cs.valipop.Config;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+import uk.ac.standrews.cs.valipop.simulationEntities.KinshipIndex;
+import uk.ac.standrews.cs.valipop.simulationEntities.dataStructure.Population;
+import uk.ac.standrews.cs.valipop.statistics.populationStatistics.PopulationStatistics;
+import uk.ac.standrews.cs.valipop.utils.RandomStreams;
+import uk.ac.standrews.cs.valipop.utils.addressLookup.DistanceSelector;
+import uk.ac.standrews.cs.valipop.utils.addressLookup.Geography;
+import uk.ac.standrews.cs.valipop.utils.specialTypes.dates.DateSelector;
+import uk.ac.standrews.cs.valipop.utils.specialTypes.dates.DeathDateSelector;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The state of a simulation part way through, taken by {@link OBDModel#simulateUntil} and carried on from by
+ * {@link OBDModel#OBDModel(Config, SimulationSnapshot)}. The state is held serialised and compressed, and a new copy
+ * is made each time a model is restored, so the same snapshot can be used to run any number of simulations which only
+ * differ after the date it was taken, such as the runs of a factor search.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class SimulationSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 4127796618045893520L;
+
+    // Serialising a population follows the links between family members, which recurse far deeper than the default stack allows
+    private static final long STACK_SIZE = 1L << 30;
+
+    private final LocalDate date;
+    private final LocalDate tS;
+    private final LocalDate tE;
+    private final Period timeStep;
+    private final int t0PopulationSize;
+    private final double setUpBR;
+    private final double setUpDR;
+    private final int seed;
+    private final String varPath;
+
+    private final byte[] state;
+
+    SimulationSnapshot(final State state, final Config config) throws IOException {
+
+        this.date = state.currentTime;
+        this.tS = config.getTS();
+        this.tE = config.getTE();
+        this.timeStep = config.getSimulationTimeStep();
+        this.t0PopulationSize = config.getT0PopulationSize();
+        this.setUpBR = config.getSetUpBR();
+        this.setUpDR = config.getSetUpDR();
+        this.seed = config.getSeed();
+        this.varPath = pathOf(config);
+
+        this.state = onLargeStack(() -> {
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new DeflaterOutputStream(bytes)))) {
+                out.writeObject(state);
+            }
+
+            return bytes.toByteArray();
+        });
+    }
+
+    /**
+     * Reads a snapshot previously written by {@link #write(Path)}.
+     *
+     * @param path the file to read
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or does not hold a snapshot
+     */
+    public static SimulationSnapshot read(final Path path) throws IOException {
+
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return (SimulationSnapshot) in.readObject();
+
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("not a simulation snapshot: " + path, e);
+        }
+    }
+
+    /**
+     * Writes the snapshot to the given file, replacing any existing file only once it has been written in full.
+     *
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(final Path path) throws IOException {
+
+        final Path temp = Paths.get(path + ".new");
+
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeObject(this);
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the simulation date at which the snapshot was taken.
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Checks that a model with the given config can carry on from this snapshot, which requires the config to have
+     * everything used before the snapshot was taken in common with the config of the simulation it was taken from.
+     *
+     * @param config the config of the model to be restored
+     * @throws IllegalArgumentException if the config differs in anything used before the snapshot was taken
+     */
+    void checkCanRestore(final Config config) {
+
+        check(tS, config.getTS(), "tS");
+        check(tE, config.getTE(), "tE");
+        check(timeStep, config.getSimulationTimeStep(), "time step");
+        check(t0PopulationSize, config.getT0PopulationSize(), "t0 population size");
+        check(setUpBR, config.getSetUpBR(), "set up birth rate");
+        check(setUpDR, config.getSetUpDR(), "set up death rate");
+        check(seed, config.getSeed(), "seed");
+        check(varPath, pathOf(config), "input directory");
+
+        if (date.isAfter(config.getT0())) {
+            throw new IllegalArgumentException("snapshot taken after t0 of config: " + date);
+        }
+    }
+
+    private static void check(final Object ofSnapshot, final Object ofConfig, final String name) {
+
+        if (!ofSnapshot.equals(ofConfig)) {
+            throw new IllegalArgumentException("config has " + name + " of " + ofConfig + " but snapshot has " + ofSnapshot);
+        }
+    }
+
+    private static String pathOf(final Config config) {
+        return config.getVarPath().toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Returns the size in bytes of the compressed state.
+     */
+    public int getSize() {
+        return state.length;
+    }
+
+    State restore() throws IOException {
+
+        return onLargeStack(() -> {
+
+            try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(state))))) {
+                return (State) in.readObject();
+            }
+        });
+    }
+
+    private static <T> T onLargeStack(final Callable<T> task) throws IOException {
+
+        final FutureTask<T> future = new FutureTask<>(task);
+        final Thread thread = new Thread(null, future, "simulation-snapshot", STACK_SIZE);
+
+        thread.start();
+
+        try {
+            return future.get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * The parts of a model which change as the simulation runs.
+     */
+    static class State implements Serializable {
+
+        private static final long serialVersionUID = 6720398817034511260L;
+
+        LocalDate currentTime;
+        LocalDate endOfInitPeriod;
+        int currentHypotheticalPopulationSize;
+        int birthsCount;
+        int deathCount;
+        boolean initialised;
+
+        Collection<IPerson> partnersToSeparate;
+        Population population;
+        PopulationStatistics desired;
+        Geography geography;
+
+        RandomStreams randomStreams;
+        RandomGenerator randomNumberGenerator;
+
+        DeathDateSelector deathDateSelector;
+        DateSelector marriageDateSelector;
+        DistanceSelector moveDistanceSelector;
+
+        PersonFactory personFactory;
+        BalancedMigrationModel migrationModel;
+        KinshipIndex kinshipIndex;
+    }
+}
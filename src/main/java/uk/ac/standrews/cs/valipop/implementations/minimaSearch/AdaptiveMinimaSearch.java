@@ -0,0 +1,565 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations.minimaSearch;
+
+import uk.ac.standrews.cs.valipop.Config;
+import uk.ac.standrews.cs.valipop.implementations.OBDModel;
+import uk.ac.standrews.cs.valipop.implementations.PreEmptiveOutOfMemoryWarning;
+import uk.ac.standrews.cs.valipop.implementations.StatsException;
+import uk.ac.standrews.cs.valipop.utils.ProcessArgs;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Searches for the value of the recovery factor or proportional recovery factor which minimises V, running the
+ * simulations for several factor values, and several seeds at each value, at the same time.
+ *
+ * The search first steps away from the start factor until the lowest V found is bracketed by higher values, doubling
+ * the step each time, and then narrows the bracket around the lowest V by evaluating new factor values between it and
+ * its neighbours, until the neighbours are within the resolution of each other. In each round there is a new factor
+ * value for each simulation which can run at once, or two if only one can, in which case the bracket is halved each
+ * round.
+ *
+ * V at each factor value is the mean over runs with different seeds. Runs are added until the confidence interval on
+ * the mean is narrow relative to the mean, or the maximum number of repeats is reached.
+ *
+ * The number of simulations run at once is limited by the number of processors and by the heap, from the peak heap
+ * use of the first simulation. If a simulation runs out of memory alongside others the number is reduced and the run
+ * retried; if it runs out of memory alone the factor value is excluded, along with those below it, which need more
+ * memory, as in {@link MinimaSearch}.
+ *
+ * The runs already recorded in the results summary for the run purpose, with the same population size, are used in
+ * place of new runs, so a search which is stopped can be resumed.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class AdaptiveMinimaSearch {
+
+    private static final int BASE_SEED = 123;
+    private static final int MIN_REPEATS = 2;
+    private static final double CONFIDENCE = 0.95;
+    private static final double TARGET_RELATIVE_HALF_WIDTH = 0.05;
+
+    private static final double MAX_ABS_FACTOR = 4;
+    private static final double RESOLUTION = 0.04;
+    private static final double OUT_OF_MEMORY_MARGIN = 0.1;
+    private static final double MEMORY_HEADROOM = 0.8;
+    private static final double NAN_ASYMPTOTE = 1E6;
+
+    private static final LocalDate T_S = LocalDate.of(1691, 1, 1);
+    private static final LocalDate T_0 = LocalDate.of(1855, 1, 1);
+    private static final LocalDate T_E = LocalDate.of(2015, 1, 1);
+
+    /**
+     * Runs a simulation with the given factor value and seed, and returns its V and peak heap use.
+     */
+    interface Evaluator {
+        Evaluation evaluate(double factor, int seed) throws IOException, StatsException, PreEmptiveOutOfMemoryWarning;
+    }
+
+    static class Evaluation {
+
+        private final double v;
+        private final long maxMemoryUsage;
+
+        /**
+         * @param maxMemoryUsage the peak heap use in bytes while the simulation ran, or 0 if not known
+         */
+        Evaluation(double v, long maxMemoryUsage) {
+            this.v = v;
+            this.maxMemoryUsage = maxMemoryUsage;
+        }
+    }
+
+    private final Evaluator evaluator;
+    private final int maxWorkers;
+    private final int maxRepeats;
+    private final double startFactor;
+    private final double resolution;
+
+    private double step;
+    private double bottomBound;
+    private double topBound;
+    private int workers;
+
+    private final TreeMap<Double, VEstimate> estimates = new TreeMap<>();
+
+    AdaptiveMinimaSearch(Evaluator evaluator, int maxWorkers, int maxRepeats, double startFactor, double step, double resolution, double bottomBound, double topBound) {
+
+        this.evaluator = evaluator;
+        this.maxWorkers = maxWorkers;
+        this.maxRepeats = maxRepeats;
+        this.startFactor = startFactor;
+        this.step = step;
+        this.resolution = resolution;
+        this.bottomBound = bottomBound;
+        this.topBound = topBound;
+
+        workers = 1;
+    }
+
+    public static void main(String[] args) throws StatsException, IOException, InterruptedException {
+
+        String[] pArgs = ProcessArgs.process(args, "MINIMA_SEARCH");
+        if (!ProcessArgs.check(pArgs, "MINIMA_SEARCH")) {
+            System.err.println("Incorrect arguments given");
+            throw new Error("Incorrect arguments given");
+        }
+
+        Path dataFiles = Paths.get(pArgs[0]);
+        int populationSize = Integer.valueOf(pArgs[1]);
+        String runPurpose = pArgs[2];
+        Minimise minimise = Minimise.resolve(pArgs[3]);
+        Control control = Control.resolve(pArgs[4]);
+        double startFactor = Double.valueOf(pArgs[5]);
+        double step = Double.valueOf(pArgs[6]);
+        int repeats = Integer.valueOf(pArgs[7]);
+
+        SimulationEvaluator evaluator = new SimulationEvaluator(dataFiles, populationSize, runPurpose, minimise, control);
+        AdaptiveMinimaSearch search = new AdaptiveMinimaSearch(evaluator, Runtime.getRuntime().availableProcessors(),
+                repeats, startFactor, step, RESOLUTION, -MAX_ABS_FACTOR, MAX_ABS_FACTOR);
+
+        search.addHistory(readHistory(evaluator.getResultsSummaryPath(), control, populationSize));
+
+        FVPoint minimum = search.search();
+        System.out.println("Minimum found at: " + minimum.x_f + " --- v/M: " + minimum.y_v);
+    }
+
+    /**
+     * Adds the V values of earlier runs, keyed by factor value and then seed.
+     */
+    void addHistory(Map<Double, Map<Integer, Double>> history) {
+
+        for (Map.Entry<Double, Map<Integer, Double>> factor : history.entrySet()) {
+            for (Map.Entry<Integer, Double> run : factor.getValue().entrySet()) {
+                estimateAt(factor.getKey()).add(run.getKey(), run.getValue());
+            }
+        }
+    }
+
+    /**
+     * Runs the search and returns the factor value with the lowest mean V found, and that V.
+     */
+    FVPoint search() throws IOException, StatsException, InterruptedException {
+
+        ExecutorService pool = Executors.newCachedThreadPool();
+
+        try {
+            while (true) {
+
+                VEstimate best = getBest();
+
+                if (best == null) {
+                    if (bottomBound > topBound) {
+                        throw new IllegalStateException("No factor value could be evaluated within the memory available");
+                    }
+
+                    // nothing evaluated yet, or everything evaluated was excluded for running out of memory
+                    evaluate(Collections.singletonList(clamp(startFactor)), pool);
+                    continue;
+                }
+
+                double factor = best.getFactor();
+                Double lower = estimates.lowerKey(factor);
+                Double higher = estimates.higherKey(factor);
+
+                List<Double> candidates;
+
+                if (lower == null && factor - bottomBound > resolution) {
+                    candidates = steps(factor, -1);
+
+                } else if (higher == null && topBound - factor > resolution) {
+                    candidates = steps(factor, 1);
+
+                } else {
+                    candidates = between(lower == null ? bottomBound : lower, factor, higher == null ? topBound : higher);
+                }
+
+                if (candidates.isEmpty()) {
+                    return best.toPoint();
+                }
+
+                evaluate(candidates, pool);
+            }
+
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Factor values stepping away from the given one in the given direction, doubling the step for the next round.
+    private List<Double> steps(double factor, int direction) {
+
+        List<Double> candidates = new ArrayList<>();
+
+        for (int i = 1; i <= pointsPerRound(); i++) {
+            double candidate = clamp(factor + direction * step * i);
+            if (isNew(candidate)) {
+                candidates.add(candidate);
+            }
+        }
+
+        step *= 2;
+        return candidates;
+    }
+
+    // Factor values between the neighbours of the best, shared between the two sides by their widths.
+    private List<Double> between(double lower, double best, double higher) {
+
+        List<Double> candidates = new ArrayList<>();
+
+        if (higher - lower <= 2 * resolution) {
+            return candidates;
+        }
+
+        int points = pointsPerRound();
+        int below = (int) Math.round(points * (best - lower) / (higher - lower));
+        int above = points - below;
+
+        for (int i = 1; i <= below; i++) {
+            double candidate = lower + (best - lower) * i / (below + 1);
+            if (isNew(candidate)) candidates.add(candidate);
+        }
+
+        for (int i = 1; i <= above; i++) {
+            double candidate = best + (higher - best) * i / (above + 1);
+            if (isNew(candidate)) candidates.add(candidate);
+        }
+
+        return candidates;
+    }
+
+    private int pointsPerRound() {
+        return Math.max(2, workers);
+    }
+
+    private boolean isNew(double factor) {
+
+        if (factor < bottomBound || factor > topBound) {
+            return false;
+        }
+
+        Double floor = estimates.floorKey(factor);
+        Double ceiling = estimates.ceilingKey(factor);
+
+        return (floor == null || factor - floor >= resolution / 2) && (ceiling == null || ceiling - factor >= resolution / 2);
+    }
+
+    private double clamp(double factor) {
+        return Math.max(bottomBound, Math.min(topBound, factor));
+    }
+
+    private VEstimate getBest() {
+
+        VEstimate best = null;
+
+        for (VEstimate estimate : estimates.values()) {
+            if (estimate.getNumberOfRuns() > 0 && (best == null || estimate.getMean() < best.getMean())) {
+                best = estimate;
+            }
+        }
+
+        return best;
+    }
+
+    private VEstimate estimateAt(double factor) {
+        return estimates.computeIfAbsent(factor, VEstimate::new);
+    }
+
+    // Runs simulations at the given factor values until each has a precise enough V, keeping as many running at once
+    // as the workers allow.
+    private void evaluate(List<Double> factors, ExecutorService pool) throws IOException, StatsException, InterruptedException {
+
+        CompletionService<Run> runs = new ExecutorCompletionService<>(pool);
+        List<VEstimate> evaluating = new ArrayList<>();
+
+        for (double factor : factors) {
+            evaluating.add(estimateAt(factor));
+        }
+
+        int running = 0;
+
+        while (true) {
+
+            VEstimate next;
+            while (running < workers && (next = nextToRun(evaluating)) != null) {
+
+                VEstimate estimate = next;
+                int seed = estimate.startRun(BASE_SEED);
+
+                runs.submit(() -> {
+                    try {
+                        return new Run(estimate, seed, evaluator.evaluate(estimate.getFactor(), seed));
+                    } catch (Exception | OutOfMemoryError e) {
+                        throw new RunFailure(estimate, seed, e);
+                    }
+                });
+                running++;
+            }
+
+            if (running == 0) {
+                return;
+            }
+
+            Future<Run> finished = runs.take();
+            running--;
+
+            try {
+                Run run = finished.get();
+                run.estimate.finishRun(run.evaluation.v);
+                System.out.println("Factor: " + run.estimate.getFactor() + " seed: " + run.seed + " --- v/M: " + run.evaluation.v);
+
+                if (workers == 1 && maxWorkers > 1 && running == 0) {
+                    sizeWorkers(run.evaluation.maxMemoryUsage);
+                }
+
+            } catch (ExecutionException e) {
+                handleFailure(e.getCause(), evaluating, running);
+            }
+        }
+    }
+
+    private void handleFailure(Throwable failure, List<VEstimate> evaluating, int running) throws IOException, StatsException {
+
+        if (failure instanceof RunFailure) {
+
+            RunFailure runFailure = (RunFailure) failure;
+            Throwable cause = runFailure.getCause();
+
+            if (cause instanceof PreEmptiveOutOfMemoryWarning || cause instanceof OutOfMemoryError) {
+
+                runFailure.estimate.abandonRun(runFailure.seed);
+
+                if (running > 0) {
+                    // other simulations took the memory, so run fewer at once and try again
+                    workers = Math.max(1, running);
+                    System.out.println("Out of memory - running " + workers + " simulations at once");
+
+                } else {
+                    excludeBelow(runFailure.estimate.getFactor() + OUT_OF_MEMORY_MARGIN, evaluating);
+                }
+                return;
+            }
+
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof StatsException) throw (StatsException) cause;
+            throw new RuntimeException(cause);
+        }
+
+        throw new RuntimeException(failure);
+    }
+
+    private void excludeBelow(double factor, List<VEstimate> evaluating) {
+
+        System.out.println("Out of memory - excluding factor values below " + factor);
+
+        bottomBound = factor;
+        estimates.headMap(bottomBound).clear();
+        evaluating.removeIf(estimate -> estimate.getFactor() < bottomBound);
+    }
+
+    // Runs until each factor has the minimum number of repeats, then one at a time for factors whose interval is
+    // still too wide, giving each run to the factor with fewest runs started.
+    private VEstimate nextToRun(List<VEstimate> evaluating) {
+
+        VEstimate next = null;
+        int fewest = Integer.MAX_VALUE;
+
+        for (VEstimate estimate : evaluating) {
+
+            int started = estimate.getNumberOfRuns() + estimate.getNumberRunning();
+
+            if (started < maxRepeats && (started < MIN_REPEATS || estimate.getNumberRunning() == 0 && !isPrecise(estimate)) && started < fewest) {
+                next = estimate;
+                fewest = started;
+            }
+        }
+
+        return next;
+    }
+
+    private boolean isPrecise(VEstimate estimate) {
+        return estimate.getHalfWidth(CONFIDENCE) <= TARGET_RELATIVE_HALF_WIDTH * Math.abs(estimate.getMean());
+    }
+
+    // Sizes the workers by the peak heap use of the first simulation, which ran alone.
+    private void sizeWorkers(long perSimulation) {
+
+        if (perSimulation > 0) {
+            long fit = (long) (Runtime.getRuntime().maxMemory() * MEMORY_HEADROOM / perSimulation);
+            workers = (int) Math.max(1, Math.min(maxWorkers, fit));
+        } else {
+            workers = maxWorkers;
+        }
+
+        System.out.println("Running " + workers + " simulations at once");
+    }
+
+    /**
+     * Returns the number of simulations run at once.
+     */
+    int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Reads the V of each run in a results summary file with the given population size and the factor not being
+     * searched at zero, keyed by the searched factor and then the seed.
+     */
+    static Map<Double, Map<Integer, Double>> readHistory(Path summaryPath, Control control, int populationSize) throws IOException {
+
+        Map<Double, Map<Integer, Double>> history = new TreeMap<>();
+
+        if (!Files.exists(summaryPath)) {
+            return history;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(summaryPath)) {
+
+            String header = reader.readLine();
+            if (header == null) {
+                return history;
+            }
+
+            List<String> columns = Arrays.asList(header.split(","));
+            int size = columns.indexOf("Seed Pop Size");
+            int recovery = columns.indexOf("Recovery Factor");
+            int proportional = columns.indexOf("Proportional Recovery Factor");
+            int v = columns.indexOf("v/M");
+            int seed = columns.indexOf("Seed");
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+
+                String[] fields = line.split(",");
+                if (fields.length < columns.size() || Integer.parseInt(fields[size]) != populationSize) continue;
+
+                double searched = Double.parseDouble(fields[control == Control.RF ? recovery : proportional]);
+                double other = Double.parseDouble(fields[control == Control.RF ? proportional : recovery]);
+                double value = Double.parseDouble(fields[v]);
+
+                if (other == 0 && !Double.isNaN(value)) {
+                    history.computeIfAbsent(searched, f -> new TreeMap<>()).put(Integer.parseInt(fields[seed]), value);
+                }
+            }
+        }
+
+        return history;
+    }
+
+    private static class Run {
+
+        private final VEstimate estimate;
+        private final int seed;
+        private final Evaluation evaluation;
+
+        Run(VEstimate estimate, int seed, Evaluation evaluation) {
+            this.estimate = estimate;
+            this.seed = seed;
+            this.evaluation = evaluation;
+        }
+    }
+
+    private static class RunFailure extends Exception {
+
+        private final VEstimate estimate;
+        private final int seed;
+
+        RunFailure(VEstimate estimate, int seed, Throwable cause) {
+            super(cause);
+            this.estimate = estimate;
+            this.seed = seed;
+        }
+    }
+
+    /**
+     * Runs the simulations for the search, as {@link MinimaSearch} does.
+     */
+    private static class SimulationEvaluator implements Evaluator {
+
+        private final Path dataFiles;
+        private final int populationSize;
+        private final String runPurpose;
+        private final Minimise minimise;
+        private final Control control;
+
+        SimulationEvaluator(Path dataFiles, int populationSize, String runPurpose, Minimise minimise, Control control) {
+
+            this.dataFiles = dataFiles;
+            this.populationSize = populationSize;
+            this.runPurpose = runPurpose;
+            this.minimise = minimise;
+            this.control = control;
+        }
+
+        Path getResultsSummaryPath() {
+            return makeConfig().getResultsSummaryPath();
+        }
+
+        @Override
+        public Evaluation evaluate(double factor, int seed) throws IOException, StatsException, PreEmptiveOutOfMemoryWarning {
+
+            Config config = makeConfig();
+            config.setDeterministic(true);
+            config.setSeed(seed);
+
+            config.setRecoveryFactor(control == Control.RF ? factor : 0.0);
+            config.setProportionalRecoveryFactor(control == Control.PRF ? factor : 0.0);
+
+            OBDModel model = new OBDModel(config);
+
+            try {
+                model.runSimulation();
+                model.analyseAndOutputPopulation(false, 5);
+
+            } catch (PreEmptiveOutOfMemoryWarning | OutOfMemoryError e) {
+
+                model.getSummaryRow().setCompleted(false);
+                model.getSummaryRow().outputSummaryRowToFile();
+                throw e;
+            }
+
+            int maxBirthingAge = model.getDesiredPopulationStatistics().getOrderedBirthRates(Year.of(0)).getLargestLabel().getValue();
+            double v = MinimaSearch.getV(minimise, maxBirthingAge, control, config, model.getContingencyTables());
+
+            // Failed population run may get a NaN from the V calc
+            if (Double.isNaN(v)) {
+                v = NAN_ASYMPTOTE;
+            }
+
+            // convert to v per million people (to standardise due to varying population sizes)
+            v = v / model.getPopulation().getPopulationCounts().getCreatedPeople() * 1E6;
+
+            model.getSummaryRow().setV(v);
+            model.getSummaryRow().outputSummaryRowToFile();
+
+            return new Evaluation(v, model.getSummaryRow().getMaxMemoryUsage());
+        }
+
+        private Config makeConfig() {
+            return new Config(T_S, T_0, T_E, populationSize, dataFiles, Config.DEFAULT_RESULTS_SAVE_PATH, runPurpose, Config.DEFAULT_RESULTS_SAVE_PATH);
+        }
+    }
+}
@@ -2,6 +2,9 @@ package uk.ac.standrews.cs.valipop.implementations.minimaSearch;
 
 import uk.ac.standrews.cs.valipop.Config;
 import uk.ac.standrews.cs.valipop.implementations.*;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.GeeglmV;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.ValidationBackend;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.ContingencyTables;
 import uk.ac.standrews.cs.valipop.utils.DoubleComparer;
 import uk.ac.standrews.cs.valipop.utils.ProcessArgs;
 import uk.ac.standrews.cs.valipop.utils.RCaller;
@@ -113,7 +116,7 @@ public class MinimaSearch {
                         model.analyseAndOutputPopulation(false, 5);
 
                         int maxBirthingAge = model.getDesiredPopulationStatistics().getOrderedBirthRates(Year.of(0)).getLargestLabel().getValue();
-                        double v = getV(minimiseFor, maxBirthingAge, controlBy, config);
+                        double v = getV(minimiseFor, maxBirthingAge, controlBy, config, model.getContingencyTables());
 
                         // Failed population run may get a NaN from the V calc
                         if (Double.isNaN(v)) {
@@ -157,8 +160,19 @@ public class MinimaSearch {
     }
 
     public static double getV(Minimise minimiseFor, int maxBirthingAge, Control controlBy, Config config) throws IOException, StatsException {
+        return getV(minimiseFor, maxBirthingAge, controlBy, config, null);
+    }
+
+    /**
+     * Calculates V with the validation backend of the given config. The Java backend fits the models to the given
+     * contingency tables, or to those in the run directory if they are null.
+     */
+    public static double getV(Minimise minimiseFor, int maxBirthingAge, Control controlBy, Config config, ContingencyTables tables) throws IOException, StatsException {
         switch(minimiseFor) {
             case GEEGLM:
+                if (config.getValidationBackend() == ValidationBackend.JAVA) {
+                    return tables != null ? GeeglmV.getV(tables, maxBirthingAge) : GeeglmV.getV(config.getRunPath(), maxBirthingAge);
+                }
                 return RCaller.getGeeglmV(config.getRunPath(), maxBirthingAge);
             default:
                 throw new StatsException(minimiseFor + " - minimisation for this test is not implemented");
@@ -197,12 +211,13 @@ public class MinimaSearch {
         hardLimitBottomBoundFactor = factor + 0.1;
         bottomSearchBoundFactor = hardLimitBottomBoundFactor;
 
-        System.out.println("Out of memory - setting jumpingPhase = true - memory usage: " + MemoryUsageAnalysis.getMaxSimUsage());
+        System.out.println("Out of memory - setting jumpingPhase = true - memory usage: " + model.getMemoryUsage().getMaxSimUsage());
         jumpingPhase = true;
 
         model.getSummaryRow().setCompleted(false);
-        model.getSummaryRow().setMaxMemoryUsage(MemoryUsageAnalysis.getMaxSimUsage());
-        MemoryUsageAnalysis.reset();
+        model.getMemoryUsage().stop();
+        model.getSummaryRow().setMaxMemoryUsage(model.getMemoryUsage().getMaxSimUsage(), model.getMemoryUsage().getMaxOwnUsage(), model.getMemoryUsage().getMaxConcurrentSimulations());
+        model.getMemoryUsage().reset();
         model.getSummaryRow().outputSummaryRowToFile();
 
         if (bottomSearchBoundFactor > topSearchBoundFactor) {
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations.minimaSearch;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The values of V found by the runs at one factor value, each with a different seed, from which the mean V at the
+ * factor and a confidence interval on it are estimated.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+class VEstimate {
+
+    private final double factor;
+    private final List<Double> values = new ArrayList<>();
+    private final Set<Integer> seeds = new HashSet<>();
+    private int running = 0;
+
+    VEstimate(double factor) {
+        this.factor = factor;
+    }
+
+    double getFactor() {
+        return factor;
+    }
+
+    void add(int seed, double v) {
+
+        seeds.add(seed);
+        values.add(v);
+    }
+
+    int getNumberOfRuns() {
+        return values.size();
+    }
+
+    /**
+     * Returns the number of runs which have been started and not yet finished.
+     */
+    int getNumberRunning() {
+        return running;
+    }
+
+    /**
+     * Chooses the seed for a new run, which is the first seed from the given base not used by an earlier run, and
+     * counts the run as started.
+     */
+    int startRun(int baseSeed) {
+
+        int seed = baseSeed;
+        while (seeds.contains(seed)) {
+            seed++;
+        }
+
+        seeds.add(seed);
+        running++;
+        return seed;
+    }
+
+    void finishRun(double v) {
+
+        running--;
+        values.add(v);
+    }
+
+    /**
+     * Forgets a started run which could not be completed, so that its seed is used again.
+     */
+    void abandonRun(int seed) {
+
+        running--;
+        seeds.remove(seed);
+    }
+
+    double getMean() {
+
+        double sum = 0;
+        for (double v : values) {
+            sum += v;
+        }
+        return sum / values.size();
+    }
+
+    /**
+     * Returns the half width of the confidence interval at the given level on the mean V, from Student's t
+     * distribution, or infinity if there are too few runs to estimate it.
+     */
+    double getHalfWidth(double confidence) {
+
+        int n = values.size();
+        if (n < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double mean = getMean();
+        double squares = 0;
+        for (double v : values) {
+            squares += (v - mean) * (v - mean);
+        }
+
+        double standardError = Math.sqrt(squares / (n - 1) / n);
+        double t = new TDistribution(n - 1).inverseCumulativeProbability(0.5 + confidence / 2);
+
+        return t * standardError;
+    }
+
+    FVPoint toPoint() {
+        return new FVPoint(factor, getMean());
+    }
+}
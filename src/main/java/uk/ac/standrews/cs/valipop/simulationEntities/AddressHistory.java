@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.simulationEntities;
+
+import uk.ac.standrews.cs.valipop.utils.addressLookup.Address;
+import uk.ac.standrews.cs.valipop.utils.addressLookup.Geography;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Address history operations shared by the person implementations. Each method acts on the given person and the
+ * address history belonging to that person.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+final class AddressHistory {
+
+    private AddressHistory() {
+    }
+
+    static Address getAddress(final TreeMap<LocalDate, Address> addressHistory, final LocalDate onDate) {
+
+        if(onDate == null)
+            return null;
+
+        Map.Entry<LocalDate, Address> entry = addressHistory.floorEntry(onDate);
+        if(entry != null)
+            return entry.getValue();
+
+        return null;
+    }
+
+    static void setAddress(final IPerson person, final TreeMap<LocalDate, Address> addressHistory, final LocalDate onDate, final Address address) {
+
+        if(addressHistory.size() != 0) { // Pass this bit if no previous address
+
+            boolean removed = false;
+
+            if(getAddress(addressHistory, onDate) != null)
+                removed = getAddress(addressHistory, onDate).removeInhabitant(person);
+
+
+            // if children get shuttled around before birth then remove old addresses
+            if(addressHistory.get(onDate) != null) { // this is different to the above if as it looks for values at the exact key rather than taking the value at the floor of the key!
+                addressHistory.remove(onDate);
+            }
+
+            if(!removed) {
+                while(addressHistory.ceilingEntry(onDate) != null) { // if theres a future move - from a forced adulterousBirth move - we scratch that move
+                    addressHistory.ceilingEntry(onDate).getValue().removeInhabitant(person);
+                    addressHistory.remove(addressHistory.ceilingKey(onDate));
+                }
+            }
+        }
+
+        address.addInhabitant(person);
+        addressHistory.put(onDate, address);
+    }
+
+    static LocalDate getLastMoveDate(final TreeMap<LocalDate, Address> addressHistory) {
+
+        try {
+            return addressHistory.lastKey();
+        } catch(NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    static void rollbackLastMove(final IPerson person, final TreeMap<LocalDate, Address> addressHistory, final Geography geography) {
+
+        Address cancelledAddress = addressHistory.lastEntry().getValue();
+        Set<IPerson> family = getChildrenOfAtAddress(person, cancelledAddress);
+        family.add(person);
+
+        // remove from curent abode and remove from address history
+        for(IPerson member : family)
+            member.cancelLastMove(geography);
+
+        if(addressHistory.size() != 0) {
+            // check previous abode
+            Address previousAddress = addressHistory.lastEntry().getValue();
+
+            if (!previousAddress.isCountry() && previousAddress.isInhabited()) {
+                // if by family
+                if (containsFamily(previousAddress, person)) {
+                    // move back in
+                    returnFamilyToHouse(addressHistory, family, previousAddress);
+                } else {
+                    // displace current residents at distance zero
+                    previousAddress.displaceInhabitants();
+                    returnFamilyToHouse(addressHistory, family, previousAddress);
+                }
+            } else if(previousAddress.isCountry()) {
+                // if cancelling last move results in the 'new last address' being forign country then we need to give the
+                // person (who is a  migrant) an address to live in from there emmigration date
+                person.setAddress(person.getImmigrationDate(), geography.getRandomEmptyAddress());
+            } else {
+                // move back in
+                returnFamilyToHouse(addressHistory, family, previousAddress);
+            }
+        }
+    }
+
+    static LocalDate cancelLastMove(final IPerson person, final TreeMap<LocalDate, Address> addressHistory) {
+
+        Map.Entry<LocalDate, Address> lastMove = addressHistory.lastEntry();
+        LocalDate moveDate = lastMove.getKey();
+
+        lastMove.getValue().removeInhabitant(person);
+        addressHistory.remove(addressHistory.lastKey());
+
+        return moveDate;
+    }
+
+    private static void returnFamilyToHouse(final TreeMap<LocalDate, Address> addressHistory, Collection<IPerson> family, Address previousAddress) {
+
+        LocalDate parentsMoveInDate = null;
+
+        for(Map.Entry<LocalDate, Address> entry : addressHistory.entrySet()) {
+            if(entry.getValue().equals(previousAddress)) {
+                parentsMoveInDate = entry.getKey();
+                break;
+            }
+        }
+
+        if(parentsMoveInDate == null) {
+            throw new Error("Address unexpectedly not found");
+        }
+
+        // for each person
+        for(IPerson p : family) {
+            // check if place is in history of person (checking in case of child address overwrites followed by cancelations)
+            if(!p.getAllAddresses().contains(previousAddress)) {
+                // work out move in date
+                LocalDate moveDate = parentsMoveInDate.isBefore(p.getBirthDate()) ? p.getBirthDate() : parentsMoveInDate;
+
+                if(p.getAddressHistory().ceilingEntry(moveDate) != null)
+                    throw new Error("Unexpected addresss ordering");
+
+                p.getAddressHistory().put(moveDate, previousAddress);
+            }
+
+            // for all add person into house
+            previousAddress.addInhabitant(p);
+        }
+    }
+
+    private static Set<IPerson> getChildrenOfAtAddress(IPerson parent, Address address) {
+
+        HashSet<IPerson> childrenAtAddress = new HashSet<>();
+
+        for(IPerson person : address.getInhabitants()) {
+            if(PopulationNavigation.childOf(parent, person)) {
+                childrenAtAddress.add(person);
+            }
+        }
+
+        return childrenAtAddress;
+    }
+
+    private static boolean containsFamily(Address address, IPerson person) {
+
+        Collection<IPerson> family = PopulationNavigation.imidiateFamilyOf(person);
+
+        for(IPerson inhabitant : address.getInhabitants()) {
+            if(family.contains(inhabitant)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
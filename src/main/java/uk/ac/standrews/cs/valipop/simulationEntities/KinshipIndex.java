@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.simulationEntities;
+
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Answers whether a man may partner a woman under the kinship rules of
+ * {@link PopulationNavigation#legallyEligibleToMarry(IPerson, IPerson)}. The set of women each man is prohibited from
+ * partnering is gathered in a single walk of the family graph the first time he is queried, after which each check is
+ * a hash lookup.
+ *
+ * The cached sets are only valid while the family graph is unchanged, so {@link #clear()} must be called whenever
+ * people are born or partnerships are formed or removed.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class KinshipIndex implements Serializable {
+
+    private static final int NUMBER_OF_GENERATIONS_TO_EXCLUDE = 3;
+
+    private final Map<IPerson, Set<IPerson>> prohibitedPartners = new HashMap<>();
+
+    public boolean canPartner(final IPerson man, final IPerson woman) {
+
+        return !prohibitedPartnersOf(man).contains(woman);
+    }
+
+    public void clear() {
+
+        prohibitedPartners.clear();
+    }
+
+    private Set<IPerson> prohibitedPartnersOf(final IPerson man) {
+
+        Set<IPerson> prohibited = prohibitedPartners.get(man);
+
+        if (prohibited == null) {
+            prohibited = findProhibitedPartners(man);
+            prohibitedPartners.put(man, prohibited);
+        }
+
+        return prohibited;
+    }
+
+    private static Set<IPerson> findProhibitedPartners(final IPerson man) {
+
+        final Set<IPerson> ancestors = new HashSet<>();
+        final Set<IPerson> descendants = new HashSet<>();
+        final Set<IPerson> siblings = new HashSet<>();
+        final Set<IPerson> partners = new HashSet<>();
+
+        addAncestors(man, NUMBER_OF_GENERATIONS_TO_EXCLUDE, ancestors);
+        addDescendants(man, NUMBER_OF_GENERATIONS_TO_EXCLUDE, descendants);
+        addSiblings(man, siblings);
+        addPartners(man, partners);
+
+        // Female relatives are collected with everyone else and filtered at the end, whereas the partners of male
+        // relatives are prohibited regardless of sex.
+        final Set<IPerson> relatives = new HashSet<>();
+        final Set<IPerson> prohibited = new HashSet<>();
+
+        relatives.addAll(ancestors);
+        relatives.addAll(descendants);
+        relatives.addAll(siblings);
+
+        for (final IPerson descendant : descendants) {
+            addAncestors(descendant, NUMBER_OF_GENERATIONS_TO_EXCLUDE, relatives);
+        }
+
+        for (final IPerson ancestor : ancestors) {
+            addDescendants(ancestor, NUMBER_OF_GENERATIONS_TO_EXCLUDE, relatives);
+        }
+
+        for (final IPerson sibling : siblings) {
+            addDescendants(sibling, NUMBER_OF_GENERATIONS_TO_EXCLUDE, relatives);
+        }
+
+        for (final IPerson partner : partners) {
+            addAncestors(partner, NUMBER_OF_GENERATIONS_TO_EXCLUDE, relatives);
+            addDescendants(partner, NUMBER_OF_GENERATIONS_TO_EXCLUDE, relatives);
+        }
+
+        addPartnersOfMales(ancestors, prohibited);
+        addPartnersOfMales(descendants, prohibited);
+        addPartnersOfMales(siblings, prohibited);
+
+        for (final IPerson relative : relatives) {
+            if (relative.getSex() == SexOption.FEMALE) {
+                prohibited.add(relative);
+            }
+        }
+
+        return prohibited;
+    }
+
+    private static void addAncestors(final IPerson person, final int generations, final Set<IPerson> ancestors) {
+
+        if (generations > 0) {
+
+            final IPartnership parents = person.getParents();
+
+            if (parents != null) {
+
+                final IPerson mother = parents.getFemalePartner();
+                final IPerson father = parents.getMalePartner();
+
+                ancestors.add(mother);
+                ancestors.add(father);
+
+                addAncestors(mother, generations - 1, ancestors);
+                addAncestors(father, generations - 1, ancestors);
+            }
+        }
+    }
+
+    private static void addDescendants(final IPerson person, final int generations, final Set<IPerson> descendants) {
+
+        if (generations > 0) {
+
+            for (final IPartnership partnership : person.getPartnerships()) {
+                for (final IPerson child : partnership.getChildren()) {
+
+                    descendants.add(child);
+                    addDescendants(child, generations - 1, descendants);
+                }
+            }
+        }
+    }
+
+    private static void addSiblings(final IPerson person, final Set<IPerson> siblings) {
+
+        // Include half-siblings, and the person themselves as in PopulationNavigation.siblingsOf.
+        final IPartnership parents = person.getParents();
+
+        if (parents != null) {
+
+            addDescendants(parents.getMalePartner(), 1, siblings);
+            addDescendants(parents.getFemalePartner(), 1, siblings);
+        }
+    }
+
+    private static void addPartners(final IPerson person, final Set<IPerson> partners) {
+
+        for (final IPartnership partnership : person.getPartnerships()) {
+            partners.add(partnership.getPartnerOf(person));
+        }
+    }
+
+    private static void addPartnersOfMales(final Collection<IPerson> people, final Set<IPerson> partners) {
+
+        for (final IPerson person : people) {
+            if (person.getSex() == SexOption.MALE) {
+                addPartners(person, partners);
+            }
+        }
+    }
+}
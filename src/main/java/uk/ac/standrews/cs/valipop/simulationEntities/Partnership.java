@@ -20,6 +20,7 @@ import org.apache.commons.math3.random.RandomGenerator;
 import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.dates.DateSelector;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
@@ -33,9 +34,8 @@ import static uk.ac.standrews.cs.valipop.simulationEntities.PopulationNavigation
  * 
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class Partnership implements IPartnership {
+public class Partnership implements IPartnership, Serializable {
 
-    private static int nextId = 0;
     private int id;
     private IPerson male;
     private IPerson female;
@@ -50,16 +50,19 @@ public class Partnership implements IPartnership {
 
     private boolean finalised = false;
 
-    public Partnership(final IPerson male, final IPerson female, final LocalDate partnershipDate) {
+    public Partnership(final int id, final IPerson male, final IPerson female, final LocalDate partnershipDate) {
 
-        this(male, female);
+        this(id, male, female);
 
         this.partnershipDate = partnershipDate;
     }
 
-    public Partnership(final IPerson male, final IPerson female) {
+    /**
+     * @param id the identifier of the partnership, which must be unique within its population
+     */
+    public Partnership(final int id, final IPerson male, final IPerson female) {
 
-        this.id = getNewId();
+        this.id = id;
 
         this.male = male;
         this.female = female;
@@ -67,28 +70,32 @@ public class Partnership implements IPartnership {
     }
 
     public String toString() {
+        return describe(this);
+    }
+
+    static String describe(final IPartnership partnership) {
 
         StringBuilder s = new StringBuilder();
 
         s.append("--Partnership: ");
-        s.append(id).append("--\n");
+        s.append(partnership.getId()).append("--\n");
 
-        appendPerson(s, male);
-        appendPerson(s, female);
+        appendPerson(s, partnership.getMalePartner());
+        appendPerson(s, partnership.getFemalePartner());
 
         s.append("----Children----\n");
 
-        for (IPerson c : children) {
+        for (IPerson c : partnership.getChildren()) {
             appendPerson(s, c);
         }
 
         s.append("--End Partnership: ");
-        s.append(id).append("--\n");
+        s.append(partnership.getId()).append("--\n");
 
         return s.toString();
     }
 
-    private void appendPerson(StringBuilder s, IPerson person) {
+    private static void appendPerson(StringBuilder s, IPerson person) {
 
         //s.append(person.getId()).append(" | ");
         //s.append(person.getFirstName()).append(" ");
@@ -102,10 +109,6 @@ public class Partnership implements IPartnership {
         partnershipDate = startDate;
     }
 
-    private static synchronized int getNewId() {
-        return nextId++;
-    }
-
     @Override
     public int getId() {
         return id;
@@ -126,10 +129,6 @@ public class Partnership implements IPartnership {
         marriageLocation = place;
     }
 
-    public static synchronized void resetIds() {
-        nextId = 0;
-    }
-
     public void setMarriageDate(final LocalDate marriageDate) {
         this.marriageDate = marriageDate;
     }
@@ -180,6 +179,10 @@ public class Partnership implements IPartnership {
     }
 
     private void setSeparationDate(final RandomGenerator random) {
+        separationDate = selectSeparationDate(male, female, earliestPossibleSeparationDate, random);
+    }
+
+    static LocalDate selectSeparationDate(final IPerson male, final IPerson female, final LocalDate earliestPossibleSeparationDate, final RandomGenerator random) {
 
         final LocalDate maleMovedOnDate = getDateOfNextPostSeparationEvent(male, earliestPossibleSeparationDate);
         final LocalDate femaleMovedOnDate = getDateOfNextPostSeparationEvent(female, earliestPossibleSeparationDate);
@@ -205,7 +208,7 @@ public class Partnership implements IPartnership {
             }
         }
 
-        separationDate = new DateSelector(random).selectRandomDate(earliestPossibleSeparationDate, earliestMovedOnDate);
+        return new DateSelector(random).selectRandomDate(earliestPossibleSeparationDate, earliestMovedOnDate);
     }
 
     @Override
@@ -21,6 +21,7 @@ import uk.ac.standrews.cs.valipop.statistics.populationStatistics.PopulationStat
 import uk.ac.standrews.cs.valipop.utils.addressLookup.Address;
 import uk.ac.standrews.cs.valipop.utils.addressLookup.Geography;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.Year;
 import java.util.*;
@@ -30,9 +31,7 @@ import java.util.*;
  * 
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class Person implements IPerson {
-
-    private static int nextId = 0;
+public class Person implements IPerson, Serializable {
 
     private int id;
     private SexOption sex;
@@ -52,13 +51,16 @@ public class Person implements IPerson {
     private LocalDate emigrationDate = null;
     private LocalDate immigrationDate = null;
 
-    public Person(SexOption sex, LocalDate birthDate, IPartnership parents, PopulationStatistics statistics, boolean adulterousBirth) {
-        this(sex, birthDate, parents, statistics, adulterousBirth, false);
+    public Person(int id, SexOption sex, LocalDate birthDate, IPartnership parents, PopulationStatistics statistics, boolean adulterousBirth) {
+        this(id, sex, birthDate, parents, statistics, adulterousBirth, false);
     }
 
-    public Person(SexOption sex, LocalDate birthDate, IPartnership parents, PopulationStatistics statistics, boolean adulterousBirth, boolean immigrant) {
+    /**
+     * @param id the identifier of the person, which must be unique within their population
+     */
+    public Person(int id, SexOption sex, LocalDate birthDate, IPartnership parents, PopulationStatistics statistics, boolean adulterousBirth, boolean immigrant) {
 
-        id = getNewId();
+        this.id = id;
 
         if(parents != null) {
             IPerson f = parents.getFemalePartner();
@@ -74,12 +76,12 @@ public class Person implements IPerson {
         this.parents = parents;
         this.adulterousBirth = adulterousBirth;
 
-        firstName = getForename(statistics, immigrant);
-        surname = getSurname(statistics, immigrant);
+        firstName = sampleForename(statistics, birthDate, sex, immigrant);
+        surname = sampleSurname(statistics, birthDate, parents, immigrant);
 
         representation = firstName + " " + surname + " (" + id + ") " + birthDate;
 
-        setOccupation(birthDate, statistics.getOccupation(Year.of(birthDate.getYear()), sex).getDistributionForAge(0).getSample());
+        setOccupation(birthDate, sampleBirthOccupation(statistics, birthDate, sex));
 
     }
 
@@ -236,45 +238,12 @@ public class Person implements IPerson {
 
     @Override
     public Address getAddress(LocalDate onDate) {
-        if(onDate == null)
-            return null;
-
-        Map.Entry<LocalDate, Address> entry = addressHistory.floorEntry(onDate);
-        if(entry != null)
-            return entry.getValue();
-
-        return null;
+        return AddressHistory.getAddress(addressHistory, onDate);
     }
 
     @Override
     public void setAddress(LocalDate onDate, Address address) {
-
-        if(addressHistory.size() != 0) { // Pass this bit if no previous address
-
-            boolean removed = false;
-
-            if(getAddress(onDate) != null)
-                removed = getAddress(onDate).removeInhabitant(this);
-
-
-            // if children get shuttled around before birth then remove old addresses
-            if(addressHistory.get(onDate) != null) { // this is different to the above if as it looks for values at the exact key rather than taking the value at the floor of the key!
-//                removed = addressHistory.get(onDate).removeInhabitant(this);
-                addressHistory.remove(onDate);
-            }
-
-            if(!removed) {
-                while(addressHistory.ceilingEntry(onDate) != null) { // if theres a future move - from a forced adulterousBirth move - we scratch that move
-                    addressHistory.ceilingEntry(onDate).getValue().removeInhabitant(this);
-                    addressHistory.remove(addressHistory.ceilingKey(onDate));
-                }
-            }
-
-
-        }
-
-        address.addInhabitant(this);
-        addressHistory.put(onDate, address);
+        AddressHistory.setAddress(this, addressHistory, onDate, address);
     }
 
     @Override
@@ -299,11 +268,7 @@ public class Person implements IPerson {
 
     @Override
     public LocalDate getLastMoveDate() {
-        try {
-            return addressHistory.lastKey();
-        } catch(NoSuchElementException e) {
-            return null;
-        }
+        return AddressHistory.getLastMoveDate(addressHistory);
     }
 
     @Override
@@ -313,105 +278,12 @@ public class Person implements IPerson {
 
     @Override
     public void rollbackLastMove(Geography geography) {
-
-        Address cancelledAddress = addressHistory.lastEntry().getValue();
-        Set<IPerson> family = getChildrenOfAtAddress(this, cancelledAddress);
-        family.add(this);
-
-        // remove from curent abode and remove from address history
-        for(IPerson person : family)
-            person.cancelLastMove(geography);
-
-        if(addressHistory.size() != 0) {
-            // check previous abode
-            Address previousAddress = addressHistory.lastEntry().getValue();
-
-            if (!previousAddress.isCountry() && previousAddress.isInhabited()) {
-                // if by family
-                if (containsFamily(previousAddress, this)) {
-                    // move back in
-                    returnFamilyToHouse(family, previousAddress);
-                } else {
-                    // displace current residents at distance zero
-                    previousAddress.displaceInhabitants();
-                    returnFamilyToHouse(family, previousAddress);
-                }
-            } else if(previousAddress.isCountry()) {
-                // if cancelling last move results in the 'new last address' being forign country then we need to give the
-                // person (who is a  migrant) an address to live in from there emmigration date
-                setAddress(immigrationDate, geography.getRandomEmptyAddress());
-            } else {
-                // move back in
-                returnFamilyToHouse(family, previousAddress);
-            }
-        }
-
-    }
-
-    private void returnFamilyToHouse(Collection<IPerson> family, Address previousAddress) {
-
-        LocalDate parentsMoveInDate = null;
-
-        for(Map.Entry<LocalDate, Address> entry : addressHistory.entrySet()) {
-            if(entry.getValue().equals(previousAddress)) {
-                parentsMoveInDate = entry.getKey();
-                break;
-            }
-        }
-
-        if(parentsMoveInDate == null) {
-            throw new Error("Address unexpectedly not found");
-        }
-
-        // for each person
-        for(IPerson p : family) {
-            // check if place is in history of person (checking in case of child address overwrites followed by cancelations)
-            if(!p.getAllAddresses().contains(previousAddress)) {
-                // work out move in date
-                LocalDate moveDate = parentsMoveInDate.isBefore(p.getBirthDate()) ? p.getBirthDate() : parentsMoveInDate;
-
-                if(p.getAddressHistory().ceilingEntry(moveDate) != null)
-                    throw new Error("Unexpected addresss ordering");
-
-                p.getAddressHistory().put(moveDate, previousAddress);
-            }
-
-            // for all add person into house
-            previousAddress.addInhabitant(p);
-        }
-    }
-
-    private Set<IPerson> getChildrenOfAtAddress(IPerson parent, Address address) {
-
-        HashSet<IPerson> childrenAtAddress = new HashSet<>();
-
-        for(IPerson person : address.getInhabitants()) {
-            if(PopulationNavigation.childOf(parent, person)) {
-                childrenAtAddress.add(person);
-            }
-        }
-
-        return childrenAtAddress;
+        AddressHistory.rollbackLastMove(this, addressHistory, geography);
     }
 
     @Override
     public LocalDate cancelLastMove(Geography geography) {
-
-        Map.Entry<LocalDate, Address> lastMove = addressHistory.lastEntry();
-        LocalDate moveDate = lastMove.getKey();
-
-        lastMove.getValue().removeInhabitant(this);
-        addressHistory.remove(addressHistory.lastKey());
-
-//        if(addressHistory.lastEntry() != null && addressHistory.lastEntry().getValue().isCountry()) {
-//             if cancelling last move results in the 'new last address' being forign country then we need to give the
-//             person (who is a  migrant) an address to live in from there emmigration date
-//
-//            setAddress(immigrationDate, geography.getNearestEmptyAddress(lastMove.getValue().getArea().getCentriod()));
-//
-//        }
-
-        return moveDate;
+        return AddressHistory.cancelLastMove(this, addressHistory);
     }
 
     @Override
@@ -432,37 +304,16 @@ public class Person implements IPerson {
         return getOccupation(LocalDate.MAX);
     }
 
-    private boolean containsFamily(Address address, Person person) {
-
-        Collection<IPerson> family = PopulationNavigation.imidiateFamilyOf(person);
-
-        for(IPerson inhabitant : address.getInhabitants()) {
-            if(family.contains(inhabitant)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    private static int getNewId() {
-        return nextId++;
-    }
-
-    public static void resetIds() {
-        nextId = 0;
-    }
-
-    private String getForename(PopulationStatistics statistics, boolean immigrant) {
+    static String sampleForename(PopulationStatistics statistics, LocalDate birthDate, SexOption sex, boolean immigrant) {
 
         if(immigrant) {
-            return statistics.getMigrantForenameDistribution(Year.of(birthDate.getYear()), getSex()).getSample();
+            return statistics.getMigrantForenameDistribution(Year.of(birthDate.getYear()), sex).getSample();
         } else {
-            return statistics.getForenameDistribution(Year.of(birthDate.getYear()), getSex()).getSample();
+            return statistics.getForenameDistribution(Year.of(birthDate.getYear()), sex).getSample();
         }
     }
 
-    private Surname getSurname(PopulationStatistics statistics, boolean immigrant) {
+    static Surname sampleSurname(PopulationStatistics statistics, LocalDate birthDate, IPartnership parents, boolean immigrant) {
 
         if (parents != null) {
             return parents.getMalePartner().getSurnameRef();
@@ -475,4 +326,9 @@ public class Person implements IPerson {
             }
         }
     }
+
+    static String sampleBirthOccupation(PopulationStatistics statistics, LocalDate birthDate, SexOption sex) {
+
+        return statistics.getOccupation(Year.of(birthDate.getYear()), sex).getDistributionForAge(0).getSample();
+    }
 }
@@ -0,0 +1,573 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.simulationEntities;
+
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
+import uk.ac.standrews.cs.valipop.statistics.populationStatistics.PopulationStatistics;
+import uk.ac.standrews.cs.valipop.utils.addressLookup.Address;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Column oriented store for the people and partnerships of a population. Each attribute is held in a primitive array
+ * indexed by the identifier of the person or partnership, dates are held as epoch days and strings are interned into
+ * a shared table. Callers see the entities through {@link StoredPerson} and {@link StoredPartnership} views, of which
+ * exactly one exists per identifier so that identity comparisons between views behave as they do for {@link Person}.
+ *
+ * The address history of each person remains a {@link TreeMap} since {@link IPerson#getAddressHistory()} exposes it
+ * for modification; it is only allocated once the person is first given an address.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class PersonStore implements Serializable {
+
+    static final int NO_DATE = Integer.MIN_VALUE;
+    static final int NONE = -1;
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+    private static final byte FEMALE = 1;
+    private static final byte ADULTEROUS_BIRTH = 1;
+    private static final byte PHANTOM = 2;
+
+    // ---- Person columns ----
+    private int numberOfPeople = 0;
+
+    private byte[] sex;
+    private byte[] personFlags;
+    private int[] birthDate;
+    private int[] deathDate;
+    private int[] emigrationDate;
+    private int[] immigrationDate;
+    private int[] parents;
+    private int[] firstName;
+    private int[] surname;
+    private int[] deathCause;
+
+    private int[][] partnerships;
+    private int[] partnershipCount;
+
+    // pairs of (epoch day, occupation string id) in date order
+    private int[][] occupations;
+    private int[] occupationCount;
+
+    private TreeMap<LocalDate, Address>[] addressHistories;
+    private StoredPerson[] personViews;
+
+    // ---- Partnership columns ----
+    private int numberOfPartnerships = 0;
+
+    private int[] male;
+    private int[] female;
+    private int[] partnershipDate;
+    private int[] marriageDate;
+    private int[] separationDate;
+    private int[] earliestPossibleSeparationDate;
+    private int[] marriagePlace;
+    private boolean[] finalised;
+
+    private int[][] children;
+    private int[] childCount;
+
+    private StoredPartnership[] partnershipViews;
+
+    // ---- Interned values ----
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+
+    private final List<Surname> surnames = new ArrayList<>();
+    private final Map<String, Integer> surnameIds = new HashMap<>();
+
+    public PersonStore() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    public PersonStore(final int initialCapacity) {
+
+        final int capacity = Math.max(initialCapacity, 1);
+
+        sex = new byte[capacity];
+        personFlags = new byte[capacity];
+        birthDate = new int[capacity];
+        deathDate = new int[capacity];
+        emigrationDate = new int[capacity];
+        immigrationDate = new int[capacity];
+        parents = new int[capacity];
+        firstName = new int[capacity];
+        surname = new int[capacity];
+        deathCause = new int[capacity];
+        partnerships = new int[capacity][];
+        partnershipCount = new int[capacity];
+        occupations = new int[capacity][];
+        occupationCount = new int[capacity];
+        addressHistories = new TreeMap[capacity];
+        personViews = new StoredPerson[capacity];
+
+        male = new int[capacity];
+        female = new int[capacity];
+        partnershipDate = new int[capacity];
+        marriageDate = new int[capacity];
+        separationDate = new int[capacity];
+        earliestPossibleSeparationDate = new int[capacity];
+        marriagePlace = new int[capacity];
+        finalised = new boolean[capacity];
+        children = new int[capacity][];
+        childCount = new int[capacity];
+        partnershipViews = new StoredPartnership[capacity];
+    }
+
+    /**
+     * Creates a new person in the store. Names and birth occupation are sampled from the given statistics in the same
+     * order as {@link Person} samples them, so the two backings consume the random number stream identically.
+     *
+     * @return the view of the new person
+     */
+    public synchronized IPerson addPerson(final SexOption sex, final LocalDate birthDate, final IPartnership parents, final PopulationStatistics statistics, final boolean adulterousBirth, final boolean immigrant) {
+
+        if (numberOfPeople == personViews.length) {
+            growPersonColumns();
+        }
+
+        final int id = numberOfPeople++;
+
+        this.sex[id] = sex == SexOption.FEMALE ? FEMALE : 0;
+        this.birthDate[id] = toDay(birthDate);
+        this.deathDate[id] = NO_DATE;
+        this.emigrationDate[id] = NO_DATE;
+        this.immigrationDate[id] = NO_DATE;
+        this.parents[id] = parents == null ? NONE : parents.getId();
+        this.personFlags[id] = adulterousBirth ? ADULTEROUS_BIRTH : 0;
+        this.deathCause[id] = intern("");
+
+        firstName[id] = intern(Person.sampleForename(statistics, birthDate, sex, immigrant));
+        surname[id] = internSurname(Person.sampleSurname(statistics, birthDate, parents, immigrant));
+
+        final StoredPerson view = new StoredPerson(this, id);
+        personViews[id] = view;
+
+        setOccupation(id, birthDate, Person.sampleBirthOccupation(statistics, birthDate, sex));
+
+        return view;
+    }
+
+    /**
+     * Creates a new partnership between the given people, who must both be held in this store.
+     *
+     * @return the view of the new partnership
+     */
+    public synchronized IPartnership addPartnership(final IPerson male, final IPerson female) {
+
+        if (numberOfPartnerships == partnershipViews.length) {
+            growPartnershipColumns();
+        }
+
+        final int id = numberOfPartnerships++;
+
+        this.male[id] = male.getId();
+        this.female[id] = female.getId();
+        partnershipDate[id] = NO_DATE;
+        marriageDate[id] = NO_DATE;
+        separationDate[id] = NO_DATE;
+        earliestPossibleSeparationDate[id] = NO_DATE;
+        marriagePlace[id] = NONE;
+
+        final StoredPartnership view = new StoredPartnership(this, id);
+        partnershipViews[id] = view;
+
+        return view;
+    }
+
+    public IPerson getPerson(final int id) {
+        return id == NONE ? null : personViews[id];
+    }
+
+    public IPartnership getPartnership(final int id) {
+        return id == NONE ? null : partnershipViews[id];
+    }
+
+    public int getNumberOfPeople() {
+        return numberOfPeople;
+    }
+
+    public int getNumberOfPartnerships() {
+        return numberOfPartnerships;
+    }
+
+    // ---- Person accessors used by StoredPerson ----
+
+    SexOption getSex(final int id) {
+        return sex[id] == FEMALE ? SexOption.FEMALE : SexOption.MALE;
+    }
+
+    LocalDate getBirthDate(final int id) {
+        return toDate(birthDate[id]);
+    }
+
+    LocalDate getDeathDate(final int id) {
+        return toDate(deathDate[id]);
+    }
+
+    void setDeathDate(final int id, final LocalDate date) {
+        deathDate[id] = toDay(date);
+    }
+
+    LocalDate getEmigrationDate(final int id) {
+        return toDate(emigrationDate[id]);
+    }
+
+    void setEmigrationDate(final int id, final LocalDate date) {
+        emigrationDate[id] = toDay(date);
+    }
+
+    LocalDate getImmigrationDate(final int id) {
+        return toDate(immigrationDate[id]);
+    }
+
+    void setImmigrationDate(final int id, final LocalDate date) {
+        immigrationDate[id] = toDay(date);
+    }
+
+    boolean hasEmigrated(final int id) {
+        return emigrationDate[id] != NO_DATE;
+    }
+
+    IPartnership getParents(final int id) {
+        return getPartnership(parents[id]);
+    }
+
+    void setParents(final int id, final IPartnership parents) {
+        this.parents[id] = parents == null ? NONE : parents.getId();
+    }
+
+    boolean hasParents(final int id) {
+        return parents[id] != NONE;
+    }
+
+    String getFirstName(final int id) {
+        return strings.get(firstName[id]);
+    }
+
+    Surname getSurname(final int id) {
+        return surnames.get(surname[id]);
+    }
+
+    String getDeathCause(final int id) {
+        return strings.get(deathCause[id]);
+    }
+
+    void setDeathCause(final int id, final String cause) {
+        deathCause[id] = intern(cause);
+    }
+
+    boolean isAdulterousBirth(final int id) {
+        return (personFlags[id] & ADULTEROUS_BIRTH) != 0;
+    }
+
+    void setAdulterousBirth(final int id, final boolean adulterousBirth) {
+        setFlag(id, ADULTEROUS_BIRTH, adulterousBirth);
+    }
+
+    boolean isPhantom(final int id) {
+        return (personFlags[id] & PHANTOM) != 0;
+    }
+
+    void setPhantom(final int id, final boolean phantom) {
+        setFlag(id, PHANTOM, phantom);
+    }
+
+    int getPartnershipCount(final int id) {
+        return partnershipCount[id];
+    }
+
+    IPartnership getPartnership(final int id, final int index) {
+        return partnershipViews[partnerships[id][index]];
+    }
+
+    synchronized void insertPartnership(final int id, final int index, final IPartnership partnership) {
+
+        partnerships[id] = insert(partnerships[id], partnershipCount[id], index, partnership.getId());
+        partnershipCount[id]++;
+    }
+
+    synchronized IPartnership removePartnership(final int id, final int index) {
+
+        final IPartnership removed = getPartnership(id, index);
+        remove(partnerships[id], partnershipCount[id], index);
+        partnershipCount[id]--;
+        return removed;
+    }
+
+    String getOccupation(final int id, final LocalDate onDate) {
+
+        final int[] history = occupations[id];
+        final int day = toDay(onDate);
+
+        // pairs are in ascending date order so find the last one not after the given date
+        String occupation = null;
+        for (int i = 0; i < occupationCount[id] && history[i * 2] <= day; i++) {
+            occupation = strings.get(history[i * 2 + 1]);
+        }
+        return occupation;
+    }
+
+    synchronized void setOccupation(final int id, final LocalDate onDate, final String occupation) {
+
+        final int day = toDay(onDate);
+        final int occupationId = intern(occupation);
+
+        int[] history = occupations[id];
+        final int count = occupationCount[id];
+
+        if (history == null) {
+            history = new int[2];
+        }
+
+        int position = count;
+        while (position > 0 && history[(position - 1) * 2] >= day) {
+            position--;
+        }
+
+        if (position < count && history[position * 2] == day) {
+            history[position * 2 + 1] = occupationId;
+
+        } else {
+            if (history.length < (count + 1) * 2) {
+                history = Arrays.copyOf(history, (count + 1) * 2);
+            }
+            System.arraycopy(history, position * 2, history, (position + 1) * 2, (count - position) * 2);
+            history[position * 2] = day;
+            history[position * 2 + 1] = occupationId;
+            occupationCount[id]++;
+        }
+
+        occupations[id] = history;
+    }
+
+    TreeMap<LocalDate, Address> getAddressHistory(final int id) {
+
+        if (addressHistories[id] == null) {
+            addressHistories[id] = new TreeMap<>();
+        }
+        return addressHistories[id];
+    }
+
+    Address getAddress(final int id, final LocalDate onDate) {
+
+        return addressHistories[id] == null ? null : AddressHistory.getAddress(addressHistories[id], onDate);
+    }
+
+    LocalDate getLastMoveDate(final int id) {
+
+        return addressHistories[id] == null ? null : AddressHistory.getLastMoveDate(addressHistories[id]);
+    }
+
+    Collection<Address> getAllAddresses(final int id) {
+
+        return addressHistories[id] == null ? Collections.emptyList() : addressHistories[id].values();
+    }
+
+    // ---- Partnership accessors used by StoredPartnership ----
+
+    IPerson getMalePartner(final int id) {
+        return personViews[male[id]];
+    }
+
+    IPerson getFemalePartner(final int id) {
+        return personViews[female[id]];
+    }
+
+    LocalDate getPartnershipDate(final int id) {
+        return toDate(partnershipDate[id]);
+    }
+
+    void setPartnershipDate(final int id, final LocalDate date) {
+        partnershipDate[id] = toDay(date);
+    }
+
+    LocalDate getMarriageDate(final int id) {
+        return toDate(marriageDate[id]);
+    }
+
+    void setMarriageDate(final int id, final LocalDate date) {
+        marriageDate[id] = toDay(date);
+    }
+
+    LocalDate getSeparationDate(final int id) {
+        return toDate(separationDate[id]);
+    }
+
+    void setSeparationDate(final int id, final LocalDate date) {
+        separationDate[id] = toDay(date);
+    }
+
+    LocalDate getEarliestPossibleSeparationDate(final int id) {
+        return toDate(earliestPossibleSeparationDate[id]);
+    }
+
+    void setEarliestPossibleSeparationDate(final int id, final LocalDate date) {
+        earliestPossibleSeparationDate[id] = toDay(date);
+    }
+
+    String getMarriagePlace(final int id) {
+        return marriagePlace[id] == NONE ? null : strings.get(marriagePlace[id]);
+    }
+
+    void setMarriagePlace(final int id, final String place) {
+        marriagePlace[id] = place == null ? NONE : intern(place);
+    }
+
+    boolean isFinalised(final int id) {
+        return finalised[id];
+    }
+
+    void setFinalised(final int id, final boolean finalised) {
+        this.finalised[id] = finalised;
+    }
+
+    int getChildCount(final int id) {
+        return childCount[id];
+    }
+
+    IPerson getChild(final int id, final int index) {
+        return personViews[children[id][index]];
+    }
+
+    synchronized void insertChild(final int id, final int index, final IPerson child) {
+
+        children[id] = insert(children[id], childCount[id], index, child.getId());
+        childCount[id]++;
+    }
+
+    synchronized IPerson removeChild(final int id, final int index) {
+
+        final IPerson removed = getChild(id, index);
+        remove(children[id], childCount[id], index);
+        childCount[id]--;
+        return removed;
+    }
+
+    // ---- Internals ----
+
+    private void setFlag(final int id, final byte flag, final boolean value) {
+
+        if (value) {
+            personFlags[id] |= flag;
+        } else {
+            personFlags[id] &= ~flag;
+        }
+    }
+
+    private synchronized int intern(final String value) {
+
+        Integer id = stringIds.get(value);
+
+        if (id == null) {
+            id = strings.size();
+            strings.add(value);
+            stringIds.put(value, id);
+        }
+        return id;
+    }
+
+    private int internSurname(final Surname value) {
+
+        Integer id = surnameIds.get(value.getName());
+
+        if (id == null) {
+            id = surnames.size();
+            surnames.add(value);
+            surnameIds.put(value.getName(), id);
+        }
+        return id;
+    }
+
+    private static int[] insert(int[] values, final int count, final int index, final int value) {
+
+        if (values == null) {
+            values = new int[2];
+
+        } else if (values.length == count) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+
+        System.arraycopy(values, index, values, index + 1, count - index);
+        values[index] = value;
+        return values;
+    }
+
+    private static void remove(final int[] values, final int count, final int index) {
+
+        System.arraycopy(values, index + 1, values, index, count - index - 1);
+    }
+
+    private static int toDay(final LocalDate date) {
+        return date == null ? NO_DATE : (int) date.toEpochDay();
+    }
+
+    private static LocalDate toDate(final int day) {
+        return day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    private void growPersonColumns() {
+
+        final int capacity = personViews.length * 2;
+
+        sex = Arrays.copyOf(sex, capacity);
+        personFlags = Arrays.copyOf(personFlags, capacity);
+        birthDate = Arrays.copyOf(birthDate, capacity);
+        deathDate = Arrays.copyOf(deathDate, capacity);
+        emigrationDate = Arrays.copyOf(emigrationDate, capacity);
+        immigrationDate = Arrays.copyOf(immigrationDate, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        firstName = Arrays.copyOf(firstName, capacity);
+        surname = Arrays.copyOf(surname, capacity);
+        deathCause = Arrays.copyOf(deathCause, capacity);
+        partnerships = Arrays.copyOf(partnerships, capacity);
+        partnershipCount = Arrays.copyOf(partnershipCount, capacity);
+        occupations = Arrays.copyOf(occupations, capacity);
+        occupationCount = Arrays.copyOf(occupationCount, capacity);
+        addressHistories = Arrays.copyOf(addressHistories, capacity);
+        personViews = Arrays.copyOf(personViews, capacity);
+    }
+
+    private void growPartnershipColumns() {
+
+        final int capacity = partnershipViews.length * 2;
+
+        male = Arrays.copyOf(male, capacity);
+        female = Arrays.copyOf(female, capacity);
+        partnershipDate = Arrays.copyOf(partnershipDate, capacity);
+        marriageDate = Arrays.copyOf(marriageDate, capacity);
+        separationDate = Arrays.copyOf(separationDate, capacity);
+        earliestPossibleSeparationDate = Arrays.copyOf(earliestPossibleSeparationDate, capacity);
+        marriagePlace = Arrays.copyOf(marriagePlace, capacity);
+        finalised = Arrays.copyOf(finalised, capacity);
+        children = Arrays.copyOf(children, capacity);
+        childCount = Arrays.copyOf(childCount, capacity);
+        partnershipViews = Arrays.copyOf(partnershipViews, capacity);
+    }
+}
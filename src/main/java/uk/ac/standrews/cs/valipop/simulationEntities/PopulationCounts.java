@@ -16,12 +16,14 @@
  */
 package uk.ac.standrews.cs.valipop.simulationEntities;
 
+import java.io.Serializable;
+
 /**
  * Class to keep track of statisitcs of population count.l
  * 
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class PopulationCounts {
+public class PopulationCounts implements Serializable {
 
     private int createdMales = 0;
     private int createdFemales = 0;
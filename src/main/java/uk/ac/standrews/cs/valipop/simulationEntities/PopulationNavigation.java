@@ -202,6 +202,32 @@ public class PopulationNavigation {
         return partners;
     }
 
+    public static boolean legallyEligibleToMarry(final IPerson man, final IPerson woman) {
+
+        try {
+            exclude(femaleAncestorsOf(man), woman);
+            exclude(femaleDescendantsOf(man), woman);
+            exclude(sistersOf(man), woman);
+            exclude(femaleAncestorsOf(descendantsOf(man)), woman);
+            exclude(femaleDescendantsOf(ancestorsOf(man)), woman);
+            exclude(partnersOf(maleAncestorsOf(man)), woman);
+            exclude(partnersOf(maleDescendantsOf(man)), woman);
+            exclude(partnersOf(brothersOf(man)), woman);
+            exclude(femaleDescendantsOf(siblingsOf(man)), woman);
+            exclude(femaleAncestorsOf(partnersOf(man)), woman);
+            exclude(femaleDescendantsOf(partnersOf(man)), woman);
+
+        } catch (RuntimeException e) {
+            return false;
+        }
+
+        return true;
+    }
+
+    private static void exclude(final Collection<IPerson> collection, final IPerson person) {
+        if (collection.contains(person)) throw new RuntimeException();
+    }
+
     public static boolean aliveOnDate(IPerson person, LocalDate date) {
 
         if (!person.getBirthDate().isAfter(date)) {
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.simulationEntities;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+
+import static uk.ac.standrews.cs.valipop.simulationEntities.StoredPerson.checkIndex;
+
+/**
+ * Flyweight view of a partnership held in a {@link PersonStore}.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class StoredPartnership implements IPartnership, Serializable {
+
+    private final PersonStore store;
+    private final int id;
+
+    StoredPartnership(final PersonStore store, final int id) {
+
+        this.store = store;
+        this.id = id;
+    }
+
+    public String toString() {
+        return Partnership.describe(this);
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public IPerson getFemalePartner() {
+        return store.getFemalePartner(id);
+    }
+
+    @Override
+    public IPerson getMalePartner() {
+        return store.getMalePartner(id);
+    }
+
+    @Override
+    public IPerson getPartnerOf(final IPerson person) {
+        return person.getSex() == SexOption.MALE ? getFemalePartner() : getMalePartner();
+    }
+
+    @Override
+    public void addChildren(final Collection<IPerson> children) {
+        new ChildList().addAll(children);
+    }
+
+    @Override
+    public List<IPerson> getChildren() {
+        return new ChildList();
+    }
+
+    @Override
+    public LocalDate getPartnershipDate() {
+        return store.getPartnershipDate(id);
+    }
+
+    @Override
+    public void setPartnershipDate(final LocalDate startDate) {
+        store.setPartnershipDate(id, startDate);
+    }
+
+    @Override
+    public synchronized LocalDate getSeparationDate(final RandomGenerator random) {
+
+        final LocalDate earliestPossibleSeparationDate = getEarliestPossibleSeparationDate();
+
+        if (earliestPossibleSeparationDate == null) return null;
+
+        LocalDate separationDate = store.getSeparationDate(id);
+
+        if (separationDate == null) {
+            separationDate = Partnership.selectSeparationDate(getMalePartner(), getFemalePartner(), earliestPossibleSeparationDate, random);
+            store.setSeparationDate(id, separationDate);
+        }
+
+        return separationDate;
+    }
+
+    @Override
+    public LocalDate getEarliestPossibleSeparationDate() {
+        return store.getEarliestPossibleSeparationDate(id);
+    }
+
+    @Override
+    public void setEarliestPossibleSeparationDate(final LocalDate date) {
+        store.setEarliestPossibleSeparationDate(id, date);
+    }
+
+    @Override
+    public void setMarriageDate(final LocalDate marriageDate) {
+        store.setMarriageDate(id, marriageDate);
+    }
+
+    @Override
+    public LocalDate getMarriageDate() {
+        return store.getMarriageDate(id);
+    }
+
+    @Override
+    public String getMarriagePlace() {
+        return store.getMarriagePlace(id);
+    }
+
+    @Override
+    public void setMarriagePlace(final String place) {
+        store.setMarriagePlace(id, place);
+    }
+
+    @Override
+    public boolean isFinalised() {
+        return store.isFinalised(id);
+    }
+
+    @Override
+    public void setFinalised(final boolean finalised) {
+        store.setFinalised(id, finalised);
+    }
+
+    @Override
+    public int compareTo(final IPartnership other) {
+        return Integer.compare(id, other.getId());
+    }
+
+    // Created on each call to getChildren, so that views hold no state of their own
+    private class ChildList extends AbstractList<IPerson> implements Serializable {
+
+        @Override
+        public IPerson get(final int index) {
+            checkIndex(index, size());
+            return store.getChild(id, index);
+        }
+
+        @Override
+        public int size() {
+            return store.getChildCount(id);
+        }
+
+        @Override
+        public void add(final int index, final IPerson child) {
+            checkIndex(index, size() + 1);
+            store.insertChild(id, index, child);
+            modCount++;
+        }
+
+        @Override
+        public IPerson remove(final int index) {
+            checkIndex(index, size());
+            modCount++;
+            return store.removeChild(id, index);
+        }
+    }
+}
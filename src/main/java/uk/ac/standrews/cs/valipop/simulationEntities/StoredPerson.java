@@ -0,0 +1,287 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.simulationEntities;
+
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
+import uk.ac.standrews.cs.valipop.utils.addressLookup.Address;
+import uk.ac.standrews.cs.valipop.utils.addressLookup.Geography;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Flyweight view of a person held in a {@link PersonStore}. The view holds only the store and the identifier of the
+ * person; all state is read from and written to the columns of the store.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class StoredPerson implements IPerson, Serializable {
+
+    private final PersonStore store;
+    private final int id;
+
+    StoredPerson(final PersonStore store, final int id) {
+
+        this.store = store;
+        this.id = id;
+    }
+
+    public String toString() {
+        return getFirstName() + " " + getSurname() + " (" + id + ") " + getBirthDate();
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public SexOption getSex() {
+        return store.getSex(id);
+    }
+
+    @Override
+    public LocalDate getBirthDate() {
+        return store.getBirthDate(id);
+    }
+
+    @Override
+    public LocalDate getDeathDate() {
+        return store.getDeathDate(id);
+    }
+
+    @Override
+    public void setDeathDate(final LocalDate deathDate) {
+        store.setDeathDate(id, deathDate);
+    }
+
+    @Override
+    public List<IPartnership> getPartnerships() {
+        return new PartnershipList();
+    }
+
+    @Override
+    public IPartnership getParents() {
+        return store.getParents(id);
+    }
+
+    @Override
+    public void setParents(final IPartnership parents) {
+        if (!store.hasParents(id)) {
+            store.setParents(id, parents);
+        }
+    }
+
+    @Override
+    public boolean isAdulterousBirth() {
+        return store.isAdulterousBirth(id);
+    }
+
+    @Override
+    public void setAdulterousBirth(final boolean adulterousBirth) {
+        store.setAdulterousBirth(id, adulterousBirth);
+    }
+
+    @Override
+    public String getFirstName() {
+        return store.getFirstName(id);
+    }
+
+    @Override
+    public String getSurname() {
+        return store.getSurname(id).getName();
+    }
+
+    @Override
+    public Surname getSurnameRef() {
+        return store.getSurname(id);
+    }
+
+    @Override
+    public String getBirthPlace() {
+        Address a = getAddress(getBirthDate());
+        return a == null ? "" : a.toString();
+    }
+
+    @Override
+    public String getDeathPlace() {
+        Address a = getAddress(getDeathDate());
+        return a == null ? "" : a.toString();
+    }
+
+    @Override
+    public String getOccupation(final LocalDate onDate) {
+        return store.getOccupation(id, onDate);
+    }
+
+    @Override
+    public void setOccupation(final LocalDate onDate, final String occupation) {
+        store.setOccupation(id, onDate, occupation);
+    }
+
+    @Override
+    public String getLastOccupation() {
+        return getOccupation(LocalDate.MAX);
+    }
+
+    @Override
+    public String getDeathCause() {
+        return store.getDeathCause(id);
+    }
+
+    @Override
+    public void setDeathCause(final String deathCause) {
+        store.setDeathCause(id, deathCause);
+    }
+
+    @Override
+    public void setPhantom(final boolean isPhantom) {
+        store.setPhantom(id, isPhantom);
+    }
+
+    @Override
+    public boolean isPhantom() {
+        return store.isPhantom(id);
+    }
+
+    @Override
+    public void recordPartnership(final IPartnership partnership) {
+        getPartnerships().add(partnership);
+    }
+
+    @Override
+    public IPartnership getLastPartnership() {
+
+        final int count = store.getPartnershipCount(id);
+        return count != 0 ? store.getPartnership(id, count - 1) : null;
+    }
+
+    @Override
+    public TreeMap<LocalDate, Address> getAddressHistory() {
+        return store.getAddressHistory(id);
+    }
+
+    @Override
+    public Address getAddress(final LocalDate onDate) {
+        return store.getAddress(id, onDate);
+    }
+
+    @Override
+    public void setAddress(final LocalDate onDate, final Address address) {
+        AddressHistory.setAddress(this, getAddressHistory(), onDate, address);
+    }
+
+    @Override
+    public LocalDate getLastMoveDate() {
+        return store.getLastMoveDate(id);
+    }
+
+    @Override
+    public Collection<Address> getAllAddresses() {
+        return store.getAllAddresses(id);
+    }
+
+    @Override
+    public void rollbackLastMove(final Geography geography) {
+        AddressHistory.rollbackLastMove(this, getAddressHistory(), geography);
+    }
+
+    @Override
+    public LocalDate cancelLastMove(final Geography geography) {
+        return AddressHistory.cancelLastMove(this, getAddressHistory());
+    }
+
+    @Override
+    public LocalDate getEmigrationDate() {
+        return store.getEmigrationDate(id);
+    }
+
+    @Override
+    public void setEmigrationDate(final LocalDate leavingDate) {
+        store.setEmigrationDate(id, leavingDate);
+    }
+
+    @Override
+    public LocalDate getImmigrationDate() {
+        return store.getImmigrationDate(id);
+    }
+
+    @Override
+    public void setImmigrationDate(final LocalDate arrivalDate) {
+        store.setImmigrationDate(id, arrivalDate);
+    }
+
+    @Override
+    public boolean hasEmigrated() {
+        return store.hasEmigrated(id);
+    }
+
+    @Override
+    public int compareTo(final IPerson other) {
+        return Integer.compare(id, other.getId());
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other != null && id == ((IPerson) other).getId();
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    // Created on each call to getPartnerships, so that views hold no state of their own
+    private class PartnershipList extends AbstractList<IPartnership> implements Serializable {
+
+        @Override
+        public IPartnership get(final int index) {
+            checkIndex(index, size());
+            return store.getPartnership(id, index);
+        }
+
+        @Override
+        public int size() {
+            return store.getPartnershipCount(id);
+        }
+
+        @Override
+        public void add(final int index, final IPartnership partnership) {
+            checkIndex(index, size() + 1);
+            store.insertPartnership(id, index, partnership);
+            modCount++;
+        }
+
+        @Override
+        public IPartnership remove(final int index) {
+            checkIndex(index, size());
+            modCount++;
+            return store.removePartnership(id, index);
+        }
+    }
+
+    static void checkIndex(final int index, final int size) {
+
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
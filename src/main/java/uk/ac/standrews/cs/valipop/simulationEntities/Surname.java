@@ -1,6 +1,8 @@
 package uk.ac.standrews.cs.valipop.simulationEntities;
 
-public class Surname {
+import java.io.Serializable;
+
+public class Surname implements Serializable {
     final private String name;
 
     public Surname(String name) {
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.simulationEntities.dataStructure;
+
+import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPersonCollection;
+import uk.ac.standrews.cs.valipop.utils.specialTypes.dates.DateUtils;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * A read-only view over several {@link PeopleCollection}s, such as the living, dead and emigrant people of a
+ * population, which reads from the collections rather than copying them. The people are iterated in the order a single
+ * collection holding all of them would give: women and then men, each by birth division, with the women of each
+ * division by birth order, and then by id. Changes to the underlying collections are seen by the view, but they must
+ * not be changed while the view is being iterated.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class CombinedPeopleCollection implements IPersonCollection, Iterable<IPerson> {
+
+    private final List<PeopleCollection> collections;
+    private String description;
+
+    public CombinedPeopleCollection(final PeopleCollection... collections) {
+
+        this.collections = Arrays.asList(collections);
+        description = "combined";
+    }
+
+    @Override
+    public Iterable<IPerson> getPeople() {
+        return this;
+    }
+
+    @Override
+    public Iterator<IPerson> iterator() {
+
+        final List<List<Set<IPerson>>> groups = new ArrayList<>();
+
+        for (final LocalDate divisionDate : getDivisionDates(true)) {
+
+            int highestBirthOrder = -1;
+
+            for (final PeopleCollection collection : collections) {
+                highestBirthOrder = Math.max(highestBirthOrder, collection.getFemales().getHighestBirthOrder(divisionDate));
+            }
+
+            for (int birthOrder = 0; birthOrder <= highestBirthOrder; birthOrder++) {
+
+                final List<Set<IPerson>> group = new ArrayList<>(collections.size());
+
+                for (final PeopleCollection collection : collections) {
+                    group.add(collection.getFemales().getPeopleInDivision(divisionDate, birthOrder));
+                }
+
+                groups.add(group);
+            }
+        }
+
+        for (final LocalDate divisionDate : getDivisionDates(false)) {
+
+            final List<Set<IPerson>> group = new ArrayList<>(collections.size());
+
+            for (final PeopleCollection collection : collections) {
+                group.add(collection.getMales().getPeopleInDivision(divisionDate));
+            }
+
+            groups.add(group);
+        }
+
+        return new GroupIterator(groups);
+    }
+
+    @Override
+    public Iterable<IPartnership> getPartnerships() {
+
+        return () -> new Iterator<IPartnership>() {
+
+            private int next = 0;
+            private Iterator<IPartnership> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+
+                while (!current.hasNext() && next < collections.size()) {
+                    current = collections.get(next++).getPartnerships().iterator();
+                }
+
+                return current.hasNext();
+            }
+
+            @Override
+            public IPartnership next() {
+
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+    }
+
+    @Override
+    public IPerson findPerson(final int id) {
+
+        for (final PeopleCollection collection : collections) {
+
+            final IPerson person = collection.findPerson(id);
+            if (person != null) return person;
+        }
+
+        return null;
+    }
+
+    @Override
+    public IPartnership findPartnership(final int id) {
+
+        for (final PeopleCollection collection : collections) {
+
+            final IPartnership partnership = collection.findPartnership(id);
+            if (partnership != null) return partnership;
+        }
+
+        return null;
+    }
+
+    @Override
+    public int getNumberOfPeople() {
+
+        int count = 0;
+
+        for (final PeopleCollection collection : collections) {
+            count += collection.getNumberOfPeople();
+        }
+
+        return count;
+    }
+
+    @Override
+    public int getNumberOfPartnerships() {
+
+        int count = 0;
+
+        for (final PeopleCollection collection : collections) {
+            count += collection.getNumberOfPartnerships();
+        }
+
+        return count;
+    }
+
+    @Override
+    public LocalDate getStartDate() {
+
+        LocalDate start = collections.get(0).getStartDate();
+
+        for (final PeopleCollection collection : collections) {
+            start = DateUtils.earlierOf(start, collection.getStartDate());
+        }
+
+        return start;
+    }
+
+    @Override
+    public LocalDate getEndDate() {
+
+        LocalDate end = collections.get(0).getEndDate();
+
+        for (final PeopleCollection collection : collections) {
+            end = DateUtils.laterOf(end, collection.getEndDate());
+        }
+
+        return end;
+    }
+
+    @Override
+    public void setDescription(final String description) {
+        this.description = description;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    private Set<LocalDate> getDivisionDates(final boolean females) {
+
+        final Set<LocalDate> divisionDates = new TreeSet<>();
+
+        for (final PeopleCollection collection : collections) {
+            divisionDates.addAll(females ? collection.getFemales().getDivisionDates() : collection.getMales().getDivisionDates());
+        }
+
+        return divisionDates;
+    }
+
+    /**
+     * Iterates over groups of sets of people in turn, merging the sets of each group by id. A person held in more than
+     * one of the sets is given only once, as they would be by a single collection.
+     */
+    private static class GroupIterator implements Iterator<IPerson> {
+
+        private final Iterator<List<Set<IPerson>>> groups;
+
+        private final List<Iterator<IPerson>> iterators = new ArrayList<>();
+        private final List<IPerson> heads = new ArrayList<>();
+
+        GroupIterator(final List<List<Set<IPerson>>> groups) {
+
+            this.groups = groups.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            while (heads.isEmpty() && groups.hasNext()) {
+
+                iterators.clear();
+
+                for (final Set<IPerson> people : groups.next()) {
+
+                    if (!people.isEmpty()) {
+
+                        final Iterator<IPerson> iterator = people.iterator();
+                        iterators.add(iterator);
+                        heads.add(iterator.next());
+                    }
+                }
+            }
+
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public IPerson next() {
+
+            if (!hasNext()) throw new NoSuchElementException();
+
+            int lowest = 0;
+
+            for (int i = 1; i < heads.size(); i++) {
+                if (heads.get(i).compareTo(heads.get(lowest)) < 0) lowest = i;
+            }
+
+            final IPerson person = heads.get(lowest);
+
+            for (int i = heads.size() - 1; i >= 0; i--) {
+
+                if (heads.get(i).compareTo(person) == 0) {
+
+                    final Iterator<IPerson> iterator = iterators.get(i);
+
+                    if (iterator.hasNext()) {
+                        heads.set(i, iterator.next());
+
+                    } else {
+                        heads.remove(i);
+                        iterators.remove(i);
+                    }
+                }
+            }
+
+            return person;
+        }
+    }
+}
@@ -18,11 +18,11 @@ package uk.ac.standrews.cs.valipop.simulationEntities.dataStructure;
 
 import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
-import uk.ac.standrews.cs.valipop.utils.MapUtils;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.dates.DateUtils;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.dates.MisalignedTimeDivisionException;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.IntegerRange;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.*;
@@ -32,11 +32,15 @@ import java.util.*;
  * additional layer of division below the year of birth level which divides females out into separate collections based
  * on how many children they have had.
  *
+ * The birth order each woman is filed under is recorded when she is added, so that she can be removed or moved to a
+ * new birth order as children are born without recounting the children of all her partnerships.
+ *
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
 public class FemaleCollection extends PersonCollection {
 
-    private final TreeMap<LocalDate, TreeMap<Integer, TreeSet<IPerson>>> byBirthYearAndNumberOfChildren = new TreeMap<>();
+    private final TreeMap<LocalDate, BirthOrderIndex> byBirthYearAndNumberOfChildren = new TreeMap<>();
+    private final Map<IPerson, Integer> filedBirthOrders = new HashMap<>();
 
     /**
      * Instantiates a new FemaleCollection. The dates specify the earliest and latest expected birth dates of
@@ -52,7 +56,7 @@ public class FemaleCollection extends PersonCollection {
         super(start, end, divisionSize, description);
 
         for (LocalDate date = start; !date.isAfter(end); date = date.plus(divisionSize)) {
-            byBirthYearAndNumberOfChildren.put(date, new TreeMap<>());
+            byBirthYearAndNumberOfChildren.put(date, new BirthOrderIndex());
         }
     }
 
@@ -61,10 +65,8 @@ public class FemaleCollection extends PersonCollection {
 
         final Collection<IPerson> people = new ArrayList<>();
 
-        for (TreeMap<Integer, TreeSet<IPerson>> map : byBirthYearAndNumberOfChildren.values()) {
-            for (Collection<IPerson> collection : map.values()) {
-                people.addAll(collection);
-            }
+        for (BirthOrderIndex index : byBirthYearAndNumberOfChildren.values()) {
+            index.addAllTo(people);
         }
 
         return people;
@@ -75,113 +77,112 @@ public class FemaleCollection extends PersonCollection {
 
         // TODO confusing naming mismatch between this and next method
 
-        for (Collection<IPerson> collection : getAllPeopleFromDivision(divisionDate).values()) {
-            people.addAll(collection);
+        final BirthOrderIndex index = getAllPeopleFromDivision(divisionDate);
+
+        if (index != null) {
+            index.addAllTo(people);
         }
     }
 
     @Override
     public void add(final IPerson person) {
 
-        final LocalDate divisionDate = resolveDateToCorrectDivisionDate(person.getBirthDate());
+        final Integer filedBirthOrder = filedBirthOrders.get(person);
         final int numberOfChildren = countChildren(person);
 
-        final TreeSet<IPerson> newList = new TreeSet<>();
-        newList.add(person);
-
-        if (byBirthYearAndNumberOfChildren.containsKey(divisionDate)) {
-
-            final TreeMap<Integer, TreeSet<IPerson>> map = byBirthYearAndNumberOfChildren.get(divisionDate);
-
-            if (map.containsKey(numberOfChildren)) {
-                map.get(numberOfChildren).add(person);
-
-            } else {
-                map.put(numberOfChildren, newList);
-            }
-        } else {
-
-            TreeMap<Integer, TreeSet<IPerson>> newMap = new TreeMap<>();
-            newMap.put(numberOfChildren, newList);
-            byBirthYearAndNumberOfChildren.put(divisionDate, newMap);
+        if (filedBirthOrder != null) {
+            // already present so just make sure she is filed under her current number of children
+            moveBirthOrder(person, filedBirthOrder, numberOfChildren);
+            return;
         }
 
+        final LocalDate divisionDate = resolveDateToCorrectDivisionDate(person.getBirthDate());
+        byBirthYearAndNumberOfChildren.computeIfAbsent(divisionDate, date -> new BirthOrderIndex()).add(person, numberOfChildren);
+        filedBirthOrders.put(person, numberOfChildren);
+
         size++;
+        addToSamplingIndex(person);
     }
 
     @Override
     public void remove(final IPerson person) {
 
-        final LocalDate divisionDate = resolveDateToCorrectDivisionDate(person.getBirthDate());
-        final TreeMap<Integer, TreeSet<IPerson>> familySizeMap = byBirthYearAndNumberOfChildren.get(divisionDate);
-        final Collection<IPerson> people = familySizeMap.get(countChildren(person));
+        final Integer filedBirthOrder = filedBirthOrders.remove(person);
 
-        if (people == null || !people.remove(person)) {
+        if (filedBirthOrder == null) {
             throw new PersonNotFoundException("Specified person not found in data structure");
         }
 
-        size--;
-    }
-
-    @Override
-    public int getNumberOfPeople(final LocalDate firstDate, final Period timePeriod) {
-
-        return getPeopleBornInTimePeriod(firstDate, timePeriod).size();
-    }
+        final LocalDate divisionDate = resolveDateToCorrectDivisionDate(person.getBirthDate());
+        byBirthYearAndNumberOfChildren.get(divisionDate).remove(person, filedBirthOrder);
 
-    @Override
-    public Set<LocalDate> getDivisionDates() {
-        return new TreeSet<>(byBirthYearAndNumberOfChildren.keySet());
+        size--;
+        removeFromSamplingIndex(person);
     }
 
-    public Collection<IPerson> getByDatePeriodAndBirthOrder(final LocalDate date, final Period period, final IntegerRange birthOrder) {
-
-        int highestBirthOrder = getHighestBirthOrder(date, period);
+    /**
+     * Updates the birth order of the given woman to reflect children just added to one of her partnerships.
+     *
+     * @param mother           the woman who has had children
+     * @param numberOfChildren the number of children added
+     * @throws PersonNotFoundException if the woman is not in this collection
+     */
+    public void addChildren(final IPerson mother, final int numberOfChildren) {
 
-        if (!birthOrder.isPlus()) {
-            highestBirthOrder = birthOrder.getMax();
-        }
+        final Integer filedBirthOrder = filedBirthOrders.get(mother);
 
-        final Collection<IPerson> people = new ArrayList<>();
-
-        for (int i = birthOrder.getMin(); i <= highestBirthOrder; i++) {
-            people.addAll(getByDatePeriodAndBirthOrder(date, period, i));
+        if (filedBirthOrder == null) {
+            throw new PersonNotFoundException("Specified person not found in data structure");
         }
 
-        return people;
+        moveBirthOrder(mother, filedBirthOrder, filedBirthOrder + numberOfChildren);
     }
 
-    /**
-     * Returns the highest birth order (number of children) among women in the specified year of birth.
-     *
-     * @param dateOfBirth the year of birth of the mothers in question
-     * @return the highest birth order value
-     */
-    private int getHighestBirthOrder(final LocalDate dateOfBirth, final Period period) {
+    @Override
+    public int getNumberOfPeople(final LocalDate firstDate, final Period timePeriod) {
 
-        final int divisionsInPeriod = DateUtils.calcSubTimeUnitsInTimeUnit(getDivisionSize(), period);
+        final int divisionsInPeriod = DateUtils.calcSubTimeUnitsInTimeUnit(getDivisionSize(), timePeriod);
 
-        if (divisionsInPeriod == -1) {
+        if (divisionsInPeriod <= 0) {
             throw new MisalignedTimeDivisionException();
         }
 
-        LocalDate divisionDate = dateOfBirth;
-
-        int highestBirthOrder = 0;
+        int count = 0;
+        LocalDate divisionDate = firstDate;
 
         for (int i = 0; i < divisionsInPeriod; i++) {
 
-            final TreeMap<Integer, TreeSet<IPerson>> temp = byBirthYearAndNumberOfChildren.get(divisionDate);
-
-            if (temp != null && MapUtils.getMax(temp.keySet()) > highestBirthOrder) {
-                highestBirthOrder = MapUtils.getMax(temp.keySet());
+            final BirthOrderIndex index = getAllPeopleFromDivision(divisionDate);
+            if (index != null) {
+                count += index.size();
             }
 
-            // move on to the new division date until we've covered the required divisions
             divisionDate = divisionDate.plus(getDivisionSize());
         }
 
-        return highestBirthOrder;
+        return count;
+    }
+
+    @Override
+    public Set<LocalDate> getDivisionDates() {
+        return new TreeSet<>(byBirthYearAndNumberOfChildren.keySet());
+    }
+
+    /**
+     * Gets the mothers born in the given period with a birth order (i.e. number of children) in the given range. The
+     * returned collection is a read-only view over the underlying index rather than a copy, and so reflects subsequent
+     * changes to the collection.
+     *
+     * @param date       the date
+     * @param period     the period following the date to find people from
+     * @param birthOrder the range of numbers of children
+     * @return the mothers
+     */
+    public Collection<IPerson> getByDatePeriodAndBirthOrder(final LocalDate date, final Period period, final IntegerRange birthOrder) {
+
+        final int highestBirthOrder = birthOrder.isPlus() ? Integer.MAX_VALUE : birthOrder.getMax();
+
+        return getByDatePeriodAndBirthOrder(date, period, birthOrder.getMin(), highestBirthOrder);
     }
 
     /**
@@ -195,44 +196,82 @@ public class FemaleCollection extends PersonCollection {
      */
     Collection<IPerson> getByDatePeriodAndBirthOrder(final LocalDate date, final Period period, final int birthOrder) {
 
+        return getByDatePeriodAndBirthOrder(date, period, birthOrder, birthOrder);
+    }
+
+    private Collection<IPerson> getByDatePeriodAndBirthOrder(final LocalDate date, final Period period, final int lowestBirthOrder, final int highestBirthOrder) {
+
         int divisionsInPeriod = DateUtils.calcSubTimeUnitsInTimeUnit(getDivisionSize(), period);
 
         if (divisionsInPeriod == -1) {
             throw new MisalignedTimeDivisionException();
         }
 
-        final ArrayList<IPerson> people = new ArrayList<>();
+        final List<BirthOrderIndex> indices = new ArrayList<>(divisionsInPeriod);
         LocalDate divisionDate = date;
 
         for (int i = 0; i < divisionsInPeriod; i++) {
 
-            try {
-                people.addAll(byBirthYearAndNumberOfChildren.get(divisionDate).get(birthOrder));
-
-            } catch (NullPointerException e) {
-                // If no data exists for the year or the given birth order in the given year, then there's no one to add
+            // If no data exists for the year then there's no one to add
+            final BirthOrderIndex index = byBirthYearAndNumberOfChildren.get(divisionDate);
+            if (index != null) {
+                indices.add(index);
             }
 
             // move on to the new division date until we've covered the required divisions
             divisionDate = divisionDate.plus(getDivisionSize());
         }
 
-        return people;
+        return new BirthOrderView(indices, lowestBirthOrder, highestBirthOrder);
     }
 
-    private TreeMap<Integer, TreeSet<IPerson>> getAllPeopleFromDivision(final LocalDate divisionDate) {
+    /**
+     * Gets the women born in the given division who are filed under the given birth order, in order of id. The
+     * returned set is a read-only view over the underlying index.
+     *
+     * @param divisionDate the date of the division
+     * @param birthOrder   the number of children
+     * @return the women, or an empty set if there are none
+     */
+    Set<IPerson> getPeopleInDivision(final LocalDate divisionDate, final int birthOrder) {
 
-        if (byBirthYearAndNumberOfChildren.containsKey(divisionDate)) {
-            return byBirthYearAndNumberOfChildren.get(divisionDate);
+        final BirthOrderIndex index = byBirthYearAndNumberOfChildren.get(divisionDate);
 
-        } else {
-            if (checkDateAlignmentToDivisions(divisionDate)) {
-                // Division date is reasonable but no people exist in it yet
-                return new TreeMap<>();
-            } else {
-                throw new MisalignedTimeDivisionException("Date provided to underlying population structure does not align");
-            }
+        return index == null ? Collections.emptySet() : Collections.unmodifiableSet(index.get(birthOrder));
+    }
+
+    /**
+     * Gets the highest birth order under which women born in the given division may be filed, or -1 if there are none.
+     */
+    int getHighestBirthOrder(final LocalDate divisionDate) {
+
+        final BirthOrderIndex index = byBirthYearAndNumberOfChildren.get(divisionDate);
+
+        return index == null ? -1 : index.getHighestBirthOrder();
+    }
+
+    private BirthOrderIndex getAllPeopleFromDivision(final LocalDate divisionDate) {
+
+        final BirthOrderIndex index = byBirthYearAndNumberOfChildren.get(divisionDate);
+
+        if (index == null && !checkDateAlignmentToDivisions(divisionDate)) {
+            throw new MisalignedTimeDivisionException("Date provided to underlying population structure does not align");
         }
+
+        // Null if division date is reasonable but no people exist in it yet
+        return index;
+    }
+
+    private void moveBirthOrder(final IPerson person, final int from, final int to) {
+
+        if (from == to) return;
+
+        final LocalDate divisionDate = resolveDateToCorrectDivisionDate(person.getBirthDate());
+        final BirthOrderIndex index = byBirthYearAndNumberOfChildren.get(divisionDate);
+
+        index.remove(person, from);
+        index.add(person, to);
+        filedBirthOrders.put(person, to);
     }
 
     private int countChildren(final IPerson person) {
@@ -245,4 +284,127 @@ public class FemaleCollection extends PersonCollection {
 
         return count;
     }
-}
\ No newline at end of file
+
+    /**
+     * The women of one birth division, held in one set per birth order.
+     */
+    private static class BirthOrderIndex implements Serializable {
+
+        private final List<TreeSet<IPerson>> byBirthOrder = new ArrayList<>();
+        private int size = 0;
+
+        void add(final IPerson person, final int birthOrder) {
+
+            while (byBirthOrder.size() <= birthOrder) {
+                byBirthOrder.add(new TreeSet<>());
+            }
+
+            if (byBirthOrder.get(birthOrder).add(person)) {
+                size++;
+            }
+        }
+
+        void remove(final IPerson person, final int birthOrder) {
+
+            if (birthOrder >= byBirthOrder.size() || !byBirthOrder.get(birthOrder).remove(person)) {
+                throw new PersonNotFoundException("Specified person not found in data structure");
+            }
+
+            size--;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int getHighestBirthOrder() {
+            return byBirthOrder.size() - 1;
+        }
+
+        Set<IPerson> get(final int birthOrder) {
+            return birthOrder < byBirthOrder.size() ? byBirthOrder.get(birthOrder) : Collections.emptySet();
+        }
+
+        void addAllTo(final Collection<IPerson> people) {
+
+            for (TreeSet<IPerson> set : byBirthOrder) {
+                people.addAll(set);
+            }
+        }
+    }
+
+    /**
+     * Read-only view over a range of birth orders across several birth divisions, iterating by birth order and then
+     * by division.
+     */
+    private static class BirthOrderView extends AbstractCollection<IPerson> {
+
+        private final List<BirthOrderIndex> indices;
+        private final int lowestBirthOrder;
+        private final int highestBirthOrder;
+
+        BirthOrderView(final List<BirthOrderIndex> indices, final int lowestBirthOrder, final int highestBirthOrder) {
+
+            this.indices = indices;
+            this.lowestBirthOrder = lowestBirthOrder;
+            this.highestBirthOrder = highestBirthOrder;
+        }
+
+        @Override
+        public int size() {
+
+            int size = 0;
+
+            for (BirthOrderIndex index : indices) {
+                for (int i = lowestBirthOrder; i <= Math.min(highestBirthOrder, index.getHighestBirthOrder()); i++) {
+                    size += index.get(i).size();
+                }
+            }
+
+            return size;
+        }
+
+        @Override
+        public Iterator<IPerson> iterator() {
+
+            int highestPresent = -1;
+
+            for (BirthOrderIndex index : indices) {
+                highestPresent = Math.max(highestPresent, index.getHighestBirthOrder());
+            }
+
+            final int highestBirthOrder = Math.min(this.highestBirthOrder, highestPresent);
+
+            return new Iterator<IPerson>() {
+
+                private int birthOrder = lowestBirthOrder;
+                private int division = 0;
+                private Iterator<IPerson> current = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext() {
+
+                    while (!current.hasNext()) {
+
+                        if (division == indices.size()) {
+                            division = 0;
+                            birthOrder++;
+                        }
+
+                        if (birthOrder > highestBirthOrder) return false;
+
+                        current = indices.get(division++).get(birthOrder).iterator();
+                    }
+                    return true;
+                }
+
+                @Override
+                public IPerson next() {
+
+                    if (!hasNext()) throw new NoSuchElementException();
+                    return current.next();
+                }
+            };
+        }
+    }
+}
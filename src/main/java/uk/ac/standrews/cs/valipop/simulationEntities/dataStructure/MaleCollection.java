@@ -61,6 +61,20 @@ public class MaleCollection extends PersonCollection {
         return people;
     }
 
+    /**
+     * Gets the men born in the given division, in order of id. The returned set is a read-only view over the
+     * underlying index.
+     *
+     * @param divisionDate the date of the division
+     * @return the men, or an empty set if there are none
+     */
+    Set<IPerson> getPeopleInDivision(final LocalDate divisionDate) {
+
+        final TreeSet<IPerson> people = byYear.get(divisionDate);
+
+        return people == null ? Collections.emptySet() : Collections.unmodifiableSet(people);
+    }
+
     @Override
     void addPeople(final Collection<IPerson> people, final LocalDate divisionDate) {
 
@@ -86,6 +100,7 @@ public class MaleCollection extends PersonCollection {
         }
 
         size++;
+        addToSamplingIndex(person);
     }
 
     @Override
@@ -98,6 +113,7 @@ public class MaleCollection extends PersonCollection {
         }
 
         size--;
+        removeFromSamplingIndex(person);
     }
 
     @Override
@@ -16,10 +16,12 @@
  */
 package uk.ac.standrews.cs.valipop.simulationEntities.dataStructure;
 
+import org.apache.commons.math3.random.RandomGenerator;
 import uk.ac.standrews.cs.valipop.Config;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPersonCollection;
+import uk.ac.standrews.cs.valipop.simulationEntities.KinshipIndex;
 import uk.ac.standrews.cs.valipop.simulationEntities.PopulationNavigation;
 import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
 import uk.ac.standrews.cs.valipop.utils.addressLookup.Address;
@@ -28,6 +30,7 @@ import uk.ac.standrews.cs.valipop.utils.addressLookup.Geography;
 
 import java.time.LocalDate;
 import java.time.Period;
+import java.time.YearMonth;
 import java.util.*;
 
 /**
@@ -42,6 +45,9 @@ public class PeopleCollection extends PersonCollection implements Cloneable, IPe
 
     private final Map<Integer, IPartnership> partnershipIndex = new HashMap<>();
 
+    // Only set when people are to be picked from the collection at random in constant time
+    private SamplingIndex samplingIndex = null;
+
     /**
      * Instantiates a new PersonCollection. The dates specify the earliest and latest expected birth dates of
      * individuals in the PersonCollection. There is no hard enforcement of this as the bounds are intended to serve
@@ -133,6 +139,15 @@ public class PeopleCollection extends PersonCollection implements Cloneable, IPe
         return people;
     }
 
+    @Override
+    public Collection<IPerson> getPeopleFiledWithBirthMonths(final Collection<YearMonth> birthMonths) {
+
+        final Collection<IPerson> people = females.getPeopleFiledWithBirthMonths(birthMonths);
+        people.addAll(males.getPeopleFiledWithBirthMonths(birthMonths));
+
+        return people;
+    }
+
     @Override
     public void add(final IPerson person) {
 
@@ -155,6 +170,42 @@ public class PeopleCollection extends PersonCollection implements Cloneable, IPe
         }
     }
 
+    /**
+     * Keeps an index of the people in this collection, including those added or removed later through either sex, from
+     * which {@link #getRandomPerson(RandomGenerator)} picks a person in constant time.
+     */
+    public void indexForSampling() {
+
+        if (samplingIndex != null) {
+            return;
+        }
+
+        samplingIndex = new SamplingIndex();
+
+        for (IPerson person : getPeople()) {
+            samplingIndex.add(person);
+        }
+
+        males.setSamplingIndex(samplingIndex);
+        females.setSamplingIndex(samplingIndex);
+    }
+
+    /**
+     * Picks a person in this collection at random, each with the same chance. The collection must have been indexed by
+     * {@link #indexForSampling()}.
+     *
+     * @param random the random generator to pick with
+     * @return the person picked
+     */
+    public IPerson getRandomPerson(final RandomGenerator random) {
+
+        if (samplingIndex == null) {
+            throw new IllegalStateException("collection has not been indexed for sampling");
+        }
+
+        return samplingIndex.getRandomPerson(random);
+    }
+
     @Override
     public int getNumberOfPeople() {
 
@@ -20,8 +20,10 @@ import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.dates.DateUtils;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.dates.MisalignedTimeDivisionException;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.Period;
+import java.time.YearMonth;
 import java.util.*;
 
 import static uk.ac.standrews.cs.valipop.simulationEntities.PopulationNavigation.diedAfter;
@@ -32,7 +34,7 @@ import static uk.ac.standrews.cs.valipop.simulationEntities.PopulationNavigation
  *
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public abstract class PersonCollection implements Iterable<IPerson> {
+public abstract class PersonCollection implements Iterable<IPerson>, Serializable {
 
     private LocalDate startDate;
     private LocalDate endDate;
@@ -40,6 +42,9 @@ public abstract class PersonCollection implements Iterable<IPerson> {
     protected String description;
     protected int size = 0;
 
+    // Only set when people are to be picked from the collection at random in constant time
+    private SamplingIndex samplingIndex = null;
+
     /**
      * Instantiates a new PersonCollection. The dates specify the earliest and latest expected birth dates of
      * individuals in the PersonCollection. There is no hard enforcement of this as the bounds are intended to serve
@@ -57,6 +62,25 @@ public abstract class PersonCollection implements Iterable<IPerson> {
         this.description = description;
     }
 
+    void setSamplingIndex(final SamplingIndex samplingIndex) {
+
+        this.samplingIndex = samplingIndex;
+    }
+
+    void addToSamplingIndex(final IPerson person) {
+
+        if (samplingIndex != null) {
+            samplingIndex.add(person);
+        }
+    }
+
+    void removeFromSamplingIndex(final IPerson person) {
+
+        if (samplingIndex != null) {
+            samplingIndex.remove(person);
+        }
+    }
+
     /**
      * Gets all the people that exist in the underlying sub-structure of this PersonCollection. Likely to be expensive,
      * if needing a count of people in collection then check to see if the instance has an index and take a count using
@@ -233,6 +257,48 @@ public abstract class PersonCollection implements Iterable<IPerson> {
         return people;
     }
 
+    /**
+     * Gets the people in the divisions that anyone born in the given months would be filed under, in the order they
+     * are iterated over. People are filed by the month they were born in, so this includes everyone born in those
+     * months, but it may include others born in nearby months too.
+     *
+     * @param birthMonths the months of birth
+     * @return the people in the divisions
+     */
+    public Collection<IPerson> getPeopleFiledWithBirthMonths(final Collection<YearMonth> birthMonths) {
+
+        final Set<LocalDate> filedDivisionDates = getDivisionDates();
+        final TreeSet<LocalDate> divisionDates = new TreeSet<>();
+
+        for (YearMonth month : birthMonths) {
+
+            final LocalDate divisionDate = resolveDateToCorrectDivisionDate(month.atDay(1));
+
+            if (filedDivisionDates.contains(divisionDate)) {
+                divisionDates.add(divisionDate);
+            }
+        }
+
+        final Collection<IPerson> people = new ArrayList<>();
+
+        for (LocalDate divisionDate : divisionDates) {
+            addPeople(people, divisionDate);
+        }
+
+        return people;
+    }
+
+    /**
+     * Gets the earliest month in which anyone in the PersonCollection could have been born. People are filed under a
+     * division less than one division away from the month they were born in.
+     *
+     * @return the earliest month of birth
+     */
+    public YearMonth getEarliestBirthMonth() {
+
+        return YearMonth.from(Collections.min(getDivisionDates()).minus(divisionSize));
+    }
+
     @Override
     public Iterator<IPerson> iterator() {
         return getPeople().iterator();
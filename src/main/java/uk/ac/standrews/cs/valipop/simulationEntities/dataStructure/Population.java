@@ -18,8 +18,8 @@ package uk.ac.standrews.cs.valipop.simulationEntities.dataStructure;
 
 import uk.ac.standrews.cs.valipop.Config;
 import uk.ac.standrews.cs.valipop.simulationEntities.*;
-import uk.ac.standrews.cs.valipop.utils.specialTypes.dates.DateUtils;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.Period;
 
@@ -28,7 +28,7 @@ import java.time.Period;
  *
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class Population {
+public class Population implements Serializable {
 
     private PeopleCollection livingPeople;
     private PeopleCollection deadPeople;
@@ -37,12 +37,20 @@ public class Population {
 
     private PopulationCounts populationCounts;
 
+    private PersonStore personStore = null;
+
+    // People and partnerships are numbered from zero in each population
+    private int nextPersonId = 0;
+    private int nextPartnershipId = 0;
+
     public Population(final Config config) {
 
-        Person.resetIds();
-        Partnership.resetIds();
+        if (config.getPersonStore() == PersonStoreType.COLUMNAR) {
+            personStore = new PersonStore();
+        }
 
         livingPeople = new PeopleCollection(config.getTS(), config.getTE(), config.getSimulationTimeStep(), "living");
+        livingPeople.indexForSampling();
 
         deadPeople = new PeopleCollection(config.getTS(), config.getTE(), config.getSimulationTimeStep(), "dead");
 
@@ -51,9 +59,13 @@ public class Population {
         populationCounts = new PopulationCounts();
     }
 
-    public PeopleCollection getPeople() {
+    /**
+     * Gets the living, dead and emigrant people of the population together. The collection is a view over the three,
+     * so it is cheap to get but reflects later changes to the population.
+     */
+    public CombinedPeopleCollection getPeople() {
 
-        return combine(combine(livingPeople, deadPeople), emigrants);
+        return new CombinedPeopleCollection(livingPeople, deadPeople, emigrants);
     }
 
     public PeopleCollection getPeople(final LocalDate first, final LocalDate last, final Period maxAge) {
@@ -89,25 +101,28 @@ public class Population {
         return populationCounts;
     }
 
-    private PeopleCollection combine(final PeopleCollection collection1, final PeopleCollection collection2) {
-
-        final LocalDate start = DateUtils.earlierOf(collection1.getStartDate(), collection2.getStartDate());
-        final LocalDate end = DateUtils.laterOf(collection1.getStartDate(), collection2.getStartDate());
-
-        final PeopleCollection cloned1 = collection1.clone();
-        final PeopleCollection cloned2 = collection2.clone();
-
-        cloned1.setStartDate(start);
-        cloned1.setEndDate(end);
-
-        for (IPerson person : cloned2) {
-            cloned1.add(person);
-        }
+    /**
+     * Gets the store holding the people and partnerships of this population, or null if each is held as a separate
+     * object.
+     *
+     * @return the person store
+     */
+    public PersonStore getPersonStore() {
+        return personStore;
+    }
 
-        for (IPartnership person : cloned2.getPartnerships()) {
-            cloned1.add(person);
-        }
+    /**
+     * Gets the identifier for a new person in this population.
+     */
+    public synchronized int newPersonId() {
+        return nextPersonId++;
+    }
 
-        return cloned1;
+    /**
+     * Gets the identifier for a new partnership in this population.
+     */
+    public synchronized int newPartnershipId() {
+        return nextPartnershipId++;
     }
+
 }
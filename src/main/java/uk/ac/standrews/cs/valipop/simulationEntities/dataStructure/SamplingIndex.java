@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.simulationEntities.dataStructure;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the people of a collection in a dense list so that one can be picked at random in constant time. A removed
+ * person is replaced by the last person in the list, so the order of the list is not the order people were added in.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+class SamplingIndex implements Serializable {
+
+    private final List<IPerson> people = new ArrayList<>();
+    private final Map<IPerson, Integer> positions = new IdentityHashMap<>();
+
+    void add(final IPerson person) {
+
+        if (!positions.containsKey(person)) {
+            positions.put(person, people.size());
+            people.add(person);
+        }
+    }
+
+    void remove(final IPerson person) {
+
+        final Integer position = positions.remove(person);
+
+        if (position != null) {
+            final IPerson last = people.remove(people.size() - 1);
+
+            if (last != person) {
+                people.set(position, last);
+                positions.put(last, position);
+            }
+        }
+    }
+
+    int size() {
+        return people.size();
+    }
+
+    IPerson getRandomPerson(final RandomGenerator random) {
+
+        return people.get(random.nextInt(people.size()));
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.statistics.analysis;
+
+import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the facts about each person of a population which the analyses of the population need by year, derived in a
+ * single pass over the population rather than by each analysis walking the people and their partnerships again.
+ *
+ * Each person has a row, in the order in which the population was iterated, and each fact is a column of primitive
+ * values indexed by row. The years in which a person is counted as part of the population are held as a range: a
+ * person is present in a year if they were alive and in the country on the last day of the previous year, as
+ * {@link uk.ac.standrews.cs.valipop.simulationEntities.PopulationNavigation#aliveOnDate(IPerson, LocalDate)} and
+ * {@link uk.ac.standrews.cs.valipop.simulationEntities.PopulationNavigation#presentOnDate(IPerson, LocalDate)}
+ * determine. The number of children of each partnership and the birth years of each person's children are held in
+ * shared arrays, with the entries for each row starting at an offset held for the row.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class PersonYearTable {
+
+    /**
+     * The year held for a person who has not died.
+     */
+    public static final int NO_YEAR = Integer.MAX_VALUE;
+
+    private static final int NO_AGE = -1;
+
+    private final List<IPerson> people = new ArrayList<>();
+
+    private int[] ids;
+    private boolean[] females;
+    private int[] birthYears;
+    private int[] deathYears;
+    private int[] agesAtDeath;
+    private int[] firstPresentYears;
+    private int[] lastPresentYears;
+
+    private int[] partnershipOffsets;
+    private int[] childrenPerPartnership;
+
+    private int[] childOffsets;
+    private int[] childBirthYears;
+
+    public PersonYearTable(Iterable<IPerson> population) {
+
+        int capacity = 1024;
+
+        ids = new int[capacity];
+        females = new boolean[capacity];
+        birthYears = new int[capacity];
+        deathYears = new int[capacity];
+        agesAtDeath = new int[capacity];
+        firstPresentYears = new int[capacity];
+        lastPresentYears = new int[capacity];
+        partnershipOffsets = new int[capacity + 1];
+        childOffsets = new int[capacity + 1];
+
+        childrenPerPartnership = new int[capacity];
+        childBirthYears = new int[capacity];
+
+        int numberOfPartnerships = 0;
+        int numberOfChildren = 0;
+
+        for (IPerson person : population) {
+
+            int row = people.size();
+
+            if (row == ids.length) {
+                capacity = ids.length * 2;
+
+                ids = Arrays.copyOf(ids, capacity);
+                females = Arrays.copyOf(females, capacity);
+                birthYears = Arrays.copyOf(birthYears, capacity);
+                deathYears = Arrays.copyOf(deathYears, capacity);
+                agesAtDeath = Arrays.copyOf(agesAtDeath, capacity);
+                firstPresentYears = Arrays.copyOf(firstPresentYears, capacity);
+                lastPresentYears = Arrays.copyOf(lastPresentYears, capacity);
+                partnershipOffsets = Arrays.copyOf(partnershipOffsets, capacity + 1);
+                childOffsets = Arrays.copyOf(childOffsets, capacity + 1);
+            }
+
+            people.add(person);
+
+            LocalDate birthDate = person.getBirthDate();
+            LocalDate deathDate = person.getDeathDate();
+            LocalDate immigrationDate = person.getImmigrationDate();
+            LocalDate emigrationDate = person.getEmigrationDate();
+
+            ids[row] = person.getId();
+            females[row] = person.getSex() == SexOption.FEMALE;
+            birthYears[row] = birthDate.getYear();
+            deathYears[row] = deathDate == null ? NO_YEAR : deathDate.getYear();
+            agesAtDeath[row] = deathDate == null ? NO_AGE : Period.between(birthDate, deathDate).getYears();
+
+            // present from the year after arriving, whether by birth or immigration...
+            LocalDate arrival = immigrationDate != null && immigrationDate.isAfter(birthDate) ? immigrationDate : birthDate;
+            firstPresentYears[row] = arrival.getYear() + 1;
+
+            // ...until the year of death, or of emigration unless that was on the last day of a year
+            int lastPresentYear = deathYears[row];
+            if (emigrationDate != null) {
+                int emigrationYear = emigrationDate.getYear() + (isLastDayOfYear(emigrationDate) ? 1 : 0);
+                lastPresentYear = Math.min(lastPresentYear, emigrationYear);
+            }
+            lastPresentYears[row] = lastPresentYear;
+
+            for (IPartnership partnership : person.getPartnerships()) {
+
+                List<IPerson> children = partnership.getChildren();
+
+                if (numberOfPartnerships == childrenPerPartnership.length) {
+                    childrenPerPartnership = Arrays.copyOf(childrenPerPartnership, numberOfPartnerships * 2);
+                }
+                childrenPerPartnership[numberOfPartnerships++] = children.size();
+
+                for (IPerson child : children) {
+
+                    if (numberOfChildren == childBirthYears.length) {
+                        childBirthYears = Arrays.copyOf(childBirthYears, numberOfChildren * 2);
+                    }
+                    childBirthYears[numberOfChildren++] = child.getBirthDate().getYear();
+                }
+            }
+
+            partnershipOffsets[row + 1] = numberOfPartnerships;
+            childOffsets[row + 1] = numberOfChildren;
+        }
+    }
+
+    private PersonYearTable(PersonYearTable table, int[] rows) {
+
+        int numberOfPartnerships = 0;
+        int numberOfChildren = 0;
+
+        for (int row : rows) {
+            numberOfPartnerships += table.getNumberOfPartnerships(row);
+            numberOfChildren += table.getNumberOfChildren(row);
+        }
+
+        ids = new int[rows.length];
+        females = new boolean[rows.length];
+        birthYears = new int[rows.length];
+        deathYears = new int[rows.length];
+        agesAtDeath = new int[rows.length];
+        firstPresentYears = new int[rows.length];
+        lastPresentYears = new int[rows.length];
+        partnershipOffsets = new int[rows.length + 1];
+        childOffsets = new int[rows.length + 1];
+
+        childrenPerPartnership = new int[numberOfPartnerships];
+        childBirthYears = new int[numberOfChildren];
+
+        for (int newRow = 0; newRow < rows.length; newRow++) {
+
+            int row = rows[newRow];
+
+            people.add(table.people.get(row));
+
+            ids[newRow] = table.ids[row];
+            females[newRow] = table.females[row];
+            birthYears[newRow] = table.birthYears[row];
+            deathYears[newRow] = table.deathYears[row];
+            agesAtDeath[newRow] = table.agesAtDeath[row];
+            firstPresentYears[newRow] = table.firstPresentYears[row];
+            lastPresentYears[newRow] = table.lastPresentYears[row];
+
+            int partnerships = table.getNumberOfPartnerships(row);
+            System.arraycopy(table.childrenPerPartnership, table.partnershipOffsets[row], childrenPerPartnership, partnershipOffsets[newRow], partnerships);
+            partnershipOffsets[newRow + 1] = partnershipOffsets[newRow] + partnerships;
+
+            int children = table.getNumberOfChildren(row);
+            System.arraycopy(table.childBirthYears, table.childOffsets[row], childBirthYears, childOffsets[newRow], children);
+            childOffsets[newRow + 1] = childOffsets[newRow] + children;
+        }
+    }
+
+    /**
+     * Returns a table of the rows of the given people, taken from this table rather than from the people and their
+     * partnerships again.
+     *
+     * @param people people held in this table
+     * @throws IllegalArgumentException if any of the people is not held in this table
+     */
+    public PersonYearTable restrictTo(Iterable<IPerson> people) {
+
+        Map<Integer, Integer> rowsById = new HashMap<>();
+
+        for (int row = 0; row < getNumberOfPeople(); row++) {
+            rowsById.put(ids[row], row);
+        }
+
+        List<Integer> rows = new ArrayList<>();
+
+        for (IPerson person : people) {
+
+            Integer row = rowsById.get(person.getId());
+
+            if (row == null) {
+                throw new IllegalArgumentException("person " + person.getId() + " is not held in the table");
+            }
+            rows.add(row);
+        }
+
+        return new PersonYearTable(this, rows.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public int getNumberOfPeople() {
+        return people.size();
+    }
+
+    public IPerson getPerson(int row) {
+        return people.get(row);
+    }
+
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    public boolean isFemale(int row) {
+        return females[row];
+    }
+
+    public int getBirthYear(int row) {
+        return birthYears[row];
+    }
+
+    /**
+     * @return the year of death, or {@link #NO_YEAR} if the person has not died
+     */
+    public int getDeathYear(int row) {
+        return deathYears[row];
+    }
+
+    /**
+     * @return the age in whole years at death, or -1 if the person has not died
+     */
+    public int getAgeAtDeath(int row) {
+        return agesAtDeath[row];
+    }
+
+    /**
+     * @return the first year in which the person is present, which may be after the last if they never are
+     */
+    public int getFirstPresentYear(int row) {
+        return firstPresentYears[row];
+    }
+
+    /**
+     * @return the last year in which the person is present, or {@link #NO_YEAR} if they are present in every year
+     * after the first
+     */
+    public int getLastPresentYear(int row) {
+        return lastPresentYears[row];
+    }
+
+    /**
+     * Returns whether the person was alive and in the country on the last day of the year before the given year.
+     */
+    public boolean isPresentIn(int row, int year) {
+        return firstPresentYears[row] <= year && year <= lastPresentYears[row];
+    }
+
+    public int getNumberOfPartnerships(int row) {
+        return partnershipOffsets[row + 1] - partnershipOffsets[row];
+    }
+
+    /**
+     * @param partnership the index of the partnership in the person's partnerships
+     */
+    public int getNumberOfChildren(int row, int partnership) {
+        return childrenPerPartnership[partnershipOffsets[row] + partnership];
+    }
+
+    public int getNumberOfChildren(int row) {
+        return childOffsets[row + 1] - childOffsets[row];
+    }
+
+    /**
+     * @param child the index of the child amongst the children of all the person's partnerships
+     */
+    public int getChildBirthYear(int row, int child) {
+        return childBirthYears[childOffsets[row] + child];
+    }
+
+    private static boolean isLastDayOfYear(LocalDate date) {
+        return date.getMonth() == Month.DECEMBER && date.getDayOfMonth() == 31;
+    }
+}
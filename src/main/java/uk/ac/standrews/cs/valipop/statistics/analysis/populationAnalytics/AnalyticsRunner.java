@@ -17,6 +17,7 @@
 package uk.ac.standrews.cs.valipop.statistics.analysis.populationAnalytics;
 
 import uk.ac.standrews.cs.valipop.simulationEntities.IPersonCollection;
+import uk.ac.standrews.cs.valipop.statistics.analysis.PersonYearTable;
 
 import java.io.PrintStream;
 
@@ -25,11 +26,15 @@ import java.io.PrintStream;
  */
 public class AnalyticsRunner {
 
-    public static void runAnalytics(IPersonCollection population, PrintStream resultsOutput) {
+    /**
+     * @param people the table of the same people as the population, which the analyses other than the first read from
+     *               rather than each walking the population again
+     */
+    public static void runAnalytics(IPersonCollection population, PersonYearTable people, PrintStream resultsOutput) {
 
         new PopulationAnalytics(population, resultsOutput).printAllAnalytics();
-        new ChildrenAnalytics(population, resultsOutput).printAllAnalytics();
-        new DeathAnalytics(population, resultsOutput).printAllAnalytics();
-        new MarriageAnalytics(population, resultsOutput).printAllAnalytics();
+        new ChildrenAnalytics(people, resultsOutput).printAllAnalytics();
+        new DeathAnalytics(people, resultsOutput).printAllAnalytics();
+        new MarriageAnalytics(people, resultsOutput).printAllAnalytics();
     }
 }
@@ -16,10 +16,7 @@
  */
 package uk.ac.standrews.cs.valipop.statistics.analysis.populationAnalytics;
 
-import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
-import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
-import uk.ac.standrews.cs.valipop.simulationEntities.IPersonCollection;
-import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
+import uk.ac.standrews.cs.valipop.statistics.analysis.PersonYearTable;
 
 import java.io.PrintStream;
 import java.util.*;
@@ -38,12 +35,12 @@ class ChildrenAnalytics {
     private static final int ONE_HUNDRED = 100;
 
     private final int[] children_per_marriage = new int[MAX_CHILDREN]; // tracks family size
-    private final IPersonCollection population;
+    private final PersonYearTable population;
     private PrintStream out;
 
     private final Map<Integer, Double> fertilityRateByYear = new TreeMap<>();
 
-    ChildrenAnalytics(final IPersonCollection population, PrintStream resultsOutput) {
+    ChildrenAnalytics(final PersonYearTable population, PrintStream resultsOutput) {
 
         this.population = population;
         out = resultsOutput;
@@ -72,20 +69,11 @@ class ChildrenAnalytics {
 
     private void analyseChildren() {
 
-        for (final IPerson person : population.getPeople()) {
+        for (int row = 0; row < population.getNumberOfPeople(); row++) {
 
-            if (person.getSex() == SexOption.FEMALE) {
-                final List<IPartnership> partnerships = person.getPartnerships();
-                if (partnerships != null) {
-
-                    for (final IPartnership partnership : partnerships) {
-
-                        final List<IPerson> child_ids = partnership.getChildren();
-
-                        if (child_ids != null) {
-                            children_per_marriage[child_ids.size()]++;
-                        }
-                    }
+            if (population.isFemale(row)) {
+                for (int partnership = 0; partnership < population.getNumberOfPartnerships(row); partnership++) {
+                    children_per_marriage[population.getNumberOfChildren(row, partnership)]++;
                 }
             }
         }
@@ -99,33 +87,22 @@ class ChildrenAnalytics {
         final int MIN_CB_AGE = 15;
         final int MAX_CB_AGE = 50;
 
-        for (final IPerson person : population.getPeople()) {
-
-            if (person.getSex() == SexOption.FEMALE) {
-                final List<IPartnership> partnerships = person.getPartnerships();
-                if (partnerships != null) {
+        for (int row = 0; row < population.getNumberOfPeople(); row++) {
 
-                    for (final IPartnership partnership : partnerships) {
+            if (population.isFemale(row)) {
 
-                        final List<IPerson> child_ids = partnership.getChildren();
+                for (int child = 0; child < population.getNumberOfChildren(row); child++) {
 
-                        if (child_ids != null) {
+                    int yob = population.getChildBirthYear(row, child);
 
-                            for (final IPerson child : child_ids) {
-
-                                int yob = child.getBirthDate().getYear();
-
-                                try {
-                                    childrenBornInEachYear.put(yob, childrenBornInEachYear.get(yob) + 1);
-                                } catch (NullPointerException e) {
-                                    childrenBornInEachYear.put(yob, 1);
-                                }
-                            }
-                        }
+                    try {
+                        childrenBornInEachYear.put(yob, childrenBornInEachYear.get(yob) + 1);
+                    } catch (NullPointerException e) {
+                        childrenBornInEachYear.put(yob, 1);
                     }
                 }
 
-                int femalesYOB = person.getBirthDate().getYear();
+                int femalesYOB = population.getBirthYear(row);
                 for (int y = femalesYOB + MIN_CB_AGE; y < femalesYOB + MAX_CB_AGE; y++) {
 
                     try {
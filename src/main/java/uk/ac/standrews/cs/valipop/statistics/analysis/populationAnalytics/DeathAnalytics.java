@@ -16,12 +16,9 @@
  */
 package uk.ac.standrews.cs.valipop.statistics.analysis.populationAnalytics;
 
-import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
-import uk.ac.standrews.cs.valipop.simulationEntities.IPersonCollection;
+import uk.ac.standrews.cs.valipop.statistics.analysis.PersonYearTable;
 
 import java.io.PrintStream;
-import java.time.LocalDate;
-import java.time.Period;
 import java.util.stream.IntStream;
 
 /**
@@ -35,11 +32,11 @@ class DeathAnalytics {
     private static final int ONE_HUNDRED = 100;
 
     private final int[] age_at_death = new int[MAX_AGE_AT_DEATH]; // tracks age of death over population
-    private final IPersonCollection population;
+    private final PersonYearTable population;
 
     private PrintStream out;
 
-    DeathAnalytics(final IPersonCollection population, PrintStream resultsOutput) {
+    DeathAnalytics(final PersonYearTable population, PrintStream resultsOutput) {
 
         this.population = population;
         out = resultsOutput;
@@ -58,14 +55,11 @@ class DeathAnalytics {
 
     private void analyseDeaths() {
 
-        for (final IPerson person : population.getPeople()) {
+        for (int row = 0; row < population.getNumberOfPeople(); row++) {
 
-            final LocalDate death_date = person.getDeathDate();
+            if (population.getDeathYear(row) != PersonYearTable.NO_YEAR) {
 
-            if (death_date != null) {
-
-                final LocalDate birth_date = person.getBirthDate();
-                final int age_at_death_in_years = Period.between(birth_date, death_date).getYears();
+                final int age_at_death_in_years = population.getAgeAtDeath(row);
                 if (age_at_death_in_years >= 0 && age_at_death_in_years < age_at_death.length) {
                     age_at_death[age_at_death_in_years]++;
                 }
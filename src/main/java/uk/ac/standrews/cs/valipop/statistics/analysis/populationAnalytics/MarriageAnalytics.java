@@ -16,13 +16,9 @@
  */
 package uk.ac.standrews.cs.valipop.statistics.analysis.populationAnalytics;
 
-import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
-import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
-import uk.ac.standrews.cs.valipop.simulationEntities.IPersonCollection;
-import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
+import uk.ac.standrews.cs.valipop.statistics.analysis.PersonYearTable;
 
 import java.io.PrintStream;
-import java.util.List;
 import java.util.stream.IntStream;
 
 /**
@@ -36,11 +32,11 @@ class MarriageAnalytics {
     private static final int ONE_HUNDRED = 100;
 
     private final int[] count_marriages = new int[MAX_MARRIAGES];
-    private final IPersonCollection population;
+    private final PersonYearTable population;
 
     private PrintStream out;
 
-    MarriageAnalytics(final IPersonCollection population, PrintStream resultsOutput) {
+    MarriageAnalytics(final PersonYearTable population, PrintStream resultsOutput) {
 
         this.population = population;
         out = resultsOutput;
@@ -63,17 +59,10 @@ class MarriageAnalytics {
 
     private void analyseMarriages() {
 
-        for (final IPerson person : population.getPeople()) {
+        for (int row = 0; row < population.getNumberOfPeople(); row++) {
 
-            if (person.getSex() == SexOption.MALE) { // only look at Males to avoid counting marriages twice.
-
-                final List<IPartnership> partnership_ids = person.getPartnerships();
-
-                if (partnership_ids == null) {
-                    count_marriages[0]++;
-                } else {
-                    count_marriages[partnership_ids.size()]++;
-                }
+            if (!population.isFemale(row)) { // only look at Males to avoid counting marriages twice.
+                count_marriages[population.getNumberOfPartnerships(row)]++;
             }
         }
     }
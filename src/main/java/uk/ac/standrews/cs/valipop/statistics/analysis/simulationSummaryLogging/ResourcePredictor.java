@@ -0,0 +1,362 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.statistics.analysis.simulationSummaryLogging;
+
+import org.apache.commons.math3.linear.*;
+import uk.ac.standrews.cs.valipop.Config;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+
+/**
+ * Predicts the peak heap use and run time of a simulation from those of earlier simulations, as recorded in results
+ * summary files.
+ *
+ * The logarithms of the peak memory and of the run time are each fitted as linear in the logarithms of the population
+ * size at t0, the length in years of the set up period and of the simulation period, using the completed runs with the
+ * same inputs directory and time step, or all completed runs where there are too few of those. The fit is shrunk
+ * towards each quantity being proportional to each of the sizes, which is also what is assumed for a size which does
+ * not vary between the runs. Runs from summaries recorded before the set up period was recorded are taken to have had
+ * the set up period of the simulation being predicted.
+ *
+ * The memory of a run is its estimated own peak, which stays valid when it shared the heap with other simulations in
+ * the same process. Runs recorded before that estimate was recorded use their peak heap use if they ran alone, and
+ * otherwise are used only for the run time, as their peak is of the heap they shared. Runs recorded before the number
+ * of simulations running at once was recorded are taken to have run alone. The run time of a run which shared the
+ * processors is used as it is, being the time the simulation took where it was scheduled.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class ResourcePredictor {
+
+    private static final int MIN_GROUP_RUNS = 3;
+    private static final double SHRINKAGE = 0.1;
+    private static final double[] PRIOR_EXPONENTS = {1, 1, 1};
+
+    // spread of the log of a quantity assumed until there are enough runs to estimate it, and the least allowed
+    private static final double DEFAULT_LOG_SPREAD = 0.25;
+    private static final double MIN_LOG_SPREAD = 0.05;
+
+    // upper bounds are the 95th percentile of the fitted distribution
+    private static final double UPPER_QUANTILE = 1.645;
+
+    private static final double DAYS_PER_YEAR = 365.25;
+    private static final double BYTES_PER_MB = 1e6;
+
+    private static final String CONCURRENT_SIMULATIONS = "Concurrent Simulations";
+    private static final String OWN_MEMORY = "Estimated Own Peak Memory Usage (MB)";
+
+    private final List<Run> runs = new ArrayList<>();
+
+    /**
+     * The sizes and resource use of a completed simulation, the memory being NaN where it is not known.
+     */
+    static class Run {
+
+        private final String inputs;
+        private final Period timestep;
+        private final double[] sizes;
+        private final double memory;
+        private final double runTime;
+
+        Run(String inputs, Period timestep, int t0PopulationSize, double setUpYears, double simulationYears, double memory, double runTime) {
+
+            this.inputs = inputs;
+            this.timestep = timestep;
+            this.sizes = new double[]{t0PopulationSize, setUpYears, simulationYears};
+            this.memory = memory;
+            this.runTime = runTime;
+        }
+    }
+
+    /**
+     * The predicted resource use of a simulation.
+     */
+    public static class Prediction implements Serializable {
+
+        private final double memory;
+        private final double memoryUpperBound;
+        private final double runTime;
+
+        Prediction(double memory, double memoryUpperBound, double runTime) {
+
+            this.memory = memory;
+            this.memoryUpperBound = memoryUpperBound;
+            this.runTime = runTime;
+        }
+
+        /**
+         * Returns the predicted peak heap use in bytes.
+         */
+        public double getMemory() {
+            return memory;
+        }
+
+        /**
+         * Returns the peak heap use in bytes which the simulation is unlikely to exceed.
+         */
+        public double getMemoryUpperBound() {
+            return memoryUpperBound;
+        }
+
+        /**
+         * Returns the predicted run time in seconds, including the analysis of the population.
+         */
+        public double getRunTime() {
+            return runTime;
+        }
+    }
+
+    ResourcePredictor(List<Run> runs) {
+        this.runs.addAll(runs);
+    }
+
+    /**
+     * Creates a predictor from the completed runs recorded in the given summary files, ignoring those which do not
+     * exist.
+     */
+    public static ResourcePredictor read(Path... summaryFiles) throws IOException {
+
+        List<Run> runs = new ArrayList<>();
+
+        for (Path summaryFile : summaryFiles) {
+            if (Files.exists(summaryFile)) {
+                readRuns(summaryFile, runs);
+            }
+        }
+
+        return new ResourcePredictor(runs);
+    }
+
+    /**
+     * Predicts the resource use of a simulation with the given configuration, or returns null if there are no earlier
+     * runs to predict from.
+     */
+    public Prediction predict(Config config) {
+        return predict(config.getVarPath(), config.getSimulationTimeStep(), config.getT0PopulationSize(), config.getTS(), config.getT0(), config.getTE());
+    }
+
+    /**
+     * Predicts the resource use of a simulation with the given inputs, time step, population size and dates, or
+     * returns null if there are no earlier runs to predict from.
+     */
+    public Prediction predict(Path inputs, Period timestep, int t0PopulationSize, LocalDate tS, LocalDate t0, LocalDate tE) {
+
+        double setUpYears = DAYS.between(tS, t0) / DAYS_PER_YEAR;
+        double simulationYears = DAYS.between(t0, tE) / DAYS_PER_YEAR;
+
+        return predict(inputs.toString(), timestep, t0PopulationSize, setUpYears, simulationYears);
+    }
+
+    Prediction predict(String inputs, Period timestep, int t0PopulationSize, double setUpYears, double simulationYears) {
+
+        List<Run> similar = new ArrayList<>();
+
+        for (Run run : runs) {
+            if (run.inputs.equals(inputs) && run.timestep.equals(timestep)) {
+                similar.add(run);
+            }
+        }
+
+        List<Run> fitted = similar.size() >= MIN_GROUP_RUNS ? similar : runs;
+        if (fitted.isEmpty()) {
+            return null;
+        }
+
+        List<Run> withMemory = withMemory(similar).size() >= MIN_GROUP_RUNS ? withMemory(similar) : withMemory(runs);
+        if (withMemory.isEmpty()) {
+            return null;
+        }
+
+        double[] logSizes = logs(new double[]{t0PopulationSize, setUpYears, simulationYears});
+
+        double[] memory = fit(withMemory, run -> run.memory, logSizes);
+        double[] runTime = fit(fitted, run -> run.runTime, logSizes);
+
+        return new Prediction(Math.exp(memory[0]), Math.exp(memory[0] + UPPER_QUANTILE * memory[1]), Math.exp(runTime[0]));
+    }
+
+    private static List<Run> withMemory(List<Run> runs) {
+
+        List<Run> withMemory = new ArrayList<>();
+
+        for (Run run : runs) {
+            if (!Double.isNaN(run.memory)) {
+                withMemory.add(run);
+            }
+        }
+
+        return withMemory;
+    }
+
+    private interface Quantity {
+        double of(Run run);
+    }
+
+    // Returns the fitted log of the quantity at the given log sizes, and the spread of the logs about the fit.
+    private static double[] fit(List<Run> runs, Quantity quantity, double[] at) {
+
+        int n = runs.size();
+        int p = PRIOR_EXPONENTS.length;
+
+        double[][] x = new double[n][];
+        double[] y = new double[n];
+        double[] meanX = new double[p];
+        double meanY = 0;
+
+        for (int i = 0; i < n; i++) {
+            x[i] = logs(runs.get(i).sizes);
+
+            for (int j = 0; j < p; j++) {
+                if (Double.isNaN(x[i][j])) x[i][j] = at[j];
+            }
+            y[i] = Math.log(quantity.of(runs.get(i)));
+
+            for (int j = 0; j < p; j++) meanX[j] += x[i][j] / n;
+            meanY += y[i] / n;
+        }
+
+        // minimises the squared residuals plus the squared departure of the exponents from the prior, weighted by the
+        // number of runs so that the shrinkage matters less as runs accumulate
+        RealMatrix a = MatrixUtils.createRealMatrix(p, p);
+        RealVector b = new ArrayRealVector(p);
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < p; j++) {
+                double dj = x[i][j] - meanX[j];
+                b.addToEntry(j, dj * (y[i] - meanY));
+
+                for (int k = 0; k < p; k++) {
+                    a.addToEntry(j, k, dj * (x[i][k] - meanX[k]));
+                }
+            }
+        }
+
+        for (int j = 0; j < p; j++) {
+            a.addToEntry(j, j, SHRINKAGE);
+            b.addToEntry(j, SHRINKAGE * PRIOR_EXPONENTS[j]);
+        }
+
+        RealVector exponents = new LUDecomposition(a).getSolver().solve(b);
+
+        double squares = 0;
+        for (int i = 0; i < n; i++) {
+            double residual = y[i] - predicted(meanY, meanX, exponents, x[i]);
+            squares += residual * residual;
+        }
+
+        double spread = n > p + 1 ? Math.max(MIN_LOG_SPREAD, Math.sqrt(squares / (n - p - 1))) : DEFAULT_LOG_SPREAD;
+
+        return new double[]{predicted(meanY, meanX, exponents, at), spread};
+    }
+
+    private static double predicted(double meanY, double[] meanX, RealVector exponents, double[] x) {
+
+        double y = meanY;
+        for (int j = 0; j < meanX.length; j++) {
+            y += exponents.getEntry(j) * (x[j] - meanX[j]);
+        }
+        return y;
+    }
+
+    private static double[] logs(double[] values) {
+
+        double[] logs = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            logs[i] = Double.isNaN(values[i]) ? Double.NaN : Math.log(Math.max(values[i], 1));
+        }
+        return logs;
+    }
+
+    private static void readRuns(Path summaryFile, List<Run> runs) throws IOException {
+
+        try (BufferedReader reader = Files.newBufferedReader(summaryFile)) {
+
+            String header = reader.readLine();
+            if (header == null) {
+                return;
+            }
+
+            List<String> columns = Arrays.asList(header.split(","));
+
+            int inputs = columns.indexOf("Inputs Directory");
+            int completed = columns.indexOf("Completed");
+            int timestep = columns.indexOf("Timestep");
+            int size = columns.indexOf("Seed Pop Size");
+            int t0 = columns.indexOf("Start Date");
+            int tE = columns.indexOf("End Date");
+            int tS = columns.indexOf("Set Up Start Date");
+            int memory = columns.indexOf("Peak Memory Usage (MB)");
+            int concurrent = indexOfAddedColumn(columns, CONCURRENT_SIMULATIONS);
+            int ownMemory = indexOfAddedColumn(columns, OWN_MEMORY);
+            int[] runTimes = {columns.indexOf("Sim Run time"), columns.indexOf("CT Run time"), columns.indexOf("Records Run time"), columns.indexOf("Stats Run Time")};
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+
+                String[] fields = line.split(",");
+                if (fields.length < columns.size() || !Boolean.parseBoolean(fields[completed])) continue;
+
+                try {
+                    boolean ranAlone = concurrent >= fields.length || Integer.parseInt(fields[concurrent]) <= 1;
+
+                    double peak = ownMemory < fields.length ? Double.parseDouble(fields[ownMemory]) * BYTES_PER_MB
+                            : ranAlone ? Double.parseDouble(fields[memory]) * BYTES_PER_MB : Double.NaN;
+
+                    double runTime = 0;
+                    for (int column : runTimes) {
+                        runTime += Double.parseDouble(fields[column]);
+                    }
+
+                    LocalDate start = LocalDate.parse(fields[t0]);
+                    double simulationYears = DAYS.between(start, LocalDate.parse(fields[tE])) / DAYS_PER_YEAR;
+
+                    double setUpYears = tS < 0 ? Double.NaN : DAYS.between(LocalDate.parse(fields[tS]), start) / DAYS_PER_YEAR;
+
+                    if ((Double.isNaN(peak) || peak > 0) && runTime > 0) {
+                        runs.add(new Run(fields[inputs], Period.parse(fields[timestep]), Integer.parseInt(fields[size]), setUpYears, simulationYears, peak, runTime));
+                    }
+
+                } catch (NumberFormatException | DateTimeParseException e) {
+                    // a row which was not completely recorded
+                }
+            }
+        }
+    }
+
+    // The index of a column added after the first summaries were written. Columns are only ever added at the end of
+    // the row, so where the header was written before the column was added, it is where it is in the current headings.
+    private static int indexOfAddedColumn(List<String> columns, String column) {
+
+        int index = columns.indexOf(column);
+
+        if (index < 0) {
+            index = Arrays.asList(SummaryRow.getSeparatedHeadings().split(",")).indexOf(column);
+        }
+
+        return index;
+    }
+}
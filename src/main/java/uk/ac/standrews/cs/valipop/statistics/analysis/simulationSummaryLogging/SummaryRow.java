@@ -46,6 +46,7 @@ public class SummaryRow {
     private Period inputWidth;
     private Period timestep;
 
+    private LocalDate setUpDate;
     private LocalDate startDate;
     private LocalDate endDate;
 
@@ -86,8 +87,13 @@ public class SummaryRow {
     private boolean binomialSampling;
 
     private long maxMemoryUsage = -1L;
+    private long maxOwnUsage = -1L;
+    private int concurrentSimulations = 1;
     private Double v = Double.NaN;
 
+    private double predictedMemoryUsage = Double.NaN;
+    private double predictedRunTime = Double.NaN;
+
     private String hostname;
 
     private Config config;
@@ -102,6 +108,7 @@ public class SummaryRow {
         this.codeVersion = codeVersion;
         this.timestep = config.getSimulationTimeStep();
         this.inputWidth = config.getInputWidth();
+        this.setUpDate = config.getTS();
         this.startDate = config.getT0();
         this.endDate = config.getTE();
         this.simLength = (int) DAYS.between(startDate, endDate);
@@ -154,8 +161,26 @@ public class SummaryRow {
         this.statsRunTime = statsRunTime;
     }
 
-    public void setMaxMemoryUsage(long maxUsage) {
+    /**
+     * @param maxUsage the peak heap use in bytes
+     * @param maxOwnUsage the estimated peak heap use in bytes of the simulation itself, excluding that of any others
+     *                    running at the same time
+     * @param concurrentSimulations the most simulations running at once in the process while the peak was recorded,
+     *                              the peak being of the heap they shared
+     */
+    public void setMaxMemoryUsage(long maxUsage, long maxOwnUsage, int concurrentSimulations) {
         this.maxMemoryUsage = maxUsage;
+        this.maxOwnUsage = maxOwnUsage;
+        this.concurrentSimulations = concurrentSimulations;
+    }
+
+    /**
+     * Records the resource use predicted for the simulation, to be output alongside the actual use.
+     */
+    public void setPrediction(ResourcePredictor.Prediction prediction) {
+
+        this.predictedMemoryUsage = prediction.getMemory();
+        this.predictedRunTime = prediction.getRunTime();
     }
 
     public void setEligibilityChecks(int eligibilityChecks) {
@@ -175,7 +200,8 @@ public class SummaryRow {
                 proportionalRecoveryFactor, binomialSampling,
                 minBirthSpacing, (maxMemoryUsage / 1e6), outputRecordFormat.toString(),
                 v.toString(), statsRunTime, eligibilityChecks, failedEligibilityChecks, seed,
-                ctTreeStepback, ctTreePrecision, hostname, oversizedGeographyFactor) + "\n";
+                ctTreeStepback, ctTreePrecision, hostname, oversizedGeographyFactor, setUpDate,
+                (predictedMemoryUsage / 1e6), predictedRunTime, concurrentSimulations, (maxOwnUsage / 1e6)) + "\n";
     }
 
     private static String makeRow(Object... values) {
@@ -204,16 +230,21 @@ public class SummaryRow {
                  "Proportional Recovery Factor", "binomial Sampling", "Min Birth Spacing" ,
                  "Peak Memory Usage (MB)", "Output Record Format", "v/M", "Stats Run Time" ,
                  "Eligibility Checks", "Failed Eligibility Checks", "Seed", "CT Tree Stepback",
-                 "CT Tree Precision", "Hostname", "Oversized Geography Factor");
+                 "CT Tree Precision", "Hostname", "Oversized Geography Factor", "Set Up Start Date",
+                 "Predicted Peak Memory Usage (MB)", "Predicted Run Time", "Concurrent Simulations",
+                 "Estimated Own Peak Memory Usage (MB)");
     }
 
     public void outputSummaryRowToFile() {
-        try {
-            Files.write(config.getGlobalSummaryPath(), toString().getBytes(), StandardOpenOption.APPEND);
-            Files.write(config.getResultsSummaryPath(), toString().getBytes(), StandardOpenOption.APPEND);
-
-        } catch (IOException e) {
-            throw new RuntimeException("Summary row could not be printed to summary files", e);
+        // rows may be output by simulations running at the same time, and must not interleave
+        synchronized (SummaryRow.class) {
+            try {
+                Files.write(config.getGlobalSummaryPath(), toString().getBytes(), StandardOpenOption.APPEND);
+                Files.write(config.getResultsSummaryPath(), toString().getBytes(), StandardOpenOption.APPEND);
+
+            } catch (IOException e) {
+                throw new RuntimeException("Summary row could not be printed to summary files", e);
+            }
         }
     }
 
@@ -225,6 +256,10 @@ public class SummaryRow {
         return startTime;
     }
 
+    public long getMaxMemoryUsage() {
+        return maxMemoryUsage;
+    }
+
     public SummaryRow(SerializableSummaryRow sr) {
         this.startTime                     = sr.startTime;
         this.reason                        = sr.reason;
@@ -260,7 +295,12 @@ public class SummaryRow {
         this.maxMemoryUsage                = sr.maxMemoryUsage;
         this.v                             = sr.v;
         this.hostname                      = sr.hostname;
+        this.predictedMemoryUsage          = sr.predictedMemoryUsage;
+        this.predictedRunTime              = sr.predictedRunTime;
+        this.concurrentSimulations         = sr.concurrentSimulations;
+        this.maxOwnUsage                   = sr.maxOwnUsage;
         this.config                        = new Config(sr.config);
+        this.setUpDate                     = config.getTS();
     }
 
     public SerializableSummaryRow toSerialized() {
@@ -299,6 +339,10 @@ public class SummaryRow {
             maxMemoryUsage,
             v,
             hostname,
+            predictedMemoryUsage,
+            predictedRunTime,
+            concurrentSimulations,
+            maxOwnUsage,
             config.toSerialized()
         );
     }
@@ -0,0 +1,627 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.statistics.analysis.validation;
+
+import org.apache.commons.math3.linear.*;
+import org.apache.commons.math3.special.Erf;
+
+import java.util.*;
+
+/**
+ * Fits a generalised estimating equation model for the frequencies of a table with a gaussian family, identity link
+ * and first order autoregressive working correlation, as geepack's geeglm does for the validation models.
+ *
+ * The model is the full factorial of the given variables: every main effect and every interaction of them, as in the
+ * R formula {@code freq ~ A * B * C}. Numeric variables enter as they are, and factors and logical variables by
+ * treatment contrasts against their first level, so the coefficients are named as in R, such as {@code SourceSTAT}
+ * or {@code Date:SexM}. Coefficients which are aliased by those before them are dropped, as R does.
+ *
+ * The rows of each cluster must be consecutive and in their order within the cluster. The scale and correlation
+ * parameter are estimated from the residuals between updates of the coefficients, and the standard errors are the
+ * robust sandwich estimates, from which Wald tests give the significance of each coefficient.
+ *
+ * As the inverse of an autoregressive correlation matrix is tridiagonal, the weighted cross products needed for each
+ * value of the correlation parameter are combined from a few sums over the rows taken once, so each iteration only
+ * passes over the rows to update the residuals and the correlation.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class GEE {
+
+    private static final int MAX_ITERATIONS = 25;
+    private static final double CONVERGENCE_TOLERANCE = 1e-6;
+    private static final double ALIASING_TOLERANCE = 1e-9;
+    private static final double MAX_CORRELATION = 0.999;
+
+    /**
+     * A fitted coefficient and its robust standard error.
+     */
+    public static class Coefficient {
+
+        private final String name;
+        private final double estimate;
+        private final double standardError;
+
+        Coefficient(String name, double estimate, double standardError) {
+
+            this.name = name;
+            this.estimate = estimate;
+            this.standardError = standardError;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getEstimate() {
+            return estimate;
+        }
+
+        public double getStandardError() {
+            return standardError;
+        }
+
+        public double getWald() {
+            return (estimate / standardError) * (estimate / standardError);
+        }
+
+        /**
+         * Returns the p-value of the Wald test that the coefficient is zero, against a chi-squared distribution with
+         * one degree of freedom.
+         */
+        public double getPValue() {
+            return Erf.erfc(Math.sqrt(getWald() / 2));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %12.5g %12.5g %10.4g %10.4g", name, estimate, standardError, getWald(), getPValue());
+        }
+    }
+
+    private final TableData data;
+    private final int[] clusterStarts;
+    private final Design design;
+
+    private final int n;
+    private final int p;
+
+    // Cross products over rows in single row clusters (1), all rows of larger clusters (2), interior rows of larger
+    // clusters (interior) and adjacent pairs of rows in a cluster (adjacent), for the design and the response.
+    private final double[][] xx1, xx2, xxInterior, xxAdjacent;
+    private final double[] xy1, xy2, xyInterior, xyAdjacent;
+
+    private final double[] scale;
+
+    private GEE(TableData data, double[] clusterIds, String... variables) {
+
+        this.data = data;
+        this.n = data.size();
+
+        clusterStarts = clusterStarts(clusterIds);
+        design = new Design(data, variables);
+        p = design.size();
+
+        xx1 = new double[p][p];
+        xx2 = new double[p][p];
+        xxInterior = new double[p][p];
+        xxAdjacent = new double[p][p];
+        xy1 = new double[p];
+        xy2 = new double[p];
+        xyInterior = new double[p];
+        xyAdjacent = new double[p];
+        scale = new double[p];
+    }
+
+    /**
+     * Fits the full factorial model of the given variables to the frequencies of the data.
+     *
+     * @param data the data, with the rows of each cluster consecutive
+     * @param clusterIds the cluster of each row
+     * @param variables the variables of the model
+     * @return the coefficients which are not aliased, in the order R gives them
+     */
+    public static List<Coefficient> fit(TableData data, double[] clusterIds, String... variables) {
+
+        if (clusterIds.length != data.size()) {
+            throw new IllegalArgumentException("a cluster is needed for each row");
+        }
+        return new GEE(data, clusterIds, variables).fit();
+    }
+
+    private List<Coefficient> fit() {
+
+        if (n == 0) {
+            throw new IllegalArgumentException("no rows to fit");
+        }
+
+        accumulateCrossProducts();
+
+        int[] kept = notAliased();
+        int k = kept.length;
+
+        if (n <= k) {
+            throw new IllegalArgumentException("too few rows to fit " + k + " coefficients");
+        }
+
+        // initial estimate from ordinary least squares, as the working correlation is the identity when it is zero
+        double correlation = 0;
+        RealVector beta = solve(kept, correlation).getSolver().solve(response(kept, correlation));
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+
+            correlation = estimateCorrelation(kept, beta.toArray(), correlation);
+
+            RealVector next = solve(kept, correlation).getSolver().solve(response(kept, correlation));
+            double change = next.subtract(beta).getLInfNorm();
+            beta = next;
+
+            if (change <= CONVERGENCE_TOLERANCE * (1 + beta.getLInfNorm())) {
+                break;
+            }
+        }
+
+        RealMatrix bread = solve(kept, correlation).getSolver().getInverse();
+        RealMatrix meat = meat(kept, beta.toArray(), correlation);
+        RealMatrix variance = bread.multiply(meat).multiply(bread);
+
+        List<Coefficient> coefficients = new ArrayList<>();
+
+        for (int i = 0; i < k; i++) {
+
+            int column = kept[i];
+            coefficients.add(new Coefficient(design.getName(column), beta.getEntry(i) / scale[column],
+                    Math.sqrt(variance.getEntry(i, i)) / scale[column]));
+        }
+
+        return coefficients;
+    }
+
+    private void accumulateCrossProducts() {
+
+        double[] x = new double[p];
+        double[] previous = new double[p];
+
+        for (int cluster = 0; cluster < clusterStarts.length - 1; cluster++) {
+
+            int start = clusterStarts[cluster];
+            int end = clusterStarts[cluster + 1];
+
+            for (int row = start; row < end; row++) {
+
+                design.row(row, x);
+                double y = data.getFrequency(row);
+
+                if (end - start == 1) {
+                    addOuter(xx1, xy1, x, x, y);
+                } else {
+                    addOuter(xx2, xy2, x, x, y);
+
+                    if (row > start && row < end - 1) {
+                        addOuter(xxInterior, xyInterior, x, x, y);
+                    }
+
+                    if (row > start) {
+                        // both orders of the pair, which keeps the sum symmetric
+                        addOuter(xxAdjacent, xyAdjacent, x, previous, data.getFrequency(row - 1));
+                        addOuter(xxAdjacent, xyAdjacent, previous, x, y);
+                    }
+                }
+
+                double[] swap = previous;
+                previous = x;
+                x = swap;
+            }
+        }
+
+        // the coefficients are found for columns scaled to unit length, which keeps the cross products well
+        // conditioned without changing the fit or the tests
+        for (int j = 0; j < p; j++) {
+            double length = Math.sqrt(xx1[j][j] + xx2[j][j]);
+            scale[j] = length > 0 ? length : 1;
+        }
+
+        for (double[][] xx : Arrays.asList(xx1, xx2, xxInterior, xxAdjacent)) {
+            for (int j = 0; j < p; j++) {
+                for (int l = j; l < p; l++) {
+                    xx[j][l] /= scale[j] * scale[l];
+                    xx[l][j] = xx[j][l];
+                }
+            }
+        }
+
+        for (double[] xy : Arrays.asList(xy1, xy2, xyInterior, xyAdjacent)) {
+            for (int j = 0; j < p; j++) {
+                xy[j] /= scale[j];
+            }
+        }
+    }
+
+    // Adds the upper triangle of a b' to xx, and a y to xy.
+    private static void addOuter(double[][] xx, double[] xy, double[] a, double[] b, double y) {
+
+        for (int j = 0; j < a.length; j++) {
+
+            double aj = a[j];
+            if (aj == 0) continue;
+
+            double[] xxj = xx[j];
+            for (int l = j; l < b.length; l++) {
+                xxj[l] += aj * b[l];
+            }
+            xy[j] += aj * y;
+        }
+    }
+
+    // Finds the columns which are not linear combinations of the columns before them, by a Cholesky decomposition of
+    // the cross products which skips each column whose remaining length is negligible.
+    private int[] notAliased() {
+
+        double[][] lower = new double[p][p];
+        List<Integer> kept = new ArrayList<>();
+
+        for (int j = 0; j < p; j++) {
+
+            for (int l : kept) {
+
+                double sum = xx1[j][l] + xx2[j][l];
+                for (int m : kept) {
+                    if (m >= l) break;
+                    sum -= lower[j][m] * lower[l][m];
+                }
+                lower[j][l] = sum / lower[l][l];
+            }
+
+            double remaining = xx1[j][j] + xx2[j][j];
+            for (int l : kept) {
+                remaining -= lower[j][l] * lower[j][l];
+            }
+
+            if (remaining > ALIASING_TOLERANCE) {
+                lower[j][j] = Math.sqrt(remaining);
+                kept.add(j);
+            }
+        }
+
+        return kept.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // The weighted cross products X' R^-1 X for the given correlation. Within a cluster of more than one row the
+    // inverse correlation matrix has 1 at the ends and 1 + a^2 inside its diagonal, and -a next to the diagonal,
+    // all over 1 - a^2.
+    private CholeskyDecomposition solve(int[] kept, double correlation) {
+
+        double divisor = 1 - correlation * correlation;
+        RealMatrix matrix = new Array2DRowRealMatrix(kept.length, kept.length);
+
+        for (int i = 0; i < kept.length; i++) {
+            for (int j = 0; j < kept.length; j++) {
+
+                int a = kept[i];
+                int b = kept[j];
+
+                matrix.setEntry(i, j, xx1[a][b] + (xx2[a][b] + correlation * correlation * xxInterior[a][b] - correlation * xxAdjacent[a][b]) / divisor);
+            }
+        }
+
+        return new CholeskyDecomposition(matrix, 1e-12, 1e-14);
+    }
+
+    private RealVector response(int[] kept, double correlation) {
+
+        double divisor = 1 - correlation * correlation;
+        RealVector vector = new ArrayRealVector(kept.length);
+
+        for (int i = 0; i < kept.length; i++) {
+
+            int a = kept[i];
+            vector.setEntry(i, xy1[a] + (xy2[a] + correlation * correlation * xyInterior[a] - correlation * xyAdjacent[a]) / divisor);
+        }
+
+        return vector;
+    }
+
+    // The scale is estimated from the squared residuals, corrected for the number of coefficients. As in geepack,
+    // the correlation a is then fitted to the products of the residuals of every pair of rows in a cluster, whose
+    // expectation is the scale times a to the power of the distance between the rows. The products are summed by
+    // distance, so each step of the fit only needs a term for each distance.
+    private double estimateCorrelation(int[] kept, double[] beta, double correlation) {
+
+        double[] residuals = residuals(kept, beta);
+
+        int longest = 0;
+        for (int cluster = 0; cluster < clusterStarts.length - 1; cluster++) {
+            longest = Math.max(longest, clusterStarts[cluster + 1] - clusterStarts[cluster]);
+        }
+
+        double squares = 0;
+        double[] products = new double[longest];
+        long[] pairs = new long[longest];
+
+        for (int cluster = 0; cluster < clusterStarts.length - 1; cluster++) {
+
+            int start = clusterStarts[cluster];
+            int end = clusterStarts[cluster + 1];
+
+            for (int row = start; row < end; row++) {
+
+                squares += residuals[row] * residuals[row];
+
+                for (int other = row + 1; other < end; other++) {
+                    products[other - row] += residuals[row] * residuals[other];
+                    pairs[other - row]++;
+                }
+            }
+        }
+
+        double scaleParameter = squares / (n - kept.length);
+
+        if (longest < 2 || scaleParameter == 0) {
+            return 0;
+        }
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+
+            double numerator = 0;
+            double denominator = 0;
+
+            for (int distance = 1; distance < longest; distance++) {
+
+                double derivative = distance * Math.pow(correlation, distance - 1);
+
+                numerator += derivative * (products[distance] / scaleParameter - pairs[distance] * Math.pow(correlation, distance));
+                denominator += derivative * derivative * pairs[distance];
+            }
+
+            double step = numerator / denominator;
+            correlation = Math.max(-MAX_CORRELATION, Math.min(MAX_CORRELATION, correlation + step));
+
+            if (Math.abs(step) < CONVERGENCE_TOLERANCE) {
+                break;
+            }
+        }
+
+        return correlation;
+    }
+
+    // The sum over the clusters of u u', where u = X' R^-1 r for the residuals r of the cluster.
+    private RealMatrix meat(int[] kept, double[] beta, double correlation) {
+
+        double[] residuals = residuals(kept, beta);
+        double[] x = new double[p];
+        double[] u = new double[kept.length];
+        double divisor = 1 - correlation * correlation;
+
+        RealMatrix meat = new Array2DRowRealMatrix(kept.length, kept.length);
+
+        for (int cluster = 0; cluster < clusterStarts.length - 1; cluster++) {
+
+            int start = clusterStarts[cluster];
+            int end = clusterStarts[cluster + 1];
+
+            Arrays.fill(u, 0);
+
+            for (int row = start; row < end; row++) {
+
+                double weighted;
+
+                if (end - start == 1) {
+                    weighted = residuals[row];
+                } else {
+                    boolean interior = row > start && row < end - 1;
+                    double neighbours = (row > start ? residuals[row - 1] : 0) + (row < end - 1 ? residuals[row + 1] : 0);
+
+                    weighted = ((interior ? 1 + correlation * correlation : 1) * residuals[row] - correlation * neighbours) / divisor;
+                }
+
+                design.row(row, x);
+                for (int i = 0; i < kept.length; i++) {
+                    u[i] += x[kept[i]] / scale[kept[i]] * weighted;
+                }
+            }
+
+            for (int i = 0; i < kept.length; i++) {
+                for (int j = 0; j < kept.length; j++) {
+                    meat.addToEntry(i, j, u[i] * u[j]);
+                }
+            }
+        }
+
+        return meat;
+    }
+
+    private double[] residuals(int[] kept, double[] beta) {
+
+        double[] residuals = new double[n];
+        double[] x = new double[p];
+
+        for (int row = 0; row < n; row++) {
+
+            design.row(row, x);
+
+            double fitted = 0;
+            for (int i = 0; i < kept.length; i++) {
+                fitted += x[kept[i]] / scale[kept[i]] * beta[i];
+            }
+            residuals[row] = data.getFrequency(row) - fitted;
+        }
+
+        return residuals;
+    }
+
+    private static int[] clusterStarts(double[] clusterIds) {
+
+        List<Integer> starts = new ArrayList<>();
+
+        for (int row = 0; row < clusterIds.length; row++) {
+            if (row == 0 || clusterIds[row] != clusterIds[row - 1]) {
+                starts.add(row);
+            }
+        }
+        starts.add(clusterIds.length);
+
+        return starts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * The columns of the full factorial design of a set of variables, in R's order: the intercept, then the terms by
+     * the number of variables in them and the order of those variables in the formula. Within a term the columns of
+     * the first variable vary fastest.
+     */
+    private static class Design {
+
+        private final List<String> names = new ArrayList<>();
+
+        // for each column and each variable in its term, the variable and the factor level, or -1 for a number
+        private final List<int[][]> factors = new ArrayList<>();
+
+        private final double[][] numbers;
+        private final int[][] levels;
+
+        Design(TableData data, String... variables) {
+
+            int v = variables.length;
+            numbers = new double[v][];
+            levels = new int[v][];
+
+            List<List<String>> columnNames = new ArrayList<>();
+            List<List<Integer>> columnLevels = new ArrayList<>();
+
+            for (int variable = 0; variable < v; variable++) {
+
+                String name = variables[variable];
+                List<String> variableNames = new ArrayList<>();
+                List<Integer> variableLevels = new ArrayList<>();
+
+                if (data.isNumeric(name)) {
+
+                    numbers[variable] = new double[data.size()];
+                    for (int row = 0; row < data.size(); row++) {
+                        numbers[variable][row] = data.getNumber(name, row);
+                    }
+
+                    variableNames.add(name);
+                    variableLevels.add(-1);
+
+                } else {
+
+                    List<String> allLevels = data.getLevels(name);
+                    Map<String, Integer> index = new HashMap<>();
+                    for (int level = 0; level < allLevels.size(); level++) {
+                        index.put(allLevels.get(level), level);
+                    }
+
+                    levels[variable] = new int[data.size()];
+                    for (int row = 0; row < data.size(); row++) {
+                        levels[variable][row] = index.get(data.getValue(name, row));
+                    }
+
+                    // the first level is the reference
+                    for (int level = 1; level < allLevels.size(); level++) {
+                        variableNames.add(name + allLevels.get(level));
+                        variableLevels.add(level);
+                    }
+                }
+
+                columnNames.add(variableNames);
+                columnLevels.add(variableLevels);
+            }
+
+            names.add("(Intercept)");
+            factors.add(new int[0][]);
+
+            for (List<Integer> term : terms(v)) {
+                addColumns(term, 0, new int[term.size()][], new String[term.size()], columnNames, columnLevels);
+            }
+        }
+
+        // Adds the columns of a term, choosing the column of each variable from the last, so the first varies fastest.
+        private void addColumns(List<Integer> term, int position, int[][] chosen, String[] chosenNames, List<List<String>> columnNames, List<List<Integer>> columnLevels) {
+
+            if (position == term.size()) {
+                factors.add(chosen.clone());
+                names.add(String.join(":", chosenNames));
+                return;
+            }
+
+            int index = term.size() - 1 - position;
+            int variable = term.get(index);
+
+            for (int i = 0; i < columnNames.get(variable).size(); i++) {
+
+                chosen[index] = new int[]{variable, columnLevels.get(variable).get(i)};
+                chosenNames[index] = columnNames.get(variable).get(i);
+                addColumns(term, position + 1, chosen, chosenNames, columnNames, columnLevels);
+            }
+        }
+
+        private static List<List<Integer>> terms(int variables) {
+
+            List<List<Integer>> terms = new ArrayList<>();
+
+            for (int mask = 1; mask < 1 << variables; mask++) {
+
+                List<Integer> term = new ArrayList<>();
+                for (int variable = 0; variable < variables; variable++) {
+                    if ((mask & 1 << variable) != 0) term.add(variable);
+                }
+                terms.add(term);
+            }
+
+            terms.sort(Comparator.<List<Integer>>comparingInt(List::size).thenComparing((a, b) -> {
+                for (int i = 0; i < a.size(); i++) {
+                    int c = Integer.compare(a.get(i), b.get(i));
+                    if (c != 0) return c;
+                }
+                return 0;
+            }));
+
+            return terms;
+        }
+
+        int size() {
+            return names.size();
+        }
+
+        String getName(int column) {
+            return names.get(column);
+        }
+
+        void row(int row, double[] x) {
+
+            for (int column = 0; column < x.length; column++) {
+
+                double value = 1;
+
+                for (int[] factor : factors.get(column)) {
+
+                    int variable = factor[0];
+                    int level = factor[1];
+
+                    if (level < 0) {
+                        value *= numbers[variable][row];
+                    } else if (levels[variable][row] != level) {
+                        value = 0;
+                        break;
+                    }
+                }
+
+                x[column] = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.statistics.analysis.validation;
+
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.ContingencyTables;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Calculates the V value of a simulated population from its contingency tables in process, as the R analysis scripts
+ * in {@code valipop/analysis-r/geeglm} do with geepack.
+ *
+ * The tables are cleaned and given cohort identifiers as in {@code process-data-functions.R} and
+ * {@code id-funtions.R}, and the saturated models of {@code geeglm-functions.R} are fitted with {@link GEE}. Each
+ * coefficient involving the STAT source counts towards V by its significance, scored as
+ * {@link uk.ac.standrews.cs.valipop.utils.RCaller} scores the significance codes in the R output: 4 for p &lt; 0.001,
+ * 3 for p &lt; 0.01, 2 for p &lt; 0.05 and a third for p &lt; 0.1. A model which cannot be fitted adds nothing, as when
+ * its fit fails in R.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class GeeglmV {
+
+    public static final Logger log = Logger.getLogger(GeeglmV.class.getName());
+
+    private static final int START_YEAR = 1940;
+    private static final int END_YEAR = 2019;
+    private static final int MIN_BIRTHING_AGE = 15;
+
+    private static final String STAT = "STAT";
+
+    /**
+     * Calculates V from the tables held in memory.
+     *
+     * @param tables the contingency tables of the population
+     * @param maxBirthingAge the maximum birthing age of the population model
+     */
+    public static double getV(ContingencyTables tables, int maxBirthingAge) {
+
+        return getV(
+                () -> TableData.of(tables.getDeathTable()),
+                () -> TableData.of(tables.getOBTable()),
+                () -> TableData.of(tables.getMBTable()),
+                () -> TableData.of(tables.getPartTable()),
+                maxBirthingAge);
+    }
+
+    /**
+     * Calculates V from the tables written to the {@code tables} directory of a run.
+     *
+     * @param runDirPath the path of the run directory
+     * @param maxBirthingAge the maximum birthing age of the population model
+     */
+    public static double getV(Path runDirPath, int maxBirthingAge) {
+
+        Path tables = runDirPath.resolve("tables");
+
+        return getV(
+                () -> TableData.read(tables.resolve("death-CT.csv")),
+                () -> TableData.read(tables.resolve("ob-CT.csv")),
+                () -> TableData.read(tables.resolve("mb-CT.csv")),
+                () -> TableData.read(tables.resolve("part-CT.csv")),
+                maxBirthingAge);
+    }
+
+    /**
+     * Scores the coefficients of a model involving the STAT source by their significance.
+     */
+    public static double score(List<GEE.Coefficient> coefficients) {
+
+        double v = 0;
+
+        for (GEE.Coefficient coefficient : coefficients) {
+            if (coefficient.getName().contains(STAT)) {
+
+                double p = coefficient.getPValue();
+
+                if (p < 0.001) v += 4;
+                else if (p < 0.01) v += 3;
+                else if (p < 0.05) v += 2;
+                else if (p < 0.1) v += 1.0 / 3;
+            }
+        }
+
+        return v;
+    }
+
+    private static double getV(Table death, Table ob, Table mb, Table part, int maxBirthingAge) {
+
+        double v = 0;
+
+        v += fit("death", death, GeeglmV::prepareDeath, "Date", "Age", "Sex", "Died", "Source");
+        v += fit("ob", ob, data -> prepareOB(data, maxBirthingAge), "Date", "Age", "CIY", "Source");
+        v += fit("mb", mb, data -> prepareMB(data, maxBirthingAge), "Date", "Age", "NCIY");
+        v += fit("part", part, GeeglmV::preparePart, "Date", "NPA", "Age", "Source");
+
+        int result = (int) Math.floor(v);
+        log.info("V: " + result);
+
+        return result;
+    }
+
+    private static double fit(String model, Table table, Function<TableData, Prepared> prepare, String... variables) {
+
+        try {
+            Prepared prepared = prepare.apply(table.get());
+            List<GEE.Coefficient> coefficients = GEE.fit(prepared.data, prepared.ids, variables);
+
+            StringBuilder summary = new StringBuilder(model + " model coefficients:");
+            for (GEE.Coefficient coefficient : coefficients) {
+                summary.append("\n").append(coefficient);
+            }
+            log.fine(summary.toString());
+
+            return score(coefficients);
+
+        } catch (IOException | RuntimeException e) {
+            log.warning("Could not fit " + model + " model: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static Prepared prepareDeath(TableData data) {
+
+        TableData clean = clean(data);
+
+        double earliest = min(clean, "YOB", row -> true);
+        double latestMale = max(clean, "YOB", row -> clean.getValue("Sex", row).equals("M"));
+        double latestFemale = max(clean, "YOB", row -> clean.getValue("Sex", row).equals("F"));
+
+        return withIds(clean, row -> {
+
+            boolean sim = clean.getValue("Source", row).equals("SIM");
+            boolean male = clean.getValue("Sex", row).equals("M");
+
+            double cohort = clean.getNumber("YOB", row) - earliest;
+            int code = (sim ? 2 : 0) + (male ? 1 : 0);
+
+            return cohort + code * ((male ? latestMale : latestFemale) - earliest + 1);
+
+        }, "Age", "Died");
+    }
+
+    private static Prepared prepareOB(TableData data, int maxBirthingAge) {
+
+        TableData clean = cleanBirths(data, maxBirthingAge);
+
+        double earliest = min(clean, "YOB", row -> true);
+        double latest = max(clean, "YOB", row -> true);
+
+        return withIds(clean, row -> {
+
+            // CIY is read as logical by R, so as in id-funtions.R the comparison with "true" never holds
+            boolean childrenInYear = clean.getValue("CIY", row).equals("true");
+            boolean sim = clean.getValue("Source", row).equals("SIM");
+
+            int code = (childrenInYear ? 16 : 0) + (sim ? 8 : 0) + previousChildrenCode(clean.getValue("NPCIAP", row));
+
+            return clean.getNumber("YOB", row) - earliest + code * (latest - earliest + 1);
+
+        }, "Age", "CIY");
+    }
+
+    private static Prepared prepareMB(TableData data, int maxBirthingAge) {
+
+        TableData births = cleanBirths(data, maxBirthingAge);
+        TableData clean = births.select(row -> !births.getValue("NCIY", row).equals("0"));
+
+        return withSourceIds(clean, "NCIY", "Age");
+    }
+
+    private static Prepared preparePart(TableData data) {
+
+        TableData cleaned = clean(data);
+        TableData clean = cleaned.select(row -> !cleaned.getValue("NPA", row).equals("na"));
+
+        return withSourceIds(clean, "NPA", "Age");
+    }
+
+    private static int previousChildrenCode(String previousChildren) {
+
+        switch (previousChildren) {
+            case "0": return 0;
+            case "1": return 1;
+            case "2": return 2;
+            case "3": return 3;
+            case "4": return 4;
+            case "5": return 5;
+            default: return 6;
+        }
+    }
+
+    private static TableData clean(TableData data) {
+
+        TableData frequent = data.select(row -> data.getFrequency(row) > 0.5).round();
+
+        return frequent.select(row -> {
+            double date = frequent.getNumber("Date", row);
+            return date < END_YEAR && date > START_YEAR;
+        });
+    }
+
+    private static TableData cleanBirths(TableData data, int maxBirthingAge) {
+
+        TableData clean = clean(data);
+
+        return clean.select(row -> {
+            double age = clean.getNumber("Age", row);
+            return age >= MIN_BIRTHING_AGE && age <= maxBirthingAge;
+        });
+    }
+
+    private static Prepared withSourceIds(TableData data, String... orderBy) {
+
+        double earliest = min(data, "YOB", row -> true);
+        double latest = max(data, "YOB", row -> true);
+
+        return withIds(data, row -> {
+
+            int code = data.getValue("Source", row).equals("SIM") ? 1 : 0;
+            return data.getNumber("YOB", row) - earliest + code * (latest - earliest + 1);
+
+        }, orderBy);
+    }
+
+    // Gives each row its cohort identifier and orders the rows by identifier and then the given variables. The sort
+    // is stable, so rows which tie keep their order in the table, as with R's order.
+    private static Prepared withIds(TableData data, IntToDoubleFunction id, String... orderBy) {
+
+        double[] ids = new double[data.size()];
+        for (int row = 0; row < ids.length; row++) {
+            ids[row] = id.applyAsDouble(row);
+        }
+
+        Comparator<Integer> order = Comparator.comparingDouble(row -> ids[row]);
+        for (String variable : orderBy) {
+            order = order.thenComparing(variable(data, variable));
+        }
+
+        int[] sorted = IntStream.range(0, data.size()).boxed().sorted(order).mapToInt(Integer::intValue).toArray();
+
+        double[] sortedIds = new double[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sortedIds[i] = ids[sorted[i]];
+        }
+
+        return new Prepared(data.reorder(sorted), sortedIds);
+    }
+
+    private static Comparator<Integer> variable(TableData data, String variable) {
+
+        if (data.isNumeric(variable)) {
+
+            double[] values = new double[data.size()];
+            for (int row = 0; row < values.length; row++) {
+                values[row] = data.getNumber(variable, row);
+            }
+            return Comparator.comparingDouble(row -> values[row]);
+        }
+        return Comparator.comparing(row -> data.getValue(variable, row));
+    }
+
+    private static double min(TableData data, String variable, IntPredicate include) {
+
+        double min = Double.POSITIVE_INFINITY;
+        for (int row = 0; row < data.size(); row++) {
+            if (include.test(row)) min = Math.min(min, data.getNumber(variable, row));
+        }
+        return min;
+    }
+
+    private static double max(TableData data, String variable, IntPredicate include) {
+
+        double max = Double.NEGATIVE_INFINITY;
+        for (int row = 0; row < data.size(); row++) {
+            if (include.test(row)) max = Math.max(max, data.getNumber(variable, row));
+        }
+        return max;
+    }
+
+    private interface Table {
+        TableData get() throws IOException;
+    }
+
+    private static class Prepared {
+
+        private final TableData data;
+        private final double[] ids;
+
+        Prepared(TableData data, double[] ids) {
+            this.data = data;
+            this.ids = ids;
+        }
+    }
+}
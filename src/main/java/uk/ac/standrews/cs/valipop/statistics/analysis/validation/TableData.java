@@ -0,0 +1,283 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.statistics.analysis.validation;
+
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TableStructure.CTCell;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TableStructure.CTRow;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TableStructure.CTtable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * The rows of a contingency table prepared for model fitting: a value for each variable in each row, and the frequency
+ * of the row.
+ *
+ * The type of each variable is decided from all its values as R's read.csv does: a variable whose values are all
+ * numbers is numeric, one whose values are all true or false is logical, with its values held as TRUE and FALSE, and
+ * anything else is a factor. The type is kept when rows are selected, so that the variables are treated the same as in
+ * the R analysis scripts.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class TableData {
+
+    private static final String FREQUENCY = "freq";
+    private static final Set<String> TRUE_VALUES = new HashSet<>(Arrays.asList("TRUE", "true", "True", "T"));
+    private static final Set<String> FALSE_VALUES = new HashSet<>(Arrays.asList("FALSE", "false", "False", "F"));
+
+    private final List<String> names;
+    private final String[][] values;
+    private final boolean[] numeric;
+    private final double[] frequencies;
+
+    private TableData(List<String> names, String[][] values, boolean[] numeric, double[] frequencies) {
+
+        this.names = names;
+        this.values = values;
+        this.numeric = numeric;
+        this.frequencies = frequencies;
+    }
+
+    /**
+     * Creates the data from the rows of the given table which are output to file, in the same order.
+     */
+    @SuppressWarnings("rawtypes")
+    public static TableData of(CTtable table) {
+
+        List<CTRow> rows = table.getRows();
+        List<String> names = new ArrayList<>();
+
+        if (!rows.isEmpty()) {
+            for (Object cell : rows.get(0).getCells()) {
+                names.add(((CTCell) cell).getVariable());
+            }
+        }
+
+        String[][] values = new String[names.size()][rows.size()];
+        double[] frequencies = new double[rows.size()];
+
+        for (int row = 0; row < rows.size(); row++) {
+
+            CTRow r = rows.get(row);
+
+            for (int column = 0; column < names.size(); column++) {
+                values[column][row] = r.getVariable(names.get(column)).getValue();
+            }
+            frequencies[row] = ((Number) r.getCount()).doubleValue();
+        }
+
+        return typed(names, values, frequencies);
+    }
+
+    /**
+     * Reads the data from a contingency table file, in which the last column holds the frequencies.
+     */
+    public static TableData read(Path path) throws IOException {
+
+        List<String> names;
+        List<String[]> rows = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException("No header in table " + path);
+            }
+
+            names = new ArrayList<>(Arrays.asList(header.split(",")));
+            if (!names.remove(names.size() - 1).equals(FREQUENCY)) {
+                throw new IOException("Last column of table " + path + " is not " + FREQUENCY);
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    rows.add(line.split(","));
+                }
+            }
+        }
+
+        String[][] values = new String[names.size()][rows.size()];
+        double[] frequencies = new double[rows.size()];
+
+        for (int row = 0; row < rows.size(); row++) {
+
+            String[] fields = rows.get(row);
+            if (fields.length != names.size() + 1) {
+                throw new IOException("Row " + (row + 2) + " of table " + path + " has " + fields.length + " fields");
+            }
+
+            for (int column = 0; column < names.size(); column++) {
+                values[column][row] = fields[column];
+            }
+            frequencies[row] = Double.parseDouble(fields[names.size()]);
+        }
+
+        return typed(names, values, frequencies);
+    }
+
+    public int size() {
+        return frequencies.length;
+    }
+
+    public boolean hasVariable(String name) {
+        return names.contains(name);
+    }
+
+    public boolean isNumeric(String name) {
+        return numeric[column(name)];
+    }
+
+    public String getValue(String name, int row) {
+        return values[column(name)][row];
+    }
+
+    public double getNumber(String name, int row) {
+
+        int column = column(name);
+        if (!numeric[column]) {
+            throw new IllegalArgumentException(name + " is not numeric");
+        }
+        return Double.parseDouble(values[column][row]);
+    }
+
+    public double getFrequency(int row) {
+        return frequencies[row];
+    }
+
+    /**
+     * Returns the distinct values of the given variable in sorted order, which are the levels of a factor.
+     */
+    public List<String> getLevels(String name) {
+        return new ArrayList<>(new TreeSet<>(Arrays.asList(values[column(name)])));
+    }
+
+    /**
+     * Returns the rows for which the given condition holds, in the same order.
+     */
+    public TableData select(IntPredicate condition) {
+
+        int[] selected = new int[size()];
+        int count = 0;
+
+        for (int row = 0; row < size(); row++) {
+            if (condition.test(row)) {
+                selected[count++] = row;
+            }
+        }
+
+        return select(Arrays.copyOf(selected, count), false);
+    }
+
+    /**
+     * Returns the rows in the given order.
+     */
+    public TableData reorder(int[] rows) {
+        return select(rows, false);
+    }
+
+    /**
+     * Returns the same rows with each frequency rounded to the nearest whole number, with halves rounded to even as
+     * in R.
+     */
+    public TableData round() {
+        return select(allRows(), true);
+    }
+
+    private TableData select(int[] rows, boolean round) {
+
+        String[][] selectedValues = new String[names.size()][rows.length];
+        double[] selectedFrequencies = new double[rows.length];
+
+        for (int i = 0; i < rows.length; i++) {
+
+            for (int column = 0; column < names.size(); column++) {
+                selectedValues[column][i] = values[column][rows[i]];
+            }
+
+            double frequency = frequencies[rows[i]];
+            selectedFrequencies[i] = round ? Math.rint(frequency) : frequency;
+        }
+
+        return new TableData(names, selectedValues, numeric, selectedFrequencies);
+    }
+
+    private int[] allRows() {
+
+        int[] rows = new int[size()];
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = row;
+        }
+        return rows;
+    }
+
+    private int column(String name) {
+
+        int column = names.indexOf(name);
+        if (column < 0) {
+            throw new IllegalArgumentException("No variable " + name + " in table");
+        }
+        return column;
+    }
+
+    private static TableData typed(List<String> names, String[][] values, double[] frequencies) {
+
+        boolean[] numeric = new boolean[names.size()];
+
+        for (int column = 0; column < names.size(); column++) {
+
+            if (allNumbers(values[column])) {
+                numeric[column] = true;
+
+            } else if (allLogical(values[column])) {
+
+                for (int row = 0; row < values[column].length; row++) {
+                    values[column][row] = TRUE_VALUES.contains(values[column][row]) ? "TRUE" : "FALSE";
+                }
+            }
+        }
+
+        return new TableData(names, values, numeric, frequencies);
+    }
+
+    private static boolean allNumbers(String[] column) {
+
+        for (String value : column) {
+            try {
+                Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean allLogical(String[] column) {
+
+        for (String value : column) {
+            if (!TRUE_VALUES.contains(value) && !FALSE_VALUES.contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.statistics.analysis.validation;
+
+/**
+ * How the V value measuring the difference between the simulated and desired populations is calculated from the
+ * contingency tables.
+ *
+ * RSCRIPT fits the models with geepack by running the bundled R analysis scripts on the tables written to the run
+ * directory. JAVA fits the same models in process with {@link GeeglmV}, without needing R.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public enum ValidationBackend {
+
+    RSCRIPT,
+    JAVA
+}
@@ -2,7 +2,7 @@ package uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTab
 
 import uk.ac.standrews.cs.valipop.Config;
 import uk.ac.standrews.cs.valipop.implementations.MemoryUsageAnalysis;
-import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+import uk.ac.standrews.cs.valipop.statistics.analysis.PersonYearTable;
 import uk.ac.standrews.cs.valipop.statistics.analysis.simulationSummaryLogging.SummaryRow;
 import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TableInstances.*;
 import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TableStructure.CTtable;
@@ -23,48 +23,50 @@ public class ContingencyTableFactory {
 
     public static final Logger log = Logger.getLogger(ContingencyTableFactory.class.getName());
 
-    public static void generateContingencyTables(Iterable<IPerson> population, PopulationStatistics desired,
-                                                 Config config, SummaryRow summary)  {
+    public static ContingencyTables generateContingencyTables(PersonYearTable population, PopulationStatistics desired,
+                                                              Config config, SummaryRow summary, MemoryUsageAnalysis memoryUsage)  {
 
         ProgramTimer tableTimer = new ProgramTimer();
 
         // TODO revert back to T0?
-        CTtree fullTree = new CTtree(population, desired, config.getTS(), config.getT0(), config.getTE(), config.getCtTreeStepback(), config.getCtTreePrecision());
+        CTtree fullTree = new CTtree(population, desired, config.getTS(), config.getT0(), config.getTE(), config.getCtTreeStepback(), config.getCtTreePrecision(), config.getSimulationThreads());
 
-        MemoryUsageAnalysis.log();
+        memoryUsage.log();
 
         try {
             log.info("OBDModel --- Extracting and Outputting CTtables to files");
 
             CTtableOB obTable = new CTtableOB(fullTree);
-            outputToFile(obTable, "ob-CT.csv", config);
+            outputToFile(obTable, "ob-CT.csv", config, memoryUsage);
 
             CTtableMB mbTable = new CTtableMB(fullTree);
-            outputToFile(mbTable, "mb-CT.csv", config);
+            outputToFile(mbTable, "mb-CT.csv", config, memoryUsage);
 
             CTtablePart partTable = new CTtablePart(fullTree);
-            outputToFile(partTable, "part-CT.csv", config);
+            outputToFile(partTable, "part-CT.csv", config, memoryUsage);
 
             CTtableSep sepTable = new CTtableSep(fullTree);
-            outputToFile(sepTable, "sep-CT.csv", config);
+            outputToFile(sepTable, "sep-CT.csv", config, memoryUsage);
 
             CTtableDeath deathTable = new CTtableDeath(fullTree);
-            outputToFile(deathTable, "death-CT.csv", config);
+            outputToFile(deathTable, "death-CT.csv", config, memoryUsage);
+
+            summary.setCTRunTime(tableTimer.getRunTimeSeconds());
+
+            return new ContingencyTables(obTable, mbTable, partTable, sepTable, deathTable);
 
         } catch (IOException | NoTableRowsException e) {
             throw new RuntimeException(e);
         }
-
-        summary.setCTRunTime(tableTimer.getRunTimeSeconds());
     }
 
-    private static void outputToFile(CTtable table, String fileName, Config config) throws IOException, NoTableRowsException {
+    private static void outputToFile(CTtable table, String fileName, Config config, MemoryUsageAnalysis memoryUsage) throws IOException, NoTableRowsException {
 
-        MemoryUsageAnalysis.log();
+        memoryUsage.log();
         Path path = config.getContingencyTablesPath().resolve( fileName);
         Config.mkBlankFile(path);
         PrintStream ps = new PrintStream(path.toFile(), "UTF-8");
         table.outputToFile(ps);
-        MemoryUsageAnalysis.log();
+        memoryUsage.log();
     }
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables;
+
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TableInstances.*;
+
+/**
+ * The contingency tables generated for a simulated population, which are kept so that the validation models can be
+ * fitted to them without reading them back from file.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class ContingencyTables {
+
+    private final CTtableOB obTable;
+    private final CTtableMB mbTable;
+    private final CTtablePart partTable;
+    private final CTtableSep sepTable;
+    private final CTtableDeath deathTable;
+
+    public ContingencyTables(CTtableOB obTable, CTtableMB mbTable, CTtablePart partTable, CTtableSep sepTable, CTtableDeath deathTable) {
+
+        this.obTable = obTable;
+        this.mbTable = mbTable;
+        this.partTable = partTable;
+        this.sepTable = sepTable;
+        this.deathTable = deathTable;
+    }
+
+    public CTtableOB getOBTable() {
+        return obTable;
+    }
+
+    public CTtableMB getMBTable() {
+        return mbTable;
+    }
+
+    public CTtablePart getPartTable() {
+        return partTable;
+    }
+
+    public CTtableSep getSepTable() {
+        return sepTable;
+    }
+
+    public CTtableDeath getDeathTable() {
+        return deathTable;
+    }
+}
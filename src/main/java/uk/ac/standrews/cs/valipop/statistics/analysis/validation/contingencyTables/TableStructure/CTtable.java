@@ -71,6 +71,23 @@ public abstract class CTtable {
         ps.close();
     }
 
+    /**
+     * Returns the rows of the table which are output to file, in the order they are written.
+     */
+    @SuppressWarnings("rawtypes")
+    public List<CTRow> getRows() {
+
+        List<CTRow> rows = new ArrayList<>();
+
+        for (CTRow row : table.values()) {
+            if (row.countGreaterThan(0.0001)) {
+                rows.add(row);
+            }
+        }
+
+        return rows;
+    }
+
     @SuppressWarnings("rawtypes")
     private String getVarNames() throws NoTableRowsException {
 
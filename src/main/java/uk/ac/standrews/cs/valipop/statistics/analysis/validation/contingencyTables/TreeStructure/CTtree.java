@@ -17,7 +17,7 @@
 package uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure;
 
 import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
-import uk.ac.standrews.cs.valipop.simulationEntities.PopulationNavigation;
+import uk.ac.standrews.cs.valipop.statistics.analysis.PersonYearTable;
 import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.DoubleNodes.*;
 import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.IntNodes.SourceNodeInt;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.PopulationStatistics;
@@ -27,6 +27,12 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 /**
@@ -53,6 +59,14 @@ public class CTtree extends Node<String, SourceType, Number, Number> {
     private SourceNodeDouble statNode = null;
 
     public CTtree(Iterable<IPerson> population, PopulationStatistics expected, LocalDate startDate, LocalDate zeroDate, LocalDate endDate, int startStepBack, double precision) {
+        this(new PersonYearTable(population), expected, startDate, zeroDate, endDate, startStepBack, precision, 1);
+    }
+
+    /**
+     * Builds the tree, counting the observed population with the given number of threads. The expected side of the
+     * tree is always built on one thread, as its counts are drawn in turn from the shared input distributions.
+     */
+    public CTtree(PersonYearTable population, PopulationStatistics expected, LocalDate startDate, LocalDate zeroDate, LocalDate endDate, int startStepBack, double precision, int threads) {
 
         CTtree.NODE_MIN_COUNT = precision;
         this.expected = expected;
@@ -63,25 +77,7 @@ public class CTtree extends Node<String, SourceType, Number, Number> {
 
         log.info("CTree --- Populating tree with observed population");
 
-        for (LocalDate y = startDate; y.isBefore(endDate.minus(1, ChronoUnit.YEARS)); y = y.plus(1, ChronoUnit.YEARS)) {
-
-            LocalDate prevDay = LocalDate.of(y.getYear() - 1, 12, 31);
-
-            // for every person in population
-            for (IPerson person : population) {
-
-                if (prevY.getYear() == y.getYear() && PopulationNavigation.aliveOnDate(person, prevDay) && PopulationNavigation.presentOnDate(person, prevDay)) {
-
-                    processPerson(person, y, SourceType.STAT);
-                    processPerson(person, y, SourceType.SIM);
-                }
-
-                if (prevY.getYear() < y.getYear() && PopulationNavigation.aliveOnDate(person, prevDay) && PopulationNavigation.presentOnDate(person, prevDay)) {
-
-                    processPerson(person, y, SourceType.SIM);
-                }
-            }
-        }
+        populate(population, prevY, endDate, threads);
 
         executeDelayedTasks();
 
@@ -166,6 +162,90 @@ public class CTtree extends Node<String, SourceType, Number, Number> {
         }
     }
 
+    // The observed population is counted in every year from the step back year onwards, and the expected population
+    // is seeded from those present in the step back year. A person is counted in a year if they were present at the
+    // end of the previous year.
+    private void populate(PersonYearTable population, LocalDate prevY, LocalDate endDate, int threads) {
+
+        List<LocalDate> simYears = new ArrayList<>();
+
+        for (LocalDate y = startDate; y.isBefore(endDate.minus(1, ChronoUnit.YEARS)); y = y.plus(1, ChronoUnit.YEARS)) {
+
+            if (prevY.getYear() == y.getYear()) {
+                for (int row = 0; row < population.getNumberOfPeople(); row++) {
+                    if (population.isPresentIn(row, y.getYear())) {
+                        processPerson(population.getPerson(row), y, SourceType.STAT);
+                    }
+                }
+            }
+
+            if (prevY.getYear() <= y.getYear()) {
+                simYears.add(y);
+            }
+        }
+
+        if (simYears.isEmpty()) {
+            return;
+        }
+
+        if (threads <= 1) {
+            simNode = countObserved(population, 0, population.getNumberOfPeople(), simYears);
+            return;
+        }
+
+        // The population is split into contiguous parts, each of which is counted into its own tree on a separate
+        // thread, with more parts than threads so that a thread finishing early can take another. As the children of
+        // each node are kept in order of their options, summing the counts of these trees gives the same tree as
+        // counting the whole population on one thread.
+        int numberOfParts = threads * 4;
+        List<Callable<SourceNodeInt>> parts = new ArrayList<>();
+
+        for (int part = 0; part < numberOfParts; part++) {
+
+            int fromRow = (int) ((long) population.getNumberOfPeople() * part / numberOfParts);
+            int toRow = (int) ((long) population.getNumberOfPeople() * (part + 1) / numberOfParts);
+
+            parts.add(() -> countObserved(population, fromRow, toRow, simYears));
+        }
+
+        simNode = new SourceNodeInt(SourceType.SIM, this);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        try {
+            for (Future<SourceNodeInt> part : pool.invokeAll(parts)) {
+                simNode.addCounts(part.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private SourceNodeInt countObserved(PersonYearTable population, int fromRow, int toRow, List<LocalDate> simYears) {
+
+        SourceNodeInt node = new SourceNodeInt(SourceType.SIM, this);
+
+        int firstSimYear = simYears.get(0).getYear();
+        int lastSimYear = simYears.get(simYears.size() - 1).getYear();
+
+        for (int row = fromRow; row < toRow; row++) {
+
+            IPerson person = population.getPerson(row);
+
+            int lastYear = Math.min(lastSimYear, population.getLastPresentYear(row));
+
+            for (int year = Math.max(firstSimYear, population.getFirstPresentYear(row)); year <= lastYear; year++) {
+                node.processPerson(person, simYears.get(year - firstSimYear));
+            }
+        }
+
+        return node;
+    }
+
     private void executeDelayedTasks() {
 
         log.info("CTree --- Initialising tree - death nodes from seed");
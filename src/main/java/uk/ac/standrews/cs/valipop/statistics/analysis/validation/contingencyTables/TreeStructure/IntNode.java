@@ -68,5 +68,21 @@ public abstract class IntNode<Op extends Comparable<Op>, cOp extends Comparable<
         return addChild(childOption, 0);
     }
 
+    /**
+     * Adds the counts of the given node, and of all its descendants, to this node and the corresponding descendants of
+     * this node, creating any which do not yet exist.
+     *
+     * @param other a node with the same option as this node, from a tree built separately
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void addCounts(IntNode<Op, cOp> other) {
+
+        incCount(other.getCount());
+
+        for (Node<cOp, ?, Integer, ?> otherChild : other.getChildren()) {
+            ((IntNode) addChild(otherChild.getOption(), 0)).addCounts((IntNode) otherChild);
+        }
+    }
+
     public abstract Node<cOp, ?, Integer, ?> makeChildInstance(cOp childOption, Integer initCount);
 }
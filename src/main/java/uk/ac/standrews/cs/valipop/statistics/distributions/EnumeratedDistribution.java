@@ -27,7 +27,7 @@ import java.util.*;
  * @author Alan Dearle (alan.dearle@st-andrews.ac.uk)
  * @author Graham Kirby (graham.kirby@st-andrews.ac.uk)
  */
-public class EnumeratedDistribution implements Distribution<String> {
+public class EnumeratedDistribution implements Distribution<String>, Serializable {
 
     private static final Double ALLOWABLE_TOTAL_WEIGHT_DISCREPANCY = 0.001;
     private static final Comparator<? super StringWithCumulativeProbability> ITEM_COMPARATOR = new ItemComparator();
@@ -52,6 +52,29 @@ public class EnumeratedDistribution implements Distribution<String> {
         configureProbabilities(item_probabilities);
     }
 
+    /**
+     * Creates a distribution over the same items as the given one, which draws from the given random generator.
+     *
+     * @param original the distribution whose items are shared
+     * @param random   the random generator used by {@link #getSample()}
+     */
+    protected EnumeratedDistribution(final EnumeratedDistribution original, final RandomGenerator random) {
+
+        this(random);
+        items = original.items;
+    }
+
+    /**
+     * Returns a distribution over the same items as this one, which draws from the given random generator.
+     *
+     * @param random the random generator used by {@link #getSample()}
+     * @return the copy
+     */
+    public EnumeratedDistribution copy(final RandomGenerator random) {
+
+        return new EnumeratedDistribution(this, random);
+    }
+
     private void configureProbabilities(final Map<String, Double> item_probabilities) throws InconsistentWeightException {
 
         List<StringWithCumulativeProbability> items_temp = new ArrayList<>();
@@ -75,6 +98,17 @@ public class EnumeratedDistribution implements Distribution<String> {
     @Override
     public String getSample() {
 
+        return getSample(random);
+    }
+
+    /**
+     * Samples the distribution using the given random generator in place of the one it was created with.
+     *
+     * @param random the random generator to draw from
+     * @return the sampled string
+     */
+    public String getSample(final RandomGenerator random) {
+
         final Double dice_throw = random.nextDouble();
 
         int sample_index = Arrays.binarySearch(items, new StringWithCumulativeProbability("", dice_throw), ITEM_COMPARATOR);
@@ -16,10 +16,12 @@
  */
 package uk.ac.standrews.cs.valipop.statistics.distributions;
 
+import java.io.Serializable;
+
 /**
  * Provides the functionality of a string with associated cumulative probability.
  */
-public class StringWithCumulativeProbability {
+public class StringWithCumulativeProbability implements Serializable {
 
     private final String item;
     private final Double cumulative_probability;
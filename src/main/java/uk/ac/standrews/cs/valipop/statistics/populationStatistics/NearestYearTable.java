@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.statistics.populationStatistics;
+
+import java.io.Serializable;
+import java.time.Year;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * A read only view of a year keyed table which answers lookups with the entry for the nearest year held in the table.
+ * The nearest entry for every year between the first and last table years is resolved once on construction into an
+ * array indexed by year, so a lookup is an array access rather than a pair of tree searches. Years before the first
+ * table year resolve to the first entry and years after the last resolve to the last entry. Where a year is equally
+ * distant from two table years the later table year is used.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class NearestYearTable<V> implements Serializable {
+
+    private final int firstYear;
+    private final Object[] entriesByYear;
+
+    public NearestYearTable(final TreeMap<Year, V> table) {
+
+        if (table == null || table.isEmpty()) {
+            firstYear = 0;
+            entriesByYear = new Object[0];
+            return;
+        }
+
+        firstYear = table.firstKey().getValue();
+        entriesByYear = new Object[table.lastKey().getValue() - firstYear + 1];
+
+        Map.Entry<Year, V> floor = null;
+
+        for (final Map.Entry<Year, V> ceiling : table.entrySet()) {
+
+            final int ceilingYear = ceiling.getKey().getValue();
+
+            if (floor == null) {
+                entriesByYear[ceilingYear - firstYear] = ceiling.getValue();
+
+            } else {
+                final int floorYear = floor.getKey().getValue();
+
+                for (int year = floorYear + 1; year <= ceilingYear; year++) {
+                    entriesByYear[year - firstYear] = ceilingYear - year > year - floorYear ? floor.getValue() : ceiling.getValue();
+                }
+            }
+
+            floor = ceiling;
+        }
+    }
+
+    private NearestYearTable(final int firstYear, final Object[] entriesByYear) {
+
+        this.firstYear = firstYear;
+        this.entriesByYear = entriesByYear;
+    }
+
+    /**
+     * Returns a table for the same years as this one, holding the result of the given function for each entry. The
+     * function is applied once to each distinct entry, so entries which this table shares between years are shared
+     * by the new table too.
+     *
+     * @param copy the function giving the new entry for each entry of this table
+     * @param <W> the type of the new entries
+     * @return the new table
+     */
+    @SuppressWarnings("unchecked")
+    public <W> NearestYearTable<W> copy(final Function<? super V, ? extends W> copy) {
+
+        final Map<Object, Object> copies = new IdentityHashMap<>();
+        final Object[] copiedEntries = new Object[entriesByYear.length];
+
+        for (int i = 0; i < entriesByYear.length; i++) {
+            if (entriesByYear[i] != null) {
+                copiedEntries[i] = copies.computeIfAbsent(entriesByYear[i], entry -> copy.apply((V) entry));
+            }
+        }
+
+        return new NearestYearTable<>(firstYear, copiedEntries);
+    }
+
+    public V get(final Year year) {
+
+        return get(year.getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(final int year) {
+
+        if (entriesByYear.length == 0) {
+            return null;
+        }
+
+        final int index = Math.min(Math.max(year - firstYear, 0), entriesByYear.length - 1);
+
+        return (V) entriesByYear[index];
+    }
+}
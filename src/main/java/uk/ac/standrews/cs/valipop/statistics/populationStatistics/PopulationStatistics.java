@@ -16,7 +16,6 @@
  */
 package uk.ac.standrews.cs.valipop.statistics.populationStatistics;
 
-import org.apache.commons.math3.random.JDKRandomGenerator;
 import org.apache.commons.math3.random.RandomGenerator;
 import uk.ac.standrews.cs.valipop.Config;
 import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
@@ -31,9 +30,11 @@ import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsTables.da
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsTables.dataDistributions.selfCorrecting.SelfCorrectingTwoDimensionDataDistribution;
 import uk.ac.standrews.cs.valipop.utils.InputFileReader;
 import uk.ac.standrews.cs.valipop.utils.InvalidInputFileException;
+import uk.ac.standrews.cs.valipop.utils.RandomStreams;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.IntegerRange;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Path;
 import java.time.Period;
@@ -47,56 +48,126 @@ import java.util.logging.Logger;
  *
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class PopulationStatistics implements EventRateTables {
+public class PopulationStatistics implements EventRateTables, Serializable {
 
-    private TreeMap<Year, SelfCorrectingOneDimensionDataDistribution> maleDeath;
-    private TreeMap<Year, SelfCorrectingOneDimensionDataDistribution> femaleDeath;
-    private TreeMap<Year, SelfCorrecting2DIntegerRangeProportionalDistribution> partnering;
-    private TreeMap<Year, SelfCorrectingTwoDimensionDataDistribution> orderedBirth;
-    private TreeMap<Year, SelfCorrectingProportionalDistribution<IntegerRange, Integer, Integer>> multipleBirth;
-    private TreeMap<Year, SelfCorrectingOneDimensionDataDistribution> adulterousBirth;
-    private TreeMap<Year, SelfCorrectingOneDimensionDataDistribution> marriage;
-    private TreeMap<Year, SelfCorrectingTwoDimensionDataDistribution> separation;
+    private NearestYearTable<SelfCorrectingOneDimensionDataDistribution> maleDeath;
+    private NearestYearTable<SelfCorrectingOneDimensionDataDistribution> femaleDeath;
+    private NearestYearTable<SelfCorrecting2DIntegerRangeProportionalDistribution> partnering;
+    private NearestYearTable<SelfCorrectingTwoDimensionDataDistribution> orderedBirth;
+    private NearestYearTable<SelfCorrectingProportionalDistribution<IntegerRange, Integer, Integer>> multipleBirth;
+    private NearestYearTable<SelfCorrectingOneDimensionDataDistribution> adulterousBirth;
+    private NearestYearTable<SelfCorrectingOneDimensionDataDistribution> marriage;
+    private NearestYearTable<SelfCorrectingTwoDimensionDataDistribution> separation;
 
-    private TreeMap<Year, Double> sexRatioBirth;
+    private NearestYearTable<Double> sexRatioBirth;
 
-    private TreeMap<Year, ValiPopEnumeratedDistribution> maleForenames;
-    private TreeMap<Year, ValiPopEnumeratedDistribution> femaleForenames;
-    private TreeMap<Year, ValiPopEnumeratedDistribution> surnames;
+    private NearestYearTable<ValiPopEnumeratedDistribution> maleForenames;
+    private NearestYearTable<ValiPopEnumeratedDistribution> femaleForenames;
+    private NearestYearTable<ValiPopEnumeratedDistribution> surnames;
 
-    private TreeMap<Year, ValiPopEnumeratedDistribution> migrantMaleForenames;
-    private TreeMap<Year, ValiPopEnumeratedDistribution> migrantFemaleForenames;
-    private TreeMap<Year, ValiPopEnumeratedDistribution> migrantSurnames;
-    private TreeMap<Year, SelfCorrectingOneDimensionDataDistribution> migrationRate;
+    private NearestYearTable<ValiPopEnumeratedDistribution> migrantMaleForenames;
+    private NearestYearTable<ValiPopEnumeratedDistribution> migrantFemaleForenames;
+    private NearestYearTable<ValiPopEnumeratedDistribution> migrantSurnames;
+    private NearestYearTable<SelfCorrectingOneDimensionDataDistribution> migrationRate;
 
-    private TreeMap<Year, AgeDependantEnumeratedDistribution> maleDeathCauses;
-    private TreeMap<Year, AgeDependantEnumeratedDistribution> femaleDeathCauses;
+    private NearestYearTable<AgeDependantEnumeratedDistribution> maleDeathCauses;
+    private NearestYearTable<AgeDependantEnumeratedDistribution> femaleDeathCauses;
 
     private Period minGestationPeriod;
     private Period minBirthSpacing;
     private RandomGenerator randomGenerator;
+    private RandomStreams randomStreams;
 
     @SuppressWarnings("unused")
     private static Logger log = Logger.getLogger(PopulationStatistics.class.getName());
 
-    private TreeMap<Year, AgeDependantEnumeratedDistribution> maleOccupation;
-    private TreeMap<Year, AgeDependantEnumeratedDistribution> femaleOccupation;
+    private NearestYearTable<AgeDependantEnumeratedDistribution> maleOccupation;
+    private NearestYearTable<AgeDependantEnumeratedDistribution> femaleOccupation;
 
-    private TreeMap<Year, SelfCorrecting2DEnumeratedProportionalDistribution> maleOccupationChange;
-    private TreeMap<Year, SelfCorrecting2DEnumeratedProportionalDistribution> femaleOccupationChange;
+    private NearestYearTable<SelfCorrecting2DEnumeratedProportionalDistribution> maleOccupationChange;
+    private NearestYearTable<SelfCorrecting2DEnumeratedProportionalDistribution> femaleOccupationChange;
 
     public PopulationStatistics(Config config) {
 
-        try {
-            randomGenerator = new JDKRandomGenerator();
+        setUpRandomStreams(config);
+        readInputFiles(config);
+    }
 
-            if (!config.deterministic()) {
-                // sets a seed based on time so that such can be logged for recreation of simulation
-                config.setSeed((int) System.nanoTime());
-            }
+    /**
+     * Creates statistics holding the same input distributions as the given statistics, which must have been read in
+     * for a config differing from the given one only in the factors, seed and population size. The tables of the
+     * distributions are shared, but the corrections made so far are not and the distributions draw from the random
+     * streams for the given config, so the statistics behave exactly as if the input files had been read in again.
+     *
+     * @param loaded the statistics whose input distributions are shared
+     * @param config the config for the simulation the statistics are used by
+     */
+    public PopulationStatistics(PopulationStatistics loaded, Config config) {
+
+        setUpRandomStreams(config);
+
+        maleDeath = loaded.maleDeath.copy(d -> d.copy(randomGenerator));
+        maleDeathCauses = loaded.maleDeathCauses.copy(d -> d.copy(randomGenerator));
+        femaleDeath = loaded.femaleDeath.copy(d -> d.copy(randomGenerator));
+        femaleDeathCauses = loaded.femaleDeathCauses.copy(d -> d.copy(randomGenerator));
+        partnering = loaded.partnering.copy(d -> d.copy(randomGenerator));
+        orderedBirth = loaded.orderedBirth.copy(d -> d.copy(randomGenerator));
+        multipleBirth = loaded.multipleBirth.copy(d -> d.copy(randomGenerator));
+        adulterousBirth = loaded.adulterousBirth.copy(d -> d.copy(randomGenerator));
+        marriage = loaded.marriage.copy(d -> d.copy(randomGenerator));
+        separation = loaded.separation.copy(d -> d.copy(randomGenerator));
+        sexRatioBirth = loaded.sexRatioBirth;
+
+        maleForenames = loaded.maleForenames.copy(d -> d.copy(randomGenerator));
+        femaleForenames = loaded.femaleForenames.copy(d -> d.copy(randomGenerator));
+        surnames = loaded.surnames.copy(d -> d.copy(randomGenerator));
+
+        migrantMaleForenames = loaded.migrantMaleForenames.copy(d -> d.copy(randomGenerator));
+        migrantFemaleForenames = loaded.migrantFemaleForenames.copy(d -> d.copy(randomGenerator));
+        migrantSurnames = loaded.migrantSurnames.copy(d -> d.copy(randomGenerator));
+
+        migrationRate = loaded.migrationRate.copy(d -> d.copy(randomGenerator));
+
+        minBirthSpacing = config.getMinBirthSpacing();
+        minGestationPeriod = config.getMinGestationPeriod();
+
+        maleOccupation = loaded.maleOccupation.copy(d -> d.copy(randomGenerator));
+        femaleOccupation = loaded.femaleOccupation.copy(d -> d.copy(randomGenerator));
+
+        maleOccupationChange = loaded.maleOccupationChange.copy(d -> d.copy(randomGenerator));
+        femaleOccupationChange = loaded.femaleOccupationChange.copy(d -> d.copy(randomGenerator));
+    }
+
+    private void setUpRandomStreams(Config config) {
+
+        if (!config.deterministic()) {
+            // sets a seed based on time so that such can be logged for recreation of simulation
+            config.setSeed((int) System.nanoTime());
+        }
+
+        randomStreams = new RandomStreams(config.getSeed(), config.getSplitRandomStreams());
+        randomGenerator = randomStreams.forSubsystem(RandomStreams.STATISTICS);
+    }
+
+    /**
+     * Reads in the input distributions for the given config, without seeding random streams from it. The statistics
+     * returned are not used to simulate but are copied for each simulation by
+     * {@link #PopulationStatistics(PopulationStatistics, Config)}.
+     *
+     * @param config the config giving the input files
+     * @return the statistics read in
+     */
+    public static PopulationStatistics readIn(Config config) {
 
-            randomGenerator.setSeed(config.getSeed());
+        PopulationStatistics statistics = new PopulationStatistics(new RandomStreams(config.getSeed(), false).forSubsystem(RandomStreams.STATISTICS));
+        statistics.readInputFiles(config);
+
+        return statistics;
+    }
 
+    private void readInputFiles(Config config) {
+
+        try {
             TreeMap<Year, SelfCorrectingOneDimensionDataDistribution> maleDeath = readInSC1DDataFiles(config.getVarMaleLifetablePaths(), config);
             TreeMap<Year, AgeDependantEnumeratedDistribution> maleDeathCauses = readInAgeDependantEnumeratedDistributionDataFiles(config.getVarMaleDeathCausesPaths(), config);
             TreeMap<Year, SelfCorrectingOneDimensionDataDistribution> femaleDeath = readInSC1DDataFiles(config.getVarFemaleLifetablePaths(), config);
@@ -135,6 +206,7 @@ public class PopulationStatistics implements EventRateTables {
 
     public PopulationStatistics(RandomGenerator randomGenerator) {
         this.randomGenerator = randomGenerator;
+        randomStreams = new RandomStreams(randomGenerator);
     }
 
     public PopulationStatistics(TreeMap<Year, SelfCorrectingOneDimensionDataDistribution> maleDeath,
@@ -164,6 +236,7 @@ public class PopulationStatistics implements EventRateTables {
                                 RandomGenerator randomGenerator) {
 
         this.randomGenerator = randomGenerator;
+        randomStreams = new RandomStreams(randomGenerator);
         init(maleDeath, maleDeathCauses, femaleDeath, femaleDeathCauses, partnering, orderedBirth, multipleBirth,
                 adulterousBirth, marriage, separation, sexRatioBirths, maleForenames, femaleForenames, surnames,
                 migrantMaleForename, migrantFemaleForename, migrantSurname, migrationRate, maleOccupation, femaleOccupation,
@@ -180,36 +253,36 @@ public class PopulationStatistics implements EventRateTables {
                       TreeMap<Year, SelfCorrecting2DEnumeratedProportionalDistribution> maleOccupationChange, TreeMap<Year, SelfCorrecting2DEnumeratedProportionalDistribution> femaleOccupationChange,
                       Period minBirthSpacing, Period minGestationPeriod) {
 
-        this.maleDeath = maleDeath;
-        this.maleDeathCauses = maleDeathCauses;
-        this.femaleDeath = femaleDeath;
-        this.femaleDeathCauses = femaleDeathCauses;
-        this.partnering = partnering;
-        this.orderedBirth = orderedBirth;
-        this.multipleBirth = multipleBirth;
-        this.adulterousBirth = adulterousBirth;
-        this.marriage = marriage;
-        this.separation = separation;
-        this.sexRatioBirth = sexRatioBirths;
+        this.maleDeath = new NearestYearTable<>(maleDeath);
+        this.maleDeathCauses = new NearestYearTable<>(maleDeathCauses);
+        this.femaleDeath = new NearestYearTable<>(femaleDeath);
+        this.femaleDeathCauses = new NearestYearTable<>(femaleDeathCauses);
+        this.partnering = new NearestYearTable<>(partnering);
+        this.orderedBirth = new NearestYearTable<>(orderedBirth);
+        this.multipleBirth = new NearestYearTable<>(multipleBirth);
+        this.adulterousBirth = new NearestYearTable<>(adulterousBirth);
+        this.marriage = new NearestYearTable<>(marriage);
+        this.separation = new NearestYearTable<>(separation);
+        this.sexRatioBirth = new NearestYearTable<>(sexRatioBirths);
 
-        this.maleForenames = maleForename;
-        this.femaleForenames = femaleForename;
-        this.surnames = surname;
+        this.maleForenames = new NearestYearTable<>(maleForename);
+        this.femaleForenames = new NearestYearTable<>(femaleForename);
+        this.surnames = new NearestYearTable<>(surname);
 
-        this.migrantMaleForenames = migrantMaleForenames;
-        this.migrantFemaleForenames = migrantFemaleForenames;
-        this.migrantSurnames = migrantSurname;
+        this.migrantMaleForenames = new NearestYearTable<>(migrantMaleForenames);
+        this.migrantFemaleForenames = new NearestYearTable<>(migrantFemaleForenames);
+        this.migrantSurnames = new NearestYearTable<>(migrantSurname);
 
-        this.migrationRate = migrationRate;
+        this.migrationRate = new NearestYearTable<>(migrationRate);
 
         this.minBirthSpacing = minBirthSpacing;
         this.minGestationPeriod = minGestationPeriod;
 
-        this.maleOccupation = maleOccupation;
-        this.femaleOccupation = femaleOccupation;
+        this.maleOccupation = new NearestYearTable<>(maleOccupation);
+        this.femaleOccupation = new NearestYearTable<>(femaleOccupation);
 
-        this.maleOccupationChange = maleOccupationChange;
-        this.femaleOccupationChange = femaleOccupationChange;
+        this.maleOccupationChange = new NearestYearTable<>(maleOccupationChange);
+        this.femaleOccupationChange = new NearestYearTable<>(femaleOccupationChange);
     }
 
     /*
@@ -315,13 +388,65 @@ public class PopulationStatistics implements EventRateTables {
         throw new Error("Key based access not implemented for key class: " + achievedCount.getKey().getClass().toGenericString());
     }
 
+    /*
+    -------------------- Key free access to single valued counts --------------------
+
+    These give the same counts as getDeterminedCount and returnAchievedCount with the equivalent stats key, but take the
+    values of the key directly so that neither a key nor a determined count is created. Counts are returned as the
+    determined number and achieved counts by giving the same values along with the fulfilled number.
+     */
+
+    public int determineDeathCount(int year, SexOption sex, int age, double forNPeople, Period timePeriod, Config config) {
+        return getDeathRates(year, sex).determineCount(age, forNPeople, timePeriod, config);
+    }
+
+    public void returnAchievedDeathCount(int year, SexOption sex, int age, double forNPeople, Period timePeriod, int fulfilledCount) {
+        getDeathRates(year, sex).returnAchievedCount(age, forNPeople, timePeriod, fulfilledCount);
+    }
+
+    public int determineBirthCount(int year, int age, int order, double forNPeople, Period timePeriod, Config config) {
+        return orderedBirth.get(year).determineCount(age, order, forNPeople, timePeriod, config);
+    }
+
+    public void returnAchievedBirthCount(int year, int age, int order, double forNPeople, Period timePeriod, int determinedCount, int fulfilledCount) {
+        orderedBirth.get(year).returnAchievedCount(age, order, forNPeople, timePeriod, determinedCount, fulfilledCount);
+    }
+
+    public int determineAdulterousBirthCount(int year, int age, double forNPeople, Period timePeriod, Config config) {
+        return adulterousBirth.get(year).determineCount(age, forNPeople, timePeriod, config);
+    }
+
+    public void returnAchievedAdulterousBirthCount(int year, int age, double forNPeople, Period timePeriod, int fulfilledCount) {
+        adulterousBirth.get(year).returnAchievedCount(age, forNPeople, timePeriod, fulfilledCount);
+    }
+
+    public int determineMarriageCount(int year, int age, double forNPeople, Period timePeriod, Config config) {
+        return marriage.get(year).determineCount(age, forNPeople, timePeriod, config);
+    }
+
+    public void returnAchievedMarriageCount(int year, int age, double forNPeople, Period timePeriod, int fulfilledCount) {
+        marriage.get(year).returnAchievedCount(age, forNPeople, timePeriod, fulfilledCount);
+    }
+
+    public int determineSeparationCount(int year, int numberOfChildren, int mothersAge, double forNPeople, Period timePeriod, Config config) {
+        return separation.get(year).determineCount(mothersAge, numberOfChildren, forNPeople, timePeriod, config);
+    }
+
+    public void returnAchievedSeparationCount(int year, int numberOfChildren, int mothersAge, double forNPeople, Period timePeriod, int determinedCount, int fulfilledCount) {
+        separation.get(year).returnAchievedCount(mothersAge, numberOfChildren, forNPeople, timePeriod, determinedCount, fulfilledCount);
+    }
+
+    private SelfCorrectingOneDimensionDataDistribution getDeathRates(int year, SexOption sex) {
+        return sex == SexOption.MALE ? maleDeath.get(year) : femaleDeath.get(year);
+    }
+
     @Override
     public SelfCorrectingOneDimensionDataDistribution getDeathRates(Year year, SexOption sex) {
 
         if (sex == SexOption.MALE) {
-            return maleDeath.get(getNearestYearInMap(year, maleDeath));
+            return maleDeath.get(year);
         } else {
-            return femaleDeath.get(getNearestYearInMap(year, femaleDeath));
+            return femaleDeath.get(year);
         }
     }
 
@@ -329,59 +454,59 @@ public class PopulationStatistics implements EventRateTables {
     public EnumeratedDistribution getDeathCauseRates(Year year, SexOption sex, int age) {
 
         if (sex == SexOption.MALE) {
-            return maleDeathCauses.get(getNearestYearInMap(year, maleDeathCauses)).getDistributionForAge(age);
+            return maleDeathCauses.get(year).getDistributionForAge(age);
         } else {
-            return femaleDeathCauses.get(getNearestYearInMap(year, femaleDeathCauses)).getDistributionForAge(age);
+            return femaleDeathCauses.get(year).getDistributionForAge(age);
         }
     }
 
     @Override
     public SelfCorrecting2DIntegerRangeProportionalDistribution getPartneringProportions(Year year) {
-        return partnering.get(getNearestYearInMap(year, partnering));
+        return partnering.get(year);
     }
 
     @Override
     public SelfCorrecting2DEnumeratedProportionalDistribution getOccupationChangeProportions(Year year, SexOption sex) {
 
         if (sex == SexOption.MALE) {
-            return maleOccupationChange.get(getNearestYearInMap(year, maleOccupationChange));
+            return maleOccupationChange.get(year);
         } else {
-            return femaleOccupationChange.get(getNearestYearInMap(year, femaleOccupationChange));
+            return femaleOccupationChange.get(year);
         }
     }
 
     @Override
     public SelfCorrectingOneDimensionDataDistribution getAdulterousBirthRates(Year year) {
-        return adulterousBirth.get(getNearestYearInMap(year, adulterousBirth));
+        return adulterousBirth.get(year);
     }
 
     @Override
     public SelfCorrectingOneDimensionDataDistribution getMarriageRates(Year year) {
-        return marriage.get(getNearestYearInMap(year, marriage));
+        return marriage.get(year);
     }
 
     @Override
     public SelfCorrectingTwoDimensionDataDistribution getOrderedBirthRates(Year year) {
-        return orderedBirth.get(getNearestYearInMap(year, orderedBirth));
+        return orderedBirth.get(year);
     }
 
     @Override
     public SelfCorrectingProportionalDistribution<IntegerRange, Integer, Integer> getMultipleBirthRates(Year year) {
-        return multipleBirth.get(getNearestYearInMap(year, multipleBirth));
+        return multipleBirth.get(year);
     }
 
     @Override
     public SelfCorrectingTwoDimensionDataDistribution getSeparationByChildCountRates(Year year) {
-        return separation.get(getNearestYearInMap(year, separation));
+        return separation.get(year);
     }
 
     @Override
     public EnumeratedDistribution getForenameDistribution(Year year, SexOption sex) {
 
         if (sex == SexOption.MALE) {
-            return maleForenames.get(getNearestYearInMap(year, maleForenames));
+            return maleForenames.get(year);
         } else {
-            return femaleForenames.get(getNearestYearInMap(year, femaleForenames));
+            return femaleForenames.get(year);
         }
     }
 
@@ -389,76 +514,39 @@ public class PopulationStatistics implements EventRateTables {
     public EnumeratedDistribution getMigrantForenameDistribution(Year year, SexOption sex) {
 
         if (sex == SexOption.MALE) {
-            return migrantMaleForenames.get(getNearestYearInMap(year, migrantMaleForenames));
+            return migrantMaleForenames.get(year);
         } else {
-            return migrantFemaleForenames.get(getNearestYearInMap(year, migrantFemaleForenames));
+            return migrantFemaleForenames.get(year);
         }
     }
 
     @Override
     public EnumeratedDistribution getSurnameDistribution(Year year) {
-        return surnames.get(getNearestYearInMap(year, surnames));
+        return surnames.get(year);
     }
 
     @Override
     public EnumeratedDistribution getMigrantSurnameDistribution(Year year) {
-        return migrantSurnames.get(getNearestYearInMap(year, migrantSurnames));
+        return migrantSurnames.get(year);
     }
 
     @Override
     public AgeDependantEnumeratedDistribution getOccupation(Year year, SexOption sex) {
         if (sex == SexOption.MALE) {
-            return maleOccupation.get(getNearestYearInMap(year, maleOccupation));
+            return maleOccupation.get(year);
         } else {
-            return femaleOccupation.get(getNearestYearInMap(year, femaleOccupation));
+            return femaleOccupation.get(year);
         }
     }
 
     @Override
     public SelfCorrectingOneDimensionDataDistribution getMigrationRateDistribution(Year year) {
-        return migrationRate.get(getNearestYearInMap(year, migrationRate));
+        return migrationRate.get(year);
     }
 
     @Override
     public double getMaleProportionOfBirths(Year onDate) {
-        return sexRatioBirth.get(getNearestYearInMap(onDate, sexRatioBirth));
-    }
-
-    private Year getNearestYearInMap(Year year, TreeMap<Year, ?> map) {
-
-        // the fast way
-        Year ceiling = map.ceilingKey(year);
-        Year floor = map.floorKey(year);
-
-        if(ceiling == null) return floor;
-        if(floor == null) return ceiling;
-
-        int yearInt = year.getValue();
-
-        if(ceiling.getValue() - yearInt > yearInt - floor.getValue())
-            return floor;
-        else {
-            return ceiling;
-        }
-
-        // the pretty way
-//        long minDifference = Long.MAX_VALUE;
-//        Year nearestTableYear = null;
-//
-//        ArrayList<Year> orderedKeySet = new ArrayList<>(map.keySet());
-//        Collections.sort(orderedKeySet); // TODO why necessary?
-//
-//        for (Year tableYear : orderedKeySet) {
-//
-//            long difference = Math.abs(year.until(tableYear, ChronoUnit.YEARS));
-//
-//            if (difference < minDifference) {
-//                minDifference = difference;
-//                nearestTableYear = tableYear;
-//            }
-//        }
-//
-//        return nearestTableYear;
+        return sexRatioBirth.get(onDate);
     }
 
     public Period getMinBirthSpacing() {
@@ -473,6 +561,10 @@ public class PopulationStatistics implements EventRateTables {
         return randomGenerator;
     }
 
+    public RandomStreams getRandomStreams() {
+        return randomStreams;
+    }
+
     private static TreeMap<Year, Double> readInSingleInputDataFile(DirectoryStream<Path> paths) throws IOException, InvalidInputFileException {
 
         int c = 0;
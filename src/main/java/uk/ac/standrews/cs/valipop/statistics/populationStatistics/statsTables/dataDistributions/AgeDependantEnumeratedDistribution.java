@@ -6,6 +6,7 @@ import uk.ac.standrews.cs.valipop.statistics.distributions.InconsistentWeightExc
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.IntegerRange;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.LabelledValueSet;
 
+import java.io.Serializable;
 import java.security.InvalidParameterException;
 import java.time.Year;
 import java.util.Collection;
@@ -15,7 +16,7 @@ import java.util.TreeMap;
 /**
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class AgeDependantEnumeratedDistribution implements InputMetaData<String> {
+public class AgeDependantEnumeratedDistribution implements InputMetaData<String>, Serializable {
 
     private final Year year;
     private final String sourcePopulation;
@@ -34,6 +35,23 @@ public class AgeDependantEnumeratedDistribution implements InputMetaData<String>
         }
     }
 
+    private AgeDependantEnumeratedDistribution(AgeDependantEnumeratedDistribution original, RandomGenerator random) {
+        this.year = original.year;
+        this.sourceOrganisation = original.sourceOrganisation;
+        this.sourcePopulation = original.sourcePopulation;
+
+        for (Map.Entry<IntegerRange, EnumeratedDistribution> entry : original.distributionsByAge.entrySet()) {
+            distributionsByAge.put(entry.getKey(), entry.getValue().copy(random));
+        }
+    }
+
+    /**
+     * Returns a distribution with the same probabilities as this one, which samples using the given random generator.
+     */
+    public AgeDependantEnumeratedDistribution copy(RandomGenerator random) {
+        return new AgeDependantEnumeratedDistribution(this, random);
+    }
+
     public EnumeratedDistribution getDistributionForAge(Integer age) {
 
         for (IntegerRange iR : distributionsByAge.keySet()) {
@@ -17,9 +17,11 @@
 package uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsTables.dataDistributions;
 
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.IntegerRange;
+import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.IntegerRangeIndex;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.InvalidRangeException;
 
 import java.io.PrintStream;
+import java.io.Serializable;
 import java.time.Year;
 import java.util.Arrays;
 import java.util.Map;
@@ -36,7 +38,7 @@ import java.util.logging.Logger;
  * 
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class OneDimensionDataDistribution implements InputMetaData<IntegerRange>, Cloneable {
+public class OneDimensionDataDistribution implements InputMetaData<IntegerRange>, Cloneable, Serializable {
 
     public static Logger log = Logger.getLogger(OneDimensionDataDistribution.class.getName());
 
@@ -46,6 +48,10 @@ public class OneDimensionDataDistribution implements InputMetaData<IntegerRange>
 
     protected final Map<IntegerRange, Double> targetRates;
 
+    // The rows of targetRates, and their rates, held by row number so that lookups need neither a scan nor unboxing
+    protected final IntegerRangeIndex rows;
+    protected final double[] targetRatesByRow;
+
     public OneDimensionDataDistribution(Year year,
                                         String sourcePopulation,
                                         String sourceOrganisation,
@@ -55,6 +61,27 @@ public class OneDimensionDataDistribution implements InputMetaData<IntegerRange>
         this.sourcePopulation = sourcePopulation;
         this.sourceOrganisation = sourceOrganisation;
         this.targetRates = tableData;
+
+        rows = new IntegerRangeIndex(tableData.keySet());
+        targetRatesByRow = new double[rows.size()];
+
+        for (int row = 0; row < rows.size(); row++) {
+            targetRatesByRow[row] = tableData.get(rows.getLabel(row));
+        }
+    }
+
+    /**
+     * Creates a distribution sharing the table of the given one, which is never changed once read in.
+     */
+    protected OneDimensionDataDistribution(OneDimensionDataDistribution original) {
+
+        this.year = original.year;
+        this.sourcePopulation = original.sourcePopulation;
+        this.sourceOrganisation = original.sourceOrganisation;
+        this.targetRates = original.targetRates;
+
+        rows = original.rows;
+        targetRatesByRow = original.targetRatesByRow;
     }
 
     @Override
@@ -102,20 +129,31 @@ public class OneDimensionDataDistribution implements InputMetaData<IntegerRange>
 
     public double getRate(Integer rowValue) throws InvalidRangeException {
 
-        IntegerRange row = resolveRowValue(rowValue);
-
-        return targetRates.get(row);
+        return targetRatesByRow[resolveRow(rowValue)];
     }
 
     protected IntegerRange resolveRowValue(Integer rowValue) {
 
-        for (IntegerRange iR : targetRates.keySet()) {
-            if (iR.contains(rowValue)) {
-                return iR;
-            }
+        return rows.getLabel(resolveRow(rowValue));
+    }
+
+    /**
+     * Returns whether the given value is covered by one of the rows of this distribution.
+     */
+    public boolean covers(int rowValue) {
+
+        return rows.rowOf(rowValue) != IntegerRangeIndex.NOT_COVERED;
+    }
+
+    protected int resolveRow(int rowValue) {
+
+        int row = rows.rowOf(rowValue);
+
+        if (row == IntegerRangeIndex.NOT_COVERED) {
+            throw new InvalidRangeException("Given value not covered by rows - value " + rowValue);
         }
 
-        throw new InvalidRangeException("Given value not covered by rows - value " + rowValue);
+        return row;
     }
 
     public Map<IntegerRange, Double> getRate() {
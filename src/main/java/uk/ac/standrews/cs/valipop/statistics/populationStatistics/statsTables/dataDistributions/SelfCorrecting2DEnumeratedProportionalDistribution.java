@@ -23,13 +23,14 @@ import uk.ac.standrews.cs.valipop.statistics.populationStatistics.determinedCoun
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsKeys.StatsKey;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.*;
 
+import java.io.Serializable;
 import java.time.Year;
 import java.util.*;
 
 /**
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class SelfCorrecting2DEnumeratedProportionalDistribution implements SelfCorrectingProportionalDistribution<String, String, String> {
+public class SelfCorrecting2DEnumeratedProportionalDistribution implements SelfCorrectingProportionalDistribution<String, String, String>, Serializable {
 
     // The integer range here represents the row labels (i.e. the age ranges on the ordered birth table)
     private Map<String, LabelledValueSet<String, Double>> targetProportions;
@@ -53,6 +54,18 @@ public class SelfCorrecting2DEnumeratedProportionalDistribution implements SelfC
         }
     }
 
+    @Override
+    public SelfCorrecting2DEnumeratedProportionalDistribution copy(RandomGenerator random) {
+
+        Map<String, LabelledValueSet<String, Double>> proportions = new TreeMap<>();
+
+        for (Map.Entry<String, LabelledValueSet<String, Double>> entry : targetProportions.entrySet()) {
+            proportions.put(entry.getKey(), new StringToDoubleSet(entry.getValue(), random));
+        }
+
+        return new SelfCorrecting2DEnumeratedProportionalDistribution(year, sourcePopulation, sourceOrganisation, proportions, random);
+    }
+
     public MultipleDeterminedCountByString determineCount(StatsKey<String, String> key, Config config, RandomGenerator random) {
 
         String occupationA = key.getYLabel();
@@ -16,6 +16,7 @@
  */
 package uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsTables.dataDistributions;
 
+import org.apache.commons.math3.random.RandomGenerator;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsTables.dataDistributions.selfCorrecting.SelfCorrection;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.LabelledValueSet;
 
@@ -25,4 +26,10 @@ import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.LabelledVa
 public interface SelfCorrectingProportionalDistribution<Type, X, Y> extends
                         InputMetaData<Type>,
                         SelfCorrection<LabelledValueSet<Type, Integer>, LabelledValueSet<Type, Double>, X, Y> {
+
+    /**
+     * Returns a distribution with the same target proportions as this one, but with none of the counts achieved so
+     * far, which uses the given random generator.
+     */
+    SelfCorrectingProportionalDistribution<Type, X, Y> copy(RandomGenerator random);
 }
@@ -27,6 +27,20 @@ public class ValiPopEnumeratedDistribution extends EnumeratedDistribution implem
         this.sourcePopulation = sourcePopulation;
     }
 
+    private ValiPopEnumeratedDistribution(ValiPopEnumeratedDistribution original, RandomGenerator random) {
+
+        super(original, random);
+        this.year = original.year;
+        this.sourceOrganisation = original.sourceOrganisation;
+        this.sourcePopulation = original.sourcePopulation;
+    }
+
+    @Override
+    public ValiPopEnumeratedDistribution copy(RandomGenerator random) {
+
+        return new ValiPopEnumeratedDistribution(this, random);
+    }
+
     @Override
     public Year getYear() {
         return year;
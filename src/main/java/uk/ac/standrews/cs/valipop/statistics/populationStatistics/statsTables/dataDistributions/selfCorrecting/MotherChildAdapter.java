@@ -27,6 +27,7 @@ import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.IntegerRan
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.IntegerRangeToIntegerSet;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.LabelledValueSet;
 
+import java.io.Serializable;
 import java.time.Year;
 import java.util.Collection;
 import java.util.Map;
@@ -35,7 +36,7 @@ import java.util.TreeMap;
 /**
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class MotherChildAdapter implements SelfCorrectingProportionalDistribution<IntegerRange, Integer, Integer> {
+public class MotherChildAdapter implements SelfCorrectingProportionalDistribution<IntegerRange, Integer, Integer>, Serializable {
 
     private SelfCorrecting2DIntegerRangeProportionalDistribution distribution;
 
@@ -56,6 +57,17 @@ public class MotherChildAdapter implements SelfCorrectingProportionalDistributio
         distribution = new SelfCorrecting2DIntegerRangeProportionalDistribution(year, sourcePopulation, sourceOrganisation, transformedProportions, random);
     }
 
+    private MotherChildAdapter(SelfCorrecting2DIntegerRangeProportionalDistribution distribution) {
+
+        this.distribution = distribution;
+    }
+
+    @Override
+    public MotherChildAdapter copy(RandomGenerator random) {
+
+        return new MotherChildAdapter(distribution.copy(random));
+    }
+
     @Override
     public Year getYear() {
         return distribution.getYear();
@@ -30,6 +30,7 @@ import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.IntegerRan
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.LabelledValueSet;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.ValuesDoNotSumToWholeNumberException;
 
+import java.io.Serializable;
 import java.time.Year;
 import java.util.Collection;
 import java.util.Collections;
@@ -39,7 +40,7 @@ import java.util.TreeMap;
 /**
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class SelfCorrecting2DIntegerRangeProportionalDistribution implements SelfCorrectingProportionalDistribution<IntegerRange, Integer, Integer> {
+public class SelfCorrecting2DIntegerRangeProportionalDistribution implements SelfCorrectingProportionalDistribution<IntegerRange, Integer, Integer>, Serializable {
     // this is a 2 dimentional table? YES
 
     // The integer range here represents the row labels (i.e. the age ranges on the ordered birth table)
@@ -65,6 +66,18 @@ public class SelfCorrecting2DIntegerRangeProportionalDistribution implements Sel
         }
     }
 
+    @Override
+    public SelfCorrecting2DIntegerRangeProportionalDistribution copy(RandomGenerator random) {
+
+        Map<IntegerRange, LabelledValueSet<IntegerRange, Double>> proportions = new TreeMap<>();
+
+        for (Map.Entry<IntegerRange, LabelledValueSet<IntegerRange, Double>> iR : targetProportions.entrySet()) {
+            proportions.put(iR.getKey(), new IntegerRangeToDoubleSet(iR.getValue(), random));
+        }
+
+        return new SelfCorrecting2DIntegerRangeProportionalDistribution(year, sourcePopulation, sourceOrganisation, proportions, random);
+    }
+
     public MultipleDeterminedCountByIR determineCount(StatsKey<Integer, Integer> key, Config config, RandomGenerator random) {
 
         int age = key.getYLabel();
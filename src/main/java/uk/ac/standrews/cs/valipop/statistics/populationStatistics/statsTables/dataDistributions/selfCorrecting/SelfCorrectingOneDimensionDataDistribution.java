@@ -23,10 +23,10 @@ import uk.ac.standrews.cs.valipop.statistics.populationStatistics.determinedCoun
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.determinedCounts.SingleDeterminedCount;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsKeys.StatsKey;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsTables.dataDistributions.OneDimensionDataDistribution;
-import uk.ac.standrews.cs.valipop.utils.MapUtils;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.dates.DateUtils;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.IntegerRange;
 
+import java.io.Serializable;
 import java.time.Period;
 import java.time.Year;
 import java.util.Map;
@@ -48,51 +48,92 @@ public class SelfCorrectingOneDimensionDataDistribution extends OneDimensionData
     private boolean binomialSampling;
     private RandomGenerator rng;
 
-    private Map<IntegerRange, Double> appliedRates;
-    private Map<IntegerRange, Double> appliedCounts;
+    // Correction state, indexed by the row numbers of the table (see OneDimensionDataDistribution.resolveRow)
+    private final double[] appliedRates;
+    private final double[] appliedCounts;
+
+    // The target rates converted to the time step last asked for, which is in practice always the simulation time step
+    private volatile SubStepRates subStepRates;
 
     public SelfCorrectingOneDimensionDataDistribution(Year year, String sourcePopulation, String sourceOrganisation, Map<IntegerRange, Double> tableData, boolean binomialSampling, RandomGenerator randomGenerator) {
 
         super(year, sourcePopulation, sourceOrganisation, tableData);
 
-        this.appliedRates = MapUtils.cloneODM(tableData);
-        this.appliedCounts = MapUtils.cloneODM(tableData);
+        this.appliedRates = new double[rows.size()];
+        this.appliedCounts = new double[rows.size()];
         this.binomialSampling = binomialSampling;
 
-        for (IntegerRange iR : appliedCounts.keySet()) {
-            appliedCounts.replace(iR, 0.0);
-            appliedRates.replace(iR, 0.0);
-        }
+        rng = randomGenerator;
+    }
+
+    private SelfCorrectingOneDimensionDataDistribution(SelfCorrectingOneDimensionDataDistribution original, RandomGenerator randomGenerator) {
+
+        super(original);
+
+        this.appliedRates = new double[rows.size()];
+        this.appliedCounts = new double[rows.size()];
+        this.binomialSampling = original.binomialSampling;
+        this.subStepRates = original.subStepRates;
 
         rng = randomGenerator;
     }
 
+    /**
+     * Returns a distribution with the same target rates as this one, but with none of the corrections made so far,
+     * which samples counts using the given random generator.
+     */
+    public SelfCorrectingOneDimensionDataDistribution copy(RandomGenerator randomGenerator) {
+
+        return new SelfCorrectingOneDimensionDataDistribution(this, randomGenerator);
+    }
+
     public SingleDeterminedCount determineCount(StatsKey<Integer, Integer> key, Config config, RandomGenerator random) {
 
-        IntegerRange age = resolveRowValue(key.getYLabel());
+        int age = resolveRow(key.getYLabel());
+        SubStepRates subStep = getSubStepRates(key.getConsideredTimePeriod());
+
+        double rateToApply = calcRateToApply(age, key.getForNPeople(), subStep, config);
+        double uncorrectedRate = subStep.targetRates[age];
+
+        return resolveRateToCount(key, rateToApply, uncorrectedRate);
+    }
+
+    /**
+     * Determines a count as {@link #determineCount(StatsKey, Config, RandomGenerator)} does, but from the values of
+     * the key and without creating either the key or the determined count.
+     *
+     * @param yLabel the row value, e.g. the age for deaths or the birth order for births
+     * @param forNPeople the number of people the count is for
+     * @param timePeriod the time period considered
+     * @param config the config giving the recovery factor, may be null
+     * @return the determined count
+     */
+    public int determineCount(int yLabel, double forNPeople, Period timePeriod, Config config) {
+
+        int age = resolveRow(yLabel);
+
+        return sampleCount(forNPeople, calcRateToApply(age, forNPeople, getSubStepRates(timePeriod), config));
+    }
+
+    private double calcRateToApply(int age, double tAT, SubStepRates subStep, Config config) {
 
         // target rate
-        double tD = targetRates.get(age);
+        double tD = targetRatesByRow[age];
 
         // applied count
-        double aC = appliedCounts.get(age);
+        double aC = appliedCounts[age];
 
         // if no correction data - i.e. first call to this method
         if (aC == 0) {
-            double rateToApply = calcSubRateFromYearRate(tD, key.getConsideredTimePeriod());
-            return resolveRateToCount(key, rateToApply, rateToApply); // Same due to correction rate currently same as target rate
+            return subStep.targetRates[age]; // Same due to correction rate currently same as target rate
         }
 
-        // to apply to
-        double tAT = key.getForNPeople();
-
         // applied rate
-        double aD = appliedRates.get(age);
+        double aD = appliedRates[age];
 
         // if no N value given in StatsKey
         if (tAT == 0) {
-            double rateToApply = calcSubRateFromYearRate(tD, key.getConsideredTimePeriod());
-            return resolveRateToCount(key, rateToApply, rateToApply);
+            return subStep.targetRates[age];
         }
 
         double rf = 1;
@@ -117,35 +158,46 @@ public class SelfCorrectingOneDimensionDataDistribution extends OneDimensionData
             cD = 1;
         }
 
-        double rateToApply = calcSubRateFromYearRate(cD, key.getConsideredTimePeriod());
-        double uncorrectedRate = calcSubRateFromYearRate(tD, key.getConsideredTimePeriod());
-        return resolveRateToCount(key, rateToApply, uncorrectedRate);
+        return subStep.toSubRate(cD);
     }
 
     public void returnAchievedCount(DeterminedCount<Integer, Double, Integer, Integer> achievedCount, RandomGenerator random) {
 
         StatsKey<Integer, Integer> key = achievedCount.getKey();
 
-        int count = achievedCount.getFulfilledCount();
+        returnAchievedCount(key.getYLabel(), key.getForNPeople(), key.getConsideredTimePeriod(), achievedCount.getFulfilledCount());
+    }
+
+    /**
+     * Returns an achieved count as {@link #returnAchievedCount(DeterminedCount, RandomGenerator)} does, but from the
+     * values of the key and the fulfilled count.
+     *
+     * @param yLabel the row value the count was determined for
+     * @param forNPeople the number of people the count was determined for
+     * @param timePeriod the time period considered
+     * @param count the fulfilled count
+     */
+    public void returnAchievedCount(int yLabel, double forNPeople, Period timePeriod, int count) {
+
         double achievedRate = 0;
-        if (key.getForNPeople() != 0) {
-            achievedRate = count / key.getForNPeople();
+        if (forNPeople != 0) {
+            achievedRate = count / forNPeople;
         }
 
         // This is age for Death (1DDD) but this is order in the case of birth (2DDD)
-        IntegerRange age = resolveRowValue(key.getYLabel());
+        int age = resolveRow(yLabel);
 
         // old applied rate
-        double aDo = appliedRates.get(age);
+        double aDo = appliedRates[age];
 
         // old applied count
-        double aCo = appliedCounts.get(age);
+        double aCo = appliedCounts[age];
 
         // actually applied correction rate
-        double aacD = calcAppliedYearRateFromSubRate(achievedRate, key.getConsideredTimePeriod());
+        double aacD = getSubStepRates(timePeriod).toYearRate(achievedRate);
 
         // to apply to
-        Double tAT = key.getForNPeople();
+        double tAT = forNPeople;
 
         // new applied count
         double aCn = aCo + tAT;
@@ -157,7 +209,7 @@ public class SelfCorrectingOneDimensionDataDistribution extends OneDimensionData
         }
 
         // target rate
-        double tD = targetRates.get(age);
+        double tD = targetRatesByRow[age];
 
         // if new applied rate has switched across target rate then reset count
         if ((aDo < tD && aDn >= tD) || (aDo > tD && aDn <= tD)) {
@@ -171,11 +223,11 @@ public class SelfCorrectingOneDimensionDataDistribution extends OneDimensionData
                 numberOfPeopleToBringRateToCrossOverPoint = (aCo * (aDo - tD)) / (tD - aacD);
             }
 
-            appliedRates.replace(age, aacD);
-            appliedCounts.replace(age, tAT - numberOfPeopleToBringRateToCrossOverPoint);
+            appliedRates[age] = aacD;
+            appliedCounts[age] = tAT - numberOfPeopleToBringRateToCrossOverPoint;
         } else {
-            appliedRates.replace(age, aDn);
-            appliedCounts.replace(age, aCn);
+            appliedRates[age] = aDn;
+            appliedCounts[age] = aCn;
         }
     }
 
@@ -184,25 +236,61 @@ public class SelfCorrectingOneDimensionDataDistribution extends OneDimensionData
         double rawCorrectedCount = rate * key.getForNPeople();
         double rawUncorrectedCount = uncorrectedRate * key.getForNPeople();
 
-        int determinedCount;
-        if (binomialSampling) {
+        int determinedCount = sampleCount(key.getForNPeople(), rate);
+
+        return new SingleDeterminedCount(key, determinedCount, rawCorrectedCount, rawUncorrectedCount);
+    }
+
+    private int sampleCount(double forNPeople, double rate) {
 
-            determinedCount = new BinomialDistribution(rng, (int) Math.round(key.getForNPeople()), rate).sample();
+        if (binomialSampling) {
+            return new BinomialDistribution(rng, (int) Math.round(forNPeople), rate).sample();
         } else {
-            determinedCount = (int) Math.round(rate * key.getForNPeople());
+            return (int) Math.round(rate * forNPeople);
         }
-        return new SingleDeterminedCount(key, determinedCount, rawCorrectedCount, rawUncorrectedCount);
     }
 
-    private double calcAppliedYearRateFromSubRate(double subRate, Period timePeriod) {
+    private SubStepRates getSubStepRates(Period timePeriod) {
+
+        SubStepRates rates = subStepRates;
+
+        if (rates == null || !rates.timePeriod.equals(timePeriod)) {
+            rates = new SubStepRates(timePeriod, targetRatesByRow);
+            subStepRates = rates;
+        }
 
-        return 1 - Math.pow(1 - subRate, DateUtils.stepsInYear(timePeriod));
+        return rates;
     }
 
-    private double calcSubRateFromYearRate(double yearRate, Period timePeriod) {
+    /**
+     * Converts between yearly rates and rates for a shorter time step, holding the target rates of the table already
+     * converted to the time step.
+     */
+    private static class SubStepRates implements Serializable {
 
-        double stepsInYear = DateUtils.stepsInYear(timePeriod);
+        private final Period timePeriod;
+        private final double stepsInYear;
+        private final double[] targetRates;
 
-        return 1 - Math.pow(1 - yearRate, 1 / stepsInYear);
+        SubStepRates(Period timePeriod, double[] yearRates) {
+
+            this.timePeriod = timePeriod;
+            stepsInYear = DateUtils.stepsInYear(timePeriod);
+            targetRates = new double[yearRates.length];
+
+            for (int row = 0; row < yearRates.length; row++) {
+                targetRates[row] = toSubRate(yearRates[row]);
+            }
+        }
+
+        double toSubRate(double yearRate) {
+
+            return 1 - Math.pow(1 - yearRate, 1 / stepsInYear);
+        }
+
+        double toYearRate(double subRate) {
+
+            return 1 - Math.pow(1 - subRate, stepsInYear);
+        }
     }
 }
@@ -24,21 +24,28 @@ import uk.ac.standrews.cs.valipop.statistics.populationStatistics.determinedCoun
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsKeys.StatsKey;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsTables.dataDistributions.InputMetaData;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.IntegerRange;
+import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.IntegerRangeIndex;
 import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.InvalidRangeException;
 
+import java.io.Serializable;
+import java.time.Period;
 import java.time.Year;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class SelfCorrectingTwoDimensionDataDistribution implements InputMetaData<IntegerRange>, SelfCorrection<Integer, Double, Integer, Integer> {
+public class SelfCorrectingTwoDimensionDataDistribution implements InputMetaData<IntegerRange>, SelfCorrection<Integer, Double, Integer, Integer>, Serializable {
 
     // The integer range here represents the row labels (i.e. the age ranges on the ordered birth table)
     private Map<IntegerRange, SelfCorrectingOneDimensionDataDistribution> data;
 
+    private IntegerRangeIndex rows;
+    private SelfCorrectingOneDimensionDataDistribution[] dataByRow;
+
     private Year year;
     private String sourcePopulation;
 
@@ -49,6 +56,28 @@ public class SelfCorrectingTwoDimensionDataDistribution implements InputMetaData
         this.sourceOrganisation = sourceOrganisation;
         this.sourcePopulation = sourcePopulation;
         this.data = tableData;
+
+        rows = new IntegerRangeIndex(tableData.keySet());
+        dataByRow = new SelfCorrectingOneDimensionDataDistribution[rows.size()];
+
+        for (int row = 0; row < rows.size(); row++) {
+            dataByRow[row] = tableData.get(rows.getLabel(row));
+        }
+    }
+
+    /**
+     * Returns a distribution with the same target rates as this one, but with none of the corrections made so far,
+     * which samples counts using the given random generator.
+     */
+    public SelfCorrectingTwoDimensionDataDistribution copy(RandomGenerator random) {
+
+        Map<IntegerRange, SelfCorrectingOneDimensionDataDistribution> tableData = new TreeMap<>();
+
+        for (Map.Entry<IntegerRange, SelfCorrectingOneDimensionDataDistribution> entry : data.entrySet()) {
+            tableData.put(entry.getKey(), entry.getValue().copy(random));
+        }
+
+        return new SelfCorrectingTwoDimensionDataDistribution(year, sourcePopulation, sourceOrganisation, tableData);
     }
 
     public SingleDeterminedCount determineCount(StatsKey<Integer, Integer> key, Config config, RandomGenerator random) {
@@ -67,10 +96,56 @@ public class SelfCorrectingTwoDimensionDataDistribution implements InputMetaData
         }
     }
 
+    /**
+     * Determines a count as {@link #determineCount(StatsKey, Config, RandomGenerator)} does, but from the values of
+     * the key and without creating either the key or the determined count.
+     *
+     * @param xLabel the row value, e.g. the age for births
+     * @param yLabel the column value, e.g. the birth order for births
+     * @param forNPeople the number of people the count is for
+     * @param timePeriod the time period considered
+     * @param config the config giving the recovery factor, may be null
+     * @return the determined count
+     */
+    public int determineCount(int xLabel, int yLabel, double forNPeople, Period timePeriod, Config config) {
+
+        SelfCorrectingOneDimensionDataDistribution data = getCoveringData(xLabel, yLabel);
+
+        return data == null ? 0 : data.determineCount(yLabel, forNPeople, timePeriod, config);
+    }
+
+    /**
+     * Returns an achieved count as {@link #returnAchievedCount(DeterminedCount, RandomGenerator)} does, but from the
+     * values of the key and the determined and fulfilled counts.
+     */
+    public void returnAchievedCount(int xLabel, int yLabel, double forNPeople, Period timePeriod, int determinedCount, int fulfilledCount) {
+
+        SelfCorrectingOneDimensionDataDistribution data = getCoveringData(xLabel, yLabel);
+
+        if (data != null) {
+            data.returnAchievedCount(yLabel, forNPeople, timePeriod, fulfilledCount);
+
+        } else if (determinedCount != 0) {
+            throw new InvalidRangeException("Given values not covered by table - values " + xLabel + ", " + yLabel);
+        }
+    }
+
+    // The row for the given values if they are both covered by the table, or null otherwise. Values outside the table
+    // are common on the key free path, so are checked for rather than caught.
+    private SelfCorrectingOneDimensionDataDistribution getCoveringData(int xLabel, int yLabel) {
+
+        int row = rows.rowOf(xLabel);
+
+        if (row == IntegerRangeIndex.NOT_COVERED || !dataByRow[row].covers(yLabel)) {
+            return null;
+        }
+
+        return dataByRow[row];
+    }
+
     public SelfCorrectingOneDimensionDataDistribution getData(Integer yLabel) throws InvalidRangeException {
 
-        IntegerRange row = resolveRowValue(yLabel);
-        return data.get(row);
+        return dataByRow[resolveRow(yLabel)];
     }
 
     @Override
@@ -121,15 +196,15 @@ public class SelfCorrectingTwoDimensionDataDistribution implements InputMetaData
         return getRowLabels();
     }
 
-    private IntegerRange resolveRowValue(Integer rowValue) {
+    private int resolveRow(int rowValue) {
 
-        for (IntegerRange iR : data.keySet()) {
-            if (iR.contains(rowValue)) {
-                return iR;
-            }
+        int row = rows.rowOf(rowValue);
+
+        if (row == IntegerRangeIndex.NOT_COVERED) {
+            throw new InvalidRangeException("Given value not covered by rows - value " + rowValue);
         }
 
-        throw new InvalidRangeException("Given value not covered by rows - value " + rowValue);
+        return row;
     }
 
     public Set<IntegerRange> getRowLabels() {
@@ -137,6 +212,6 @@ public class SelfCorrectingTwoDimensionDataDistribution implements InputMetaData
     }
 
     public Set<IntegerRange> getColumnLabels() {
-        return data.get(resolveRowValue(getSmallestLabel().getValue())).getLabels();
+        return getData(getSmallestLabel().getValue()).getLabels();
     }
 }
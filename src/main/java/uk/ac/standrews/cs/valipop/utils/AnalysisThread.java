@@ -6,46 +6,59 @@ import uk.ac.standrews.cs.valipop.implementations.StatsException;
 import uk.ac.standrews.cs.valipop.implementations.minimaSearch.Control;
 import uk.ac.standrews.cs.valipop.implementations.minimaSearch.MinimaSearch;
 import uk.ac.standrews.cs.valipop.statistics.analysis.simulationSummaryLogging.SummaryRow;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.ContingencyTables;
 
 import java.io.IOException;
 import java.time.Year;
+import java.util.concurrent.Semaphore;
 
 import static uk.ac.standrews.cs.valipop.implementations.minimaSearch.Minimise.GEEGLM;
 
 /**
  * Invokes R analysis code in an asynchronous thread.
- * 
+ *
+ * The number of analyses running at once is limited by the given slots. A permit is acquired from the slots before
+ * the thread is started, or run in the calling thread, and the analysis releases it when it has finished.
+ *
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
 public class AnalysisThread extends Thread {
 
     private int maxBirthingAge;
     private SummaryRow summaryRow;
+    private ContingencyTables tables;
 
-    @SuppressWarnings("unused")
-    private int threadCount;
+    private final Semaphore slots;
 
     private final Config config;
 
-    public AnalysisThread(OBDModel model, Config config, int threadCount) {
+    public AnalysisThread(OBDModel model, Config config, Semaphore slots) {
 
         this.config = config;
-        this.threadCount = threadCount;
+        this.slots = slots;
 
         maxBirthingAge = model.getDesiredPopulationStatistics().getOrderedBirthRates(Year.of(0)).getLargestLabel().getValue();
         summaryRow = model.getSummaryRow();
+        tables = model.getContingencyTables();
     }
 
     @Override
     public void run() {
 
-        threadCount++;
+        try {
+            analyse();
+        } finally {
+            slots.release();
+        }
+    }
+
+    private void analyse() {
 
         ProgramTimer statsTimer = new ProgramTimer();
 
         double v = 99999;
         try {
-            v = MinimaSearch.getV(GEEGLM, maxBirthingAge, Control.RF, config);
+            v = MinimaSearch.getV(GEEGLM, maxBirthingAge, Control.RF, config, tables);
         } catch (IOException | StatsException e) {
 
             System.err.println("Error in AnalysisThread");
@@ -59,7 +72,5 @@ public class AnalysisThread extends Thread {
         summaryRow.setStatsRunTime(statsTimer.getRunTimeSeconds());
 
         summaryRow.outputSummaryRowToFile();
-
-        threadCount--;
     }
 }
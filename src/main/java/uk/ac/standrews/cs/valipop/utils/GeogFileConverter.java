@@ -3,12 +3,16 @@ package uk.ac.standrews.cs.valipop.utils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.stream.Collectors;
 import uk.ac.standrews.cs.valipop.utils.addressLookup.Area;
+import uk.ac.standrews.cs.valipop.utils.addressLookup.BinaryGeography;
 import uk.ac.standrews.cs.valipop.utils.addressLookup.Cache;
 
 /**
- * Used to convert a custom geography files (.ser) into JSON. May be executed standalone.
+ * Used to convert a custom geography files (.ser) into JSON, and JSON geography files into the binary form read by
+ * {@link BinaryGeography}. May be executed standalone, given the JSON and binary file paths to convert to binary.
  */
 public class GeogFileConverter {
 
@@ -22,11 +26,22 @@ public class GeogFileConverter {
                                                        .collect(Collectors.toList()));
     }
 
+    public static void convertToBinary(String source, String target) throws IOException {
+
+        BinaryGeography.write(Arrays.asList(new ObjectMapper().readValue(new File(source), Area[].class)), Paths.get(target));
+    }
+
     private static boolean isDataComplete(Area area) {
         return !(area.getRoad() == null || area.getSuburb() == null && area.getTown() == null && area.getCounty() == null);
     }
 
     public static void main(String[] args) throws IOException, ClassNotFoundException {
+
+        if(args.length == 2) {
+            convertToBinary(args[0], args[1]);
+            return;
+        }
+
         convert("/Users/tdalton/tom/phd/repos/population-model/src/main/resources/valipop/inputs/scotland_test_population_no_mig/annotations/geography/scotland-residential-ways.ser",
                 "/Users/tdalton/tom/phd/repos/population-model/src/main/resources/valipop/inputs/scotland_test_population/annotations/geography/scotland-residential-ways.json");
     }
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils;
+
+import org.apache.commons.math3.random.JDKRandomGenerator;
+import org.apache.commons.math3.random.RandomGenerator;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Supplies the random generators used by the parts of a simulation, all derived from the simulation seed.
+ *
+ * When shared, every subsystem draws from one generator, so a change to the draws made by one subsystem changes the
+ * results of all the others. When split, each subsystem has its own stream, and each (subsystem, year, cohort)
+ * triple has a stream derived directly from the seed, so work on one year and cohort can be run in parallel or
+ * repeated without replaying everything before it. The generators given out for the subsystems are moved on to the
+ * streams of each phase, year and cohort of the simulation by {@link #startCohort}, so that what is drawn for a cohort
+ * does not depend on what was drawn for the cohorts and phases before it.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class RandomStreams implements Serializable {
+
+    public static final String STATISTICS = "statistics";
+    public static final String SIMULATION = "simulation";
+    public static final String GEOGRAPHY = "geography";
+    public static final String PEOPLE = "people";
+    public static final String MIGRATION = "migration";
+    public static final String DEATH_DATES = "death-dates";
+    public static final String MARRIAGE_DATES = "marriage-dates";
+    public static final String MOVE_DISTANCES = "move-distances";
+    public static final String DEATHS = "deaths";
+
+    // phases of a time step, which key the subsystem streams along with the year and cohort
+    public static final String BIRTHS = "births";
+    public static final String SET_UP = "set-up";
+    public static final String SEPARATIONS = "separations";
+    public static final String OCCUPATIONS = "occupations";
+
+    private final long seed;
+    private final boolean split;
+    private final RandomGenerator shared;
+
+    private final List<CohortKeyedGenerator> subsystems = new ArrayList<>();
+
+    public RandomStreams(final long seed, final boolean split) {
+
+        this.seed = seed;
+        this.split = split;
+
+        if (split) {
+            shared = null;
+        } else {
+            shared = new JDKRandomGenerator();
+            shared.setSeed(seed);
+        }
+    }
+
+    /**
+     * Creates streams that all share the given generator.
+     *
+     * @param shared the generator used by every subsystem
+     */
+    public RandomStreams(final RandomGenerator shared) {
+
+        seed = 0;
+        split = false;
+        this.shared = shared;
+    }
+
+    public boolean isSplit() {
+        return split;
+    }
+
+    /**
+     * Gets the generator for a subsystem. When not split, this is the same generator for every subsystem.
+     *
+     * @param subsystem the name of the subsystem
+     * @return the generator for the subsystem
+     */
+    public RandomGenerator forSubsystem(final String subsystem) {
+
+        if (!split) return shared;
+
+        final CohortKeyedGenerator generator = new CohortKeyedGenerator(subsystem, key(subsystem.hashCode()));
+        subsystems.add(generator);
+
+        return generator;
+    }
+
+    /**
+     * Gets a new generator for the work of a subsystem on one cohort in one year. When split, the stream depends only on
+     * the seed and the given keys. When not split, it is seeded from the shared generator and so depends on all of the
+     * draws made before it.
+     *
+     * @param subsystem the name of the subsystem
+     * @param year the simulation date the work is carried out on
+     * @param cohort an identifier for the cohort within the year
+     * @return a generator for the cohort's use only
+     */
+    public RandomGenerator forCohort(final String subsystem, final LocalDate year, final long cohort) {
+
+        if (!split) {
+            final RandomGenerator random = new JDKRandomGenerator();
+            random.setSeed(shared.nextLong());
+            return random;
+        }
+
+        return new SplitMix64Generator(key(subsystem.hashCode(), year.toEpochDay(), cohort));
+    }
+
+    /**
+     * Starts the work of a phase of the simulation on one cohort in one year. When split, every generator given out by
+     * {@link #forSubsystem} then draws from a stream derived only from the seed, its subsystem and the given keys, until
+     * the next cohort is started. When not split, this has no effect.
+     *
+     * @param phase the name of the phase
+     * @param year the simulation date the work is carried out on
+     * @param cohort identifiers for the cohort within the phase and year, none where the phase is not divided
+     */
+    public void startCohort(final String phase, final LocalDate year, final long... cohort) {
+
+        if (!split) return;
+
+        final long[] parts = new long[cohort.length + 3];
+
+        parts[1] = phase.hashCode();
+        parts[2] = year.toEpochDay();
+        System.arraycopy(cohort, 0, parts, 3, cohort.length);
+
+        for (final CohortKeyedGenerator generator : subsystems) {
+
+            parts[0] = generator.subsystem.hashCode();
+            generator.setSeed(key(parts));
+        }
+    }
+
+    private long key(final long... parts) {
+
+        long key = SplitMix64Generator.mix(seed);
+
+        for (final long part : parts) {
+            key = SplitMix64Generator.mix(key ^ part);
+        }
+
+        return key;
+    }
+
+    // The stream of a subsystem, reseeded at the start of each cohort.
+    private static class CohortKeyedGenerator extends SplitMix64Generator {
+
+        private static final long serialVersionUID = 6283017402561849317L;
+
+        private final String subsystem;
+
+        CohortKeyedGenerator(final String subsystem, final long seed) {
+
+            super(seed);
+            this.subsystem = subsystem;
+        }
+    }
+}
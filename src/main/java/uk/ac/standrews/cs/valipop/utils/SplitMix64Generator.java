@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils;
+
+import org.apache.commons.math3.random.BitsStreamGenerator;
+import org.apache.commons.math3.util.FastMath;
+
+import java.io.Serializable;
+
+/**
+ * A random generator using the SplitMix64 algorithm. It has 64 bits of state, is cheap to create, and generators
+ * seeded with different values give statistically independent streams, which makes it suitable for deriving one stream
+ * per subsystem or per task from a single simulation seed.
+ *
+ * The second of each pair of Gaussian values is held here rather than by the superclass, which is not serializable,
+ * so that a generator written out part way through a pair carries on exactly as it would have.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class SplitMix64Generator extends BitsStreamGenerator implements Serializable {
+
+    private static final long serialVersionUID = 4016412738624536079L;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+    private double nextGaussian = Double.NaN;
+
+    public SplitMix64Generator(final long seed) {
+
+        setSeed(seed);
+    }
+
+    @Override
+    public void setSeed(final int seed) {
+
+        setSeed((long) seed);
+    }
+
+    @Override
+    public void setSeed(final int[] seed) {
+
+        long combined = 0;
+        for (final int value : seed) {
+            combined = mix(combined + GOLDEN_GAMMA + value);
+        }
+        setSeed(combined);
+    }
+
+    @Override
+    public void setSeed(final long seed) {
+
+        state = seed;
+        clear();
+    }
+
+    @Override
+    protected int next(final int bits) {
+
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public long nextLong() {
+
+        state += GOLDEN_GAMMA;
+        return mix(state);
+    }
+
+    // The same polar method as BitsStreamGenerator, so that the values drawn are unchanged
+    @Override
+    public double nextGaussian() {
+
+        final double random;
+
+        if (Double.isNaN(nextGaussian)) {
+
+            final double x = nextDouble();
+            final double y = nextDouble();
+            final double alpha = 2 * FastMath.PI * x;
+            final double r = FastMath.sqrt(-2 * FastMath.log(y));
+
+            random = r * FastMath.cos(alpha);
+            nextGaussian = r * FastMath.sin(alpha);
+
+        } else {
+            random = nextGaussian;
+            nextGaussian = Double.NaN;
+        }
+
+        return random;
+    }
+
+    @Override
+    public void clear() {
+
+        nextGaussian = Double.NaN;
+        super.clear();
+    }
+
+    /**
+     * The SplitMix64 finalising function, which scrambles the bits of a 64 bit value.
+     *
+     * @param z the value to scramble
+     * @return the scrambled value
+     */
+    public static long mix(long z) {
+
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -2,6 +2,7 @@ package uk.ac.standrews.cs.valipop.utils.addressLookup;
 
 import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -13,12 +14,15 @@ import java.util.List;
  * 
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class Address {
+public class Address implements Serializable {
 
     long number;
     Area area = null;
     Geography geography;
 
+    // the position of this address in its area, used by the area to track which of its addresses are vacant
+    int position;
+
     public boolean isCountry() {
         return country;
     }
@@ -45,8 +49,10 @@ public class Address {
 
         inhabitants.add(person);
 
-        if (!wasInhabited && !country)
+        if (!wasInhabited && !country) {
+            area.occupied(this);
             geography.updated(this);
+        }
 
     }
 
@@ -59,8 +65,10 @@ public class Address {
 
         boolean ret = inhabitants.remove(person);
 
-        if (!isInhabited() && !country)
+        if (!isInhabited() && !country) {
+            area.vacated(this);
             geography.updated(this);
+        }
 
         return ret;
 
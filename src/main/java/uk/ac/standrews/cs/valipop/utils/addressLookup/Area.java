@@ -7,6 +7,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Map;
 
 /**
@@ -70,6 +71,43 @@ public class Area implements Serializable {
 
     private transient ArrayList<Address> addresses = new ArrayList<>();
 
+    // the positions in addresses of those which are not inhabited, kept up to date by the addresses as people move
+    private transient BitSet vacancies = new BitSet();
+
+    // Used when reading a binary geography, which holds the areas as they were once made
+    static Area restore(long placeId, String error, String road, String suburb, String town, String county, String state,
+                        String postcode, BoundingBox boundingBox, Place details, long numberingOffset, long maximumNumberOfAbodes) {
+
+        Area area = new Area();
+
+        area.placeId = placeId;
+        area.error = error;
+        area.road = road;
+        area.suburb = suburb;
+        area.town = town;
+        area.county = county;
+        area.state = state;
+        area.postcode = postcode;
+        area.boundingBox = boundingBox;
+        area.details = details;
+        area.numberingOffset = numberingOffset;
+        area.maximumNumberOfAbodes = maximumNumberOfAbodes;
+
+        return area;
+    }
+
+    /**
+     * Returns an area with the same details as this one but none of its addresses, so that it can be used by a
+     * geography of its own.
+     */
+    public Area copy() {
+
+        Area area = restore(placeId, error, road, suburb, town, county, state, postcode, boundingBox, details, numberingOffset, maximumNumberOfAbodes);
+        area.boundingBoxString = boundingBoxString;
+
+        return area;
+    }
+
     public static Area makeArea(String jsonInput, Cache cache) throws IOException, InvalidCoordSet, InterruptedException, APIOverloadedException {
         Area area = mapper.readValue(jsonInput, Area.class);
 
@@ -135,23 +173,44 @@ public class Area implements Serializable {
     public Address getFreeAddress(Geography geography) {
 
         if(addresses == null) addresses = new ArrayList<>();
+        if(vacancies == null) vacancies = new BitSet();
 
-        for(Address address : addresses) {
-            if(!address.isInhabited()) {
-                return address;
-            }
+        int vacancy = vacancies.nextSetBit(0);
+        if(vacancy != -1) {
+            return addresses.get(vacancy);
         }
 
         if(addresses.size() < maximumNumberOfAbodes) {
             // +1 so that house numbers don't start at zero!
             Address newAddress = new Address(numberingOffset + addresses.size() + 1, this, geography);
+            newAddress.position = addresses.size();
             addresses.add(newAddress);
+            vacancies.set(newAddress.position);
             return newAddress;
         }
 
         return null;
     }
 
+    void occupied(Address address) {
+        if(vacancies != null) vacancies.clear(address.position);
+    }
+
+    void vacated(Address address) {
+        if(vacancies == null) vacancies = new BitSet();
+        vacancies.set(address.position);
+    }
+
+    BitSet getVacancies() {
+        return vacancies;
+    }
+
+    // Used when reading a geography, which holds the addresses of its areas
+    void restoreAddresses(ArrayList<Address> addresses, BitSet vacancies) {
+        this.addresses = addresses;
+        this.vacancies = vacancies;
+    }
+
     public boolean containsPoint(double lat, double lon) {
         return boundingBox.containsPoint(lat, lon);
     }
@@ -256,11 +315,7 @@ public class Area implements Serializable {
         if(addresses.size() < maximumNumberOfAbodes)
             return false;
 
-        for(Address address : addresses)
-            if(!address.isInhabited())
-                return false;
-
-        return true;
+        return vacancies == null || vacancies.isEmpty();
     }
 
     public String getError() {
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils.addressLookup;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A uniform grid of cells over area centroids, used to find the areas nearest to a location. Distances are measured
+ * in the same way as {@link Area#getDistanceTo(double, double)}.
+ *
+ * The extent of the grid is fixed on construction from the areas that may later be added. Adding and removing an area
+ * only touches the cell containing its centroid, and a nearest neighbour search examines rings of cells outwards from
+ * the location until no closer area can remain.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class AreaGrid implements Serializable {
+
+    private static final int AREAS_PER_CELL = 4;
+    private static final double MINIMUM_CELL_SIZE = 1E-6;
+
+    private final double minLat;
+    private final double minLon;
+    private final double cellSize;
+
+    private final int rows;
+    private final int columns;
+
+    private final List<List<Area>> cells;
+    private int size = 0;
+
+    /**
+     * Creates an empty grid covering the centroids of the given areas.
+     *
+     * @param extent the areas that may be added to the grid
+     */
+    public AreaGrid(final Collection<Area> extent) {
+
+        double minLat = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE;
+        double maxLon = -Double.MAX_VALUE;
+
+        for (final Area area : extent) {
+
+            final Coords centroid = area.getCentriod();
+
+            minLat = Math.min(minLat, centroid.lat);
+            maxLat = Math.max(maxLat, centroid.lat);
+            minLon = Math.min(minLon, centroid.lon);
+            maxLon = Math.max(maxLon, centroid.lon);
+        }
+
+        if (extent.isEmpty()) {
+            minLat = maxLat = minLon = maxLon = 0;
+        }
+
+        final double latSpan = maxLat - minLat;
+        final double lonSpan = maxLon - minLon;
+
+        this.minLat = minLat;
+        this.minLon = minLon;
+
+        final int numberOfAreas = Math.max(1, extent.size());
+        double size = Math.sqrt(latSpan * lonSpan * AREAS_PER_CELL / numberOfAreas);
+
+        if (size == 0) {
+            // all centroids lie on a line of latitude or longitude
+            size = Math.max(latSpan, lonSpan) * AREAS_PER_CELL / numberOfAreas;
+        }
+
+        cellSize = Math.max(MINIMUM_CELL_SIZE, size);
+
+        rows = (int) Math.min(Integer.MAX_VALUE / 2, latSpan / cellSize) + 1;
+        columns = (int) Math.min(Integer.MAX_VALUE / 2 / rows, lonSpan / cellSize) + 1;
+
+        cells = new ArrayList<>();
+        for (int i = 0; i < rows * columns; i++) {
+            cells.add(null);
+        }
+    }
+
+    /**
+     * Adds an area to the grid, if not already present.
+     *
+     * @param area an area from the extent given on construction
+     */
+    public void add(final Area area) {
+
+        final int cell = cellOf(area);
+        List<Area> areas = cells.get(cell);
+
+        if (areas == null) {
+            areas = new ArrayList<>(AREAS_PER_CELL);
+            cells.set(cell, areas);
+        }
+
+        if (!areas.contains(area)) {
+            areas.add(area);
+            size++;
+        }
+    }
+
+    /**
+     * Removes an area from the grid, if present.
+     *
+     * @param area the area to remove
+     */
+    public void remove(final Area area) {
+
+        final List<Area> areas = cells.get(cellOf(area));
+
+        if (areas != null && areas.remove(area)) {
+            size--;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the area in the grid whose centroid is nearest to the given location.
+     *
+     * @param lat the latitude of the location
+     * @param lon the longitude of the location
+     * @return the nearest area, or null if the grid is empty
+     */
+    public Area nearest(final double lat, final double lon) {
+
+        final Area[] nearest = new Area[1];
+        return search(lat, lon, nearest, new double[1]) == 0 ? null : nearest[0];
+    }
+
+    /**
+     * Finds the areas in the grid whose centroids are nearest to the given location.
+     *
+     * @param lat the latitude of the location
+     * @param lon the longitude of the location
+     * @param k the number of areas to find
+     * @return up to k areas, nearest first
+     */
+    public List<Area> nearest(final double lat, final double lon, final int k) {
+
+        if (k <= 0) return new ArrayList<>();
+
+        final Area[] nearest = new Area[k];
+        final int found = search(lat, lon, nearest, new double[k]);
+
+        return new ArrayList<>(Arrays.asList(nearest).subList(0, found));
+    }
+
+    private int search(final double lat, final double lon, final Area[] nearest, final double[] distances) {
+
+        final int k = nearest.length;
+        int found = 0;
+
+        if (size == 0) return found;
+
+        final int row = (int) Math.floor((lat - minLat) / cellSize);
+        final int column = (int) Math.floor((lon - minLon) / cellSize);
+
+        final int maxRing = Math.max(Math.max(Math.abs(row), Math.abs(rows - 1 - row)), Math.max(Math.abs(column), Math.abs(columns - 1 - column)));
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+
+            // Every cell in this ring is at least (ring - 1) cells away from the location
+            if (found == k && distances[k - 1] <= (ring - 1) * cellSize) break;
+
+            for (int r = row - ring; r <= row + ring; r++) {
+
+                if (r < 0 || r >= rows) continue;
+
+                final boolean edgeRow = r == row - ring || r == row + ring;
+                final int step = edgeRow ? 1 : 2 * ring;
+
+                for (int c = column - ring; c <= column + ring; c += Math.max(1, step)) {
+
+                    if (c >= 0 && c < columns) {
+                        found = offerCell(cells.get(r * columns + c), lat, lon, nearest, distances, found);
+                    }
+                }
+            }
+        }
+
+        return found;
+    }
+
+    private static int offerCell(final List<Area> areas, final double lat, final double lon, final Area[] nearest, final double[] distances, int found) {
+
+        if (areas == null) return found;
+
+        final int k = nearest.length;
+
+        for (final Area area : areas) {
+
+            final double distance = area.getDistanceTo(lat, lon);
+
+            if (found < k || distance < distances[k - 1]) {
+
+                int position = found < k ? found++ : k - 1;
+
+                // insertion sort into place, dropping the furthest area if already full
+                while (position > 0 && distances[position - 1] > distance) {
+                    nearest[position] = nearest[position - 1];
+                    distances[position] = distances[position - 1];
+                    position--;
+                }
+
+                nearest[position] = area;
+                distances[position] = distance;
+            }
+        }
+
+        return found;
+    }
+
+    private int cellOf(final Area area) {
+
+        final Coords centroid = area.getCentriod();
+
+        final int row = (int) Math.floor((centroid.lat - minLat) / cellSize);
+        final int column = (int) Math.floor((centroid.lon - minLon) / cellSize);
+
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IllegalArgumentException("Area centroid lies outside of grid: " + centroid);
+        }
+
+        return row * columns + column;
+    }
+}
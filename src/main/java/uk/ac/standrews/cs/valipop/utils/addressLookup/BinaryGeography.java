@@ -0,0 +1,224 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils.addressLookup;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Reads and writes residential geographies in a compact binary form, which is much quicker to load than the JSON
+ * form as nothing needs to be parsed.
+ *
+ * The file starts with a magic number and format version, followed by a table of all the distinct strings used by
+ * the areas. The areas follow as columns, each holding one value for every area in turn: the place ids, centroids,
+ * bounding boxes, numbering offsets, abode limits and OSM way ids, and then the index in the string table of each of
+ * the textual fields. Null strings are held as -1. The file is read through a read-only memory mapping, so the pages
+ * are shared by all the simulations on a machine which load the same geography.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class BinaryGeography {
+
+    public static final String FILE_EXTENSION = ".geog";
+
+    private static final int MAGIC_NUMBER = 0x5650474F;
+    private static final int VERSION = 1;
+
+    private static final int NONE = -1;
+
+    private static final int HAS_BOUNDING_BOX = 1;
+    private static final int HAS_DETAILS = 2;
+    private static final int HAS_CENTROID = 4;
+
+    private static final int LONG_COLUMNS = 4;
+    private static final int DOUBLE_COLUMNS = 6;
+    private static final int STRING_COLUMNS = 10;
+
+    private BinaryGeography() {
+    }
+
+    /**
+     * Returns whether the given geography file is in the binary form, going by its file extension.
+     */
+    public static boolean isBinaryGeography(Path path) {
+        return path.getFileName().toString().endsWith(FILE_EXTENSION);
+    }
+
+    public static void write(Collection<Area> areas, Path target) throws IOException {
+
+        Map<String, Integer> strings = new LinkedHashMap<>();
+
+        for(Area area : areas) {
+            for(String string : stringsOf(area)) {
+                if(string != null) strings.putIfAbsent(string, strings.size());
+            }
+        }
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+
+            out.writeInt(MAGIC_NUMBER);
+            out.writeInt(VERSION);
+
+            out.writeInt(strings.size());
+            for(String string : strings.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(areas.size());
+
+            for(Area area : areas) out.writeLong(area.getPlaceId());
+            for(Area area : areas) out.writeLong(area.getNumberingOffset());
+            for(Area area : areas) out.writeLong(area.getMaximumNumberOfAbodes());
+            for(Area area : areas) out.writeLong(area.getDetails() == null ? 0 : area.getDetails().getOsmWayID());
+
+            for(Area area : areas) out.writeDouble(centroidOf(area) == null ? 0 : centroidOf(area).lat);
+            for(Area area : areas) out.writeDouble(centroidOf(area) == null ? 0 : centroidOf(area).lon);
+            for(Area area : areas) out.writeDouble(area.getBoundingBox() == null ? 0 : area.getBoundingBox().getBottomLeft().lat);
+            for(Area area : areas) out.writeDouble(area.getBoundingBox() == null ? 0 : area.getBoundingBox().getBottomLeft().lon);
+            for(Area area : areas) out.writeDouble(area.getBoundingBox() == null ? 0 : area.getBoundingBox().getTopRight().lat);
+            for(Area area : areas) out.writeDouble(area.getBoundingBox() == null ? 0 : area.getBoundingBox().getTopRight().lon);
+
+            for(int column = 0; column < STRING_COLUMNS; column++) {
+                for(Area area : areas) {
+                    String string = stringsOf(area)[column];
+                    out.writeInt(string == null ? NONE : strings.get(string));
+                }
+            }
+
+            for(Area area : areas) out.writeByte(flagsOf(area));
+        }
+    }
+
+    public static List<Area> read(Path source) throws IOException {
+
+        MappedByteBuffer buffer;
+
+        try(FileChannel channel = FileChannel.open(source)) {
+
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("binary geography " + source + " is too large to map");
+            }
+
+            // the mapping remains valid once the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if(buffer.getInt() != MAGIC_NUMBER) {
+            throw new IOException(source + " is not a binary geography");
+        }
+
+        int version = buffer.getInt();
+        if(version != VERSION) {
+            throw new IOException("binary geography " + source + " has unsupported version " + version);
+        }
+
+        String[] strings = new String[buffer.getInt()];
+        for(int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int numberOfAreas = buffer.getInt();
+
+        int longColumns = buffer.position();
+        int doubleColumns = longColumns + LONG_COLUMNS * numberOfAreas * Long.BYTES;
+        int stringColumns = doubleColumns + DOUBLE_COLUMNS * numberOfAreas * Double.BYTES;
+        int flagColumn = stringColumns + STRING_COLUMNS * numberOfAreas * Integer.BYTES;
+
+        if(flagColumn + numberOfAreas != buffer.limit()) {
+            throw new IOException("binary geography " + source + " is truncated or corrupt");
+        }
+
+        List<Area> areas = new ArrayList<>(numberOfAreas);
+
+        for(int i = 0; i < numberOfAreas; i++) {
+
+            long[] longs = new long[LONG_COLUMNS];
+            for(int column = 0; column < LONG_COLUMNS; column++) {
+                longs[column] = buffer.getLong(longColumns + (column * numberOfAreas + i) * Long.BYTES);
+            }
+
+            double[] doubles = new double[DOUBLE_COLUMNS];
+            for(int column = 0; column < DOUBLE_COLUMNS; column++) {
+                doubles[column] = buffer.getDouble(doubleColumns + (column * numberOfAreas + i) * Double.BYTES);
+            }
+
+            String[] values = new String[STRING_COLUMNS];
+            for(int column = 0; column < STRING_COLUMNS; column++) {
+                int index = buffer.getInt(stringColumns + (column * numberOfAreas + i) * Integer.BYTES);
+                values[column] = index == NONE ? null : strings[index];
+            }
+
+            int flags = buffer.get(flagColumn + i);
+
+            Place details = null;
+            if((flags & HAS_DETAILS) != 0) {
+                Coords centroid = (flags & HAS_CENTROID) != 0 ? new Coords(doubles[0], doubles[1]) : null;
+                details = Place.restore(values[7], values[8], values[9], longs[3], centroid);
+            }
+
+            BoundingBox boundingBox = null;
+            if((flags & HAS_BOUNDING_BOX) != 0) {
+                boundingBox = new BoundingBox();
+                boundingBox.setBottomLeft(new Coords(doubles[2], doubles[3]));
+                boundingBox.setTopRight(new Coords(doubles[4], doubles[5]));
+            }
+
+            areas.add(Area.restore(longs[0], values[0], values[1], values[2], values[3], values[4], values[5], values[6],
+                    boundingBox, details, longs[1], longs[2]));
+        }
+
+        return areas;
+    }
+
+    // in the order of the string columns
+    private static String[] stringsOf(Area area) {
+
+        Place details = area.getDetails();
+
+        return new String[]{area.getError(), area.getRoad(), area.getSuburb(), area.getTown(), area.getCounty(),
+                area.getState(), area.getPostcode(),
+                details == null ? null : details.getCategory(),
+                details == null ? null : details.getType(),
+                details == null ? null : details.getOsmType()};
+    }
+
+    private static Coords centroidOf(Area area) {
+        return area.getDetails() == null ? null : area.getDetails().getCentroid();
+    }
+
+    private static int flagsOf(Area area) {
+
+        int flags = 0;
+
+        if(area.getBoundingBox() != null) flags |= HAS_BOUNDING_BOX;
+        if(area.getDetails() != null) flags |= HAS_DETAILS;
+        if(centroidOf(area) != null) flags |= HAS_CENTROID;
+
+        return flags;
+    }
+}
@@ -4,12 +4,14 @@ import org.apache.commons.math3.distribution.PoissonDistribution;
 import org.apache.commons.math3.distribution.UniformRealDistribution;
 import org.apache.commons.math3.random.RandomGenerator;
 
+import java.io.Serializable;
+
 /**
  * Selects a random distance (with hard-coded parameters).
  * 
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class DistanceSelector {
+public class DistanceSelector implements Serializable {
 
     RandomGenerator random;
 
@@ -2,6 +2,7 @@ package uk.ac.standrews.cs.valipop.utils.addressLookup;
 
 import org.apache.commons.math3.random.RandomGenerator;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 
 /**
@@ -9,7 +10,7 @@ import java.util.ArrayList;
  * 
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class ForeignGeography {
+public class ForeignGeography implements Serializable {
 
     private String[] countries = {"Afghanistan", "Albania", "Algeria", "Andorra", "Angola", "Antigua and Barbuda", "Argentina",
             "Armenia", "Australia", "Austria", "Azerbaijan", "The Bahamas", "Bahrain", "Bangladesh", "Barbados",
@@ -2,17 +2,29 @@ package uk.ac.standrews.cs.valipop.utils.addressLookup;
 
 import org.apache.commons.math3.random.RandomGenerator;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.*;
 
 /**
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class Geography {
+public class Geography implements Serializable {
 
     private final List<Area> residentialGeography;
 
     private TreeMap<Double, TreeMap<Double, Area>> areaLookup = new TreeMap<>();
 
+    // Used in place of areaLookup when a grid index is selected
+    private final AreaGrid areaGrid;
+
+    // The areas which are not full, with the position of each in the list so that an area can be removed by swapping
+    // the last area into its place
+    private final List<Area> areasWithVacancies = new ArrayList<>();
+    private final Map<Area, Integer> vacancyPositions = new IdentityHashMap<>();
+
     private final int HISTORY_PRECISION = 4;
     private final double PRECISION_ADJUSTMENT = Math.pow(10, HISTORY_PRECISION);
 
@@ -31,6 +43,10 @@ public class Geography {
 
 
     public Geography(List<Area> residentialGeography, RandomGenerator random, double overSizedGeographyFactor) {
+        this(residentialGeography, random, overSizedGeographyFactor, GeographyIndexType.TREE_MAP);
+    }
+
+    public Geography(List<Area> residentialGeography, RandomGenerator random, double overSizedGeographyFactor, GeographyIndexType indexType) {
         this.rand = random;
 
         ArrayList<Area> newAllAreasList = new ArrayList<>();
@@ -44,34 +60,69 @@ public class Geography {
                     area.setNumberingOffset((int) Math.ceil(area.getNumberingOffset() * overSizedGeographyFactor));
                     area.setMaximumNumberOfAbodes((int) Math.ceil(area.getMaximumNumberOfAbodes() * overSizedGeographyFactor));
 
-                    addToLookup(area);
                     newAllAreasList.add(area);
                 }
 
             }
         }
         this.residentialGeography = newAllAreasList;
+
+        areaGrid = indexType == GeographyIndexType.GRID ? new AreaGrid(newAllAreasList) : null;
+
+        for(Area area : newAllAreasList) {
+            addToLookup(area);
+            addToVacancies(area);
+        }
+    }
+
+    // The addresses of an area are not part of its serialised form, which is also used to cache areas before any
+    // addresses are made, so they are written for each area here
+    private void writeObject(ObjectOutputStream out) throws IOException {
+
+        out.defaultWriteObject();
+
+        for(Area area : residentialGeography) {
+            out.writeObject(area.getAddresses());
+            out.writeObject(area.getVacancies());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+
+        in.defaultReadObject();
+
+        for(Area area : residentialGeography) {
+            area.restoreAddresses((ArrayList<Address>) in.readObject(), (BitSet) in.readObject());
+        }
     }
 
     public void updated(Address address) {
         if(address.getArea().isFull()) {
             removeFromLookup(address.getArea());
+            removeFromVacancies(address.getArea());
         } else {
             addToLookup(address.getArea());
+            addToVacancies(address.getArea());
         }
     }
 
     public Address getRandomEmptyAddress() {
 
-        List<Area> allAreas = residentialGeography;
+        Address address = residentialGeography.get(rand.nextInt(residentialGeography.size())).getFreeAddress(this);
 
-        Address area = null;
+        if(address == null) {
 
-        do {
-            area = allAreas.get(rand.nextInt(allAreas.size())).getFreeAddress(this);
-        } while (area == null);
+            if(areasWithVacancies.isEmpty()) {
+                throw new IllegalStateException("no residential area has a vacant address");
+            }
+
+            // A first pick from all areas followed by a pick from those with vacancies chooses each area with
+            // vacancies equally, as repeatedly picking from all areas until one has a vacancy did
+            address = areasWithVacancies.get(rand.nextInt(areasWithVacancies.size())).getFreeAddress(this);
+        }
 
-        return area;
+        return address;
 
     }
 
@@ -127,6 +178,10 @@ public class Geography {
 
     public Address getNearestEmptyAddress(double lat, double lon) {
 
+        if(areaGrid != null) {
+            return getNearestEmptyAddressFromGrid(lat, lon);
+        }
+
         List<Map.Entry<Double, Area>> list = new ArrayList<>();
 
         double flooredLon = lon;
@@ -224,6 +279,20 @@ public class Geography {
 
     }
 
+    private Address getNearestEmptyAddressFromGrid(double lat, double lon) {
+
+        // areas are removed from the grid as they fill, so the nearest area always has a free address
+        Area area = areaGrid.nearest(lat, lon);
+
+        if(area == null) {
+            System.out.println("Something seems broke - cannot find the 'nearest' address to below location: ");
+            System.out.println(lat + ", " + lon);
+            return null;
+        }
+
+        return area.getFreeAddress(this);
+    }
+
     private void addToList(List<Map.Entry<Double, Area>> list, Map.Entry<Double, Area> toAdd) {
 
         if(toAdd != null) {
@@ -238,6 +307,12 @@ public class Geography {
     }
 
     private void addToLookup(Area area) {
+
+        if(areaGrid != null) {
+            areaGrid.add(area);
+            return;
+        }
+
         Coords centroid = area.getCentriod();
         addToLookup(area, centroid.lat, centroid.lon);
     }
@@ -247,8 +322,35 @@ public class Geography {
                 .put(round(lon), area);
     }
 
+    private void addToVacancies(Area area) {
+
+        if(!vacancyPositions.containsKey(area)) {
+            vacancyPositions.put(area, areasWithVacancies.size());
+            areasWithVacancies.add(area);
+        }
+    }
+
+    private void removeFromVacancies(Area area) {
+
+        Integer position = vacancyPositions.remove(area);
+
+        if(position != null) {
+            Area last = areasWithVacancies.remove(areasWithVacancies.size() - 1);
+
+            if(last != area) {
+                areasWithVacancies.set(position, last);
+                vacancyPositions.put(last, position);
+            }
+        }
+    }
+
     private void removeFromLookup(Area area) {
 
+        if(areaGrid != null) {
+            areaGrid.remove(area);
+            return;
+        }
+
         Map<Double, Area> index = areaLookup.get(round(area.getCentriod().lat));
         if(index != null) {
             index.remove(round(area.getCentriod().lon), area);
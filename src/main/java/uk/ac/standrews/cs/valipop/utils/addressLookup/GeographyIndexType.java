@@ -0,0 +1,31 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils.addressLookup;
+
+/**
+ * The structure {@link Geography} uses to find the areas with vacant addresses nearest to a location.
+ *
+ * TREE_MAP looks up the neighbouring areas in a map keyed on rounded latitude and longitude, and picks the nearest of
+ * those. GRID holds the areas in an {@link AreaGrid}, which finds the nearest area exactly.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public enum GeographyIndexType {
+
+    TREE_MAP,
+    GRID
+}
@@ -42,6 +42,20 @@ public class Place implements Serializable {
     @JsonProperty("osm_id")
     private long osmWayID;
 
+    // Used when reading a binary geography
+    static Place restore(String category, String type, String osmType, long osmWayID, Coords centroid) {
+
+        Place place = new Place();
+
+        place.category = category;
+        place.type = type;
+        place.osm_type = osmType;
+        place.osmWayID = osmWayID;
+        place.centroid = centroid;
+
+        return place;
+    }
+
     public static Place makePlace(String jsonInput) throws IOException {
         Place place = mapper.readValue(jsonInput, Place.class);
         return place;
@@ -59,6 +73,10 @@ public class Place implements Serializable {
         return centroid;
     }
 
+    public String getOsmType() {
+        return osm_type;
+    }
+
     public long getOsmWayID() {
         return osmWayID;
     }
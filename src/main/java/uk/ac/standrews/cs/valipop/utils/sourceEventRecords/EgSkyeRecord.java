@@ -1,6 +1,5 @@
 package uk.ac.standrews.cs.valipop.utils.sourceEventRecords;
 
-import uk.ac.standrews.cs.utilities.MappedIterator;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
 import uk.ac.standrews.cs.valipop.utils.sourceEventRecords.egSkyeFormat.EGSkyeBirthSourceRecord;
@@ -15,17 +14,17 @@ public class EgSkyeRecord extends Record {
     }
 
     @Override
-    protected Iterable<SourceRecord> toBirthRecords(Iterable<IPerson> people) {
-        return () -> new MappedIterator<>(people.iterator(), EGSkyeBirthSourceRecord::new);
+    protected SourceRecord toBirthRecord(IPerson person) {
+        return new EGSkyeBirthSourceRecord(person);
     }
 
     @Override
-    protected Iterable<SourceRecord> toDeathRecords(Iterable<IPerson> people) {
-        return () -> new MappedIterator<>(people.iterator(), EGSkyeDeathSourceRecord::new);
+    protected SourceRecord toDeathRecord(IPerson person) {
+        return new EGSkyeDeathSourceRecord(person);
     }
 
     @Override
-    protected Iterable<SourceRecord> toMarriageRecords(Iterable<IPartnership> partnerships) {
-        return () -> new MappedIterator<>(partnerships.iterator(), EGSkyeMarriageSourceRecord::new);
+    protected SourceRecord toMarriageRecord(IPartnership partnership) {
+        return new EGSkyeMarriageSourceRecord(partnership);
     }
 }
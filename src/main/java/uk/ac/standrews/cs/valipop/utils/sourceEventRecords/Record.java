@@ -6,6 +6,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 
 import uk.ac.standrews.cs.utilities.FileManipulation;
+import uk.ac.standrews.cs.utilities.MappedIterator;
 import uk.ac.standrews.cs.utilities.TimeManipulation;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
@@ -13,9 +14,9 @@ import uk.ac.standrews.cs.valipop.utils.sourceEventRecords.oldDSformat.SourceRec
 import uk.ac.standrews.cs.utilities.archive.Diagnostic;
 
 abstract public class Record {
-  private static final String BIRTH_RECORDS_PATH = "birth_records.csv";
-  private static final String DEATH_RECORDS_PATH = "death_records.csv";
-  private static final String MARRIAGE_RECORDS_PATH = "marriage_records.csv";
+  static final String BIRTH_RECORDS_PATH = "birth_records.csv";
+  static final String DEATH_RECORDS_PATH = "death_records.csv";
+  static final String MARRIAGE_RECORDS_PATH = "marriage_records.csv";
 
   // TODO allow output file paths to be configured, add -i option to output to console
 
@@ -27,9 +28,21 @@ abstract public class Record {
     this.partnerships = partnerships;
   }
 
-  abstract protected Iterable<? extends SourceRecord> toBirthRecords(Iterable<IPerson> people);
-  abstract protected Iterable<? extends SourceRecord> toDeathRecords(Iterable<IPerson> people);
-  abstract protected Iterable<? extends SourceRecord> toMarriageRecords(Iterable<IPartnership> partnerships);
+  abstract protected SourceRecord toBirthRecord(IPerson person);
+  abstract protected SourceRecord toDeathRecord(IPerson person);
+  abstract protected SourceRecord toMarriageRecord(IPartnership partnership);
+
+  protected Iterable<SourceRecord> toBirthRecords(Iterable<IPerson> people) {
+    return () -> new MappedIterator<>(people.iterator(), this::toBirthRecord);
+  }
+
+  protected Iterable<SourceRecord> toDeathRecords(Iterable<IPerson> people) {
+    return () -> new MappedIterator<>(people.iterator(), this::toDeathRecord);
+  }
+
+  protected Iterable<SourceRecord> toMarriageRecords(Iterable<IPartnership> partnerships) {
+    return () -> new MappedIterator<>(partnerships.iterator(), this::toMarriageRecord);
+  }
 
   public void exportRecords(Path recordDir) throws IOException {
 
@@ -5,8 +5,10 @@ import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
 import uk.ac.standrews.cs.valipop.simulationEntities.PopulationNavigation;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
 
@@ -21,26 +23,7 @@ public class RecordGenerationFactory {
         Iterable<IPerson> filteredPeople = filterPeople(people, startDate);
         Iterable<IPartnership> filteredPartnerships = filterPartnerships(partneships, startDate);
 
-        Record record = null;
-
-        switch(recordFormat) {
-            case DS:
-                record = new DsRecord(filteredPeople, filteredPartnerships);
-                break;
-            case EG_SKYE:
-                record = new EgSkyeRecord(filteredPeople, filteredPartnerships);
-                break;
-            case TD:
-                record = new TDRecord(filteredPeople, filteredPartnerships);
-                break;
-            case VIS_PROCESSING:
-                record = new SimplifiedRecord(filteredPeople, filteredPartnerships);
-                break;
-            case NONE:
-                break;
-            default:
-                break;
-        }
+        Record record = createRecord(recordFormat, filteredPeople, filteredPartnerships);
 
         if (record == null) {
             return;
@@ -57,16 +40,60 @@ public class RecordGenerationFactory {
         }
     }
 
+    /**
+     * Creates a writer which writes the records of the given format to the given directory as the simulation produces
+     * them, rather than from the complete population once the simulation has finished.
+     *
+     * @return the writer, or null if the format produces no records
+     */
+    public static StreamingRecordWriter streamRecords(RecordFormat recordFormat, Path recordsOutputDir, LocalDate startDate) throws IOException {
+
+        Record record = createRecord(recordFormat, Collections.emptyList(), Collections.emptyList());
+
+        if (record == null) {
+            return null;
+        }
+
+        log.info("OBDModel --- Streaming records");
+
+        return new StreamingRecordWriter(record, recordsOutputDir, startDate);
+    }
+
+    private static Record createRecord(RecordFormat recordFormat, Iterable<IPerson> people, Iterable<IPartnership> partnerships) {
+
+        switch(recordFormat) {
+            case DS:
+                return new DsRecord(people, partnerships);
+            case EG_SKYE:
+                return new EgSkyeRecord(people, partnerships);
+            case TD:
+                return new TDRecord(people, partnerships);
+            case VIS_PROCESSING:
+                return new SimplifiedRecord(people, partnerships);
+            case NONE:
+            default:
+                return null;
+        }
+    }
+
+    static boolean hasRecordedDeath(IPerson person, LocalDate startDate) {
+        return person.getDeathDate() != null && PopulationNavigation.presentOnDate(person, person.getDeathDate()) && person.getDeathDate() != null && startDate.isBefore( person.getDeathDate());
+    }
+
+    static boolean hasRecordedMarriage(IPartnership partnership, LocalDate startDate) {
+        return partnership.getMarriageDate() != null && PopulationNavigation.presentOnDate(partnership.getMalePartner(), partnership.getMarriageDate()) && PopulationNavigation.presentOnDate(partnership.getFemalePartner(), partnership.getMarriageDate()) && startDate.isBefore( partnership.getMarriageDate());
+    }
+
     private static Iterable<IPerson> filterPeople(Iterable<IPerson> people, LocalDate startDate) {
         return () -> {
-            Predicate<IPerson> isPresent = person -> person.getDeathDate() != null && PopulationNavigation.presentOnDate(person, person.getDeathDate()) && person.getDeathDate() != null && startDate.isBefore( person.getDeathDate());
+            Predicate<IPerson> isPresent = person -> hasRecordedDeath(person, startDate);
             return new FilteredIterator<>(people.iterator(), isPresent);
         };
     }
 
     private static Iterable<IPartnership> filterPartnerships(Iterable<IPartnership> partneships, LocalDate startDate) {
         return () -> {
-            Predicate<IPartnership> isPresent = partnership -> partnership.getMarriageDate() != null && PopulationNavigation.presentOnDate(partnership.getMalePartner(), partnership.getMarriageDate()) && PopulationNavigation.presentOnDate(partnership.getFemalePartner(), partnership.getMarriageDate()) && startDate.isBefore( partnership.getMarriageDate());
+            Predicate<IPartnership> isPresent = partnership -> hasRecordedMarriage(partnership, startDate);
 
             return new FilteredIterator<>(partneships.iterator(), isPresent);
         };
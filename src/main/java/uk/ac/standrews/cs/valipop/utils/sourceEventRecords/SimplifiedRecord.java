@@ -1,6 +1,5 @@
 package uk.ac.standrews.cs.valipop.utils.sourceEventRecords;
 
-import uk.ac.standrews.cs.utilities.MappedIterator;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
 import uk.ac.standrews.cs.valipop.utils.sourceEventRecords.oldDSformat.SourceRecord;
@@ -15,18 +14,18 @@ public class SimplifiedRecord extends Record {
     }
 
     @Override
-    protected Iterable<SourceRecord> toBirthRecords(Iterable<IPerson> people) {
-        return () -> new MappedIterator<>(people.iterator(), SimplifiedBirthSourceRecord::new);
+    protected SourceRecord toBirthRecord(IPerson person) {
+        return new SimplifiedBirthSourceRecord(person);
     }
 
     @Override
-    protected Iterable<SourceRecord> toDeathRecords(Iterable<IPerson> people) {
-        return () -> new MappedIterator<>(people.iterator(), SimplifiedDeathSourceRecord::new);
+    protected SourceRecord toDeathRecord(IPerson person) {
+        return new SimplifiedDeathSourceRecord(person);
     }
 
     @Override
-    protected Iterable<SourceRecord> toMarriageRecords(Iterable<IPartnership> partnerships) {
-        return () -> new MappedIterator<>(partnerships.iterator(), SimplifiedMarriageSourceRecord::new);
+    protected SourceRecord toMarriageRecord(IPartnership partnership) {
+        return new SimplifiedMarriageSourceRecord(partnership);
     }
 }
 
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils.sourceEventRecords;
+
+import uk.ac.standrews.cs.utilities.FileManipulation;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+import uk.ac.standrews.cs.valipop.simulationEntities.PopulationNavigation;
+import uk.ac.standrews.cs.valipop.utils.sourceEventRecords.oldDSformat.SourceRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes birth, death and marriage records while the simulation is running, instead of from the complete population
+ * once it has finished.
+ *
+ * The simulation registers each death and marriage as it occurs. The records for it are written once nothing they
+ * are made from can change: the partnerships of the people involved, and of their parents, must have ended or moved
+ * on, and any separation decided for them must have been resolved. Working out the separation date of an unresolved
+ * partnership early would also change the simulation, as that date is chosen lazily from the simulation's random
+ * generator. Anything still unsettled is written when the writer is closed at the end of the simulation.
+ *
+ * The records written are the same as those output for the complete population, but the rows appear in the order in
+ * which they were settled.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class StreamingRecordWriter implements Closeable {
+
+    private final Record record;
+    private final LocalDate startDate;
+
+    private final RecordFile birthRecords;
+    private final RecordFile deathRecords;
+    private final RecordFile marriageRecords;
+
+    private List<IPerson> pendingDeaths = new ArrayList<>();
+    private List<IPartnership> pendingMarriages = new ArrayList<>();
+
+    private boolean failed = false;
+
+    StreamingRecordWriter(final Record record, final Path recordDir, final LocalDate startDate) throws IOException {
+
+        this.record = record;
+        this.startDate = startDate;
+
+        birthRecords = new RecordFile(recordDir.resolve(Record.BIRTH_RECORDS_PATH));
+        deathRecords = new RecordFile(recordDir.resolve(Record.DEATH_RECORDS_PATH));
+        marriageRecords = new RecordFile(recordDir.resolve(Record.MARRIAGE_RECORDS_PATH));
+    }
+
+    /**
+     * Registers a person who has died, whose birth and death records are written once they have settled.
+     *
+     * @param person the person, with their death date set
+     */
+    public void personDied(final IPerson person) {
+
+        if (!failed) pendingDeaths.add(person);
+    }
+
+    /**
+     * Registers a partnership which has had a marriage date set, whose marriage record is written once it has settled.
+     *
+     * @param partnership the partnership
+     */
+    public void marriageOccurred(final IPartnership partnership) {
+
+        if (!failed) pendingMarriages.add(partnership);
+    }
+
+    /**
+     * Writes the records for all registered events which can no longer change. If a record cannot be generated the
+     * failure is logged and no further records are written, as when outputting the records for the complete population.
+     */
+    public void writeSettledRecords() {
+
+        try {
+            writeRecords(false);
+
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Writes the records for all remaining registered events and closes the record files. This should be called once
+     * the simulation has finished and all partnerships have been finalised.
+     */
+    @Override
+    public void close() throws IOException {
+
+        try {
+            writeRecords(true);
+
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+
+        birthRecords.close();
+        deathRecords.close();
+        marriageRecords.close();
+    }
+
+    private void writeRecords(final boolean all) {
+
+        final List<IPerson> unsettledDeaths = new ArrayList<>();
+
+        for (final IPerson person : pendingDeaths) {
+            if (all || settled(person)) {
+                writeDeath(person);
+            } else {
+                unsettledDeaths.add(person);
+            }
+        }
+
+        final List<IPartnership> unsettledMarriages = new ArrayList<>();
+
+        for (final IPartnership partnership : pendingMarriages) {
+            if (all || settled(partnership.getMalePartner()) && settled(partnership.getFemalePartner())) {
+                writeMarriage(partnership);
+            } else {
+                unsettledMarriages.add(partnership);
+            }
+        }
+
+        pendingDeaths = unsettledDeaths;
+        pendingMarriages = unsettledMarriages;
+    }
+
+    private void fail(final RuntimeException e) {
+
+        RecordGenerationFactory.log.info("Record generation failed");
+        e.printStackTrace();
+        RecordGenerationFactory.log.info(e.getMessage());
+
+        failed = true;
+        pendingDeaths.clear();
+        pendingMarriages.clear();
+    }
+
+    private void writeDeath(final IPerson person) {
+
+        if (RecordGenerationFactory.hasRecordedDeath(person, startDate)) {
+            birthRecords.write(record.toBirthRecord(person));
+            deathRecords.write(record.toDeathRecord(person));
+        }
+    }
+
+    private void writeMarriage(final IPartnership partnership) {
+
+        if (RecordGenerationFactory.hasRecordedMarriage(partnership, startDate)) {
+            marriageRecords.write(record.toMarriageRecord(partnership));
+        }
+    }
+
+    private static boolean settled(final IPerson person) {
+
+        for (final IPartnership partnership : person.getPartnerships()) {
+            if (!settled(partnership)) return false;
+        }
+
+        return person.getParents() == null || settled(person.getParents());
+    }
+
+    private static boolean settled(final IPartnership partnership) {
+
+        if (partnership.getEarliestPossibleSeparationDate() != null && !partnership.isFinalised()) {
+            // separation date not yet chosen by the simulation
+            return false;
+        }
+
+        final IPerson mother = partnership.getFemalePartner();
+        final IPerson father = partnership.getMalePartner();
+
+        if (left(mother) || left(father)) {
+            return true;
+        }
+
+        // further children, a marriage or a separation can only follow from the mother's most recent partnership
+        final IPerson lastChild = PopulationNavigation.getLastChild(mother);
+        return lastChild == null || lastChild.getParents() != partnership;
+    }
+
+    private static boolean left(final IPerson person) {
+
+        return person.getDeathDate() != null || person.hasEmigrated() || person.isPhantom();
+    }
+
+    private static class RecordFile implements Closeable {
+
+        private final PrintWriter writer;
+        private boolean first = true;
+
+        RecordFile(final Path recordPath) throws IOException {
+
+            FileManipulation.createParentDirectoryIfDoesNotExist(recordPath);
+            writer = new PrintWriter(Files.newBufferedWriter(recordPath, FileManipulation.FILE_CHARSET));
+        }
+
+        void write(final SourceRecord record) {
+
+            if (first) {
+                writer.println(record.getHeaders());
+                first = false;
+            }
+
+            writer.println(record);
+        }
+
+        @Override
+        public void close() {
+            writer.close();
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package uk.ac.standrews.cs.valipop.utils.sourceEventRecords;
 
-import uk.ac.standrews.cs.utilities.MappedIterator;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
 import uk.ac.standrews.cs.valipop.utils.sourceEventRecords.oldDSformat.SourceRecord;
@@ -15,17 +14,17 @@ public class TDRecord extends Record {
     }
 
     @Override
-    protected Iterable<SourceRecord> toBirthRecords(Iterable<IPerson> people) {
-        return () -> new MappedIterator<>(people.iterator(), TDBirthSourceRecord::new);
+    protected SourceRecord toBirthRecord(IPerson person) {
+        return new TDBirthSourceRecord(person);
     }
 
     @Override
-    protected Iterable<SourceRecord> toDeathRecords(Iterable<IPerson> people) {
-        return () -> new MappedIterator<>(people.iterator(), TDDeathSourceRecord::new);
+    protected SourceRecord toDeathRecord(IPerson person) {
+        return new TDDeathSourceRecord(person);
     }
 
     @Override
-    protected Iterable<SourceRecord> toMarriageRecords(Iterable<IPartnership> partnerships) {
-        return () -> new MappedIterator<>(partnerships.iterator(), TDMarriageSourceRecord::new);
+    protected SourceRecord toMarriageRecord(IPartnership partnership) {
+        return new TDMarriageSourceRecord(partnership);
     }
 }
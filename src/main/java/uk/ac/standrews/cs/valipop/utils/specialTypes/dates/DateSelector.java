@@ -18,6 +18,7 @@ package uk.ac.standrews.cs.valipop.utils.specialTypes.dates;
 
 import org.apache.commons.math3.random.RandomGenerator;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.Period;
 
@@ -28,7 +29,7 @@ import static java.time.temporal.ChronoUnit.DAYS;
  * 
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class DateSelector {
+public class DateSelector implements Serializable {
 
     final RandomGenerator random;
 
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import uk.ac.standrews.cs.valipop.utils.CollectionUtils;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A labelled value set over a fixed set of integer range labels, holding its values in a primitive array indexed by
+ * the rows of an {@link IntegerRangeIndex}. The index is immutable and may be shared by many sets, in which case
+ * operations between them work row by row without looking up labels. The operations give the same results as those
+ * of the map backed sets, and in-place variants are provided for loops which would otherwise create a new set on
+ * every pass.
+ *
+ * The labels cannot be changed once the set is made, so values can only be given to labels in the index and labels
+ * cannot be removed. {@link #getMap()} returns a copy of the set.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public abstract class AbstractIntegerRangeArraySet<V extends Number> implements OperableLabelledValueSet<IntegerRange, V>, Serializable {
+
+    protected final IntegerRangeIndex labels;
+    protected final RandomGenerator random;
+
+    protected AbstractIntegerRangeArraySet(final IntegerRangeIndex labels, final RandomGenerator random) {
+
+        if (!labels.isNaturallyOrdered()) {
+            throw new IllegalArgumentException("Index rows must be numbered in the natural order of their labels");
+        }
+
+        this.labels = labels;
+        this.random = random;
+    }
+
+    public IntegerRangeIndex getIndex() {
+        return labels;
+    }
+
+    public int size() {
+        return labels.size();
+    }
+
+    protected abstract double doubleValueAt(final int row);
+
+    protected abstract V valueAt(final int row);
+
+    protected abstract void setValueAt(final int row, final V value);
+
+    protected abstract boolean isNonZeroAt(final int row);
+
+    @Override
+    public abstract AbstractIntegerRangeArraySet<V> clone();
+
+    @Override
+    public Map<IntegerRange, V> getMap() {
+
+        final Map<IntegerRange, V> map = new TreeMap<>();
+
+        for (int row = 0; row < labels.size(); row++) {
+            map.put(labels.getLabel(row), valueAt(row));
+        }
+
+        return map;
+    }
+
+    @Override
+    public V getValue(final IntegerRange label) {
+
+        final int row = labels.rowOfLabel(label);
+        return row == IntegerRangeIndex.NOT_COVERED ? null : valueAt(row);
+    }
+
+    @Override
+    public V get(final IntegerRange label) {
+        return getValue(label);
+    }
+
+    @Override
+    public Set<IntegerRange> getLabels() {
+        return labels.getLabels();
+    }
+
+    @Override
+    public void add(final IntegerRange label, final V value) {
+        update(label, value);
+    }
+
+    @Override
+    public void update(final IntegerRange label, final V value) {
+
+        final int row = labels.rowOfLabel(label);
+
+        if (row == IntegerRangeIndex.NOT_COVERED) {
+            throw new UnsupportedOperationException("Labels of an array backed set are fixed - no row for label: " + label);
+        }
+
+        setValueAt(row, value);
+    }
+
+    @Override
+    public V remove(final IntegerRange label) {
+        throw new UnsupportedOperationException("Labels of an array backed set are fixed");
+    }
+
+    @Override
+    public IntegerRangeToDoubleArraySet productOfValuesAndN(final double n) {
+
+        final double[] products = new double[labels.size()];
+
+        for (int row = 0; row < products.length; row++) {
+            products[row] = doubleValueAt(row) * n;
+        }
+
+        return new IntegerRangeToDoubleArraySet(labels, products, random);
+    }
+
+    @Override
+    public IntegerRangeToDoubleArraySet valuesSubtractValues(final LabelledValueSet<IntegerRange, ? extends Number> n) {
+
+        final double[] results = new double[labels.size()];
+
+        for (int row = 0; row < results.length; row++) {
+            results[row] = doubleValueAt(row) - doubleValueOf(n, row);
+        }
+
+        return new IntegerRangeToDoubleArraySet(labels, results, random);
+    }
+
+    @Override
+    public IntegerRangeToDoubleArraySet valuesPlusValues(final LabelledValueSet<IntegerRange, ? extends Number> n) {
+
+        final double[] results = new double[labels.size()];
+
+        for (int row = 0; row < results.length; row++) {
+            results[row] = doubleValueAt(row) + doubleValueOf(n, row);
+        }
+
+        return new IntegerRangeToDoubleArraySet(labels, results, random);
+    }
+
+    @Override
+    public IntegerRangeToIntArraySet floorValues() {
+
+        final int[] values = new int[labels.size()];
+
+        for (int row = 0; row < values.length; row++) {
+            values[row] = (int) Math.floor(doubleValueAt(row));
+        }
+
+        return new IntegerRangeToIntArraySet(labels, values, random);
+    }
+
+    @Override
+    public IntegerRangeToDoubleArraySet reproportion() {
+        return divisionOfValuesByN(getSumOfValues());
+    }
+
+    @Override
+    public IntegerRangeToDoubleArraySet divisionOfValuesByN(final V n) {
+
+        final double[] results = new double[labels.size()];
+
+        for (int row = 0; row < results.length; row++) {
+            results[row] = doubleValueAt(row) / n.doubleValue();
+        }
+
+        return new IntegerRangeToDoubleArraySet(labels, results, random);
+    }
+
+    @Override
+    public IntegerRangeToDoubleArraySet divisionOfValuesByLabels() {
+
+        final double[] results = new double[labels.size()];
+
+        for (int row = 0; row < results.length; row++) {
+            results[row] = doubleValueAt(row) / (double) labels.getLabel(row).getValue();
+        }
+
+        return new IntegerRangeToDoubleArraySet(labels, results, random);
+    }
+
+    @Override
+    public IntegerRangeToDoubleArraySet valuesAddNWhereCorrespondingLabelNegativeInLVS(final double n, final OperableLabelledValueSet<IntegerRange, ? extends Number> lvs) {
+
+        final double[] results = new double[labels.size()];
+
+        for (int row = 0; row < results.length; row++) {
+            results[row] = doubleValueOf(lvs, row) < 0 ? doubleValueAt(row) + n : doubleValueAt(row);
+        }
+
+        return new IntegerRangeToDoubleArraySet(labels, results, random);
+    }
+
+    @Override
+    public int countNegativeValues() {
+
+        int count = 0;
+
+        for (int row = 0; row < labels.size(); row++) {
+            if (doubleValueAt(row) < 0) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    public int countPositiveValues() {
+
+        int count = 0;
+
+        for (int row = 0; row < labels.size(); row++) {
+            if (doubleValueAt(row) > 0) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    public IntegerRange getLabelOfValueWithGreatestRemainder(final Set<IntegerRange> usedLabels) {
+
+        final boolean[] used = new boolean[labels.size()];
+
+        for (int row = 0; row < used.length; row++) {
+            used[row] = usedLabels.contains(labels.getLabel(row));
+        }
+
+        return labels.getLabel(rowOfGreatestRemainder(used, usedLabels.size()));
+    }
+
+    @Override
+    public IntegerRange getLargestLabelOfNonZeroValue() {
+
+        int largestRow = IntegerRangeIndex.NOT_COVERED;
+
+        for (int row = 0; row < labels.size(); row++) {
+
+            final int currentIRLabel = labels.getLabel(row).getValue();
+
+            if (largestRow == IntegerRangeIndex.NOT_COVERED || currentIRLabel > labels.getLabel(largestRow).getValue()) {
+                if (isNonZeroAt(row)) {
+                    largestRow = row;
+                }
+            }
+        }
+
+        if (largestRow == IntegerRangeIndex.NOT_COVERED) {
+            throw new NoSuchElementException("No non zero values in set - set size: " + labels.size());
+        }
+
+        return labels.getLabel(largestRow);
+    }
+
+    @Override
+    public IntegerRange getRandomLabelOfNonZeroValue() {
+
+        // Shuffles the rows as the map backed sets shuffle their labels, so the same random numbers are drawn
+        final List<Integer> rows = new ArrayList<>(labels.size());
+        for (int row = 0; row < labels.size(); row++) {
+            rows.add(row);
+        }
+
+        CollectionUtils.shuffle(rows, random);
+
+        for (final int row : rows) {
+            if (isNonZeroAt(row)) {
+                return labels.getLabel(row);
+            }
+        }
+
+        throw new NoSuchElementException("No non zero values in set - set size: " + labels.size());
+    }
+
+    @Override
+    public IntegerRange smallestLabel() {
+
+        final int row = smallestRow();
+        return row == IntegerRangeIndex.NOT_COVERED ? null : labels.getLabel(row);
+    }
+
+    protected int smallestRow() {
+
+        int minLabelInt = Integer.MAX_VALUE;
+        int minRow = IntegerRangeIndex.NOT_COVERED;
+
+        for (int row = 0; row < labels.size(); row++) {
+            if (labels.getLabel(row).getValue() < minLabelInt) {
+                minRow = row;
+                minLabelInt = labels.getLabel(row).getValue();
+            }
+        }
+
+        return minRow;
+    }
+
+    /**
+     * @param used the rows to pass over, or null if none are to be
+     * @param usedCount the number of labels used, for the exception message
+     * @return the first row of the greatest positive fractional part
+     * @throws NoSuchElementException if no row that is not used has a positive fractional part
+     */
+    protected int rowOfGreatestRemainder(final boolean[] used, final int usedCount) {
+
+        double largestRemainder = 0;
+        int rowOfLargestRemainder = IntegerRangeIndex.NOT_COVERED;
+
+        for (int row = 0; row < labels.size(); row++) {
+
+            if (used == null || !used[row]) {
+                final double remainder = doubleValueAt(row) % 1;
+                if (remainder > largestRemainder) {
+                    largestRemainder = remainder;
+                    rowOfLargestRemainder = row;
+                }
+            }
+        }
+
+        if (rowOfLargestRemainder == IntegerRangeIndex.NOT_COVERED) {
+            throw new NoSuchElementException("No values identifies matching criteria. Labels minus used labels = "
+                    + (labels.size() - usedCount));
+        }
+
+        return rowOfLargestRemainder;
+    }
+
+    /**
+     * @return the value of the given set for the label of the given row of this set, read directly from the array of
+     * the other set if it shares this index
+     */
+    protected double doubleValueOf(final LabelledValueSet<IntegerRange, ? extends Number> other, final int row) {
+
+        if (sharesIndexWith(other)) {
+            return ((AbstractIntegerRangeArraySet<?>) other).doubleValueAt(row);
+        }
+
+        final Number value = other.getValue(labels.getLabel(row));
+        if (value == null) {
+            throw new IncompatibleLabelValueSets("Sets do not contain same labels - mathematical operations not possible", this, other);
+        }
+
+        return value.doubleValue();
+    }
+
+    protected boolean sharesIndexWith(final LabelledValueSet<IntegerRange, ?> other) {
+        return other instanceof AbstractIntegerRangeArraySet && ((AbstractIntegerRangeArraySet<?>) other).labels == labels;
+    }
+}
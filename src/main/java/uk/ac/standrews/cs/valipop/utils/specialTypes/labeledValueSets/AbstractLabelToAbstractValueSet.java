@@ -18,12 +18,13 @@ package uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets;
 
 import org.apache.commons.math3.random.RandomGenerator;
 
+import java.io.Serializable;
 import java.util.*;
 
 /**
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public abstract class AbstractLabelToAbstractValueSet<AL, AV extends Number> implements LabelledValueSet<AL, AV>, Cloneable {
+public abstract class AbstractLabelToAbstractValueSet<AL, AV extends Number> implements LabelledValueSet<AL, AV>, Cloneable, Serializable {
 
     protected Map<AL, AV> map = new TreeMap<>();
     protected final RandomGenerator random;
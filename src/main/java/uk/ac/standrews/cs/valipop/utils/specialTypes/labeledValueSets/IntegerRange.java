@@ -16,6 +16,7 @@
  */
 package uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets;
 
+import java.io.Serializable;
 import java.util.Objects;
 
 /**
@@ -34,7 +35,7 @@ import java.util.Objects;
  * 
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
  */
-public class IntegerRange implements Comparable<IntegerRange> {
+public class IntegerRange implements Comparable<IntegerRange>, Serializable {
 
     boolean plus = false;
     private Integer min = null;
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Resolves integer values to the row of a table labelled by integer ranges. Rows are numbered in the iteration order
+ * of the labels given on construction and a value resolves to the first row whose range contains it, as a scan of the
+ * labels would. Values between the smallest minimum and the largest finite bound of the labels are resolved once on
+ * construction into an array indexed by value, values beyond that (i.e. those falling into an open ended range such
+ * as "85+") are resolved by scanning the labels.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class IntegerRangeIndex implements Serializable {
+
+    public static final int NOT_COVERED = -1;
+
+    // Tables with wider rows than this are left to be resolved by scanning the labels
+    private static final int MAX_DENSE_WIDTH = 1 << 16;
+
+    private final IntegerRange[] labels;
+    private final SortedSet<IntegerRange> labelSet;
+    private final boolean naturallyOrdered;
+
+    private final int firstValue;
+    private final int[] rowsByValue;
+
+    public IntegerRangeIndex(final Collection<IntegerRange> labels) {
+
+        this.labels = labels.toArray(new IntegerRange[0]);
+        labelSet = Collections.unmodifiableSortedSet(new TreeSet<>(labels));
+        naturallyOrdered = isStrictlyAscending(this.labels);
+
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        boolean applicable = this.labels.length > 0;
+
+        for (final IntegerRange label : this.labels) {
+
+            if (label.getMin() == null) {
+                // contains() throws for "na" labels, so leave those tables to the scan to keep that behaviour
+                applicable = false;
+                break;
+            }
+
+            min = Math.min(min, label.getMin());
+            max = Math.max(max, label.getMax());
+        }
+
+        if (applicable && (long) max - min < MAX_DENSE_WIDTH) {
+
+            firstValue = min;
+            rowsByValue = new int[max - min + 1];
+
+            for (int value = min; value <= max; value++) {
+                rowsByValue[value - min] = scan(value);
+            }
+
+        } else {
+            firstValue = 0;
+            rowsByValue = new int[0];
+        }
+    }
+
+    /**
+     * @param value the value to resolve
+     * @return the number of the first row whose label contains the value, or {@link #NOT_COVERED} if none do
+     */
+    public int rowOf(final int value) {
+
+        final int offset = value - firstValue;
+
+        if (offset >= 0 && offset < rowsByValue.length) {
+            return rowsByValue[offset];
+        }
+
+        return scan(value);
+    }
+
+    public IntegerRange getLabel(final int row) {
+        return labels[row];
+    }
+
+    public int size() {
+        return labels.length;
+    }
+
+    /**
+     * @param label the label to find
+     * @return the number of the row labelled by a range comparing equal to the given one, or {@link #NOT_COVERED} if
+     * there is none
+     */
+    public int rowOfLabel(final IntegerRange label) {
+
+        for (int row = 0; row < labels.length; row++) {
+            if (labels[row].compareTo(label) == 0) {
+                return row;
+            }
+        }
+
+        return NOT_COVERED;
+    }
+
+    public SortedSet<IntegerRange> getLabels() {
+        return labelSet;
+    }
+
+    /**
+     * @return true if the rows are numbered in the natural order of their labels with no two labels comparing equal,
+     * as they are when the index is built from the labels of a map backed set
+     */
+    public boolean isNaturallyOrdered() {
+        return naturallyOrdered;
+    }
+
+    private int scan(final int value) {
+
+        for (int row = 0; row < labels.length; row++) {
+            if (labels[row].contains(value)) {
+                return row;
+            }
+        }
+
+        return NOT_COVERED;
+    }
+
+    private static boolean isStrictlyAscending(final IntegerRange[] labels) {
+
+        for (int row = 1; row < labels.length; row++) {
+            if (labels[row - 1].compareTo(labels[row]) >= 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
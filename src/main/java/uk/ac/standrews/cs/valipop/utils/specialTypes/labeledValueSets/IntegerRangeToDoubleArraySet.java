@@ -0,0 +1,314 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import uk.ac.standrews.cs.valipop.utils.DoubleComparer;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An array backed equivalent of {@link IntegerRangeToDoubleSet}.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class IntegerRangeToDoubleArraySet extends AbstractIntegerRangeArraySet<Double> {
+
+    private static double DELTA = 1E-2;
+
+    final double[] values;
+
+    public IntegerRangeToDoubleArraySet(final IntegerRangeIndex labels, final RandomGenerator random) {
+        this(labels, new double[labels.size()], random);
+    }
+
+    public IntegerRangeToDoubleArraySet(final IntegerRangeIndex labels, final LabelledValueSet<IntegerRange, ? extends Number> set, final RandomGenerator random) {
+
+        this(labels, random);
+        setValues(set);
+    }
+
+    IntegerRangeToDoubleArraySet(final IntegerRangeIndex labels, final double[] values, final RandomGenerator random) {
+
+        super(labels, random);
+        this.values = values;
+    }
+
+    @Override
+    protected double doubleValueAt(final int row) {
+        return values[row];
+    }
+
+    @Override
+    protected Double valueAt(final int row) {
+        return values[row];
+    }
+
+    @Override
+    protected void setValueAt(final int row, final Double value) {
+        values[row] = value;
+    }
+
+    @Override
+    protected boolean isNonZeroAt(final int row) {
+        return !DoubleComparer.equal(0, values[row], DELTA);
+    }
+
+    public double getValueAt(final int row) {
+        return values[row];
+    }
+
+    /**
+     * Overwrites the values of this set with those of the given set for the same labels.
+     *
+     * @param set the set to copy the values of
+     * @return this set
+     */
+    public IntegerRangeToDoubleArraySet setValues(final LabelledValueSet<IntegerRange, ? extends Number> set) {
+
+        for (int row = 0; row < values.length; row++) {
+            values[row] = doubleValueOf(set, row);
+        }
+
+        return this;
+    }
+
+    /**
+     * Subtracts the values of the given set from those of this set, as {@link #valuesSubtractValues} does but without
+     * making a new set.
+     *
+     * @param set the set to subtract
+     * @return this set
+     */
+    public IntegerRangeToDoubleArraySet subtractValuesInPlace(final LabelledValueSet<IntegerRange, ? extends Number> set) {
+
+        for (int row = 0; row < values.length; row++) {
+            values[row] -= doubleValueOf(set, row);
+        }
+
+        return this;
+    }
+
+    /**
+     * Adds n to the values of the labels with a negative value in the given set, as
+     * {@link #valuesAddNWhereCorrespondingLabelNegativeInLVS} does but without making a new set.
+     *
+     * @param n the amount to add
+     * @param set the set to test the values of
+     * @return this set
+     */
+    public IntegerRangeToDoubleArraySet addNWhereCorrespondingLabelNegativeInPlace(final double n, final LabelledValueSet<IntegerRange, ? extends Number> set) {
+
+        for (int row = 0; row < values.length; row++) {
+            if (doubleValueOf(set, row) < 0) {
+                values[row] += n;
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Sets negative values to zero, as {@link #zeroNegativeValues} does but without making a new set.
+     *
+     * @return this set
+     */
+    public IntegerRangeToDoubleArraySet zeroNegativeValuesInPlace() {
+
+        for (int row = 0; row < values.length; row++) {
+            if (values[row] < 0) {
+                values[row] = 0.0;
+            }
+        }
+
+        return this;
+    }
+
+    public double sum() {
+
+        double sum = 0.0;
+        for (final double value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Override
+    public Double getSumOfValues() {
+        return sum();
+    }
+
+    @Override
+    public IntegerRangeToDoubleArraySet clone() {
+        return new IntegerRangeToDoubleArraySet(labels, values.clone(), random);
+    }
+
+    @Override
+    public IntegerRangeToDoubleArraySet zeroNegativeValues() {
+        return clone().zeroNegativeValuesInPlace();
+    }
+
+    @Override
+    public IntegerRangeToDoubleArraySet productOfLabelsAndValues() {
+
+        final double[] products = new double[values.length];
+
+        for (int row = 0; row < values.length; row++) {
+            products[row] = labels.getLabel(row).getValue() * values[row];
+        }
+
+        return new IntegerRangeToDoubleArraySet(labels, products, random);
+    }
+
+    @Override
+    public IntegerRangeToIntArraySet controlledRoundingMaintainingSum() {
+        return controlledRoundingMaintainingSum(new IntegerRangeToIntArraySet(labels, random));
+    }
+
+    /**
+     * Rounds the values of this set into the given set so that they sum to the same whole number, giving the same
+     * result as {@link IntegerRangeToDoubleSet#controlledRoundingMaintainingSum()}.
+     *
+     * The values are first floored, with negative values taken as zero. Any shortfall is then added to the value with
+     * the greatest remainder and any excess is taken from the values of the largest labels no greater than what
+     * remains of the excess, as the map backed set does one unit at a time. The map backed set sums its values again
+     * for each unit moved, whereas this takes each run of units from a label at once.
+     *
+     * @param rounded the set to hold the rounded values, which must share the index of this set
+     * @return the given set
+     */
+    public IntegerRangeToIntArraySet controlledRoundingMaintainingSum(final IntegerRangeToIntArraySet rounded) {
+
+        if (!sharesIndexWith(rounded)) {
+            throw new IncompatibleLabelValueSets("Sets do not share a label index - values cannot be rounded into set", this, rounded);
+        }
+
+        final int sumInt = wholeNumberSum(sum());
+        final int[] roundedValues = rounded.values;
+
+        int roundedSum = 0;
+        for (int row = 0; row < values.length; row++) {
+            roundedValues[row] = values[row] < 0 ? 0 : (int) Math.floor(values[row]);
+            roundedSum += roundedValues[row];
+        }
+
+        if (roundedSum < sumInt) {
+            // The remainders of this set do not change, so each unit goes to the same label
+            roundedValues[rowOfGreatestRemainder(null, 0)] += sumInt - roundedSum;
+        }
+
+        int excess = roundedSum - sumInt;
+        int row = values.length - 1;
+
+        while (excess > 0) {
+
+            // Labels passed over are either larger than the excess, which only falls, or have nothing left to take
+            while (row >= 0 && (roundedValues[row] == 0 || labels.getLabel(row).getValue() > excess)) {
+                row--;
+            }
+
+            if (row < 0) {
+                // Once no label qualifies the rest is taken from the smallest label, whatever its value
+                roundedValues[smallestRow()] -= excess;
+                break;
+            }
+
+            final long untilLabelExceedsExcess = (long) excess - labels.getLabel(row).getValue() + 1;
+            final int taken = (int) Math.min(Math.min(roundedValues[row], excess), untilLabelExceedsExcess);
+
+            roundedValues[row] -= taken;
+            excess -= taken;
+        }
+
+        return rounded;
+    }
+
+    @Override
+    public IntegerRangeToIntArraySet controlledRoundingMaintainingSumProductOfLabelValues() {
+
+        // Not used in any loop, so left to the map backed set
+        return new IntegerRangeToIntArraySet(labels, new IntegerRangeToDoubleSet(this, random).controlledRoundingMaintainingSumProductOfLabelValues(), random);
+    }
+
+    @Override
+    public IntegerRange getLargestLabelOfNonZeroValueAndLabelLessOrEqualTo(final IntegerRange n) {
+
+        int largestRow = IntegerRangeIndex.NOT_COVERED;
+
+        for (int row = 0; row < values.length; row++) {
+
+            final int currentIRLabel = labels.getLabel(row).getValue();
+
+            if (currentIRLabel <= n.getValue()) {
+                if (largestRow == IntegerRangeIndex.NOT_COVERED || currentIRLabel > labels.getLabel(largestRow).getValue()) {
+                    largestRow = row;
+                }
+            }
+        }
+
+        if (largestRow == IntegerRangeIndex.NOT_COVERED) {
+            throw new NoSuchElementException("No values in set or no values in set less than n - set size: " + values.length);
+        }
+
+        return labels.getLabel(largestRow);
+    }
+
+    @Override
+    public IntegerRange getLargestLabelOfNonZeroValueAndLabelPreferablyLessOrEqualTo(final IntegerRange n) {
+
+        int largestRow = IntegerRangeIndex.NOT_COVERED;
+        int smallestRowLargerThanN = IntegerRangeIndex.NOT_COVERED;
+
+        for (int row = 0; row < values.length; row++) {
+
+            final int currentIRLabel = labels.getLabel(row).getValue();
+
+            if (currentIRLabel <= n.getValue()) {
+                if (largestRow == IntegerRangeIndex.NOT_COVERED || currentIRLabel > labels.getLabel(largestRow).getValue()) {
+                    largestRow = row;
+                }
+            } else {
+                if (largestRow == IntegerRangeIndex.NOT_COVERED || smallestRowLargerThanN == IntegerRangeIndex.NOT_COVERED
+                        || currentIRLabel < labels.getLabel(smallestRowLargerThanN).getValue()) {
+                    smallestRowLargerThanN = row;
+                }
+            }
+        }
+
+        if (largestRow == IntegerRangeIndex.NOT_COVERED) {
+
+            if (smallestRowLargerThanN != IntegerRangeIndex.NOT_COVERED) {
+                return labels.getLabel(smallestRowLargerThanN);
+            }
+
+            throw new NoSuchElementException("No values in set or no values in set less that n - set size: " + values.length);
+        }
+
+        return labels.getLabel(largestRow);
+    }
+
+    private static int wholeNumberSum(final double sum) {
+
+        final double sumRounded = Math.round(sum);
+
+        if (!DoubleComparer.equal(sum, sumRounded, DELTA)) {
+            throw new ValuesDoNotSumToWholeNumberException("Cannot perform controlled rounding and maintain sum as values do not sum to a whole number");
+        }
+
+        return (int) sumRounded;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An array backed equivalent of {@link IntegerRangeToIntegerSet}.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class IntegerRangeToIntArraySet extends AbstractIntegerRangeArraySet<Integer> {
+
+    final int[] values;
+
+    public IntegerRangeToIntArraySet(final IntegerRangeIndex labels, final RandomGenerator random) {
+        this(labels, new int[labels.size()], random);
+    }
+
+    public IntegerRangeToIntArraySet(final IntegerRangeIndex labels, final LabelledValueSet<IntegerRange, Integer> set, final RandomGenerator random) {
+
+        this(labels, random);
+        setValues(set);
+    }
+
+    IntegerRangeToIntArraySet(final IntegerRangeIndex labels, final int[] values, final RandomGenerator random) {
+
+        super(labels, random);
+        this.values = values;
+    }
+
+    @Override
+    protected double doubleValueAt(final int row) {
+        return values[row];
+    }
+
+    @Override
+    protected Integer valueAt(final int row) {
+        return values[row];
+    }
+
+    @Override
+    protected void setValueAt(final int row, final Integer value) {
+        values[row] = value;
+    }
+
+    @Override
+    protected boolean isNonZeroAt(final int row) {
+        return values[row] != 0;
+    }
+
+    public int getValueAt(final int row) {
+        return values[row];
+    }
+
+    /**
+     * Overwrites the values of this set with those of the given set for the same labels.
+     *
+     * @param set the set to copy the values of
+     * @return this set
+     */
+    public IntegerRangeToIntArraySet setValues(final LabelledValueSet<IntegerRange, Integer> set) {
+
+        if (set instanceof IntegerRangeToIntArraySet && sharesIndexWith(set)) {
+            System.arraycopy(((IntegerRangeToIntArraySet) set).values, 0, values, 0, values.length);
+
+        } else {
+            for (int row = 0; row < values.length; row++) {
+
+                final Integer value = set.getValue(labels.getLabel(row));
+                if (value == null) {
+                    throw new IncompatibleLabelValueSets("Sets do not contain same labels - values cannot be copied", this, set);
+                }
+                values[row] = value;
+            }
+        }
+
+        return this;
+    }
+
+    public int sum() {
+
+        int sum = 0;
+        for (final int value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Override
+    public Integer getSumOfValues() {
+        return sum();
+    }
+
+    @Override
+    public IntegerRangeToIntArraySet clone() {
+        return new IntegerRangeToIntArraySet(labels, values.clone(), random);
+    }
+
+    @Override
+    public IntegerRangeToIntArraySet zeroNegativeValues() {
+
+        final int[] results = new int[values.length];
+
+        for (int row = 0; row < values.length; row++) {
+            results[row] = values[row] < 0 ? 0 : values[row];
+        }
+
+        return new IntegerRangeToIntArraySet(labels, results, random);
+    }
+
+    @Override
+    public IntegerRangeToIntArraySet productOfLabelsAndValues() {
+
+        final int[] products = new int[values.length];
+
+        for (int row = 0; row < values.length; row++) {
+            products[row] = labels.getLabel(row).getValue() * values[row];
+        }
+
+        return new IntegerRangeToIntArraySet(labels, products, random);
+    }
+
+    @Override
+    public IntegerRangeToIntArraySet controlledRoundingMaintainingSum() {
+        return clone();
+    }
+
+    @Override
+    public IntegerRangeToIntArraySet controlledRoundingMaintainingSumProductOfLabelValues() {
+        return clone();
+    }
+
+    @Override
+    public IntegerRange getLargestLabelOfNonZeroValueAndLabelLessOrEqualTo(final IntegerRange n) {
+
+        final int row = rowOfLargestNonZeroLabelAtMost(n.getValue());
+
+        if (row == IntegerRangeIndex.NOT_COVERED) {
+            throw new NoSuchElementException("No values in set or no values in set less that n - set size: " + values.length);
+        }
+
+        return labels.getLabel(row);
+    }
+
+    @Override
+    public IntegerRange getLargestLabelOfNonZeroValueAndLabelPreferablyLessOrEqualTo(final IntegerRange n) {
+
+        final int row = rowOfLargestPositiveLabelPreferablyAtMost(n.getValue());
+
+        if (row == IntegerRangeIndex.NOT_COVERED) {
+            throw new NoSuchElementException("No values in set or no values in set less that n - set size: " + values.length);
+        }
+
+        return labels.getLabel(row);
+    }
+
+    private int rowOfLargestNonZeroLabelAtMost(final int n) {
+
+        int largestRow = IntegerRangeIndex.NOT_COVERED;
+
+        for (int row = 0; row < values.length; row++) {
+
+            final int currentIRLabel = labels.getLabel(row).getValue();
+
+            if (currentIRLabel <= n && values[row] != 0) {
+                if (largestRow == IntegerRangeIndex.NOT_COVERED || currentIRLabel > labels.getLabel(largestRow).getValue()) {
+                    largestRow = row;
+                }
+            }
+        }
+
+        return largestRow;
+    }
+
+    private int rowOfLargestPositiveLabelPreferablyAtMost(final int n) {
+
+        int largestRow = IntegerRangeIndex.NOT_COVERED;
+        int smallestRowLargerThanN = IntegerRangeIndex.NOT_COVERED;
+
+        for (int row = 0; row < values.length; row++) {
+
+            final int currentIRLabel = labels.getLabel(row).getValue();
+
+            if (values[row] > 0) {
+                if (currentIRLabel <= n) {
+                    if (largestRow == IntegerRangeIndex.NOT_COVERED || currentIRLabel > labels.getLabel(largestRow).getValue()) {
+                        largestRow = row;
+                    }
+                } else {
+                    if (smallestRowLargerThanN == IntegerRangeIndex.NOT_COVERED || currentIRLabel < labels.getLabel(smallestRowLargerThanN).getValue()) {
+                        smallestRowLargerThanN = row;
+                    }
+                }
+            }
+        }
+
+        return largestRow != IntegerRangeIndex.NOT_COVERED ? largestRow : smallestRowLargerThanN;
+    }
+
+}
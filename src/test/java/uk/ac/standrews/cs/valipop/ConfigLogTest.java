@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.standrews.cs.valipop.implementations.PopulationTestCases.testConfig;
+
+/**
+ * Checks that configurations made on different threads each keep their own log file.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class ConfigLogTest {
+
+    private static final Logger log = Logger.getLogger(ConfigLogTest.class.getName());
+
+    private final ExecutorService first = Executors.newSingleThreadExecutor();
+    private final ExecutorService second = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+
+        first.shutdown();
+        second.shutdown();
+    }
+
+    @Test
+    public void closingOneLogLeavesTheOtherOpen() throws Exception {
+
+        Config firstConfig = on(first, () -> testConfig("FIRST_LOG_TEST"));
+        Config secondConfig = on(second, () -> testConfig("SECOND_LOG_TEST"));
+
+        on(first, () -> logged("first before close"));
+        on(second, () -> logged("second before close"));
+
+        on(first, () -> {
+            firstConfig.closeLog();
+            return null;
+        });
+
+        on(second, () -> logged("second after close"));
+
+        String firstLog = readLog(firstConfig);
+        String secondLog = readLog(secondConfig);
+
+        secondConfig.closeLog();
+
+        assertTrue(firstLog.contains("first before close"));
+        assertFalse(firstLog.contains("second"));
+
+        assertTrue(secondLog.contains("second before close"));
+        assertTrue(secondLog.contains("second after close"));
+        assertFalse(secondLog.contains("first"));
+    }
+
+    private static Void logged(final String message) {
+
+        log.severe(message);
+        return null;
+    }
+
+    private static <T> T on(final ExecutorService thread, final Callable<T> task) throws Exception {
+        return thread.submit(task).get();
+    }
+
+    private static String readLog(final Config config) throws IOException {
+
+        Path trace = config.getRunPath().resolve("log").resolve("trace.txt");
+        return new String(Files.readAllBytes(trace));
+    }
+}
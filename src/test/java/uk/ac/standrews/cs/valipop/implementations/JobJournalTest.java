@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class JobJournalTest {
+
+    private static final String LABELS = "priority,reason,n,rf,prf,required memory";
+
+    private Path jobFile;
+
+    @Before
+    public void setUp() throws IOException {
+
+        jobFile = Files.createTempFile("job-q", ".csv");
+        Files.write(jobFile, Arrays.asList(LABELS,
+                "5,small,2,0.5,0.0,4",
+                "1,large,1,1.0,0.0,6",
+                "4,search,1,0.0->0.2@0.1,0.0,2"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+
+        Files.deleteIfExists(jobFile);
+        Files.deleteIfExists(Paths.get(jobFile + ".journal"));
+    }
+
+    @Test
+    public void expandsRowsWithSeveralFactorValues() throws Exception {
+
+        List<JobJournal.Job> jobs = new JobJournal(jobFile).getJobs();
+
+        assertEquals(5, jobs.size());
+        assertEquals(3, jobs.stream().filter(job -> job.getRow().getValue("reason").equals("search")).count());
+    }
+
+    @Test
+    public void claimedRunsAreNotOfferedAgain() throws Exception {
+
+        JobJournal journal = new JobJournal(jobFile);
+        JobJournal.Job small = find(journal.getJobs(), "small");
+
+        assertNotNull(journal.claim(small));
+
+        JobJournal.Job remaining = find(new JobJournal(jobFile).getJobs(), "small");
+        assertEquals(1, remaining.getRemaining());
+        assertEquals(3, remaining.getPriority());
+
+        assertNotNull(journal.claim(remaining));
+        assertNull(find(journal.getJobs(), "small"));
+    }
+
+    @Test
+    public void onlyOneRunnerClaimsTheLastRun() throws Exception {
+
+        JobJournal first = new JobJournal(jobFile);
+        JobJournal second = new JobJournal(jobFile);
+
+        // both see the run before either claims it
+        JobJournal.Job seenByFirst = find(first.getJobs(), "large");
+        JobJournal.Job seenBySecond = find(second.getJobs(), "large");
+
+        assertNotNull(first.claim(seenByFirst));
+        assertNull(second.claim(seenBySecond));
+
+        assertNull(find(new JobJournal(jobFile).getJobs(), "large"));
+    }
+
+    @Test
+    public void returnedRunsAreOfferedWithMoreMemory() throws Exception {
+
+        JobJournal journal = new JobJournal(jobFile);
+        JobJournal.Job large = find(journal.getJobs(), "large");
+
+        String claim = journal.claim(large);
+        journal.returnJob(large, claim, 8, 1);
+
+        JobJournal.Job returned = find(new JobJournal(jobFile).getJobs(), "large");
+        assertEquals(1, returned.getRemaining());
+        assertEquals(8, returned.getRequiredMemory());
+
+        claim = journal.claim(returned);
+        journal.returnJob(returned, claim, 8, JobJournal.DO_NOT_RUN);
+
+        assertNull(find(new JobJournal(jobFile).getJobs(), "large"));
+    }
+
+    @Test
+    public void choosesMostUrgentJobWhichFits() throws Exception {
+
+        List<JobJournal.Job> jobs = new JobJournal(jobFile).getJobs();
+
+        // the most urgent job needs 6GB so nothing else is started until it fits
+        assertEquals("large", new JobQueueRunner(jobFile, 8, 1, 1).chooseJob(jobs, 8).getRow().getValue("reason"));
+        assertNull(new JobQueueRunner(jobFile, 8, 1, 1).chooseJob(jobs, 5));
+
+        // a runner which could never run it starts the next most urgent
+        assertEquals("search", new JobQueueRunner(jobFile, 5, 1, 1).chooseJob(jobs, 5).getRow().getValue("reason"));
+    }
+
+    private static JobJournal.Job find(List<JobJournal.Job> jobs, String reason) {
+
+        for (JobJournal.Job job : jobs) {
+            if (job.getRow().getValue("reason").equals(reason)) return job;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class MemoryUsageAnalysisTest {
+
+    @Test
+    public void simulationsRunningAtOnceAreCounted() {
+
+        MemoryUsageAnalysis first = new MemoryUsageAnalysis();
+        MemoryUsageAnalysis second = new MemoryUsageAnalysis();
+        MemoryUsageAnalysis third = new MemoryUsageAnalysis();
+
+        first.start();
+        second.start();
+        first.stop();
+        third.start();
+
+        second.stop();
+        third.stop();
+
+        assertEquals(2, first.getMaxConcurrentSimulations());
+        assertEquals(2, second.getMaxConcurrentSimulations());
+        assertEquals(2, third.getMaxConcurrentSimulations());
+
+        MemoryUsageAnalysis alone = new MemoryUsageAnalysis();
+        alone.start();
+        alone.stop();
+
+        assertEquals(1, alone.getMaxConcurrentSimulations());
+    }
+
+    @Test
+    public void heapIsSharedInProportionToPeopleHeld() {
+
+        MemoryUsageAnalysis first = new MemoryUsageAnalysis();
+        MemoryUsageAnalysis second = new MemoryUsageAnalysis();
+
+        first.setPeopleCounter(() -> 1000);
+        second.setPeopleCounter(() -> 3000);
+
+        first.start();
+        second.start();
+
+        try {
+            // each simulation's count is seen by the others once it has taken a reading
+            assertEquals(400, first.shareOf(400));
+            assertEquals(300, second.shareOf(400));
+            assertEquals(100, first.shareOf(400));
+
+            second.stop();
+
+            assertEquals(400, first.shareOf(400));
+
+        } finally {
+            first.stop();
+            second.stop();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations;
+
+import org.junit.Test;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+import uk.ac.standrews.cs.valipop.simulationEntities.dataStructure.MaleCollection;
+import uk.ac.standrews.cs.valipop.utils.SplitMix64Generator;
+import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.LabelledValueSet;
+import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.StringToIntegerSet;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class OccupationChangeModelTest {
+
+    private static final LocalDate ON_DATE = LocalDate.of(1700, 1, 1);
+
+    @Test
+    public void emptyCollectionHasNoPeopleOfDecadeAge() {
+
+        final MaleCollection men = new MaleCollection(LocalDate.of(1599, 1, 1), LocalDate.of(2015, 1, 1), Period.ofYears(1), "men");
+
+        assertTrue(OccupationChangeModel.peopleOfDecadeAge(men, ON_DATE).isEmpty());
+    }
+
+    @Test
+    public void collectionWithoutDivisionsHasNoPeopleOfDecadeAge() {
+
+        // a collection which ends before it starts has no divisions to file anyone under
+        final MaleCollection men = new MaleCollection(LocalDate.of(2015, 1, 1), LocalDate.of(1599, 1, 1), Period.ofYears(1), "men");
+
+        assertTrue(OccupationChangeModel.peopleOfDecadeAge(men, ON_DATE).isEmpty());
+    }
+
+    @Test
+    public void occupationsAreNotGivenInTheOrderHoldersAreFound() {
+
+        final Map<Integer, String> given = new HashMap<>();
+        final List<IPerson> holders = makeHolders(100, given);
+        final List<IPerson> found = new ArrayList<>(holders);
+
+        final SplitMix64Generator random = new SplitMix64Generator(1);
+        final LabelledValueSet<String, Integer> counts = new StringToIntegerSet(Arrays.asList("farmer", "miner"), Arrays.asList(50, 50), random);
+        final LabelledValueSet<String, Integer> fulfilled = new StringToIntegerSet(counts.getLabels(), 0, random);
+
+        OccupationChangeModel.assignOccupations(holders, "labourer", counts, fulfilled, ON_DATE, random);
+
+        assertEquals(100, given.size());
+        assertEquals(50, (int) fulfilled.get("farmer"));
+        assertEquals(50, (int) fulfilled.get("miner"));
+
+        // the first occupation is not simply given to the first half of the holders found
+        final String first = counts.getLabels().iterator().next();
+        int firstHalfGivenFirst = 0;
+
+        for (final IPerson holder : found.subList(0, 50)) {
+            if (given.get(holder.getId()).equals(first)) firstHalfGivenFirst++;
+        }
+
+        assertTrue(firstHalfGivenFirst > 10 && firstHalfGivenFirst < 40);
+    }
+
+    private static List<IPerson> makeHolders(final int number, final Map<Integer, String> given) {
+
+        final List<IPerson> holders = new ArrayList<>();
+
+        for (int i = 0; i < number; i++) {
+
+            final int id = i;
+            holders.add((IPerson) Proxy.newProxyInstance(IPerson.class.getClassLoader(), new Class<?>[]{IPerson.class}, (proxy, method, args) -> {
+
+                if (method.getName().equals("setOccupation")) given.put(id, (String) args[1]);
+                return method.getName().equals("getId") ? id : null;
+            }));
+        }
+
+        return holders;
+    }
+}
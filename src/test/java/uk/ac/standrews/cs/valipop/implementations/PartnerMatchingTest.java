@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations;
+
+import org.junit.Test;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+
+import java.time.Period;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.standrews.cs.valipop.implementations.PopulationTestCases.testConfig;
+
+/**
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class PartnerMatchingTest {
+
+    private static final int[] SEEDS = {56854687, 56854688, 56854689};
+
+    // ages at partnering are compared in bands of this many years
+    private static final int AGE_BAND = 5;
+
+    // tolerances for the difference between the matchings, around twice the difference seen between two sets of
+    // seeds with the same matching
+    private static final double MAX_AGE_BANDS_DISTANCE = 0.07;
+    private static final double MAX_AGE_GAP_DISTANCE = 0.12;
+    private static final double MAX_MEAN_AGE_GAP_DIFFERENCE = 0.3;
+
+    @Test
+    public void indexedMatchingPairsTheSameAgesAsScan() {
+
+        final Couples scan = couples(PartnerMatchingType.SCAN, SEEDS);
+        final Couples indexed = couples(PartnerMatchingType.INDEXED, SEEDS);
+
+        // the age band of the man against that of the mother, and the gap between their ages
+        assertTrue(distance(scan.ageBands, indexed.ageBands) < MAX_AGE_BANDS_DISTANCE);
+        assertTrue(distance(scan.ageGaps, indexed.ageGaps) < MAX_AGE_GAP_DISTANCE);
+        assertEquals(scan.meanAgeGap(), indexed.meanAgeGap(), MAX_MEAN_AGE_GAP_DIFFERENCE);
+    }
+
+    /**
+     * The ages of the partners in all the partnerships formed in simulations with the given seeds.
+     */
+    static class Couples {
+
+        final Map<List<Integer>, Integer> ageBands = new HashMap<>();
+        final Map<Integer, Integer> ageGaps = new HashMap<>();
+
+        private long totalAgeGap = 0;
+        private int count = 0;
+
+        void add(final int femaleAge, final int maleAge) {
+
+            ageBands.merge(Arrays.asList(femaleAge / AGE_BAND, maleAge / AGE_BAND), 1, Integer::sum);
+            ageGaps.merge(maleAge - femaleAge, 1, Integer::sum);
+
+            totalAgeGap += maleAge - femaleAge;
+            count++;
+        }
+
+        double meanAgeGap() {
+            return (double) totalAgeGap / count;
+        }
+    }
+
+    static Couples couples(final PartnerMatchingType matching, final int... seeds) {
+
+        final Couples couples = new Couples();
+
+        for (final int seed : seeds) {
+
+            final OBDModel model = new OBDModel(testConfig("PARTNER_MATCHING_TEST").setSeed(seed).setPartnerMatching(matching));
+            model.runSimulation();
+
+            for (final IPartnership partnership : model.getPopulation().getPeople().getPartnerships()) {
+
+                final IPerson female = partnership.getFemalePartner();
+                final IPerson male = partnership.getMalePartner();
+
+                if (female == null || male == null || female.isPhantom() || male.isPhantom()) continue;
+
+                couples.add(ageAt(female, partnership), ageAt(male, partnership));
+            }
+        }
+
+        return couples;
+    }
+
+    private static int ageAt(final IPerson person, final IPartnership partnership) {
+
+        return Period.between(person.getBirthDate(), partnership.getPartnershipDate()).getYears();
+    }
+
+    // The total variation distance between the distributions given by the counts.
+    static <K> double distance(final Map<K, Integer> first, final Map<K, Integer> second) {
+
+        final double firstTotal = total(first);
+        final double secondTotal = total(second);
+
+        final Set<K> keys = new HashSet<>(first.keySet());
+        keys.addAll(second.keySet());
+
+        double distance = 0;
+        for (final K key : keys) {
+            distance += Math.abs(first.getOrDefault(key, 0) / firstTotal - second.getOrDefault(key, 0) / secondTotal);
+        }
+
+        return distance / 2;
+    }
+
+    private static <K> double total(final Map<K, Integer> counts) {
+
+        double total = 0;
+        for (final int count : counts.values()) {
+            total += count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations;
+
+import org.junit.Test;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+import uk.ac.standrews.cs.valipop.utils.SplitMix64Generator;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class PartnerPoolTest {
+
+    @Test
+    public void eachManIsTakenOnce() {
+
+        final List<IPerson> men = makeMen(50);
+        final PartnerPool pool = new PartnerPool(men, new SplitMix64Generator(1));
+
+        final Set<IPerson> taken = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (int i = 0; i < men.size(); i++) {
+            assertTrue(taken.add(pool.take(man -> true, 10, 10)));
+        }
+
+        assertEquals(0, pool.size());
+        assertNull(pool.take(man -> true, 10, 10));
+    }
+
+    @Test
+    public void smallPoolIsSearchedInFull() {
+
+        final List<IPerson> men = makeMen(20);
+        final IPerson onlyMatch = men.get(13);
+        final PartnerPool pool = new PartnerPool(men, new SplitMix64Generator(1));
+
+        final AtomicInteger checks = new AtomicInteger();
+
+        assertSame(onlyMatch, pool.take(man -> checks.incrementAndGet() > 0 && man == onlyMatch, 100, 100));
+        assertEquals(14, checks.get());
+
+        checks.set(0);
+
+        assertNull(pool.take(man -> checks.incrementAndGet() > 0 && man == onlyMatch, 100, 100));
+        assertEquals(19, checks.get());
+    }
+
+    @Test
+    public void checksAreBoundedInLargePool() {
+
+        final List<IPerson> men = makeMen(1000);
+        final PartnerPool pool = new PartnerPool(men, new SplitMix64Generator(1));
+
+        final AtomicInteger checks = new AtomicInteger();
+
+        // The first men who can partner are among those drawn at random
+        assertNotNull(pool.take(man -> checks.incrementAndGet() > 12, 10, 5));
+        assertEquals(13, checks.get());
+        assertEquals(999, pool.size());
+    }
+
+    @Test
+    public void menBeyondLimitsAreCheckedBeforeGivingUp() {
+
+        final List<IPerson> men = makeMen(1000);
+        final IPerson onlyMatch = men.get(999);
+        final PartnerPool pool = new PartnerPool(men, new SplitMix64Generator(1));
+
+        final AtomicInteger checks = new AtomicInteger();
+
+        assertSame(onlyMatch, pool.take(man -> checks.incrementAndGet() > 0 && man == onlyMatch, 10, 5));
+        assertEquals(999, pool.size());
+
+        checks.set(0);
+
+        // Each man is walked past once, and the draws add at most their own number of checks
+        assertNull(pool.take(man -> checks.incrementAndGet() < 0, 10, 5));
+        assertEquals(999 + 5, checks.get());
+        assertEquals(999, pool.size());
+    }
+
+    private static List<IPerson> makeMen(final int number) {
+
+        final List<IPerson> men = new ArrayList<>();
+
+        for (int i = 0; i < number; i++) {
+
+            final int id = i;
+            men.add((IPerson) Proxy.newProxyInstance(IPerson.class.getClassLoader(), new Class<?>[]{IPerson.class},
+                    (proxy, method, args) -> method.getName().equals("getId") ? id : null));
+        }
+
+        return men;
+    }
+}
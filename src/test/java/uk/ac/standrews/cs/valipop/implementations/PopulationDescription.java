@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations;
+
+import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes each person of a simulated population on a line, so that populations can be compared in tests.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+class PopulationDescription {
+
+    static List<String> describe(final OBDModel model) {
+
+        List<String> people = new ArrayList<>();
+
+        for (IPerson person : model.getPopulation().getPeople()) {
+
+            StringBuilder description = new StringBuilder();
+
+            description.append(person.getId()).append(' ').append(person.getFirstName()).append(' ').append(person.getSurname())
+                    .append(' ').append(person.getBirthDate()).append(' ').append(person.getDeathDate()).append(' ').append(person.getDeathCause())
+                    .append(' ').append(person.getParents() == null ? -1 : person.getParents().getId())
+                    .append(' ').append(person.getAddressHistory().size());
+
+            for (IPartnership partnership : person.getPartnerships()) {
+                description.append(' ').append(partnership.getId()).append(':').append(partnership.getChildren().size());
+            }
+
+            people.add(description.toString());
+        }
+
+        return people;
+    }
+}
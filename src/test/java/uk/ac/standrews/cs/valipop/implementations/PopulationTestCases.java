@@ -18,7 +18,6 @@ package uk.ac.standrews.cs.valipop.implementations;
 
 import uk.ac.standrews.cs.valipop.Config;
 import uk.ac.standrews.cs.valipop.simulationEntities.IPersonCollection;
-import uk.ac.standrews.cs.valipop.simulationEntities.dataStructure.PeopleCollection;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -26,7 +25,9 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
-class PopulationTestCases {
+public class PopulationTestCases {
+
+    public static final Path TEST_INPUTS = Paths.get("src/test/resources/valipop/test-pop");
 
     static List<Object[]> getTestCases()  {
 
@@ -43,6 +44,21 @@ class PopulationTestCases {
         return testCases;
     }
 
+    /**
+     * Returns a deterministic config for 1000 people at t0, from the test inputs, with tS, t0 and tE in 1599, 1855 and
+     * 2015.
+     */
+    public static Config testConfig(final String runPurpose) {
+
+        return testConfig(1000, TEST_INPUTS, runPurpose);
+    }
+
+    public static Config testConfig(final int t0PopulationSize, final Path varPath, final String runPurpose) {
+
+        return new Config(LocalDate.of(1599, 1, 1), LocalDate.of(1855, 1, 1), LocalDate.of(2015, 1, 1), t0PopulationSize,
+                varPath, Config.DEFAULT_RESULTS_SAVE_PATH, runPurpose, Config.DEFAULT_RESULTS_SAVE_PATH).setDeterministic(true);
+    }
+
     private static IPersonCollection fullPopulation(final int t0PopulationSize, final int seed)  {
 
         LocalDate tS = LocalDate.of(1599, 1, 1);
@@ -58,7 +74,7 @@ class PopulationTestCases {
         OBDModel model = new OBDModel(config);
         model.runSimulation();
 
-        PeopleCollection population = model.getPopulation().getPeople();
+        IPersonCollection population = model.getPopulation().getPeople();
         population.setDescription("initial size=" + t0PopulationSize + ", seed=" + seed);
         return population;
     }
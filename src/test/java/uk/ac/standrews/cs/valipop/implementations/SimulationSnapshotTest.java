@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations;
+
+import org.junit.Test;
+import uk.ac.standrews.cs.valipop.Config;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+import static uk.ac.standrews.cs.valipop.implementations.PopulationDescription.describe;
+import static uk.ac.standrews.cs.valipop.implementations.PopulationTestCases.TEST_INPUTS;
+import static uk.ac.standrews.cs.valipop.implementations.PopulationTestCases.testConfig;
+import static uk.ac.standrews.cs.valipop.implementations.SimulationThreadsTest.assertIdsAreUnique;
+import static uk.ac.standrews.cs.valipop.implementations.SimulationThreadsTest.runOnNewThread;
+
+/**
+ * Checks that a simulation carried on from a snapshot produces the population the original simulation would have.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class SimulationSnapshotTest {
+
+    private static final LocalDate SNAPSHOT_DATE = LocalDate.of(1800, 1, 1);
+
+    @Test
+    public void restoredSimulationMatchesUninterruptedSimulation() throws IOException {
+
+        OBDModel uninterrupted = new OBDModel(makeConfig());
+        uninterrupted.runSimulation();
+        List<String> expected = describe(uninterrupted);
+
+        SimulationSnapshot snapshot = new OBDModel(makeConfig()).simulateUntil(SNAPSHOT_DATE);
+        assertEquals(SNAPSHOT_DATE, snapshot.getDate());
+
+        Path file = Files.createTempFile("snapshot", ".bin");
+
+        try {
+            snapshot.write(file);
+            snapshot = SimulationSnapshot.read(file);
+
+        } finally {
+            Files.delete(file);
+        }
+
+        // Each restore works on its own copy of the state, so the snapshot can be used more than once
+        for (int i = 0; i < 2; i++) {
+
+            OBDModel restored = new OBDModel(makeConfig(), snapshot);
+            restored.runSimulation();
+
+            assertEquals(expected, describe(restored));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void snapshotAfterT0IsRejected() throws IOException {
+
+        new OBDModel(makeConfig()).simulateUntil(LocalDate.of(1900, 1, 1));
+    }
+
+    @Test
+    public void forkWithDifferentRecoveryFactorDivergesOnlyAfterSnapshot() throws IOException {
+
+        SimulationSnapshot snapshot = new OBDModel(makeConfig()).simulateUntil(SNAPSHOT_DATE);
+
+        Map<Integer, String> atSnapshot = describeUntilSnapshot(new OBDModel(makeConfig(), snapshot), null);
+
+        OBDModel original = new OBDModel(makeConfig(), snapshot);
+        original.runSimulation();
+
+        OBDModel fork = new OBDModel(makeConfig().setRecoveryFactor(0.1), snapshot);
+        fork.runSimulation();
+
+        assertEquals(atSnapshot, describeUntilSnapshot(original, atSnapshot.keySet()));
+        assertEquals(atSnapshot, describeUntilSnapshot(fork, atSnapshot.keySet()));
+
+        assertNotEquals(describe(original), describe(fork));
+    }
+
+    @Test
+    public void forksRestoredOnOneThreadAndRunOnOthersKeepIdsUnique() throws Exception {
+
+        SimulationSnapshot snapshot = runOnNewThread(() -> new OBDModel(makeConfig()).simulateUntil(SNAPSHOT_DATE));
+
+        OBDModel first = new OBDModel(makeConfig(), snapshot);
+        OBDModel second = new OBDModel(makeConfig(), snapshot);
+
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<?> firstRun = workers.submit(first::runSimulation);
+            Future<?> secondRun = workers.submit(second::runSimulation);
+
+            firstRun.get();
+            secondRun.get();
+
+        } finally {
+            workers.shutdown();
+        }
+
+        assertIdsAreUnique(first);
+        assertIdsAreUnique(second);
+        assertEquals(describe(first), describe(second));
+    }
+
+    @Test
+    public void configsDifferingBeforeSnapshotAreRejected() throws IOException {
+
+        SimulationSnapshot snapshot = new OBDModel(makeConfig()).simulateUntil(LocalDate.of(1600, 1, 1));
+
+        // a different directory holding the same inputs
+        Path inputs = Files.createTempDirectory("snapshot-inputs");
+        Path linkedInputs = Files.createSymbolicLink(inputs.resolve("test-pop"), TEST_INPUTS.toAbsolutePath());
+
+        try {
+            List<Config> differing = Arrays.asList(
+                    testConfig(500, TEST_INPUTS, "SNAPSHOT_TEST"),
+                    makeConfig().setSetupBirthRate(makeConfig().getSetUpBR() * 2),
+                    makeConfig().setSetupDeathRate(makeConfig().getSetUpDR() * 2),
+                    makeConfig().setSeed(makeConfig().getSeed() + 1),
+                    testConfig(1000, linkedInputs, "SNAPSHOT_TEST"));
+
+            for (Config config : differing) {
+                try {
+                    new OBDModel(config, snapshot);
+                    fail("restored with differing config");
+
+                } catch (IllegalArgumentException e) {
+                    // expected
+                }
+            }
+
+        } finally {
+            Files.delete(linkedInputs);
+            Files.delete(inputs);
+        }
+    }
+
+    // Describes the people present when the snapshot was taken, or only those with the given ids, by what was decided
+    // about them before the snapshot
+    private static Map<Integer, String> describeUntilSnapshot(final OBDModel model, final Set<Integer> ids) {
+
+        Map<Integer, String> people = new HashMap<>();
+
+        for (IPerson person : model.getPopulation().getPeople()) {
+
+            if (ids != null && !ids.contains(person.getId())) continue;
+
+            LocalDate deathDate = person.getDeathDate();
+            boolean diedBefore = deathDate != null && deathDate.isBefore(SNAPSHOT_DATE);
+
+            people.put(person.getId(), person.getFirstName() + ' ' + person.getSurname() + ' ' + person.getBirthDate()
+                    + ' ' + (person.getParents() == null ? -1 : person.getParents().getId())
+                    + ' ' + (diedBefore ? deathDate + " " + person.getDeathCause() : "-"));
+        }
+
+        return people;
+    }
+
+    private static Config makeConfig() {
+
+        return testConfig("SNAPSHOT_TEST");
+    }
+}
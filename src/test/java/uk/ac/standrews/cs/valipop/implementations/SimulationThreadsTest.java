@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations;
+
+import org.junit.Test;
+import uk.ac.standrews.cs.valipop.Config;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.standrews.cs.valipop.implementations.PopulationDescription.describe;
+import static uk.ac.standrews.cs.valipop.implementations.PopulationTestCases.testConfig;
+
+/**
+ * Checks that the population does not depend on the number of simulation threads, or on which threads run it.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class SimulationThreadsTest {
+
+    @Test
+    public void splitStreamsGiveTheSamePopulationWhateverTheNumberOfThreads() {
+
+        OBDModel single = new OBDModel(makeConfig(1));
+        single.runSimulation();
+
+        OBDModel parallel = new OBDModel(makeConfig(4));
+        parallel.runSimulation();
+
+        assertEquals(describe(single), describe(parallel));
+    }
+
+    @Test
+    public void simulationMovedBetweenThreadsNumbersItsPeopleOnce() throws Exception {
+
+        OBDModel uninterrupted = new OBDModel(makeConfig(1));
+        uninterrupted.runSimulation();
+
+        OBDModel moved = new OBDModel(makeConfig(1));
+
+        runOnNewThread(() -> moved.simulateUntil(LocalDate.of(1800, 1, 1)));
+        runOnNewThread(() -> {
+            moved.runSimulation();
+            return null;
+        });
+
+        assertIdsAreUnique(moved);
+        assertEquals(describe(uninterrupted), describe(moved));
+    }
+
+    static void assertIdsAreUnique(final OBDModel model) {
+
+        Set<Integer> personIds = new HashSet<>();
+        Set<Integer> partnershipIds = new HashSet<>();
+
+        for (IPerson person : model.getPopulation().getPeople()) {
+            assertTrue("duplicate person id " + person.getId(), personIds.add(person.getId()));
+        }
+
+        for (IPartnership partnership : model.getPopulation().getPeople().getPartnerships()) {
+            assertTrue("duplicate partnership id " + partnership.getId(), partnershipIds.add(partnership.getId()));
+        }
+    }
+
+    static <T> T runOnNewThread(final Callable<T> task) throws Exception {
+
+        ExecutorService thread = Executors.newSingleThreadExecutor();
+
+        try {
+            return thread.submit(task).get();
+        } finally {
+            thread.shutdown();
+        }
+    }
+
+    private static Config makeConfig(final int threads) {
+
+        return testConfig("THREADS_TEST").setSplitRandomStreams(true).setSimulationThreads(threads);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.implementations.minimaSearch;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class AdaptiveMinimaSearchTest {
+
+    private static final double MINIMUM = 1.3;
+
+    // A parabola with its minimum at MINIMUM, plus a little noise which depends on the seed.
+    private static double v(double factor, int seed) {
+        return 10 + 5 * (factor - MINIMUM) * (factor - MINIMUM) + new Random(seed).nextGaussian() * 0.05;
+    }
+
+    private static AdaptiveMinimaSearch.Evaluation evaluate(double factor, int seed) {
+        return new AdaptiveMinimaSearch.Evaluation(v(factor, seed), 0);
+    }
+
+    @Test
+    public void findsMinimum() throws Exception {
+
+        for (int workers : new int[]{1, 4}) {
+
+            AdaptiveMinimaSearch search = new AdaptiveMinimaSearch(AdaptiveMinimaSearchTest::evaluate, workers, 5, 0, 0.5, 0.04, -4, 4);
+            FVPoint minimum = search.search();
+
+            assertEquals(MINIMUM, minimum.x_f, 0.1);
+        }
+    }
+
+    @Test
+    public void earlierRunsAreNotRepeated() throws Exception {
+
+        Map<Double, Map<Integer, Double>> history = new TreeMap<>();
+
+        for (double factor = 0; factor <= 2; factor += 0.5) {
+            for (int seed = 123; seed < 128; seed++) {
+                history.computeIfAbsent(factor, f -> new TreeMap<>()).put(seed, v(factor, seed));
+            }
+        }
+
+        AtomicInteger runs = new AtomicInteger();
+        Set<Double> repeated = Collections.synchronizedSet(new HashSet<>());
+
+        AdaptiveMinimaSearch search = new AdaptiveMinimaSearch((factor, seed) -> {
+            runs.incrementAndGet();
+            if (history.containsKey(factor)) repeated.add(factor);
+            return evaluate(factor, seed);
+        }, 2, 5, 0, 0.5, 0.04, -4, 4);
+
+        search.addHistory(history);
+        FVPoint minimum = search.search();
+
+        assertEquals(MINIMUM, minimum.x_f, 0.1);
+        assertTrue(repeated.isEmpty());
+        assertTrue(runs.get() > 0);
+    }
+
+    @Test
+    public void outOfMemoryExcludesLowerFactors() throws Exception {
+
+        AdaptiveMinimaSearch search = new AdaptiveMinimaSearch((factor, seed) -> {
+            if (factor < 1) throw new OutOfMemoryError();
+            return evaluate(factor, seed);
+        }, 1, 3, 0, 0.5, 0.04, -4, 4);
+
+        FVPoint minimum = search.search();
+
+        assertTrue(minimum.x_f >= 1.1);
+    }
+
+    @Test
+    public void workersAreSizedByPeakMemoryOfFirstRun() throws Exception {
+
+        long heap = Runtime.getRuntime().maxMemory();
+
+        // each simulation reported to need under a hundredth of the heap, a third of it, and all of it
+        long[] peaks = {heap / 200, heap / 3, heap};
+        int[] expectedWorkers = {4, 2, 1};
+
+        for (int i = 0; i < peaks.length; i++) {
+
+            long peak = peaks[i];
+            AdaptiveMinimaSearch search = new AdaptiveMinimaSearch((factor, seed) -> new AdaptiveMinimaSearch.Evaluation(v(factor, seed), peak), 4, 3, 0, 0.5, 0.04, -4, 4);
+
+            search.search();
+
+            assertEquals(expectedWorkers[i], search.getWorkers());
+        }
+    }
+
+    @Test
+    public void historyIsReadFromSummary() throws IOException {
+
+        Path summary = Files.createTempFile("summary", ".csv");
+
+        try {
+            Files.write(summary, Arrays.asList(
+                    "Start Time,Seed Pop Size,Recovery Factor,Proportional Recovery Factor,Seed,v/M",
+                    "a,1000,0.5,0.0,123,12.5",
+                    "b,1000,0.5,0.0,124,13.5",
+                    "c,2000,0.5,0.0,123,99.0",
+                    "d,1000,0.5,0.5,125,99.0",
+                    "e,1000,1.0,0.0,123,NaN"));
+
+            Map<Double, Map<Integer, Double>> history = AdaptiveMinimaSearch.readHistory(summary, Control.RF, 1000);
+
+            assertEquals(Collections.singleton(0.5), history.keySet());
+            assertEquals(12.5, history.get(0.5).get(123), 1E-9);
+            assertEquals(13.5, history.get(0.5).get(124), 1E-9);
+
+        } finally {
+            Files.delete(summary);
+        }
+    }
+}
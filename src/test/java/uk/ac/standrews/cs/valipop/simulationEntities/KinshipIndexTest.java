@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.simulationEntities;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.standrews.cs.valipop.Config;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
+import uk.ac.standrews.cs.valipop.statistics.populationStatistics.PopulationStatistics;
+
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link KinshipIndex} agrees with the family graph traversal in
+ * {@link PopulationNavigation#legallyEligibleToMarry(IPerson, IPerson)}.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class KinshipIndexTest {
+
+    private static final int NUMBER_OF_FOUNDERS = 12;
+    private static final int NUMBER_OF_GENERATIONS = 6;
+
+    private PopulationStatistics ps;
+
+    @Before
+    public void setUpPopulationStatistics() {
+
+        Config config = new Config(
+                LocalDate.of(1, 1, 1),
+                LocalDate.of(100, 1, 1),
+                LocalDate.of(200, 1, 1),
+                0,
+                Paths.get("src/test/resources/valipop/test-pop"),
+                Config.DEFAULT_RESULTS_SAVE_PATH, "KINSHIP_INDEX_TEST",
+                Config.DEFAULT_RESULTS_SAVE_PATH).setDeterministic(true);
+
+        ps = new PopulationStatistics(config);
+    }
+
+    @Test
+    public void agreesWithTraversalForAllPairs() {
+
+        for (long seed = 0; seed < 5; seed++) {
+
+            List<IPerson> people = makeFamilies(new Random(seed));
+            KinshipIndex index = new KinshipIndex();
+
+            int prohibitedPairs = 0;
+
+            for (IPerson man : people) {
+                if (man.getSex() == SexOption.MALE) {
+                    for (IPerson woman : people) {
+                        if (woman.getSex() == SexOption.FEMALE) {
+
+                            boolean expected = PopulationNavigation.legallyEligibleToMarry(man, woman);
+                            assertEquals("man " + man.getId() + " woman " + woman.getId(), expected, index.canPartner(man, woman));
+
+                            if (!expected) prohibitedPairs++;
+                        }
+                    }
+                }
+            }
+
+            assertTrue(prohibitedPairs > 0);
+        }
+    }
+
+    @Test
+    public void clearPicksUpNewRelatives() {
+
+        PersonStore store = new PersonStore(1);
+        KinshipIndex index = new KinshipIndex();
+
+        IPerson father = store.addPerson(SexOption.MALE, LocalDate.of(1900, 1, 1), null, ps, false, false);
+        IPerson mother = store.addPerson(SexOption.FEMALE, LocalDate.of(1900, 1, 1), null, ps, false, false);
+
+        assertTrue(index.canPartner(father, mother));
+
+        IPartnership partnership = store.addPartnership(father, mother);
+        father.recordPartnership(partnership);
+        mother.recordPartnership(partnership);
+
+        IPerson daughter = store.addPerson(SexOption.FEMALE, LocalDate.of(1925, 1, 1), partnership, ps, false, false);
+        partnership.addChildren(Collections.singletonList(daughter));
+
+        assertTrue(index.canPartner(father, daughter));
+
+        index.clear();
+
+        assertFalse(index.canPartner(father, daughter));
+    }
+
+    private List<IPerson> makeFamilies(Random random) {
+
+        PersonStore store = new PersonStore(1);
+        List<IPerson> people = new ArrayList<>();
+        List<IPerson> generation = new ArrayList<>();
+
+        for (int i = 0; i < NUMBER_OF_FOUNDERS; i++) {
+            generation.add(store.addPerson(i % 2 == 0 ? SexOption.MALE : SexOption.FEMALE, LocalDate.of(1800, 1, 1), null, ps, false, false));
+        }
+
+        for (int g = 1; g <= NUMBER_OF_GENERATIONS; g++) {
+
+            people.addAll(generation);
+
+            // Partners are drawn from the whole population so far, which produces remarriage, half-siblings and
+            // partnerships between relatives.
+            List<IPerson> men = new ArrayList<>();
+            List<IPerson> women = new ArrayList<>();
+
+            for (IPerson person : people) {
+                (person.getSex() == SexOption.MALE ? men : women).add(person);
+            }
+
+            List<IPerson> nextGeneration = new ArrayList<>();
+            int numberOfPartnerships = generation.size() / 2 + 1;
+
+            for (int i = 0; i < numberOfPartnerships && !men.isEmpty() && !women.isEmpty(); i++) {
+
+                IPerson man = men.get(random.nextInt(men.size()));
+                IPerson woman = women.get(random.nextInt(women.size()));
+
+                IPartnership partnership = store.addPartnership(man, woman);
+                man.recordPartnership(partnership);
+                woman.recordPartnership(partnership);
+
+                List<IPerson> children = new ArrayList<>();
+                int numberOfChildren = random.nextInt(4);
+
+                for (int c = 0; c < numberOfChildren; c++) {
+                    SexOption sex = random.nextBoolean() ? SexOption.MALE : SexOption.FEMALE;
+                    children.add(store.addPerson(sex, LocalDate.of(1800 + 25 * g, 1, 1), partnership, ps, false, false));
+                }
+
+                partnership.addChildren(children);
+                nextGeneration.addAll(children);
+            }
+
+            generation = nextGeneration;
+        }
+
+        people.addAll(generation);
+        return people;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.simulationEntities;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.standrews.cs.valipop.Config;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
+import uk.ac.standrews.cs.valipop.statistics.populationStatistics.PopulationStatistics;
+
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class PersonStoreTest {
+
+    private PopulationStatistics ps;
+    private int nextId = 0;
+
+    @Before
+    public void setUpPopulationStatistics() {
+
+        Config config = new Config(
+                LocalDate.of(1, 1, 1),
+                LocalDate.of(100, 1, 1),
+                LocalDate.of(200, 1, 1),
+                0,
+                Paths.get("src/test/resources/valipop/test-pop"),
+                Config.DEFAULT_RESULTS_SAVE_PATH, "PERSON_STORE_TEST",
+                Config.DEFAULT_RESULTS_SAVE_PATH).setDeterministic(true);
+
+        ps = new PopulationStatistics(config);
+    }
+
+    @Test
+    public void storedPeopleHoldTheirState() {
+
+        PersonStore store = new PersonStore(1);
+
+        IPerson father = store.addPerson(SexOption.MALE, LocalDate.of(1900, 1, 1), null, ps, false, false);
+        IPerson mother = store.addPerson(SexOption.FEMALE, LocalDate.of(1901, 6, 1), null, ps, false, false);
+
+        IPartnership partnership = store.addPartnership(father, mother);
+        partnership.setPartnershipDate(LocalDate.of(1920, 3, 4));
+        father.recordPartnership(partnership);
+        mother.recordPartnership(partnership);
+
+        IPerson child = store.addPerson(SexOption.FEMALE, LocalDate.of(1921, 2, 2), partnership, ps, true, false);
+        partnership.addChildren(Collections.singletonList(child));
+
+        child.setDeathDate(LocalDate.of(1990, 1, 1));
+        child.setDeathCause("cause");
+        child.setPhantom(true);
+
+        assertEquals(3, store.getNumberOfPeople());
+        assertSame(child, store.getPerson(child.getId()));
+
+        assertEquals(SexOption.MALE, father.getSex());
+        assertEquals(LocalDate.of(1901, 6, 1), mother.getBirthDate());
+        assertNull(father.getDeathDate());
+
+        assertSame(partnership, child.getParents());
+        assertSame(father, partnership.getMalePartner());
+        assertSame(mother, partnership.getFemalePartner());
+        assertSame(father, partnership.getPartnerOf(mother));
+        assertEquals(LocalDate.of(1920, 3, 4), partnership.getPartnershipDate());
+        assertNull(partnership.getMarriageDate());
+
+        assertEquals(Collections.singletonList(child), partnership.getChildren());
+        assertSame(partnership, father.getLastPartnership());
+
+        assertEquals(father.getSurname(), child.getSurname());
+        assertEquals(LocalDate.of(1990, 1, 1), child.getDeathDate());
+        assertEquals("cause", child.getDeathCause());
+        assertTrue(child.isAdulterousBirth());
+        assertTrue(child.isPhantom());
+        assertFalse(father.isPhantom());
+    }
+
+    @Test
+    public void partnershipsAndChildrenCanBeRemoved() {
+
+        PersonStore store = new PersonStore(1);
+
+        IPerson father = store.addPerson(SexOption.MALE, LocalDate.of(1900, 1, 1), null, ps, false, false);
+        IPerson mother = store.addPerson(SexOption.FEMALE, LocalDate.of(1900, 1, 1), null, ps, false, false);
+
+        IPartnership first = store.addPartnership(father, mother);
+        IPartnership second = store.addPartnership(father, mother);
+        father.recordPartnership(first);
+        father.recordPartnership(second);
+
+        IPerson child = store.addPerson(SexOption.MALE, LocalDate.of(1925, 1, 1), second, ps, false, false);
+        second.getChildren().add(child);
+
+        assertTrue(father.getPartnerships().remove(first));
+        assertEquals(Collections.singletonList(second), father.getPartnerships());
+
+        assertTrue(second.getChildren().remove(child));
+        assertTrue(second.getChildren().isEmpty());
+    }
+
+    @Test
+    public void viewsReadTheCurrentStateOfTheStore() {
+
+        PersonStore store = new PersonStore(1);
+
+        IPerson father = store.addPerson(SexOption.MALE, LocalDate.of(1900, 1, 1), null, ps, false, false);
+        IPerson mother = store.addPerson(SexOption.FEMALE, LocalDate.of(1900, 1, 1), null, ps, false, false);
+
+        // a person never given an address has none, whichever way it is read
+        assertNull(father.getAddress(LocalDate.of(1950, 1, 1)));
+        assertNull(father.getLastMoveDate());
+        assertTrue(father.getAllAddresses().isEmpty());
+
+        List<IPartnership> partnerships = father.getPartnerships();
+        IPartnership partnership = store.addPartnership(father, mother);
+        father.recordPartnership(partnership);
+
+        IPerson child = store.addPerson(SexOption.FEMALE, LocalDate.of(1921, 2, 2), partnership, ps, false, false);
+        List<IPerson> children = partnership.getChildren();
+        partnership.addChildren(Collections.singletonList(child));
+
+        // lists got before a change still see it, as they read from the store
+        assertEquals(Collections.singletonList(partnership), partnerships);
+        assertEquals(Collections.singletonList(child), children);
+        assertEquals(partnerships, father.getPartnerships());
+    }
+
+    @Test
+    public void occupationHistoryIsOrderedByDate() {
+
+        PersonStore store = new PersonStore();
+
+        IPerson person = store.addPerson(SexOption.MALE, LocalDate.of(1900, 1, 1), null, ps, false, false);
+        String atBirth = person.getOccupation(LocalDate.of(1900, 1, 1));
+
+        person.setOccupation(LocalDate.of(1940, 1, 1), "b");
+        person.setOccupation(LocalDate.of(1920, 1, 1), "a");
+
+        assertEquals(atBirth, person.getOccupation(LocalDate.of(1919, 12, 31)));
+        assertEquals("a", person.getOccupation(LocalDate.of(1920, 1, 1)));
+        assertEquals("a", person.getOccupation(LocalDate.of(1939, 1, 1)));
+        assertEquals("b", person.getLastOccupation());
+
+        person.setOccupation(LocalDate.of(1940, 1, 1), "c");
+        assertEquals("c", person.getLastOccupation());
+    }
+
+    @Test
+    public void objectAndColumnarPeopleSampleTheSameNames() {
+
+        IPerson stored = new PersonStore().addPerson(SexOption.FEMALE, LocalDate.of(1900, 1, 1), null, ps, false, false);
+        setUpPopulationStatistics();
+        IPerson object = new Person(nextId++, SexOption.FEMALE, LocalDate.of(1900, 1, 1), null, ps, false, false);
+
+        assertEquals(object.getFirstName(), stored.getFirstName());
+        assertEquals(object.getSurname(), stored.getSurname());
+        assertEquals(object.getLastOccupation(), stored.getLastOccupation());
+    }
+}
@@ -17,6 +17,8 @@
 package uk.ac.standrews.cs.valipop.simulationEntities.dataStructure;
 
 
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
 import org.junit.Before;
 import org.junit.Test;
 import uk.ac.standrews.cs.valipop.Config;
@@ -25,15 +27,22 @@ import uk.ac.standrews.cs.valipop.simulationEntities.Partnership;
 import uk.ac.standrews.cs.valipop.simulationEntities.Person;
 import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.PopulationStatistics;
+import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.IntegerRange;
 
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.Period;
+import java.time.YearMonth;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -43,6 +52,7 @@ import static org.junit.Assert.assertTrue;
 public class PeopleCollectionTest {
 
     private PopulationStatistics ps;
+    private int nextId = 0;
 
     @Before
     public void setUpPopulationStatistics() {
@@ -73,15 +83,15 @@ public class PeopleCollectionTest {
         LocalDate b3 = LocalDate.of(1900, 12, 31);
         LocalDate b4 = LocalDate.of(1901, 1, 1);
 
-        Person m1 = new Person(SexOption.MALE, b1, null, ps, false);
-        Person m2 = new Person(SexOption.MALE, b2, null, ps, false);
-        Person m3 = new Person(SexOption.MALE, b3, null, ps, false);
-        Person m4 = new Person(SexOption.MALE, b4, null, ps, false);
+        Person m1 = new Person(nextId++, SexOption.MALE, b1, null, ps, false);
+        Person m2 = new Person(nextId++, SexOption.MALE, b2, null, ps, false);
+        Person m3 = new Person(nextId++, SexOption.MALE, b3, null, ps, false);
+        Person m4 = new Person(nextId++, SexOption.MALE, b4, null, ps, false);
 
-        Person f1 = new Person(SexOption.FEMALE, b1, null, ps, false);
-        Person f2 = new Person(SexOption.FEMALE, b2, null, ps, false);
-        Person f3 = new Person(SexOption.FEMALE, b3, null, ps, false);
-        Person f4 = new Person(SexOption.FEMALE, b4, null, ps, false);
+        Person f1 = new Person(nextId++, SexOption.FEMALE, b1, null, ps, false);
+        Person f2 = new Person(nextId++, SexOption.FEMALE, b2, null, ps, false);
+        Person f3 = new Person(nextId++, SexOption.FEMALE, b3, null, ps, false);
+        Person f4 = new Person(nextId++, SexOption.FEMALE, b4, null, ps, false);
 
         living.add(m1);
         living.add(m2);
@@ -119,13 +129,13 @@ public class PeopleCollectionTest {
 
         LocalDate start = LocalDate.of(1600, 1, 1);
 
-        Person m1 = new Person(SexOption.MALE, start, null, ps, false);
-        Person m2 = new Person(SexOption.MALE, start, null, ps, false);
-        Person m3 = new Person(SexOption.MALE, start, null, ps, false);
+        Person m1 = new Person(nextId++, SexOption.MALE, start, null, ps, false);
+        Person m2 = new Person(nextId++, SexOption.MALE, start, null, ps, false);
+        Person m3 = new Person(nextId++, SexOption.MALE, start, null, ps, false);
 
-        Person f1 = new Person(SexOption.FEMALE, start, null, ps, false);
-        Person f2 = new Person(SexOption.FEMALE, start, null, ps, false);
-        Person f3 = new Person(SexOption.FEMALE, start, null, ps, false);
+        Person f1 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
+        Person f2 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
+        Person f3 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
 
         living.add(m1);
         living.add(m2);
@@ -153,13 +163,13 @@ public class PeopleCollectionTest {
 
         LocalDate start = LocalDate.of(1600, 1, 1);
 
-        Person m1 = new Person(SexOption.MALE, start, null, ps, false);
-        Person m2 = new Person(SexOption.MALE, start, null, ps, false);
-        Person m3 = new Person(SexOption.MALE, start, null, ps, false);
+        Person m1 = new Person(nextId++, SexOption.MALE, start, null, ps, false);
+        Person m2 = new Person(nextId++, SexOption.MALE, start, null, ps, false);
+        Person m3 = new Person(nextId++, SexOption.MALE, start, null, ps, false);
 
-        Person f1 = new Person(SexOption.FEMALE, start, null, ps, false);
-        Person f2 = new Person(SexOption.FEMALE, start, null, ps, false);
-        Person f3 = new Person(SexOption.FEMALE, start, null, ps, false);
+        Person f1 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
+        Person f2 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
+        Person f3 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
 
         living.add(m1);
         living.add(m2);
@@ -194,13 +204,13 @@ public class PeopleCollectionTest {
 
         LocalDate start = LocalDate.of(1600, 1, 1);
 
-        Person m1 = new Person(SexOption.MALE, start, null, ps, false);
-        Person m2 = new Person(SexOption.MALE, start, null, ps, false);
-        Person m3 = new Person(SexOption.MALE, start, null, ps, false);
+        Person m1 = new Person(nextId++, SexOption.MALE, start, null, ps, false);
+        Person m2 = new Person(nextId++, SexOption.MALE, start, null, ps, false);
+        Person m3 = new Person(nextId++, SexOption.MALE, start, null, ps, false);
 
-        Person f1 = new Person(SexOption.FEMALE, start, null, ps, false);
-        Person f2 = new Person(SexOption.FEMALE, start, null, ps, false);
-        Person f3 = new Person(SexOption.FEMALE, start, null, ps, false);
+        Person f1 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
+        Person f2 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
+        Person f3 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
 
         living.add(m1);
         living.add(m2);
@@ -242,13 +252,13 @@ public class PeopleCollectionTest {
 
         LocalDate start = LocalDate.of(1600, 1, 1);
 
-        Person f1 = new Person(SexOption.FEMALE, start, null, ps, false);
+        Person f1 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
 
-        Person m1 = new Person(SexOption.MALE, start, null, ps, false);
+        Person m1 = new Person(nextId++, SexOption.MALE, start, null, ps, false);
 
-        Person c1 = new Person(SexOption.MALE, start.plus(19, ChronoUnit.YEARS), null, ps, false);
-        Person c2 = new Person(SexOption.FEMALE, start.plus(25, ChronoUnit.YEARS), null, ps, false);
-        Person c3 = new Person(SexOption.MALE, start.plus(32, ChronoUnit.YEARS), null, ps, false);
+        Person c1 = new Person(nextId++, SexOption.MALE, start.plus(19, ChronoUnit.YEARS), null, ps, false);
+        Person c2 = new Person(nextId++, SexOption.FEMALE, start.plus(25, ChronoUnit.YEARS), null, ps, false);
+        Person c3 = new Person(nextId++, SexOption.MALE, start.plus(32, ChronoUnit.YEARS), null, ps, false);
 
         living.add(f1);
 
@@ -256,7 +266,7 @@ public class PeopleCollectionTest {
 
         living.remove(f1);
 
-        Partnership p1 = new Partnership(m1, f1, c1.getBirthDate());
+        Partnership p1 = new Partnership(nextId++, m1, f1, c1.getBirthDate());
         p1.addChildren(Collections.singletonList(c1));
         m1.recordPartnership(p1);
         f1.recordPartnership(p1);
@@ -301,6 +311,50 @@ public class PeopleCollectionTest {
         assertTrue(people.contains(c3));
     }
 
+    @Test
+    public void femaleGivesBirthUpdatesBirthOrderInPlace() throws PersonNotFoundException {
+
+        LocalDate s = LocalDate.of(0, 1, 1);
+        LocalDate e = LocalDate.of(3000, 1, 1);
+
+        Period y = Period.ofYears(1);
+        PeopleCollection living = new PeopleCollection(s, e, y,"");
+
+        LocalDate start = LocalDate.of(1600, 1, 1);
+
+        Person f1 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
+        Person f2 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
+        Person m1 = new Person(nextId++, SexOption.MALE, start, null, ps, false);
+        Person c1 = new Person(nextId++, SexOption.MALE, start.plus(19, ChronoUnit.YEARS), null, ps, false);
+        Person c2 = new Person(nextId++, SexOption.MALE, start.plus(19, ChronoUnit.YEARS), null, ps, false);
+
+        living.add(f1);
+        living.add(f2);
+
+        Collection<IPerson> noChildren = living.getFemales().getByDatePeriodAndBirthOrder(start, y, 0);
+        Collection<IPerson> twoOrMore = living.getFemales().getByDatePeriodAndBirthOrder(start, y, new IntegerRange("2+"));
+
+        assertEquals(2, noChildren.size());
+        assertTrue(twoOrMore.isEmpty());
+
+        // twins added to a partnership without removing the mother from the collection
+        Partnership p1 = new Partnership(nextId++, m1, f1, c1.getBirthDate());
+        p1.addChildren(Arrays.asList(c1, c2));
+        f1.recordPartnership(p1);
+        living.getFemales().addChildren(f1, 2);
+
+        assertEquals(1, noChildren.size());
+        assertFalse(noChildren.contains(f1));
+        assertTrue(twoOrMore.contains(f1));
+
+        assertEquals(2, living.getFemales().getNumberOfPeople(start, y));
+
+        // removal uses the birth order she is now filed under
+        living.remove(f1);
+        assertTrue(twoOrMore.isEmpty());
+        assertEquals(1, living.getFemales().getNumberOfPeople(start, y));
+    }
+
     @Test(expected = PersonNotFoundException.class)
     public void removeNonExistentFemaleFromEmptyCollection() throws PersonNotFoundException {
 
@@ -312,7 +366,7 @@ public class PeopleCollectionTest {
 
         LocalDate start = LocalDate.of(1600, 1, 1);
 
-        Person f1 = new Person(SexOption.FEMALE, start, null, ps, false);
+        Person f1 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
         living.remove(f1);
     }
 
@@ -327,8 +381,8 @@ public class PeopleCollectionTest {
 
         LocalDate start = LocalDate.of(1600, 1, 1);
 
-        Person f1 = new Person(SexOption.FEMALE, start, null, ps, false);
-        Person f2 = new Person(SexOption.FEMALE, start, null, ps, false);
+        Person f1 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
+        Person f2 = new Person(nextId++, SexOption.FEMALE, start, null, ps, false);
 
         living.add(f2);
         living.remove(f1);
@@ -345,7 +399,7 @@ public class PeopleCollectionTest {
 
         LocalDate start = LocalDate.of(1600, 1, 1);
 
-        Person m1 = new Person(SexOption.MALE, start, null, ps, false);
+        Person m1 = new Person(nextId++, SexOption.MALE, start, null, ps, false);
         living.remove(m1);
     }
 
@@ -360,10 +414,181 @@ public class PeopleCollectionTest {
 
         LocalDate start = LocalDate.of(1600, 1, 1);
 
-        Person m1 = new Person(SexOption.MALE, start, null, ps, false);
-        Person m2 = new Person(SexOption.MALE, start, null, ps, false);
+        Person m1 = new Person(nextId++, SexOption.MALE, start, null, ps, false);
+        Person m2 = new Person(nextId++, SexOption.MALE, start, null, ps, false);
 
         living.add(m2);
         living.remove(m1);
     }
+
+    @Test
+    public void combinedViewIteratesAsSingleCollection() {
+
+        LocalDate s = LocalDate.of(0, 1, 1);
+        LocalDate e = LocalDate.of(3000, 1, 1);
+
+        Period y = Period.ofYears(1);
+
+        PeopleCollection living = new PeopleCollection(s, e, y, "living");
+        PeopleCollection dead = new PeopleCollection(s, e, y, "dead");
+        PeopleCollection emigrants = new PeopleCollection(s, e, y, "emigrants");
+        PeopleCollection all = new PeopleCollection(s, e, y, "all");
+
+        List<PeopleCollection> parts = Arrays.asList(living, dead, emigrants);
+        List<Person> people = new ArrayList<>();
+
+        for (int i = 0; i < 30; i++) {
+
+            SexOption sex = i % 3 == 0 ? SexOption.MALE : SexOption.FEMALE;
+            people.add(new Person(nextId++, sex, LocalDate.of(1600 + i % 4, 1 + i % 12, 1), null, ps, false));
+        }
+
+        // some women of each part have children, so are filed under different birth orders
+        for (int i = 1; i < people.size(); i += 4) {
+
+            Person mother = people.get(i);
+            Person child = new Person(nextId++, SexOption.MALE, mother.getBirthDate().plusYears(20), null, ps, false);
+
+            Partnership partnership = new Partnership(nextId++, people.get(0), mother, child.getBirthDate());
+            partnership.addChildren(Collections.singletonList(child));
+            mother.recordPartnership(partnership);
+
+            people.add(child);
+            living.add(partnership);
+            all.add(partnership);
+        }
+
+        for (int i = 0; i < people.size(); i++) {
+
+            parts.get(i % 3).add(people.get(i));
+            all.add(people.get(i));
+        }
+
+        CombinedPeopleCollection combined = new CombinedPeopleCollection(living, dead, emigrants);
+
+        List<IPerson> expected = new ArrayList<>();
+        all.forEach(expected::add);
+
+        List<IPerson> actual = new ArrayList<>();
+        combined.forEach(actual::add);
+
+        assertEquals(expected, actual);
+        assertEquals(all.getNumberOfPeople(), combined.getNumberOfPeople());
+        assertEquals(all.getNumberOfPartnerships(), combined.getNumberOfPartnerships());
+
+        for (IPerson person : people) {
+            assertEquals(person, combined.findPerson(person.getId()));
+        }
+    }
+
+    @Test
+    public void randomPeopleAreDrawnFromThoseCurrentlyInCollection() throws InsufficientNumberOfPeopleException {
+
+        LocalDate s = LocalDate.of(0, 1, 1);
+        LocalDate e = LocalDate.of(3000, 1, 1);
+
+        Period y = Period.ofYears(1);
+
+        PeopleCollection living = new PeopleCollection(s, e, y, "living");
+        List<Person> people = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+
+            SexOption sex = i % 2 == 0 ? SexOption.MALE : SexOption.FEMALE;
+            people.add(new Person(nextId++, sex, LocalDate.of(1900 + i % 3, 1, 1), null, ps, false));
+        }
+
+        // people added both before and after indexing are included
+        for (int i = 0; i < 10; i++) {
+            living.add(people.get(i));
+        }
+
+        living.indexForSampling();
+
+        for (int i = 10; i < people.size(); i++) {
+            living.add(people.get(i));
+        }
+
+        // people removed either through the whole collection or through one sex are not
+        living.remove(people.get(3));
+        living.remove(people.get(12));
+        Collection<IPerson> removedMales = living.getMales().removeNPersons(2, LocalDate.of(1900, 1, 1), y, true);
+
+        Set<IPerson> expected = new HashSet<>();
+        living.forEach(expected::add);
+
+        assertEquals(2, removedMales.size());
+        assertEquals(16, expected.size());
+        assertFalse(expected.contains(people.get(3)));
+        assertFalse(expected.contains(people.get(12)));
+
+        for (IPerson person : removedMales) {
+            assertFalse(expected.contains(person));
+        }
+
+        RandomGenerator random = new MersenneTwister(23);
+        Set<IPerson> drawn = new HashSet<>();
+
+        for (int i = 0; i < 1000; i++) {
+
+            IPerson person = living.getRandomPerson(random);
+
+            assertTrue(expected.contains(person));
+            drawn.add(person);
+        }
+
+        assertEquals(expected, drawn);
+    }
+
+    @Test
+    public void peopleFiledWithBirthMonthsIncludesEveryoneBornInThem() {
+
+        RandomGenerator random = new MersenneTwister(31);
+
+        for (Period divisionSize : Arrays.asList(Period.ofYears(1), Period.ofMonths(3), Period.ofYears(5))) {
+
+            LocalDate s = LocalDate.of(1687, 3, 15);
+            LocalDate e = LocalDate.of(1800, 1, 1);
+
+            PeopleCollection living = new PeopleCollection(s, e, divisionSize, "living");
+
+            for (int i = 0; i < 200; i++) {
+
+                SexOption sex = i % 2 == 0 ? SexOption.MALE : SexOption.FEMALE;
+                living.add(new Person(nextId++, sex, s.minusYears(20).plusDays(random.nextInt(100 * 365)), null, ps, false));
+            }
+
+            List<IPerson> all = new ArrayList<>();
+            living.forEach(all::add);
+
+            for (int i = 0; i < 20; i++) {
+
+                YearMonth first = YearMonth.from(s.minusYears(20).plusDays(random.nextInt(100 * 365)));
+                List<YearMonth> months = new ArrayList<>();
+
+                for (int m = 0; m < 14; m++) {
+                    months.add(first.plusMonths(m));
+                }
+
+                List<IPerson> filed = new ArrayList<>(living.getPeopleFiledWithBirthMonths(months));
+
+                // everyone born in the months is included, and all are in the order of the whole collection
+                List<IPerson> expectedOrder = new ArrayList<>(all);
+                expectedOrder.retainAll(filed);
+                assertEquals(expectedOrder, filed);
+
+                for (IPerson person : all) {
+
+                    YearMonth birthMonth = YearMonth.from(person.getBirthDate());
+
+                    assertFalse(birthMonth.isBefore(living.getMales().getEarliestBirthMonth()) && person.getSex() == SexOption.MALE);
+                    assertFalse(birthMonth.isBefore(living.getFemales().getEarliestBirthMonth()) && person.getSex() == SexOption.FEMALE);
+
+                    if (months.contains(birthMonth)) {
+                        assertTrue(filed.contains(person));
+                    }
+                }
+            }
+        }
+    }
 }
@@ -17,6 +17,8 @@ import static uk.ac.standrews.cs.valipop.simulationEntities.PopulationNavigation
  */
 public class PersonTest {
 
+    private int nextId = 0;
+
     //@Ignore
     @Test
     public void testAgeOnDate() {
@@ -31,8 +33,8 @@ public class PersonTest {
 
         PopulationStatistics ps = new PopulationStatistics(config);
 
-        Person p1 = new Person(SexOption.MALE, LocalDate.of(1900, 1, 1), null, ps, false);
-        Person p3 = new Person(SexOption.MALE, LocalDate.of(1900, 1, 2), null, ps, false);
+        Person p1 = new Person(nextId++, SexOption.MALE, LocalDate.of(1900, 1, 1), null, ps, false);
+        Person p3 = new Person(nextId++, SexOption.MALE, LocalDate.of(1900, 1, 2), null, ps, false);
 
         LocalDate y1 = LocalDate.of(1900, 1, 1);
         LocalDate y2 = LocalDate.of(1901, 1, 1);
@@ -49,7 +51,7 @@ public class PersonTest {
 
         assertEquals(1, ageOnDate(p1, y3));
 
-        Person p2 = new Person(SexOption.MALE, LocalDate.of(1900, 12, 31), null, ps, false);
+        Person p2 = new Person(nextId++, SexOption.MALE, LocalDate.of(1900, 12, 31), null, ps, false);
 
         assertEquals(0, ageOnDate(p2, y2));
         assertEquals(1, ageOnDate(p2, e));
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.statistics.analysis;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.GeeglmV;
+
+import java.nio.file.Path;
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the in-process fit of the validation models gives the same V values as the R analysis.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+@RunWith(Parameterized.class)
+public class GeeglmVTest {
+
+    private final Path tableDirectory;
+    private final double expectedV;
+
+    public GeeglmVTest(Path tableDirectory, double expectedV) {
+
+        this.tableDirectory = tableDirectory;
+        this.expectedV = expectedV;
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> tables() {
+        return ValidationTest.tables();
+    }
+
+    @Test
+    public void sameVAsR() {
+
+        int maxBirthingAge = 55;
+
+        assertEquals(expectedV, GeeglmV.getV(tableDirectory, maxBirthingAge), 1e-10);
+    }
+}
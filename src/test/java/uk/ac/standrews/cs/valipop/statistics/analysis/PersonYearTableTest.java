@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.statistics.analysis;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.standrews.cs.valipop.Config;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPartnership;
+import uk.ac.standrews.cs.valipop.simulationEntities.IPerson;
+import uk.ac.standrews.cs.valipop.simulationEntities.Partnership;
+import uk.ac.standrews.cs.valipop.simulationEntities.Person;
+import uk.ac.standrews.cs.valipop.simulationEntities.PopulationNavigation;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
+import uk.ac.standrews.cs.valipop.statistics.populationStatistics.PopulationStatistics;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the years in which {@link PersonYearTable} holds people as present against {@link PopulationNavigation}.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class PersonYearTableTest {
+
+    private static final LocalDate[] DATES = {null, LocalDate.of(1900, 1, 1), LocalDate.of(1900, 6, 15),
+            LocalDate.of(1900, 12, 31), LocalDate.of(1901, 1, 1), LocalDate.of(1910, 12, 31), LocalDate.of(1911, 3, 1)};
+
+    private PopulationStatistics ps;
+    private int nextId = 0;
+
+    @Before
+    public void setUp() throws IOException {
+
+        Config config = new Config(
+                LocalDate.of(1, 1, 1),
+                LocalDate.of(100, 1, 1),
+                LocalDate.of(200, 1, 1),
+                0,
+                Paths.get("src/test/resources/valipop/test-pop"),
+                Config.DEFAULT_RESULTS_SAVE_PATH, "PERSON_YEAR_TABLE_TEST",
+                Config.DEFAULT_RESULTS_SAVE_PATH).setDeterministic(true);
+
+        ps = new PopulationStatistics(config);
+    }
+
+    @Test
+    public void presentYearsMatchNavigation() {
+
+        List<IPerson> people = new ArrayList<>();
+
+        for (LocalDate death : DATES) {
+            for (LocalDate immigration : DATES) {
+                for (LocalDate emigration : DATES) {
+
+                    IPerson person = new Person(nextId++, SexOption.FEMALE, LocalDate.of(1899, 12, 31), null, ps, false, immigration != null);
+
+                    person.setDeathDate(death);
+                    if (immigration != null) person.setImmigrationDate(immigration);
+                    if (emigration != null) person.setEmigrationDate(emigration);
+
+                    people.add(person);
+                }
+            }
+        }
+
+        PersonYearTable table = new PersonYearTable(people);
+
+        assertEquals(people.size(), table.getNumberOfPeople());
+
+        for (int row = 0; row < table.getNumberOfPeople(); row++) {
+
+            IPerson person = table.getPerson(row);
+
+            for (int year = 1898; year < 1914; year++) {
+
+                LocalDate endOfPreviousYear = LocalDate.of(year - 1, 12, 31);
+                boolean expected = PopulationNavigation.aliveOnDate(person, endOfPreviousYear) && PopulationNavigation.presentOnDate(person, endOfPreviousYear);
+
+                assertEquals("row " + row + " in " + year, expected, table.isPresentIn(row, year));
+            }
+        }
+    }
+
+    @Test
+    public void childrenAreHeldByPartnership() {
+
+        IPerson mother = new Person(nextId++, SexOption.FEMALE, LocalDate.of(1870, 1, 1), null, ps, false);
+        IPerson father = new Person(nextId++, SexOption.MALE, LocalDate.of(1868, 1, 1), null, ps, false);
+
+        mother.setDeathDate(LocalDate.of(1930, 5, 1));
+
+        IPartnership first = new Partnership(nextId++, father, mother, LocalDate.of(1890, 1, 1));
+        IPartnership second = new Partnership(nextId++, father, mother, LocalDate.of(1900, 1, 1));
+
+        first.addChildren(Arrays.asList(
+                new Person(nextId++, SexOption.MALE, LocalDate.of(1891, 2, 1), first, ps, false),
+                new Person(nextId++, SexOption.FEMALE, LocalDate.of(1893, 2, 1), first, ps, false)));
+        second.addChildren(Arrays.asList(
+                new Person(nextId++, SexOption.MALE, LocalDate.of(1902, 2, 1), second, ps, false)));
+
+        for (IPartnership partnership : Arrays.asList(first, second)) {
+            mother.recordPartnership(partnership);
+            father.recordPartnership(partnership);
+        }
+
+        PersonYearTable table = new PersonYearTable(Arrays.asList(mother, father));
+
+        assertTrue(table.isFemale(0));
+        assertFalse(table.isFemale(1));
+
+        for (int row = 0; row < 2; row++) {
+
+            assertEquals(2, table.getNumberOfPartnerships(row));
+            assertEquals(2, table.getNumberOfChildren(row, 0));
+            assertEquals(1, table.getNumberOfChildren(row, 1));
+            assertEquals(3, table.getNumberOfChildren(row));
+            assertEquals(1891, table.getChildBirthYear(row, 0));
+            assertEquals(1893, table.getChildBirthYear(row, 1));
+            assertEquals(1902, table.getChildBirthYear(row, 2));
+        }
+
+        assertEquals(1930, table.getDeathYear(0));
+        assertEquals(60, table.getAgeAtDeath(0));
+        assertEquals(PersonYearTable.NO_YEAR, table.getDeathYear(1));
+        assertEquals(-1, table.getAgeAtDeath(1));
+    }
+
+    @Test
+    public void restrictedTableHoldsRowsOfGivenPeople() {
+
+        IPerson mother = new Person(nextId++, SexOption.FEMALE, LocalDate.of(1870, 1, 1), null, ps, false);
+        IPerson father = new Person(nextId++, SexOption.MALE, LocalDate.of(1868, 1, 1), null, ps, false);
+
+        father.setDeathDate(LocalDate.of(1920, 3, 1));
+
+        IPartnership partnership = new Partnership(nextId++, father, mother, LocalDate.of(1890, 1, 1));
+        IPerson child = new Person(nextId++, SexOption.MALE, LocalDate.of(1891, 2, 1), partnership, ps, false);
+
+        partnership.addChildren(Arrays.asList(child));
+        mother.recordPartnership(partnership);
+        father.recordPartnership(partnership);
+
+        PersonYearTable table = new PersonYearTable(Arrays.asList(mother, child, father));
+        PersonYearTable restricted = table.restrictTo(Arrays.asList(father, mother));
+
+        assertEquals(2, restricted.getNumberOfPeople());
+        assertSame(father, restricted.getPerson(0));
+        assertSame(mother, restricted.getPerson(1));
+
+        for (int row = 0; row < 2; row++) {
+
+            int original = row == 0 ? 2 : 0;
+
+            assertEquals(table.getId(original), restricted.getId(row));
+            assertEquals(table.isFemale(original), restricted.isFemale(row));
+            assertEquals(table.getBirthYear(original), restricted.getBirthYear(row));
+            assertEquals(table.getDeathYear(original), restricted.getDeathYear(row));
+            assertEquals(table.getAgeAtDeath(original), restricted.getAgeAtDeath(row));
+            assertEquals(table.getFirstPresentYear(original), restricted.getFirstPresentYear(row));
+            assertEquals(table.getLastPresentYear(original), restricted.getLastPresentYear(row));
+            assertEquals(1, restricted.getNumberOfPartnerships(row));
+            assertEquals(1, restricted.getNumberOfChildren(row, 0));
+            assertEquals(1891, restricted.getChildBirthYear(row, 0));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void restrictingToPersonNotInTableIsRejected() {
+
+        IPerson person = new Person(nextId++, SexOption.FEMALE, LocalDate.of(1870, 1, 1), null, ps, false);
+        IPerson other = new Person(nextId++, SexOption.MALE, LocalDate.of(1870, 1, 1), null, ps, false);
+
+        new PersonYearTable(Arrays.asList(person)).restrictTo(Arrays.asList(other));
+    }
+}
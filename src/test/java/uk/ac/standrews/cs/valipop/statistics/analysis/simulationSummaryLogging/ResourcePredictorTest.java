@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.statistics.analysis.simulationSummaryLogging;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class ResourcePredictorTest {
+
+    private static final String INPUTS = "src/test/resources/valipop/test-pop";
+    private static final Period YEAR = Period.ofYears(1);
+
+    // memory grows a little faster than the population, and run time with the population and the simulation length
+    private static double memory(int size) {
+        return 5e7 + 2e5 * Math.pow(size, 1.1);
+    }
+
+    private static double runTime(int size, double years) {
+        return size * years / 1000;
+    }
+
+    @Test
+    public void extrapolatesToLargerPopulations() {
+
+        List<ResourcePredictor.Run> runs = new ArrayList<>();
+        Random random = new Random(7);
+
+        for (int size : new int[]{1000, 2000, 4000, 8000}) {
+            for (int repeat = 0; repeat < 3; repeat++) {
+                double noise = 1 + random.nextGaussian() * 0.02;
+                runs.add(new ResourcePredictor.Run(INPUTS, YEAR, size, 250, 160, memory(size) * noise, runTime(size, 160) * noise));
+            }
+        }
+
+        ResourcePredictor.Prediction prediction = new ResourcePredictor(runs).predict(INPUTS, YEAR, 16000, 250, 160);
+
+        assertEquals(memory(16000), prediction.getMemory(), memory(16000) * 0.1);
+        assertEquals(runTime(16000, 160), prediction.getRunTime(), runTime(16000, 160) * 0.1);
+        assertTrue(prediction.getMemoryUpperBound() > prediction.getMemory());
+    }
+
+    @Test
+    public void assumesProportionalityForSizesWhichDoNotVary() {
+
+        List<ResourcePredictor.Run> runs = new ArrayList<>();
+
+        for (int repeat = 0; repeat < 3; repeat++) {
+            runs.add(new ResourcePredictor.Run(INPUTS, YEAR, 1000, 250, 160, 1e8, 100));
+        }
+
+        ResourcePredictor.Prediction prediction = new ResourcePredictor(runs).predict(INPUTS, YEAR, 1000, 250, 80);
+
+        assertEquals(1e8, prediction.getMemory() * 2, 1e6);
+        assertEquals(50, prediction.getRunTime(), 1);
+    }
+
+    @Test
+    public void predictsNothingWithoutRuns() {
+
+        assertNull(new ResourcePredictor(Collections.emptyList()).predict(INPUTS, YEAR, 1000, 250, 160));
+    }
+
+    @Test
+    public void readsCompletedRunsFromSummary() throws IOException {
+
+        Path summary = Files.createTempFile("summary", ".csv");
+
+        try {
+            List<String> headings = Arrays.asList(SummaryRow.getSeparatedHeadings().split(","));
+
+            Files.write(summary, Arrays.asList(String.join(",", headings),
+                    row(headings, 1000, true, "100.0"),
+                    row(headings, 2000, true, "200.0"),
+                    row(headings, 4000, false, "50.0")));
+
+            ResourcePredictor predictor = ResourcePredictor.read(summary, Paths.get("no-such-summary.csv"));
+            ResourcePredictor.Prediction prediction = predictor.predict(Paths.get(INPUTS), YEAR, 4000,
+                    LocalDate.of(1599, 1, 1), LocalDate.of(1855, 1, 1), LocalDate.of(2015, 1, 1));
+
+            // the incomplete run is ignored
+            assertEquals(400e6, prediction.getMemory(), 40e6);
+
+        } finally {
+            Files.delete(summary);
+        }
+    }
+
+    @Test
+    public void usesOwnPeakOfRunsWhichSharedTheHeap() throws IOException {
+
+        Path summary = Files.createTempFile("summary", ".csv");
+
+        try {
+            List<String> headings = Arrays.asList(SummaryRow.getSeparatedHeadings().split(","));
+
+            Files.write(summary, Arrays.asList(String.join(",", headings),
+                    row(headings, 1000, true, "100.0"),
+                    row(headings, 2000, true, "600.0", "200.0", 3)));
+
+            ResourcePredictor.Prediction prediction = ResourcePredictor.read(summary).predict(Paths.get(INPUTS), YEAR, 4000,
+                    LocalDate.of(1599, 1, 1), LocalDate.of(1855, 1, 1), LocalDate.of(2015, 1, 1));
+
+            // the run which shared the heap with two others is fitted by its own share of the heap
+            assertEquals(400e6, prediction.getMemory(), 40e6);
+
+        } finally {
+            Files.delete(summary);
+        }
+    }
+
+    @Test
+    public void ignoresSharedPeaksRecordedWithoutOwnPeak() throws IOException {
+
+        Path summary = Files.createTempFile("summary", ".csv");
+
+        try {
+            List<String> headings = Arrays.asList(SummaryRow.getSeparatedHeadings().split(","));
+            List<String> withoutConcurrent = headings.subList(0, headings.indexOf("Concurrent Simulations"));
+            List<String> withoutOwnPeak = headings.subList(0, headings.indexOf("Estimated Own Peak Memory Usage (MB)"));
+
+            // rows appended to a summary whose header was written before the number of simulations at once was
+            // recorded, some written before the own peak was recorded
+            Files.write(summary, Arrays.asList(String.join(",", withoutConcurrent),
+                    row(withoutConcurrent, 1000, true, "100.0"),
+                    row(withoutOwnPeak, 2000, true, "200.0"),
+                    row(withoutOwnPeak, 4000, true, "50.0", "50.0", 3)));
+
+            ResourcePredictor.Prediction prediction = ResourcePredictor.read(summary).predict(Paths.get(INPUTS), YEAR, 4000,
+                    LocalDate.of(1599, 1, 1), LocalDate.of(1855, 1, 1), LocalDate.of(2015, 1, 1));
+
+            // the peak of the heap shared with two others is ignored
+            assertEquals(400e6, prediction.getMemory(), 40e6);
+
+        } finally {
+            Files.delete(summary);
+        }
+    }
+
+    private static String row(List<String> headings, int size, boolean completed, String memory) {
+        return row(headings, size, completed, memory, memory, 1);
+    }
+
+    private static String row(List<String> headings, int size, boolean completed, String memory, String ownMemory, int concurrentSimulations) {
+
+        Map<String, String> values = new HashMap<>();
+        values.put("Inputs Directory", INPUTS);
+        values.put("Seed Pop Size", String.valueOf(size));
+        values.put("Completed", String.valueOf(completed));
+        values.put("Timestep", YEAR.toString());
+        values.put("Set Up Start Date", "1599-01-01");
+        values.put("Start Date", "1855-01-01");
+        values.put("End Date", "2015-01-01");
+        values.put("Peak Memory Usage (MB)", memory);
+        values.put("Concurrent Simulations", String.valueOf(concurrentSimulations));
+        values.put("Estimated Own Peak Memory Usage (MB)", ownMemory);
+
+        List<String> fields = new ArrayList<>();
+        for (String heading : headings) {
+            fields.add(values.getOrDefault(heading, heading.endsWith("Run time") || heading.endsWith("Run Time") ? "10.0" : "x"));
+        }
+        return String.join(",", fields);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import uk.ac.standrews.cs.valipop.Config;
+import uk.ac.standrews.cs.valipop.implementations.OBDModel;
+import uk.ac.standrews.cs.valipop.statistics.analysis.PersonYearTable;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TableInstances.*;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TableStructure.CTtable;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TableStructure.NoTableRowsException;
+import uk.ac.standrews.cs.valipop.statistics.populationStatistics.PopulationStatistics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks that counting the observed population on several threads gives the same tree and tables as on one.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class CTtreeTest {
+
+    private static Config config;
+    private static PersonYearTable population;
+
+    @BeforeClass
+    public static void simulate() {
+
+        config = new Config(LocalDate.of(1599, 1, 1), LocalDate.of(1855, 1, 1), LocalDate.of(2015, 1, 1), 300,
+                Paths.get("src/test/resources/valipop/test-pop"), Config.DEFAULT_RESULTS_SAVE_PATH, "CT_TREE_TEST",
+                Config.DEFAULT_RESULTS_SAVE_PATH).setDeterministic(true);
+
+        OBDModel model = new OBDModel(config);
+        model.runSimulation();
+
+        population = new PersonYearTable(model.getPopulation().getPeople());
+    }
+
+    @Test
+    public void treeIsTheSameWhateverTheNumberOfThreads() throws ChildNotFoundException, NoTableRowsException {
+
+        List<List<String>> expected = describeTree(1);
+
+        assertFalse(expected.get(0).isEmpty());
+
+        for (int threads : new int[]{2, 3, 4}) {
+            assertEquals(threads + " threads", expected, describeTree(threads));
+        }
+    }
+
+    // The observed nodes of the tree, followed by the rows of each table.
+    private static List<List<String>> describeTree(final int threads) throws ChildNotFoundException, NoTableRowsException {
+
+        CTtree tree = makeTree(threads);
+
+        List<List<String>> description = new ArrayList<>();
+        description.add(describe(tree.getChild(SourceType.SIM)));
+
+        description.add(describe(new CTtableOB(tree)));
+        description.add(describe(new CTtableMB(tree)));
+        description.add(describe(new CTtablePart(tree)));
+        description.add(describe(new CTtableSep(tree)));
+        description.add(describe(new CTtableDeath(tree)));
+
+        return description;
+    }
+
+    // The input statistics are drawn from in building the expected side of the tree, so each tree has its own.
+    private static CTtree makeTree(final int threads) {
+
+        return new CTtree(population, new PopulationStatistics(config), config.getTS(), config.getT0(), config.getTE(),
+                config.getCtTreeStepback(), config.getCtTreePrecision(), threads);
+    }
+
+    // Each node in depth first order, with its depth, option and count.
+    @SuppressWarnings("rawtypes")
+    private static List<String> describe(final Node root) {
+
+        List<String> nodes = new ArrayList<>();
+        describe(root, 0, nodes);
+        return nodes;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static void describe(final Node node, final int depth, final List<String> nodes) {
+
+        nodes.add(depth + " " + node.getOption() + " " + node.getCount());
+
+        for (Node child : (Iterable<Node>) node.getChildren()) {
+            describe(child, depth + 1, nodes);
+        }
+    }
+
+    // The rows of the table, sorted as they are written in no particular order.
+    private static List<String> describe(final CTtable table) throws NoTableRowsException {
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        table.outputToFile(new PrintStream(output));
+
+        List<String> rows = new ArrayList<>(Arrays.asList(output.toString().split("\\R")));
+        Collections.sort(rows);
+
+        return rows;
+    }
+}
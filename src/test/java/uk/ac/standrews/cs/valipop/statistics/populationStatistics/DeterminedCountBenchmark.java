@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.statistics.populationStatistics;
+
+import org.apache.commons.math3.random.JDKRandomGenerator;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
+import uk.ac.standrews.cs.valipop.statistics.populationStatistics.determinedCounts.DeterminedCount;
+import uk.ac.standrews.cs.valipop.statistics.populationStatistics.determinedCounts.SingleDeterminedCount;
+import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsKeys.*;
+import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsTables.dataDistributions.selfCorrecting.SelfCorrectingOneDimensionDataDistribution;
+import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsTables.dataDistributions.selfCorrecting.SelfCorrectingTwoDimensionDataDistribution;
+import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.IntegerRange;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.Year;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares determining and returning the single valued counts for a simulated year through stats keys and determined
+ * counts with the key free access of {@link PopulationStatistics}. Each invocation makes the death, birth, marriage,
+ * adulterous birth and separation requests that a simulation makes for one year, one per age (and birth order or
+ * number of children), against synthetic tables. As in a simulation, births and separations are requested for every
+ * age, including those outside the fertile ages covered by their tables.
+ *
+ * Run with the test classpath, for example from an IDE, by running {@link #main(String[])}, which reports the bytes
+ * allocated per simulated year as gc.alloc.rate.norm.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeterminedCountBenchmark {
+
+    private static final int YEAR = 1900;
+    private static final LocalDate DATE = LocalDate.of(YEAR, 1, 1);
+    private static final Period TIME_STEP = Period.ofYears(1);
+
+    private static final int MAX_AGE = 100;
+    private static final int MIN_FERTILE_AGE = 15;
+    private static final int MAX_FERTILE_AGE = 50;
+    private static final int MAX_ORDER = 10;
+    private static final int PEOPLE_PER_REQUEST = 50;
+
+    private PopulationStatistics statistics;
+    private RandomGenerator random;
+
+    @Setup
+    public void setUp() {
+
+        random = new JDKRandomGenerator();
+        random.setSeed(42);
+
+        final TreeMap<Year, SelfCorrectingOneDimensionDataDistribution> death = yearly(rates(0, MAX_AGE, 0.02));
+        final TreeMap<Year, SelfCorrectingOneDimensionDataDistribution> marriage = yearly(rates(MIN_FERTILE_AGE, MAX_FERTILE_AGE, 0.6));
+        final TreeMap<Year, SelfCorrectingOneDimensionDataDistribution> adulterousBirth = yearly(rates(MIN_FERTILE_AGE, MAX_AGE, 0.05));
+
+        final TreeMap<Year, SelfCorrectingTwoDimensionDataDistribution> orderedBirth = new TreeMap<>();
+        final TreeMap<Year, SelfCorrectingTwoDimensionDataDistribution> separation = new TreeMap<>();
+        orderedBirth.put(Year.of(YEAR), table(MIN_FERTILE_AGE, MAX_FERTILE_AGE, 0.1));
+        separation.put(Year.of(YEAR), table(MIN_FERTILE_AGE, MAX_FERTILE_AGE, 0.01));
+
+        statistics = new PopulationStatistics(death, null, death, null, null, orderedBirth, null, adulterousBirth,
+                marriage, separation, null, null, null, null, null, null, null, null, null, null, null, null,
+                TIME_STEP, TIME_STEP, random);
+    }
+
+    @Benchmark
+    public int keyedYear() {
+
+        int total = 0;
+
+        for (final SexOption sex : new SexOption[]{SexOption.MALE, SexOption.FEMALE}) {
+            for (int age = 0; age <= MAX_AGE; age++) {
+                total += keyed(new DeathStatsKey(age, PEOPLE_PER_REQUEST, TIME_STEP, DATE, sex));
+            }
+        }
+
+        for (int age = 0; age <= MAX_AGE; age++) {
+            for (int order = 0; order <= MAX_ORDER; order++) {
+                total += keyed(new BirthStatsKey(age, order, PEOPLE_PER_REQUEST, TIME_STEP, DATE));
+                total += keyed(new SeparationStatsKey(order, age, PEOPLE_PER_REQUEST, TIME_STEP, DATE));
+            }
+        }
+
+        for (int age = MIN_FERTILE_AGE; age <= MAX_FERTILE_AGE; age++) {
+            total += keyed(new MarriageStatsKey(age, PEOPLE_PER_REQUEST, TIME_STEP, DATE));
+            total += keyed(new AdulterousBirthStatsKey(age, PEOPLE_PER_REQUEST, TIME_STEP, DATE));
+        }
+
+        return total;
+    }
+
+    @Benchmark
+    public int keyFreeYear() {
+
+        int total = 0;
+
+        for (final SexOption sex : new SexOption[]{SexOption.MALE, SexOption.FEMALE}) {
+            for (int age = 0; age <= MAX_AGE; age++) {
+                final int count = statistics.determineDeathCount(YEAR, sex, age, PEOPLE_PER_REQUEST, TIME_STEP, null);
+                statistics.returnAchievedDeathCount(YEAR, sex, age, PEOPLE_PER_REQUEST, TIME_STEP, count);
+                total += count;
+            }
+        }
+
+        for (int age = 0; age <= MAX_AGE; age++) {
+            for (int order = 0; order <= MAX_ORDER; order++) {
+
+                final int births = statistics.determineBirthCount(YEAR, age, order, PEOPLE_PER_REQUEST, TIME_STEP, null);
+                statistics.returnAchievedBirthCount(YEAR, age, order, PEOPLE_PER_REQUEST, TIME_STEP, births, births);
+
+                final int separations = statistics.determineSeparationCount(YEAR, order, age, PEOPLE_PER_REQUEST, TIME_STEP, null);
+                statistics.returnAchievedSeparationCount(YEAR, order, age, PEOPLE_PER_REQUEST, TIME_STEP, separations, separations);
+
+                total += births + separations;
+            }
+        }
+
+        for (int age = MIN_FERTILE_AGE; age <= MAX_FERTILE_AGE; age++) {
+
+            final int marriages = statistics.determineMarriageCount(YEAR, age, PEOPLE_PER_REQUEST, TIME_STEP, null);
+            statistics.returnAchievedMarriageCount(YEAR, age, PEOPLE_PER_REQUEST, TIME_STEP, marriages);
+
+            final int adulterousBirths = statistics.determineAdulterousBirthCount(YEAR, age, PEOPLE_PER_REQUEST, TIME_STEP, null);
+            statistics.returnAchievedAdulterousBirthCount(YEAR, age, PEOPLE_PER_REQUEST, TIME_STEP, adulterousBirths);
+
+            total += marriages + adulterousBirths;
+        }
+
+        return total;
+    }
+
+    private int keyed(final StatsKey<?, ?> key) {
+
+        @SuppressWarnings("unchecked")
+        final DeterminedCount<Integer, Double, Integer, Integer> count = (DeterminedCount<Integer, Double, Integer, Integer>) statistics.getDeterminedCount(key, null);
+
+        count.setFulfilledCount(count.getDeterminedCount());
+        statistics.returnAchievedCount(count);
+
+        return count.getDeterminedCount();
+    }
+
+    private TreeMap<Year, SelfCorrectingOneDimensionDataDistribution> yearly(final SelfCorrectingOneDimensionDataDistribution distribution) {
+
+        final TreeMap<Year, SelfCorrectingOneDimensionDataDistribution> map = new TreeMap<>();
+        map.put(Year.of(YEAR), distribution);
+        return map;
+    }
+
+    private SelfCorrectingTwoDimensionDataDistribution table(final int minAge, final int maxAge, final double rate) {
+
+        final Map<IntegerRange, SelfCorrectingOneDimensionDataDistribution> rows = new TreeMap<>();
+
+        for (int age = minAge; age <= maxAge; age++) {
+            rows.put(new IntegerRange(age), rates(0, MAX_ORDER, rate));
+        }
+
+        return new SelfCorrectingTwoDimensionDataDistribution(Year.of(YEAR), "test", "test", rows);
+    }
+
+    private SelfCorrectingOneDimensionDataDistribution rates(final int min, final int max, final double rate) {
+
+        final Map<IntegerRange, Double> data = new TreeMap<>();
+
+        for (int value = min; value < max; value++) {
+            data.put(new IntegerRange(value), rate);
+        }
+        data.put(new IntegerRange(max + "+"), rate);
+
+        // Counts are rounded rather than sampled, so that only the allocation of the access path is measured
+        return new SelfCorrectingOneDimensionDataDistribution(Year.of(YEAR), "test", "test", data, false, random);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+
+        new Runner(new OptionsBuilder()
+                .include(DeterminedCountBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
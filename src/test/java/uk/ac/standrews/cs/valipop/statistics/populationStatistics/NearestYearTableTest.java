@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.statistics.populationStatistics;
+
+import org.junit.Test;
+
+import java.time.Year;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class NearestYearTableTest {
+
+    @Test
+    public void resolvesToNearestTableYear() {
+
+        TreeMap<Year, String> map = new TreeMap<>();
+        map.put(Year.of(1855), "1855");
+        map.put(Year.of(1861), "1861");
+        map.put(Year.of(1871), "1871");
+        map.put(Year.of(1872), "1872");
+
+        NearestYearTable<String> table = new NearestYearTable<>(map);
+
+        for (int year = 1800; year < 1900; year++) {
+            assertEquals(map.get(nearestByTreeSearch(Year.of(year), map)), table.get(Year.of(year)));
+        }
+
+        // Equally distant from 1861 and 1871
+        assertEquals("1871", table.get(Year.of(1866)));
+    }
+
+    @Test
+    public void emptyTableHasNoEntries() {
+
+        assertNull(new NearestYearTable<String>(new TreeMap<>()).get(Year.of(1900)));
+    }
+
+    private static Year nearestByTreeSearch(Year year, TreeMap<Year, ?> map) {
+
+        Year ceiling = map.ceilingKey(year);
+        Year floor = map.floorKey(year);
+
+        if (ceiling == null) return floor;
+        if (floor == null) return ceiling;
+
+        int yearInt = year.getValue();
+
+        return ceiling.getValue() - yearInt > yearInt - floor.getValue() ? floor : ceiling;
+    }
+}
@@ -20,6 +20,7 @@ import org.apache.commons.math3.random.JDKRandomGenerator;
 import org.apache.commons.math3.random.RandomGenerator;
 import org.junit.Test;
 import uk.ac.standrews.cs.valipop.Config;
+import uk.ac.standrews.cs.valipop.statistics.analysis.validation.contingencyTables.TreeStructure.SexOption;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.determinedCounts.MultipleDeterminedCountByIR;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.determinedCounts.SingleDeterminedCount;
 import uk.ac.standrews.cs.valipop.statistics.populationStatistics.statsKeys.BirthStatsKey;
@@ -29,6 +30,11 @@ import uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets.IntegerRan
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.Period;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 
 /**
  * @author Tom Dalton (tsd4@st-andrews.ac.uk)
@@ -88,4 +94,51 @@ public class PopulationStatisticsTest {
 
         mDC.getRawUncorrectedCount();
     }
+
+    @Test
+    public void copyBehavesAsStatisticsReadInAgain() {
+
+        Config config = new Config(
+                LocalDate.of(1599, 1, 1),
+                LocalDate.of(1855, 1, 1),
+                LocalDate.of(2015, 1, 1),
+                0,
+                Paths.get("src/test/resources/valipop/test-pop"),
+                Config.DEFAULT_RESULTS_SAVE_PATH, "POPULATION_STATISTICS_TEST",
+                Config.DEFAULT_RESULTS_SAVE_PATH).setDeterministic(true);
+
+        PopulationStatistics loaded = PopulationStatistics.readIn(config);
+
+        // Corrections made to the statistics copied from, or to an earlier copy, must not carry over to a copy
+        simulateUse(loaded, config);
+        simulateUse(new PopulationStatistics(loaded, config), config);
+
+        assertEquals(simulateUse(new PopulationStatistics(config), config), simulateUse(new PopulationStatistics(loaded, config), config));
+    }
+
+    private static List<Object> simulateUse(PopulationStatistics statistics, Config config) {
+
+        List<Object> results = new ArrayList<>();
+        Period timeStep = Period.ofYears(1);
+
+        for (int year = 1850; year < 1870; year++) {
+            for (int age = 15; age < 50; age++) {
+
+                int births = statistics.determineBirthCount(year, age, 0, 100, timeStep, config);
+                statistics.returnAchievedBirthCount(year, age, 0, 100, timeStep, births, Math.max(0, births - 1));
+                results.add(births);
+
+                int deaths = statistics.determineDeathCount(year, SexOption.FEMALE, age, 100, timeStep, config);
+                statistics.returnAchievedDeathCount(year, SexOption.FEMALE, age, 100, timeStep, deaths / 2);
+                results.add(deaths);
+
+                results.add(statistics.getDeathCauseRates(Year.of(year), SexOption.MALE, age).getSample());
+            }
+
+            results.add(statistics.getForenameDistribution(Year.of(year), SexOption.FEMALE).getSample());
+            results.add(statistics.getSurnameDistribution(Year.of(year)).getSample());
+        }
+
+        return results;
+    }
 }
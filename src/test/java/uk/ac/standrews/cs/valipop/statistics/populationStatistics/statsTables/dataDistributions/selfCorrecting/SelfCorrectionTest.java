@@ -112,6 +112,37 @@ public class SelfCorrectionTest {
         }
     }
 
+    @Test
+    public void keyFreeAccessMatchesKeyedAccess() {
+
+        SelfCorrectingOneDimensionDataDistribution keyed = createSC1DDD();
+        SelfCorrectingOneDimensionDataDistribution keyFree = createSC1DDD();
+
+        RandomGenerator random = new JDKRandomGenerator();
+
+        Period m2 = Period.ofMonths(2);
+
+        for (int round = 0; round < 5; round++) {
+            for (IntegerRange iR : keyed.getRate().keySet()) {
+
+                int n = 100 + round * 37;
+
+                StatsKey<Integer, Integer> k = new DeathStatsKey(iR.getValue(), n, m2, null, SexOption.MALE);
+                DeterminedCount<Integer, Double, Integer, Integer> r = keyed.determineCount(k, null, random);
+                int count = keyFree.determineCount(iR.getValue(), n, m2, null);
+
+                assertEquals((int) r.getDeterminedCount(), count);
+
+                // under and over achieve in turn so that the correction comes into play
+                int fulfilled = round % 2 == 0 ? count / 2 : Math.min(n, count * 2 + 1);
+
+                r.setFulfilledCount(fulfilled);
+                keyed.returnAchievedCount(r, random);
+                keyFree.returnAchievedCount(iR.getValue(), n, m2, fulfilled);
+            }
+        }
+    }
+
     @SuppressWarnings({ "unused", "rawtypes" })
     private int calcExpectedCount(DeterminedCount applied, StatsKey corrective, double targetRate) {
 
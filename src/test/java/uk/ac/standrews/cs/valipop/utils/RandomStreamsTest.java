@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class RandomStreamsTest {
+
+    private static final LocalDate YEAR = LocalDate.of(1900, 1, 1);
+
+    @Test
+    public void sharedStreamsUseOneGenerator() {
+
+        RandomStreams streams = new RandomStreams(1234, false);
+
+        assertSame(streams.forSubsystem(RandomStreams.DEATH_DATES), streams.forSubsystem(RandomStreams.MIGRATION));
+    }
+
+    @Test
+    public void splitStreamsDependOnlyOnSeedAndKeys() {
+
+        RandomStreams streams = new RandomStreams(1234, true);
+        RandomStreams other = new RandomStreams(1234, true);
+
+        // Drawing from one stream does not affect another
+        streams.forSubsystem(RandomStreams.MIGRATION).nextLong();
+
+        assertSameSequence(streams.forSubsystem(RandomStreams.DEATH_DATES), other.forSubsystem(RandomStreams.DEATH_DATES));
+        assertSameSequence(streams.forCohort(RandomStreams.DEATHS, YEAR, 7), other.forCohort(RandomStreams.DEATHS, YEAR, 7));
+    }
+
+    @Test
+    public void splitStreamsDifferByKey() {
+
+        RandomStreams streams = new RandomStreams(1234, true);
+
+        assertNotEquals(streams.forSubsystem(RandomStreams.DEATH_DATES).nextLong(), streams.forSubsystem(RandomStreams.MIGRATION).nextLong());
+        assertNotEquals(streams.forCohort(RandomStreams.DEATHS, YEAR, 7).nextLong(), streams.forCohort(RandomStreams.DEATHS, YEAR, 8).nextLong());
+        assertNotEquals(streams.forCohort(RandomStreams.DEATHS, YEAR, 7).nextLong(), streams.forCohort(RandomStreams.DEATHS, YEAR.plusYears(1), 7).nextLong());
+        assertNotEquals(streams.forSubsystem(RandomStreams.DEATH_DATES).nextLong(), new RandomStreams(1235, true).forSubsystem(RandomStreams.DEATH_DATES).nextLong());
+    }
+
+    @Test
+    public void subsystemStreamsDependOnlyOnCohortOnceStarted() {
+
+        RandomStreams streams = new RandomStreams(1234, true);
+        RandomStreams other = new RandomStreams(1234, true);
+
+        RandomGenerator people = streams.forSubsystem(RandomStreams.PEOPLE);
+        RandomGenerator otherPeople = other.forSubsystem(RandomStreams.PEOPLE);
+
+        // Draws made for an earlier cohort do not affect those made for a later one
+        streams.startCohort(RandomStreams.BIRTHS, YEAR, 3, 1);
+        people.nextLong();
+
+        streams.startCohort(RandomStreams.BIRTHS, YEAR, 7, 1);
+        other.startCohort(RandomStreams.BIRTHS, YEAR, 7, 1);
+
+        assertSameSequence(people, otherPeople);
+
+        streams.startCohort(RandomStreams.BIRTHS, YEAR, 7, 1);
+        long first = people.nextLong();
+
+        streams.startCohort(RandomStreams.BIRTHS, YEAR, 7, 2);
+        assertNotEquals(first, people.nextLong());
+
+        streams.startCohort(RandomStreams.DEATHS, YEAR, 7, 1);
+        assertNotEquals(first, people.nextLong());
+    }
+
+    @Test
+    public void startingCohortLeavesSharedStreamUnchanged() {
+
+        RandomStreams streams = new RandomStreams(1234, false);
+        RandomStreams other = new RandomStreams(1234, false);
+
+        streams.startCohort(RandomStreams.BIRTHS, YEAR, 7);
+
+        assertSameSequence(streams.forSubsystem(RandomStreams.PEOPLE), other.forSubsystem(RandomStreams.PEOPLE));
+    }
+
+    @Test
+    public void generatorStaysInRange() {
+
+        RandomGenerator random = new SplitMix64Generator(42);
+
+        for (int i = 0; i < 10000; i++) {
+
+            int n = random.nextInt(17);
+            double d = random.nextDouble();
+
+            assertTrue(n >= 0 && n < 17);
+            assertTrue(d >= 0 && d < 1);
+        }
+    }
+
+    private static void assertSameSequence(RandomGenerator expected, RandomGenerator actual) {
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(expected.nextLong(), actual.nextLong());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils.addressLookup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the nearest neighbour searches of {@link AreaGrid} against a scan of all areas.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class AreaGridTest {
+
+    private static final int NUMBER_OF_AREAS = 2000;
+    private static final int NUMBER_OF_QUERIES = 500;
+
+    private List<Area> areas;
+    private Random random;
+
+    @Before
+    public void setUp() throws IOException {
+
+        random = new Random(1234);
+        areas = makeAreas(NUMBER_OF_AREAS, random);
+    }
+
+    @Test
+    public void nearestMatchesScan() {
+
+        AreaGrid grid = new AreaGrid(areas);
+        Set<Area> present = new LinkedHashSet<>();
+
+        for (Area area : areas) {
+            grid.add(area);
+            present.add(area);
+        }
+
+        for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+
+            // Remove some areas as they would be when filled, and include locations outside of the grid
+            Area removed = areas.get(random.nextInt(areas.size()));
+            grid.remove(removed);
+            present.remove(removed);
+
+            double lat = 54 + random.nextDouble() * 6;
+            double lon = -8 + random.nextDouble() * 7;
+
+            assertEquals(present.size(), grid.size());
+            assertEquals(scan(present, lat, lon, 1).get(0).getDistanceTo(lat, lon), grid.nearest(lat, lon).getDistanceTo(lat, lon), 0);
+        }
+    }
+
+    @Test
+    public void kNearestMatchesScan() {
+
+        AreaGrid grid = new AreaGrid(areas);
+
+        for (Area area : areas) {
+            grid.add(area);
+        }
+
+        for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+
+            double lat = 55 + random.nextDouble() * 4;
+            double lon = -7 + random.nextDouble() * 5;
+            int k = 1 + random.nextInt(20);
+
+            List<Area> expected = scan(areas, lat, lon, k);
+            List<Area> actual = grid.nearest(lat, lon, k);
+
+            assertEquals(k, actual.size());
+
+            for (int j = 0; j < k; j++) {
+                assertEquals(expected.get(j).getDistanceTo(lat, lon), actual.get(j).getDistanceTo(lat, lon), 0);
+            }
+        }
+    }
+
+    @Test
+    public void addingTwiceHasNoEffect() {
+
+        AreaGrid grid = new AreaGrid(areas);
+
+        grid.add(areas.get(0));
+        grid.add(areas.get(0));
+        assertEquals(1, grid.size());
+
+        grid.remove(areas.get(0));
+        assertEquals(0, grid.size());
+        assertNull(grid.nearest(56, -4));
+    }
+
+    private static List<Area> scan(Collection<Area> areas, double lat, double lon, int k) {
+
+        List<Area> sorted = new ArrayList<>(areas);
+        sorted.sort(Comparator.comparingDouble(area -> area.getDistanceTo(lat, lon)));
+        return sorted.subList(0, Math.min(k, sorted.size()));
+    }
+
+    static List<Area> makeAreas(int numberOfAreas, Random random) throws IOException {
+
+        // Areas are clustered into towns, as in real residential geographies
+        StringBuilder json = new StringBuilder("[");
+        double townLat = 0;
+        double townLon = 0;
+
+        for (int i = 0; i < numberOfAreas; i++) {
+
+            if (i % 50 == 0) {
+                townLat = 55 + random.nextDouble() * 4;
+                townLon = -7 + random.nextDouble() * 5;
+            }
+
+            double lat = townLat + random.nextGaussian() * 0.02;
+            double lon = townLon + random.nextGaussian() * 0.02;
+
+            if (i > 0) json.append(",");
+
+            json.append(String.format("{\"place_id\": %d, \"road\": \"Road %d\", " +
+                    "\"boundingBox\": {\"bottomLeft\": {\"lat\": %f, \"lon\": %f}, \"topRight\": {\"lat\": %f, \"lon\": %f}}, " +
+                    "\"details\": {\"category\": \"highway\", \"type\": \"residential\", \"osm_type\": \"W\", \"osm_id\": %d, \"centroid\": {\"lat\": %f, \"lon\": %f}}, " +
+                    "\"numberingOffset\": 0, \"maximumNumberOfAbodes\": 10}",
+                    i, i, lat - 0.002, lon - 0.002, lat + 0.002, lon + 0.002, i, lat, lon));
+        }
+
+        json.append("]");
+
+        return new ArrayList<>(Arrays.asList(new ObjectMapper().readValue(json.toString(), Area[].class)));
+    }
+}
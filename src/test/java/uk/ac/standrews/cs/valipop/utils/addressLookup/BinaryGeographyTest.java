@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils.addressLookup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that areas read from a {@link BinaryGeography} match those written.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class BinaryGeographyTest {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("geography", BinaryGeography.FILE_EXTENSION);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void areasSurviveRoundTrip() throws IOException {
+
+        List<Area> written = AreaGridTest.makeAreas(200, new Random(1234));
+        written.add(new ObjectMapper().readValue("{\"error\": \"Unable to geocode\"}", Area.class));
+
+        BinaryGeography.write(written, file);
+        List<Area> read = BinaryGeography.read(file);
+
+        assertTrue(BinaryGeography.isBinaryGeography(file));
+        assertEquals(written.size(), read.size());
+
+        for (int i = 0; i < written.size(); i++) {
+
+            Area expected = written.get(i);
+            Area actual = read.get(i);
+
+            assertEquals(expected.getPlaceId(), actual.getPlaceId());
+            assertEquals(expected.getError(), actual.getError());
+            assertEquals(expected.toString(), actual.toString());
+            assertEquals(expected.getState(), actual.getState());
+            assertEquals(expected.getPostcode(), actual.getPostcode());
+            assertEquals(expected.getNumberingOffset(), actual.getNumberingOffset());
+            assertEquals(expected.getMaximumNumberOfAbodes(), actual.getMaximumNumberOfAbodes());
+
+            if (expected.getDetails() == null) {
+                assertNull(actual.getDetails());
+                assertNull(actual.getBoundingBox());
+                continue;
+            }
+
+            assertTrue(actual.isResidential());
+            assertEquals(expected.isWay(), actual.isWay());
+            assertEquals(expected.getDetails().getOsmWayID(), actual.getDetails().getOsmWayID());
+            assertEquals(expected.getCentriod().toString(), actual.getCentriod().toString());
+            assertEquals(expected.getBoundingBox().getBottomLeft().toString(), actual.getBoundingBox().getBottomLeft().toString());
+            assertEquals(expected.getBoundingBox().getTopRight().toString(), actual.getBoundingBox().getTopRight().toString());
+        }
+    }
+
+    @Test
+    public void roadNamesAreShared() throws IOException {
+
+        List<Area> written = AreaGridTest.makeAreas(2, new Random(1234));
+        written.add(written.get(0));
+
+        BinaryGeography.write(written, file);
+        List<Area> read = BinaryGeography.read(file);
+
+        assertSame(read.get(0).getRoad(), read.get(2).getRoad());
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFilesAreRejected() throws IOException {
+
+        Files.write(file, "[{\"place_id\": 1}]".getBytes());
+        BinaryGeography.read(file);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils.addressLookup;
+
+import org.apache.commons.math3.random.JDKRandomGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the nearest vacant address lookups of the {@link Geography} index types.
+ *
+ * Run with the test classpath, for example from an IDE, by running {@link #main(String[])}.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeographyBenchmark {
+
+    private static final int NUMBER_OF_QUERIES = 1024;
+
+    @Param({"10000", "100000"})
+    private int numberOfAreas;
+
+    @Param({"TREE_MAP", "GRID"})
+    private GeographyIndexType indexType;
+
+    private Geography geography;
+    private Coords[] origins;
+    private double[] distances;
+    private int next = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        final Random random = new Random(42);
+        final List<Area> areas = AreaGridTest.makeAreas(numberOfAreas, random);
+
+        final JDKRandomGenerator generator = new JDKRandomGenerator();
+        generator.setSeed(42);
+
+        geography = new Geography(areas, generator, 1, indexType);
+
+        origins = new Coords[NUMBER_OF_QUERIES];
+        distances = new double[NUMBER_OF_QUERIES];
+
+        for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+            origins[i] = areas.get(random.nextInt(areas.size())).getCentriod();
+            distances[i] = random.nextDouble() * 20;
+        }
+    }
+
+    @Benchmark
+    public Address nearestEmptyAddress() {
+
+        final Coords origin = origins[next++ & (NUMBER_OF_QUERIES - 1)];
+        return geography.getNearestEmptyAddress(origin.lat + 0.01, origin.lon - 0.01);
+    }
+
+    @Benchmark
+    public Address nearestEmptyAddressAtDistance() {
+
+        final int i = next++ & (NUMBER_OF_QUERIES - 1);
+        return geography.getNearestEmptyAddressAtDistance(origins[i], distances[i]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+
+        new Runner(new OptionsBuilder().include(GeographyBenchmark.class.getSimpleName()).build()).run();
+    }
+}
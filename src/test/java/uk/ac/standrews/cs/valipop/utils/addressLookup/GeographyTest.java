@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils.addressLookup;
+
+import org.apache.commons.math3.random.JDKRandomGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the allocation of vacant addresses by {@link Geography} and {@link Area} as the geography fills up.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class GeographyTest {
+
+    private static final int NUMBER_OF_AREAS = 20;
+    private static final int ABODES_PER_AREA = 10;
+
+    private List<Area> areas;
+    private Geography geography;
+
+    @Before
+    public void setUp() throws IOException {
+
+        areas = AreaGridTest.makeAreas(NUMBER_OF_AREAS, new Random(1234));
+        geography = new Geography(areas, new JDKRandomGenerator(), 1);
+    }
+
+    @Test
+    public void everyAddressIsAllocatedOnce() {
+
+        Set<Address> allocated = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (int i = 0; i < NUMBER_OF_AREAS * ABODES_PER_AREA; i++) {
+            assertTrue(allocated.add(occupy(geography.getRandomEmptyAddress())));
+        }
+
+        for (Area area : areas) {
+            assertTrue(area.isFull());
+            assertNull(area.getFreeAddress(geography));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void fullGeographyHasNoRandomAddress() {
+
+        for (int i = 0; i < NUMBER_OF_AREAS * ABODES_PER_AREA; i++) {
+            occupy(geography.getRandomEmptyAddress());
+        }
+
+        geography.getRandomEmptyAddress();
+    }
+
+    @Test
+    public void vacatedAddressIsReallocated() {
+
+        List<Address> allocated = new ArrayList<>();
+
+        for (int i = 0; i < NUMBER_OF_AREAS * ABODES_PER_AREA; i++) {
+            allocated.add(occupy(geography.getRandomEmptyAddress()));
+        }
+
+        Address vacated = allocated.get(57);
+        vacated.removeInhabitant(null);
+
+        assertFalse(vacated.getArea().isFull());
+        assertSame(vacated, vacated.getArea().getFreeAddress(geography));
+        assertSame(vacated, geography.getRandomEmptyAddress());
+    }
+
+    @Test
+    public void areaOffersLowestNumberedVacancy() {
+
+        Area area = areas.get(0);
+        List<Address> addresses = new ArrayList<>();
+
+        for (int i = 0; i < ABODES_PER_AREA; i++) {
+            addresses.add(occupy(area.getFreeAddress(geography)));
+        }
+
+        addresses.get(7).removeInhabitant(null);
+        addresses.get(3).removeInhabitant(null);
+
+        assertSame(addresses.get(3), area.getFreeAddress(geography));
+        occupy(addresses.get(3));
+        assertSame(addresses.get(7), area.getFreeAddress(geography));
+    }
+
+    private static Address occupy(Address address) {
+
+        // only the number of inhabitants matters to the geography
+        address.addInhabitant(null);
+        return address;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils.sourceEventRecords;
+
+import org.junit.Test;
+import uk.ac.standrews.cs.utilities.FileManipulation;
+import uk.ac.standrews.cs.valipop.Config;
+import uk.ac.standrews.cs.valipop.implementations.OBDModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static uk.ac.standrews.cs.valipop.implementations.PopulationTestCases.testConfig;
+
+/**
+ * Checks that the records streamed while the simulation runs are those output for the complete population.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class StreamingRecordWriterTest {
+
+    @Test
+    public void streamedRecordsMatchRecordsOfCompletePopulation() throws IOException {
+
+        Config batchConfig = makeConfig(false);
+        OBDModel batch = new OBDModel(batchConfig);
+        batch.runSimulation();
+
+        Path batchDir = Files.createTempDirectory("batch-records");
+        RecordGenerationFactory.outputRecords(RecordFormat.TD, batchDir, batch.getPopulation().getPeople(),
+                batch.getPopulation().getPeople().getPartnerships(), batchConfig.getT0());
+
+        Config streamedConfig = makeConfig(true);
+        new OBDModel(streamedConfig).runSimulation();
+
+        Path streamedDir = streamedConfig.getRecordsDirPath();
+
+        for (String file : new String[]{Record.BIRTH_RECORDS_PATH, Record.DEATH_RECORDS_PATH, Record.MARRIAGE_RECORDS_PATH}) {
+
+            List<String> expected = readRecords(batchDir.resolve(file));
+            List<String> actual = readRecords(streamedDir.resolve(file));
+
+            assertFalse(expected.isEmpty());
+            assertEquals(file, expected, actual);
+        }
+    }
+
+    private static Config makeConfig(final boolean streamRecords) {
+
+        Config config = testConfig("STREAMING_TEST").setStreamRecords(streamRecords);
+
+        config.setOutputRecordFormat(RecordFormat.TD);
+        return config;
+    }
+
+    // The header followed by the rows in order, as streamed rows are written in the order they settle
+    private static List<String> readRecords(final Path path) throws IOException {
+
+        List<String> lines = new ArrayList<>(Files.readAllLines(path, FileManipulation.FILE_CHARSET));
+
+        if (!lines.isEmpty()) {
+            Collections.sort(lines.subList(1, lines.size()));
+        }
+
+        return lines;
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2017 Systems Research Group, University of St Andrews:
+ * <https://github.com/stacs-srg>
+ *
+ * This file is part of the module population_model.
+ *
+ * population_model is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * population_model is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with population_model. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package uk.ac.standrews.cs.valipop.utils.specialTypes.labeledValueSets;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.junit.Test;
+import uk.ac.standrews.cs.valipop.utils.SplitMix64Generator;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the array backed sets behave as the map backed sets do, over many randomly generated sets.
+ *
+ * @author Tom Dalton (tsd4@st-andrews.ac.uk)
+ */
+public class IntegerRangeArraySetTest {
+
+    private static final int TRIALS = 2000;
+
+    private final Random cases = new Random(8732);
+
+    @Test
+    public void integerOperationsMatchMapBackedSet() {
+
+        for (int trial = 0; trial < TRIALS; trial++) {
+
+            final IntegerRangeIndex labels = randomLabels();
+            final IntegerRangeToIntegerSet expected = randomIntegers(labels);
+            final IntegerRangeToIntArraySet actual = new IntegerRangeToIntArraySet(labels, expected, random(trial));
+            final IntegerRangeToIntegerSet other = randomIntegers(labels);
+
+            assertEquals(expected.getMap(), actual.getMap());
+            assertEquals(expected.getSumOfValues(), actual.getSumOfValues());
+            assertEquals(expected.countNegativeValues(), actual.countNegativeValues());
+            assertEquals(expected.countPositiveValues(), actual.countPositiveValues());
+            assertEquals(expected.smallestLabel(), actual.smallestLabel());
+
+            assertSameOutcome(() -> expected.valuesSubtractValues(other), () -> actual.valuesSubtractValues(other));
+            assertSameOutcome(() -> expected.valuesPlusValues(other), () -> actual.valuesPlusValues(other));
+            assertSameOutcome(() -> expected.productOfValuesAndN(1.7), () -> actual.productOfValuesAndN(1.7));
+            assertSameOutcome(expected::zeroNegativeValues, actual::zeroNegativeValues);
+            assertSameOutcome(expected::productOfLabelsAndValues, actual::productOfLabelsAndValues);
+            assertSameOutcome(expected::divisionOfValuesByLabels, actual::divisionOfValuesByLabels);
+            assertSameOutcome(expected::controlledRoundingMaintainingSum, actual::controlledRoundingMaintainingSum);
+            assertSameOutcome(expected::getLargestLabelOfNonZeroValue, actual::getLargestLabelOfNonZeroValue);
+
+            final IntegerRange n = new IntegerRange(cases.nextInt(30));
+            assertSameOutcome(() -> expected.getLargestLabelOfNonZeroValueAndLabelLessOrEqualTo(n), () -> actual.getLargestLabelOfNonZeroValueAndLabelLessOrEqualTo(n));
+            assertSameOutcome(() -> expected.getLargestLabelOfNonZeroValueAndLabelPreferablyLessOrEqualTo(n), () -> actual.getLargestLabelOfNonZeroValueAndLabelPreferablyLessOrEqualTo(n));
+        }
+    }
+
+    @Test
+    public void doubleOperationsMatchMapBackedSet() {
+
+        for (int trial = 0; trial < TRIALS; trial++) {
+
+            final IntegerRangeIndex labels = randomLabels();
+            final IntegerRangeToDoubleSet expected = randomDoubles(labels);
+            final IntegerRangeToDoubleArraySet actual = new IntegerRangeToDoubleArraySet(labels, expected, random(trial));
+            final IntegerRangeToDoubleSet other = randomDoubles(labels);
+
+            assertEquals(expected.getMap(), actual.getMap());
+            assertEquals(expected.getSumOfValues(), actual.getSumOfValues());
+            assertEquals(expected.countNegativeValues(), actual.countNegativeValues());
+
+            assertSameOutcome(() -> expected.valuesSubtractValues(other), () -> actual.valuesSubtractValues(other));
+            assertSameOutcome(() -> expected.valuesAddNWhereCorrespondingLabelNegativeInLVS(2.5, other), () -> actual.valuesAddNWhereCorrespondingLabelNegativeInLVS(2.5, other));
+            assertSameOutcome(expected::floorValues, actual::floorValues);
+            assertSameOutcome(expected::reproportion, actual::reproportion);
+            assertSameOutcome(expected::zeroNegativeValues, actual::zeroNegativeValues);
+            assertSameOutcome(expected::productOfLabelsAndValues, actual::productOfLabelsAndValues);
+            assertSameOutcome(() -> expected.getLabelOfValueWithGreatestRemainder(new TreeSet<>()), () -> actual.getLabelOfValueWithGreatestRemainder(new TreeSet<>()));
+            assertSameOutcome(expected::getLargestLabelOfNonZeroValue, actual::getLargestLabelOfNonZeroValue);
+
+            final IntegerRange n = new IntegerRange(cases.nextInt(30));
+            assertSameOutcome(() -> expected.getLargestLabelOfNonZeroValueAndLabelLessOrEqualTo(n), () -> actual.getLargestLabelOfNonZeroValueAndLabelLessOrEqualTo(n));
+            assertSameOutcome(() -> expected.getLargestLabelOfNonZeroValueAndLabelPreferablyLessOrEqualTo(n), () -> actual.getLargestLabelOfNonZeroValueAndLabelPreferablyLessOrEqualTo(n));
+
+            // The same random numbers are drawn, so the same label is chosen
+            final IntegerRangeToDoubleSet sameRandom = new IntegerRangeToDoubleSet(expected, random(trial));
+            assertSameOutcome(sameRandom::getRandomLabelOfNonZeroValue, actual::getRandomLabelOfNonZeroValue);
+        }
+    }
+
+    @Test
+    public void controlledRoundingMatchesMapBackedSet() {
+
+        for (int trial = 0; trial < TRIALS; trial++) {
+
+            final IntegerRangeIndex labels = randomLabels();
+            final IntegerRangeToDoubleSet expected = wholeNumberSum(randomDoubles(labels));
+            final IntegerRangeToDoubleArraySet actual = new IntegerRangeToDoubleArraySet(labels, expected, random(trial));
+
+            assertSameOutcome(expected::controlledRoundingMaintainingSum, actual::controlledRoundingMaintainingSum);
+        }
+    }
+
+    @Test
+    public void inPlaceOperationsMatchNewSets() {
+
+        for (int trial = 0; trial < TRIALS; trial++) {
+
+            final IntegerRangeIndex labels = randomLabels();
+            final IntegerRangeToIntArraySet counts = new IntegerRangeToIntArraySet(labels, randomIntegers(labels), random(trial));
+            final IntegerRangeToIntArraySet other = new IntegerRangeToIntArraySet(labels, randomIntegers(labels), random(trial));
+
+            final LabelledValueSet<IntegerRange, Double> difference = counts.valuesSubtractValues(other);
+            final IntegerRangeToDoubleArraySet inPlace = new IntegerRangeToDoubleArraySet(labels, random(trial));
+
+            assertEquals(difference.getMap(), inPlace.setValues(counts).subtractValuesInPlace(other).getMap());
+            assertEquals(difference.zeroNegativeValues().getMap(), inPlace.clone().zeroNegativeValuesInPlace().getMap());
+            assertEquals(counts.valuesAddNWhereCorrespondingLabelNegativeInLVS(0.5, inPlace).getMap(),
+                    new IntegerRangeToDoubleArraySet(labels, counts, random(trial)).addNWhereCorrespondingLabelNegativeInPlace(0.5, inPlace).getMap());
+        }
+    }
+
+    @Test
+    public void labelsAreFixed() {
+
+        final IntegerRangeIndex labels = new IntegerRangeIndex(Arrays.asList(new IntegerRange("0-4"), new IntegerRange("5-9")));
+        final IntegerRangeToIntArraySet set = new IntegerRangeToIntArraySet(labels, random(0));
+
+        set.update(new IntegerRange("5-9"), 3);
+        assertEquals(3, (int) set.get(new IntegerRange("5-9")));
+        assertNull(set.get(new IntegerRange(12)));
+
+        try {
+            set.add(new IntegerRange(12), 1);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    private static RandomGenerator random(final int seed) {
+        return new SplitMix64Generator(seed);
+    }
+
+    private IntegerRangeIndex randomLabels() {
+
+        final List<IntegerRange> labels = new ArrayList<>();
+        final int size = 1 + cases.nextInt(8);
+        int min = cases.nextInt(3);
+
+        for (int i = 0; i < size; i++) {
+
+            final int width = cases.nextInt(4);
+
+            if (i == size - 1 && cases.nextBoolean()) {
+                labels.add(new IntegerRange(min + "+"));
+            } else if (width == 0) {
+                labels.add(new IntegerRange(min));
+            } else {
+                labels.add(new IntegerRange(min + "-" + (min + width)));
+            }
+
+            min += width + 1;
+        }
+
+        return new IntegerRangeIndex(labels);
+    }
+
+    private IntegerRangeToIntegerSet randomIntegers(final IntegerRangeIndex labels) {
+
+        final List<Integer> values = new ArrayList<>();
+        for (int row = 0; row < labels.size(); row++) {
+            values.add(cases.nextInt(4) == 0 ? 0 : cases.nextInt(20) - 5);
+        }
+
+        return new IntegerRangeToIntegerSet(new ArrayList<>(labels.getLabels()), values, random(0));
+    }
+
+    private IntegerRangeToDoubleSet randomDoubles(final IntegerRangeIndex labels) {
+
+        final List<Double> values = new ArrayList<>();
+        for (int row = 0; row < labels.size(); row++) {
+            values.add(cases.nextInt(4) == 0 ? 0.0 : cases.nextDouble() * 20 - 5);
+        }
+
+        return new IntegerRangeToDoubleSet(new ArrayList<>(labels.getLabels()), values, random(0));
+    }
+
+    private IntegerRangeToDoubleSet wholeNumberSum(final IntegerRangeToDoubleSet set) {
+
+        // Makes up the fractional part of the sum on one label
+        final IntegerRange label = new ArrayList<>(set.getLabels()).get(cases.nextInt(set.getLabels().size()));
+        final double sum = set.getSumOfValues();
+        set.update(label, set.get(label) + Math.ceil(sum) - sum);
+
+        return set;
+    }
+
+    private static void assertSameOutcome(final Supplier<Object> expected, final Supplier<Object> actual) {
+
+        final Object expectedResult;
+        try {
+            expectedResult = expected.get();
+
+        } catch (RuntimeException e) {
+            try {
+                actual.get();
+                fail("expected " + e.getClass().getSimpleName());
+            } catch (RuntimeException f) {
+                assertEquals(e.getClass(), f.getClass());
+            }
+            return;
+        }
+
+        final Object actualResult = actual.get();
+
+        if (expectedResult instanceof LabelledValueSet) {
+            assertEquals(((LabelledValueSet<?, ?>) expectedResult).getMap(), ((LabelledValueSet<?, ?>) actualResult).getMap());
+        } else {
+            assertEquals(0, ((IntegerRange) expectedResult).compareTo((IntegerRange) actualResult));
+        }
+    }
+}